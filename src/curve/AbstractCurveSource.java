@@ -0,0 +1,71 @@
+package curve;
+
+/**
+ * An AbstractCurveSource is a skeleton {@link CurveSource} that only needs
+ * {@link #getX(double)} and {@link #getY(double)} to be implemented, which makes it easy
+ * to draw a curve that is computed by Java code. For example,
+ *
+ * <pre>
+ * CurveSource circle = new AbstractCurveSource(0, 2 * Math.PI) {
+ *     public double getX(double t) { return Math.cos(t); }
+ *     public double getY(double t) { return Math.sin(t); }
+ * };
+ * </pre>
+ *
+ * Batch evaluation calls getX and getY once per t value, and the source has no
+ * derivatives. Subclasses can override these methods to do better.
+ */
+public abstract class AbstractCurveSource implements CurveSource {
+    private final double tLowerBound;
+    private final double tUpperBound;
+
+    /**
+     * Creates a source whose t values range from tLowerBound to tUpperBound.
+     *
+     * @throws IllegalArgumentException if tLowerBound > tUpperBound
+     */
+    protected AbstractCurveSource(double tLowerBound, double tUpperBound) {
+        if (tLowerBound > tUpperBound) {
+            throw new IllegalArgumentException("tLowerBound cannot be greater than tUpperBound");
+        }
+        this.tLowerBound = tLowerBound;
+        this.tUpperBound = tUpperBound;
+    }
+
+    @Override
+    public double getTLowerBound() {
+        return tLowerBound;
+    }
+
+    @Override
+    public double getTUpperBound() {
+        return tUpperBound;
+    }
+
+    @Override
+    public void evaluate(double[] tValues, double[] xValues, double[] yValues, int count) {
+        if (count < 0 || count > tValues.length || count > xValues.length || count > yValues.length) {
+            throw new IllegalArgumentException("Invalid number of t values");
+        }
+        for (int i = 0; i < count; i++) {
+            double t = tValues[i];
+            xValues[i] = getX(t);
+            yValues[i] = getY(t);
+        }
+    }
+
+    @Override
+    public boolean hasDerivatives() {
+        return false;
+    }
+
+    @Override
+    public DualNumber getXDerivatives(double t) {
+        throw new UnsupportedOperationException("This curve source does not have derivatives");
+    }
+
+    @Override
+    public DualNumber getYDerivatives(double t) {
+        throw new UnsupportedOperationException("This curve source does not have derivatives");
+    }
+}
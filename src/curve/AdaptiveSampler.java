@@ -0,0 +1,108 @@
+package curve;
+
+/**
+ * An AdaptiveSampler samples a parametric curve using interval arithmetic to decide
+ * where samples are needed. Starting from a few evenly-sized segments of t, each
+ * segment is handled as follows:
+ *
+ * 1. If the x- or y-coordinate of the curve is unbounded over the segment, the
+ *    segment may contain a discontinuity (e.g. an asymptote of tan). The segment is
+ *    split in half and each half is handled separately. Once the segment is too
+ *    small to be split further, it is pruned: no sample is taken from it, and an
+ *    undefined point is recorded instead so that the curve is not connected across
+ *    the discontinuity.
+ * 2. If the x- and y-coordinates both vary by no more than the tolerance over the
+ *    segment, the segment is flat, so a single sample is taken from its start.
+ * 3. Otherwise, the segment is split in half and each half is handled separately.
+ */
+public class AdaptiveSampler {
+    // The number of evenly-sized segments that the range of t is divided into
+    // before any adaptive splitting takes place.
+    private static final int INITIAL_SEGMENTS = 32;
+
+    private final CompiledExpression xExpression;
+    private final CompiledExpression yExpression;
+
+    // The largest amount by which x and y may vary over a segment for that segment
+    // to be considered flat.
+    private final double tolerance;
+
+    // The maximum number of times that an initial segment can be split in half.
+    private final int maxDepth;
+
+    /**
+     * Creates an AdaptiveSampler for the curve whose x- and y-coordinates are given
+     * by xExpression and yExpression.
+     *
+     * @throws IllegalArgumentException if tolerance is not positive or maxDepth is
+     * negative
+     */
+    public AdaptiveSampler(CompiledExpression xExpression, CompiledExpression yExpression,
+                           double tolerance, int maxDepth) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("tolerance must be positive");
+        }
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth cannot be negative");
+        }
+        this.xExpression = xExpression;
+        this.yExpression = yExpression;
+        this.tolerance = tolerance;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Samples the curve for tLowerBound <= t <= tUpperBound.
+     *
+     * @return the samples in order of increasing t. Undefined points separate the
+     * pieces of the curve that should not be connected to each other.
+     *
+     * @throws IllegalArgumentException if tLowerBound > tUpperBound
+     */
+    public SampleBuffer sample(double tLowerBound, double tUpperBound) {
+        if (tLowerBound > tUpperBound) {
+            throw new IllegalArgumentException("tLowerBound cannot be greater than tUpperBound");
+        }
+        SampleBuffer samples = new SampleBuffer();
+        double segmentWidth = (tUpperBound - tLowerBound) / INITIAL_SEGMENTS;
+        for (int i = 0; i < INITIAL_SEGMENTS; i++) {
+            double start = tLowerBound + i * segmentWidth;
+            double end = (i == INITIAL_SEGMENTS - 1) ? tUpperBound : start + segmentWidth;
+            sampleSegment(samples, start, end, 0);
+        }
+        if (samples.size() == 0 || !samples.isUndefined(samples.size() - 1)) {
+            addSample(samples, tUpperBound);
+        }
+        return samples;
+    }
+
+    private void sampleSegment(SampleBuffer samples, double start, double end, int depth) {
+        Interval segment = new Interval(start, end);
+        Interval xRange = xExpression.evaluate(segment);
+        Interval yRange = yExpression.evaluate(segment);
+
+        if (!xRange.isBounded() || !yRange.isBounded()) {
+            if (depth >= maxDepth) {
+                samples.addBreak(start);
+                return;
+            }
+        } else if ((xRange.width() <= tolerance && yRange.width() <= tolerance) || depth >= maxDepth) {
+            addSample(samples, start);
+            return;
+        }
+
+        double middle = start + (end - start) / 2;
+        sampleSegment(samples, start, middle, depth + 1);
+        sampleSegment(samples, middle, end, depth + 1);
+    }
+
+    private void addSample(SampleBuffer samples, double t) {
+        double x = xExpression.evaluate(t);
+        double y = yExpression.evaluate(t);
+        if (Double.isInfinite(x) || Double.isInfinite(y)) {
+            samples.addBreak(t);
+        } else {
+            samples.add(t, x, y);
+        }
+    }
+}
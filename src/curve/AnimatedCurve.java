@@ -0,0 +1,130 @@
+package curve;
+
+/**
+ * An AnimatedCurve is a {@link ParametricCurve} whose equations depend on the animation
+ * time s as well as on t, so that the whole curve changes shape as s goes by. For
+ * example, x(t) = cos(t + s), y(t) = sin(2t) makes a figure that rolls along.
+ *
+ * The curve is sampled at the same evenly spaced t values in every frame. Each
+ * coordinate is an {@link AnimatedExpression}, so the parts of the equations that only
+ * depend on t are evaluated once, and only the parts that depend on s are evaluated
+ * again for each frame. The samples of a frame are written into the same arrays every
+ * time, so drawing frame after frame does not allocate anything.
+ */
+public class AnimatedCurve {
+    /**
+     * The name of the parameter that holds the animation time
+     */
+    public static final String TIME_PARAMETER = "s";
+
+    private final ExpressionContext context;
+    private final AnimatedExpression xExpression;
+    private final AnimatedExpression yExpression;
+    // null if the curve lies in the plane
+    private final AnimatedExpression zExpression;
+
+    private final double[] tValues;
+    private final double[] xValues;
+    private final double[] yValues;
+    private final double[] zValues;
+
+    // A view of the samples of the latest frame
+    private final SampleTable3D frame;
+
+    /**
+     * Creates an AnimatedCurve that samples the given curve at numSamples evenly spaced
+     * t values from its lower bound of t to its upper bound inclusive.
+     *
+     * @throws IllegalArgumentException if numSamples is less than 2, if the curve is not
+     * given by equations, or if its context has no parameter named {@link #TIME_PARAMETER}
+     */
+    public AnimatedCurve(ParametricCurve curve, int numSamples) {
+        if (numSamples < 2) {
+            throw new IllegalArgumentException("Number of samples must be at least 2");
+        }
+        if (curve.getXExpression() == null) {
+            throw new IllegalArgumentException("Curve is not given by equations");
+        }
+
+        double tLowerBound = curve.getTLowerBound();
+        double tUpperBound = curve.getTUpperBound();
+        tValues = new double[numSamples];
+        for (int i = 0; i < numSamples - 1; i++) {
+            tValues[i] = tLowerBound + i * ((tUpperBound - tLowerBound) / (numSamples - 1));
+        }
+        tValues[numSamples - 1] = tUpperBound;
+
+        context = curve.getXExpression().getContext();
+        xExpression = new AnimatedExpression(curve.getXExpression(), TIME_PARAMETER, tValues);
+        yExpression = new AnimatedExpression(curve.getYExpression(), TIME_PARAMETER, tValues);
+        zExpression = curve.is3D() ? new AnimatedExpression(curve.getZExpression(), TIME_PARAMETER, tValues) : null;
+        xValues = new double[numSamples];
+        yValues = new double[numSamples];
+        zValues = new double[numSamples];
+
+        frame = new SampleTable3D() {
+            @Override
+            public int size() {
+                return tValues.length;
+            }
+
+            @Override
+            public double getT(int index) {
+                return tValues[index];
+            }
+
+            @Override
+            public double getX(int index) {
+                return xValues[index];
+            }
+
+            @Override
+            public double getY(int index) {
+                return yValues[index];
+            }
+
+            @Override
+            public double getZ(int index) {
+                return zValues[index];
+            }
+        };
+    }
+
+    /**
+     * @return true if the equations of the given curve depend on the animation time;
+     * false otherwise
+     */
+    public static boolean isAnimated(ParametricCurve curve) {
+        CompiledExpression xExpression = curve.getXExpression();
+        if (xExpression == null || xExpression.getContext() == null
+                || !xExpression.getContext().isParameter(TIME_PARAMETER)) {
+            return false;
+        }
+        int slot = xExpression.getContext().getParameterSlot(TIME_PARAMETER);
+        return xExpression.usesParameter(slot) || curve.getYExpression().usesParameter(slot)
+                || (curve.is3D() && curve.getZExpression().usesParameter(slot));
+    }
+
+    /**
+     * @return the number of samples in each frame
+     */
+    public int size() {
+        return tValues.length;
+    }
+
+    /**
+     * Sets the animation time to the given value and samples the curve at that time.
+     * The z-coordinates of a curve in the plane are 0.
+     *
+     * @return the samples, which stay valid until the next call of this method
+     */
+    public SampleTable3D sample(double time) {
+        context.setParameter(TIME_PARAMETER, time);
+        xExpression.evaluate(xValues);
+        yExpression.evaluate(yValues);
+        if (zExpression != null) {
+            zExpression.evaluate(zValues);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,98 @@
+package curve;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An AnimatedExpression evaluates a {@link CompiledExpression} at a fixed list of t
+ * values, over and over, while one parameter of its {@link ExpressionContext} (the
+ * animation time, for example) changes between evaluations.
+ *
+ * The expression is split once into the parts that do not depend on the animated
+ * parameter, such as sin(3t) in cos(t + s) + sin(3t), and the rest. The parts are
+ * evaluated at every t value the first time and kept, and each later evaluation only
+ * computes the rest, reading the parts back from memory. The parts are evaluated again
+ * when anything else in the context changes. The results are identical to those of
+ * {@link CompiledExpression#evaluate(double[], double[], int)} on the whole expression.
+ *
+ * An AnimatedExpression reuses its working space from one evaluation to the next, so it
+ * must not be evaluated on more than one thread at a time.
+ */
+public final class AnimatedExpression {
+    private final ExpressionContext context;
+    private final int parameterSlot;
+    private final double[] tValues;
+
+    // The expression with its parts replaced by columns
+    private final CompiledExpression rest;
+
+    private final CompiledExpression[] parts;
+
+    // columns[k] holds the values of parts[k] at every t value
+    private final double[][] columns;
+
+    private final double[][] blocks;
+
+    // The context version minus the number of changes to the animated parameter when
+    // the columns were evaluated, or -1 if they have not been evaluated yet
+    private int columnsVersion = -1;
+
+    /**
+     * Creates an AnimatedExpression that evaluates the given expression at the given t
+     * values while the parameter with the given name changes. tValues is copied.
+     *
+     * @throws IllegalArgumentException if the expression has no context, or if its
+     * context has no parameter with the given name
+     */
+    public AnimatedExpression(CompiledExpression expression, String parameter, double[] tValues) {
+        context = expression.getContext();
+        if (context == null || !context.isParameter(parameter)) {
+            throw new IllegalArgumentException("There is no parameter named " + parameter);
+        }
+        parameterSlot = context.getParameterSlot(parameter);
+        this.tValues = tValues.clone();
+
+        List<CompiledExpression> parts = new ArrayList<CompiledExpression>();
+        rest = expression.splitOnParameter(parameterSlot, parts);
+        this.parts = parts.toArray(new CompiledExpression[0]);
+        columns = new double[this.parts.length][tValues.length];
+        blocks = rest.createBlocks();
+    }
+
+    /**
+     * @return the number of t values this expression is evaluated at
+     */
+    public int size() {
+        return tValues.length;
+    }
+
+    /**
+     * @return the number of parts of the expression whose values are kept between
+     * evaluations
+     */
+    public int getNumCachedParts() {
+        return parts.length;
+    }
+
+    /**
+     * Evaluates the expression at every t value, with the current values of the
+     * parameters, and stores the results in the first size() elements of results.
+     *
+     * @throws IllegalArgumentException if results is shorter than size()
+     */
+    public void evaluate(double[] results) {
+        int count = tValues.length;
+        if (results.length < count) {
+            throw new IllegalArgumentException("Invalid number of t values");
+        }
+
+        int version = context.getVersion() - context.getParameterChanges(parameterSlot);
+        if (version != columnsVersion) {
+            for (int k = 0; k < parts.length; k++) {
+                parts[k].evaluate(tValues, columns[k], count);
+            }
+            columnsVersion = version;
+        }
+        rest.evaluate(tValues, columns, results, count, blocks);
+    }
+}
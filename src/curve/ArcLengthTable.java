@@ -0,0 +1,144 @@
+package curve;
+
+/**
+ * An ArcLengthTable records the cumulative arc length of a parametric curve at evenly
+ * spaced values of t, so that the value of t at which the curve reaches any given arc
+ * length can be looked up quickly. The arc length between neighbouring samples is
+ * approximated by the straight-line distance between them. Segments that touch an
+ * undefined point (one whose x- or y-coordinate is NaN or infinite) have length 0.
+ *
+ * Looking up t takes O(log n) time, where n is the number of samples in the table.
+ */
+public class ArcLengthTable {
+    private final double tLowerBound;
+    private final double tUpperBound;
+
+    // tValues[i] = tLowerBound + i * (tUpperBound - tLowerBound) / numSegments
+    private final double[] tValues;
+
+    // cumulativeLengths[i] is the arc length of the curve from tLowerBound to
+    // tValues[i]. This array is non-decreasing, and cumulativeLengths[0] is 0.
+    private final double[] cumulativeLengths;
+
+    /**
+     * Creates an ArcLengthTable for the curve whose x- and y-coordinates are given by
+     * xExpression and yExpression, for tLowerBound <= t <= tUpperBound. The range of t is
+     * divided into numSegments segments of equal width.
+     *
+     * @throws IllegalArgumentException if tLowerBound > tUpperBound or numSegments < 1
+     */
+    public ArcLengthTable(CompiledExpression xExpression, CompiledExpression yExpression,
+                          double tLowerBound, double tUpperBound, int numSegments) {
+        this(new ExpressionCurveSource(xExpression, yExpression, tLowerBound, tUpperBound), numSegments);
+    }
+
+    /**
+     * Creates an ArcLengthTable for the given curve over its whole range of t, which is
+     * divided into numSegments segments of equal width.
+     *
+     * @throws IllegalArgumentException if numSegments < 1
+     */
+    public ArcLengthTable(CurveSource source, int numSegments) {
+        this(source, null, numSegments);
+    }
+
+    /**
+     * Creates an ArcLengthTable as above for the curve in space whose x- and
+     * y-coordinates are given by the source, and whose z-coordinate is given by
+     * zExpression. If zExpression is null, the curve is in the plane.
+     *
+     * @throws IllegalArgumentException if numSegments < 1
+     */
+    ArcLengthTable(CurveSource source, CompiledExpression zExpression, int numSegments) {
+        double tLowerBound = source.getTLowerBound();
+        double tUpperBound = source.getTUpperBound();
+        if (numSegments < 1) {
+            throw new IllegalArgumentException("numSegments must be positive");
+        }
+        this.tLowerBound = tLowerBound;
+        this.tUpperBound = tUpperBound;
+        tValues = new double[numSegments + 1];
+        cumulativeLengths = new double[numSegments + 1];
+
+        double segmentWidth = (tUpperBound - tLowerBound) / numSegments;
+        for (int i = 0; i <= numSegments; i++) {
+            tValues[i] = (i == numSegments) ? tUpperBound : tLowerBound + i * segmentWidth;
+        }
+        double[] xValues = new double[numSegments + 1];
+        double[] yValues = new double[numSegments + 1];
+        source.evaluate(tValues, xValues, yValues, numSegments + 1);
+        double[] zValues = new double[numSegments + 1];
+        if (zExpression != null) {
+            zExpression.evaluate(tValues, zValues, numSegments + 1);
+        }
+
+        for (int i = 1; i <= numSegments; i++) {
+            double dx = xValues[i] - xValues[i - 1];
+            double dy = yValues[i] - yValues[i - 1];
+            double dz = zValues[i] - zValues[i - 1];
+            // hypot(hypot(dx, dy), 0) is exactly hypot(dx, dy), so curves in the plane
+            // have the same lengths as before
+            double segmentLength = Math.hypot(Math.hypot(dx, dy), dz);
+            if (!Double.isFinite(segmentLength)) {
+                segmentLength = 0;
+            }
+            cumulativeLengths[i] = cumulativeLengths[i - 1] + segmentLength;
+        }
+    }
+
+    /**
+     * @return the total arc length of the curve from tLowerBound to tUpperBound
+     */
+    public double getTotalLength() {
+        return cumulativeLengths[cumulativeLengths.length - 1];
+    }
+
+    /**
+     * @return the value of t at which the arc length of the curve, measured from
+     * tLowerBound, equals the given length. The length is clamped to the range
+     * [0, getTotalLength()]. Between samples, t is interpolated linearly.
+     */
+    public double getT(double length) {
+        double totalLength = getTotalLength();
+        if (totalLength == 0) {
+            // The curve does not move, so every t reaches every length.
+            return tLowerBound;
+        }
+        if (length <= 0) {
+            return tLowerBound;
+        }
+        if (length >= totalLength) {
+            return tUpperBound;
+        }
+
+        // Find the first index whose cumulative length is at least the given length.
+        int low = 1;
+        int high = cumulativeLengths.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeLengths[middle] < length) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        double segmentStart = cumulativeLengths[low - 1];
+        double segmentLength = cumulativeLengths[low] - segmentStart;
+        double fraction = (length - segmentStart) / segmentLength;
+        return tValues[low - 1] + fraction * (tValues[low] - tValues[low - 1]);
+    }
+
+    /**
+     * @return the value of t at which the curve has covered the given fraction of its
+     * total arc length. If the curve has no length at all, t is instead interpolated
+     * linearly between tLowerBound and tUpperBound.
+     */
+    public double getTAtFraction(double fraction) {
+        if (getTotalLength() == 0) {
+            fraction = Math.max(0, Math.min(1, fraction));
+            return tLowerBound + fraction * (tUpperBound - tLowerBound);
+        }
+        return getT(fraction * getTotalLength());
+    }
+}
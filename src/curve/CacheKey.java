@@ -0,0 +1,88 @@
+package curve;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A CacheKey identifies an entry of a {@link RenderCache} by everything that the entry
+ * was computed from. A key is made from a list of parts, such as the kind of entry, the
+ * canonical forms of expressions (see {@link CompiledExpression#getCanonicalForm()}),
+ * bounds, and sizes. Keys made from equal parts are equal, and the SHA-256 hash of the
+ * parts names the entry on disk.
+ */
+public final class CacheKey {
+    private final String canonicalForm;
+    private final String hash;
+
+    /**
+     * Creates a key from the given parts. Doubles and floats are written with
+     * {@link Double#toString(double)}, other numbers as integers, and anything else
+     * with {@link String#valueOf(Object)}.
+     */
+    public CacheKey(Object... parts) {
+        StringBuilder builder = new StringBuilder();
+        for (Object part : parts) {
+            String text;
+            if (part instanceof Double || part instanceof Float) {
+                text = Double.toString(((Number) part).doubleValue());
+            } else if (part instanceof Number) {
+                text = Long.toString(((Number) part).longValue());
+            } else {
+                text = String.valueOf(part);
+            }
+            // Parts are separated by newlines, so any backslash or newline in a part
+            // is escaped to keep different lists of parts from being written the same way
+            builder.append(text.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        }
+        canonicalForm = builder.toString();
+        hash = sha256(canonicalForm.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the parts of this key, written out one per line
+     */
+    public String getCanonicalForm() {
+        return canonicalForm;
+    }
+
+    /**
+     * @return the SHA-256 hash of the canonical form of this key, as 64 lower-case
+     * hexadecimal digits
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CacheKey && canonicalForm.equals(((CacheKey) o).canonicalForm);
+    }
+
+    @Override
+    public int hashCode() {
+        return canonicalForm.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return hash;
+    }
+
+    /**
+     * @return the SHA-256 hash of the given bytes, as 64 lower-case hexadecimal digits
+     */
+    public static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
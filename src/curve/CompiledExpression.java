@@ -0,0 +1,814 @@
+package curve;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * A CompiledExpression is a postfix expression that has been translated once into
+ * an array of opcodes, so that it can be evaluated many times without re-reading
+ * its tokens. CompiledExpressions are created by {@link EquationParser#compile(String)}
+ * and {@link EquationParser#compile(Queue)}, and are immutable (although the
+ * parameters of an {@link ExpressionContext} they refer to may change).
+ *
+ * Besides ordinary evaluation at a single t value, a CompiledExpression can be
+ * evaluated over an {@link Interval} of t values. The resulting Interval bounds the
+ * expression over the whole range of t; see {@link #evaluate(Interval)}. It can also
+ * be evaluated with a {@link DualNumber}, which yields the first and second
+ * derivatives of the expression with respect to t in the same pass as its value;
+ * see {@link #evaluateDerivatives(double)}.
+ *
+ * Functions are looked up in the {@link FunctionRegistry} when the expression is
+ * compiled. An expression compiled with an {@link ExpressionContext} may also refer
+ * to the parameters and helper functions of that context; the values of parameters
+ * are read from the context every time the expression is evaluated. A CompiledExpression
+ * can be switched to use the faster approximations that some functions provide (see
+ * {@link #withFastMath(boolean)}); this affects evaluation at one or many real t values.
+ *
+ * An expression can also be evaluated at many t values at once (see
+ * {@link #evaluate(double[], double[], int)}). Each operation is then applied to a whole
+ * block of values in a simple loop, which the JIT compiler turns into SIMD instructions
+ * where the processor supports them.
+ */
+public final class CompiledExpression {
+    /* Opcodes */
+    private static final int PUSH_CONSTANT = 0;
+    private static final int PUSH_T = 1;
+    private static final int ADD = 2;
+    private static final int SUBTRACT = 3;
+    private static final int MULTIPLY = 4;
+    private static final int DIVIDE = 5;
+    private static final int POWER = 6;
+    private static final int NEGATE = 7;
+    private static final int MOD = 8;
+    private static final int CALL_FUNCTION = 9;
+    private static final int PUSH_PARAMETER = 10;
+    // Only in the expressions made by splitOnParameter(), which are evaluated with
+    // evaluate(double[], double[][], double[], int, double[][])
+    private static final int PUSH_COLUMN = 11;
+
+    // The number of t values that evaluate(double[], double[], int) applies each
+    // operation to at a time. The stack of blocks fits easily in the cache.
+    private static final int BLOCK_SIZE = 256;
+
+    // Whether evaluate(double[], double[], int) works on blocks of values. Without a JIT
+    // compiler (e.g. with -Xint), no SIMD instructions are used, so evaluating one value
+    // at a time is faster. The system property curve.blockEvaluation=false also turns it off.
+    private static final boolean BLOCK_EVALUATION = ManagementFactory.getCompilationMXBean() != null
+            && !"false".equals(System.getProperty("curve.blockEvaluation"));
+
+    private final int[] opcodes;
+
+    // constants[i] is the number pushed by instruction i if opcodes[i] is PUSH_CONSTANT
+    private final double[] constants;
+
+    // functions[i] is the function applied by instruction i if opcodes[i] is CALL_FUNCTION
+    private final MathFunction[] functions;
+
+    // parameterSlots[i] is the slot in context of the parameter pushed by instruction i
+    // if opcodes[i] is PUSH_PARAMETER, or the index of the column pushed by instruction i
+    // if opcodes[i] is PUSH_COLUMN
+    private final int[] parameterSlots;
+
+    // The context that parameters and helpers are looked up in, or null if there is none
+    private final ExpressionContext context;
+
+    // The largest number of operands that are ever on the stack during evaluation
+    private final int maxStackDepth;
+
+    // The stack that evaluate(double) uses on each thread, so that evaluating does not
+    // allocate anything. It is null while the thread is evaluating this expression.
+    private final ThreadLocal<double[]> stacks;
+
+    // The blocks that evaluate(double[], double[], int) works in on each thread, so that
+    // a helper function called once per block does not allocate its own. They are null
+    // while the thread is evaluating this expression.
+    private final ThreadLocal<double[][]> blockSets;
+
+    // Whether evaluate(double) uses the fast approximations of functions
+    private final boolean fastMath;
+
+    // The postfix tokens of the expression separated by spaces, with numbers written
+    // in a standard form
+    private final String canonicalForm;
+
+    /**
+     * Compiles the given queue of postfix tokens, looking up parameters and helpers in
+     * the given context (which may be null). The queue is not modified.
+     *
+     * @throws IllegalArgumentException if the postfix expression contained in the
+     * given Queue is invalid
+     */
+    CompiledExpression(Queue<String> postfixQueue, ExpressionContext context) {
+        int length = postfixQueue.size();
+        opcodes = new int[length];
+        constants = new double[length];
+        functions = new MathFunction[length];
+        parameterSlots = new int[length];
+        this.context = context;
+        fastMath = false;
+
+        StringBuilder canonicalForm = new StringBuilder();
+        int depth = 0;
+        int maxDepth = 0;
+        int i = 0;
+        for (String token : postfixQueue) {
+            int opcode = opcodeOf(token, context);
+            opcodes[i] = opcode;
+            if (opcode == CALL_FUNCTION) {
+                functions[i] = (context != null && context.isHelper(token))
+                        ? context.getHelper(token) : FunctionRegistry.getFunction(token);
+            } else if (opcode == PUSH_PARAMETER) {
+                parameterSlots[i] = context.getParameterSlot(token);
+            } else if (opcode == PUSH_CONSTANT) {
+                if (FunctionRegistry.isConstant(token)) {
+                    constants[i] = FunctionRegistry.getConstant(token);
+                } else {
+                    try {
+                        constants[i] = Double.parseDouble(token);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Given postfix expression is invalid");
+                    }
+                }
+            }
+            if (i > 0) {
+                canonicalForm.append(' ');
+            }
+            canonicalForm.append(opcode == PUSH_CONSTANT ? Double.toString(constants[i]) : token);
+
+            depth += stackEffectOf(opcode);
+            if (depth < 1) {
+                throw new IllegalArgumentException("Given postfix expression is invalid");
+            }
+            maxDepth = Math.max(maxDepth, depth);
+            i++;
+        }
+
+        if (depth != 1) {
+            throw new IllegalArgumentException("Given postfix expression is invalid");
+        }
+        maxStackDepth = maxDepth;
+        this.canonicalForm = canonicalForm.toString();
+        stacks = createStacks(maxStackDepth);
+        blockSets = createBlockSets();
+    }
+
+    /**
+     * Creates a copy of the given CompiledExpression with fast math turned on or off.
+     */
+    private CompiledExpression(CompiledExpression other, boolean fastMath) {
+        opcodes = other.opcodes;
+        constants = other.constants;
+        functions = other.functions;
+        parameterSlots = other.parameterSlots;
+        context = other.context;
+        maxStackDepth = other.maxStackDepth;
+        canonicalForm = other.canonicalForm;
+        this.fastMath = fastMath;
+        stacks = createStacks(maxStackDepth);
+        blockSets = createBlockSets();
+    }
+
+    /**
+     * Creates a CompiledExpression with the given instructions, which share the context
+     * and fast math setting of the given CompiledExpression.
+     */
+    private CompiledExpression(CompiledExpression other, int[] opcodes, double[] constants,
+                               MathFunction[] functions, int[] parameterSlots, String canonicalForm) {
+        this.opcodes = opcodes;
+        this.constants = constants;
+        this.functions = functions;
+        this.parameterSlots = parameterSlots;
+        context = other.context;
+        fastMath = other.fastMath;
+        int depth = 0;
+        int maxDepth = 0;
+        for (int opcode : opcodes) {
+            depth += stackEffectOf(opcode);
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        maxStackDepth = maxDepth;
+        this.canonicalForm = canonicalForm;
+        stacks = createStacks(maxStackDepth);
+        blockSets = createBlockSets();
+    }
+
+    private ThreadLocal<double[][]> createBlockSets() {
+        return new ThreadLocal<double[][]>() {
+            @Override
+            protected double[][] initialValue() {
+                return createBlocks();
+            }
+        };
+    }
+
+    private static ThreadLocal<double[]> createStacks(final int maxStackDepth) {
+        return new ThreadLocal<double[]>() {
+            @Override
+            protected double[] initialValue() {
+                return new double[maxStackDepth];
+            }
+        };
+    }
+
+    /**
+     * @return a string that identifies what this expression computes: two expressions
+     * with the same canonical form have the same value at every t (given the same
+     * context), even if they were written differently, as with "2cos(t)" and
+     * "2.0 * cos(t)". Whether fast math is turned on is not part of the canonical form.
+     */
+    public String getCanonicalForm() {
+        return canonicalForm;
+    }
+
+    /**
+     * @return a CompiledExpression equal to this one, except that evaluating it at
+     * real t values uses the fast approximations of functions (see
+     * {@link MathFunction#applyFast(double)}) if fastMath is true, and the exact
+     * functions otherwise
+     */
+    public CompiledExpression withFastMath(boolean fastMath) {
+        if (fastMath == this.fastMath) {
+            return this;
+        }
+        return new CompiledExpression(this, fastMath);
+    }
+
+    /**
+     * @return true if evaluating this expression at real t values uses the fast
+     * approximations of functions; false otherwise
+     */
+    public boolean isFastMath() {
+        return fastMath;
+    }
+
+    /**
+     * @return true if this expression refers to t; false if it is constant with
+     * respect to t
+     */
+    public boolean usesT() {
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == PUSH_T) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if this expression calls the given function, either directly or
+     * through a helper function
+     */
+    boolean calls(MathFunction function) {
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == CALL_FUNCTION) {
+                if (functions[i] == function) {
+                    return true;
+                }
+                if (functions[i] instanceof HelperFunction
+                        && ((HelperFunction) functions[i]).getBody().calls(function)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if this expression refers to the parameter in the given slot of its
+     * context, either directly or through a helper function
+     */
+    boolean usesParameter(int slot) {
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == PUSH_PARAMETER && parameterSlots[i] == slot) {
+                return true;
+            }
+            if (opcodes[i] == CALL_FUNCTION && functions[i] instanceof HelperFunction
+                    && ((HelperFunction) functions[i]).getBody().usesParameter(slot)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the context that parameters and helpers are looked up in, or null if
+     * there is none
+     */
+    ExpressionContext getContext() {
+        return context;
+    }
+
+    /**
+     * Splits this expression around the parameter in the given slot of its context. Every
+     * largest subexpression that does not depend on the parameter, and is more than a
+     * single number, t, or parameter, is compiled on its own and added to parts. The
+     * returned expression is this one with the k-th of those subexpressions replaced by
+     * column k, and has to be evaluated with
+     * {@link #evaluate(double[], double[][], double[], int, double[][])}, where column k
+     * holds the values of the k-th part at the same t values.
+     *
+     * As the parts are evaluated over the same blocks of t values with the same
+     * operations, the results are identical to those of {@link #evaluate(double[], double[], int)}.
+     */
+    CompiledExpression splitOnParameter(int slot, List<CompiledExpression> parts) {
+        int length = opcodes.length;
+        String[] tokens = canonicalForm.split(" ");
+
+        // Find the first instruction of the subexpression that ends at each instruction,
+        // and whether that subexpression depends on the parameter, by keeping the same
+        // information for the operands on the stack
+        int[] starts = new int[length];
+        boolean[] dependent = new boolean[length];
+        int[] parents = new int[length];
+        int[] operands = new int[maxStackDepth];
+        int top = -1;
+        for (int i = 0; i < length; i++) {
+            int opcode = opcodes[i];
+            parents[i] = -1;
+            if (stackEffectOf(opcode) == 1) {
+                starts[i] = i;
+                dependent[i] = opcode == PUSH_PARAMETER && parameterSlots[i] == slot;
+                operands[++top] = i;
+            } else if (stackEffectOf(opcode) == 0) {
+                int operand = operands[top];
+                starts[i] = starts[operand];
+                dependent[i] = dependent[operand] || (opcode == CALL_FUNCTION
+                        && functions[i] instanceof HelperFunction
+                        && ((HelperFunction) functions[i]).getBody().usesParameter(slot));
+                parents[operand] = i;
+                operands[top] = i;
+            } else {
+                int left = operands[top - 1];
+                int right = operands[top];
+                starts[i] = starts[left];
+                dependent[i] = dependent[left] || dependent[right];
+                parents[left] = i;
+                parents[right] = i;
+                operands[--top] = i;
+            }
+        }
+
+        // partEnds[j] is the last instruction of the part that starts at instruction j,
+        // or -1 if no part starts there. The parts do not overlap.
+        int[] partEnds = new int[length];
+        Arrays.fill(partEnds, -1);
+        for (int i = 0; i < length; i++) {
+            if (!dependent[i] && starts[i] < i && (parents[i] == -1 || dependent[parents[i]])) {
+                partEnds[starts[i]] = i;
+            }
+        }
+
+        int[] residualOpcodes = new int[length];
+        double[] residualConstants = new double[length];
+        MathFunction[] residualFunctions = new MathFunction[length];
+        int[] residualSlots = new int[length];
+        StringBuilder residualForm = new StringBuilder();
+        int count = 0;
+        int i = 0;
+        while (i < length) {
+            if (count > 0) {
+                residualForm.append(' ');
+            }
+            int end = partEnds[i];
+            if (end >= 0) {
+                int partLength = end - i + 1;
+                StringBuilder partForm = new StringBuilder(tokens[i]);
+                for (int j = i + 1; j <= end; j++) {
+                    partForm.append(' ').append(tokens[j]);
+                }
+                parts.add(new CompiledExpression(this, Arrays.copyOfRange(opcodes, i, end + 1),
+                        Arrays.copyOfRange(constants, i, end + 1), Arrays.copyOfRange(functions, i, end + 1),
+                        Arrays.copyOfRange(parameterSlots, i, end + 1), partForm.toString()));
+                residualOpcodes[count] = PUSH_COLUMN;
+                residualSlots[count] = parts.size() - 1;
+                residualForm.append('#').append(parts.size() - 1);
+                i += partLength;
+            } else {
+                residualOpcodes[count] = opcodes[i];
+                residualConstants[count] = constants[i];
+                residualFunctions[count] = functions[i];
+                residualSlots[count] = parameterSlots[i];
+                residualForm.append(tokens[i]);
+                i++;
+            }
+            count++;
+        }
+        return new CompiledExpression(this, Arrays.copyOf(residualOpcodes, count),
+                Arrays.copyOf(residualConstants, count), Arrays.copyOf(residualFunctions, count),
+                Arrays.copyOf(residualSlots, count), residualForm.toString());
+    }
+
+    private static int opcodeOf(String token, ExpressionContext context) {
+        if (context != null) {
+            if (context.isParameter(token)) {
+                return PUSH_PARAMETER;
+            } else if (context.isHelper(token)) {
+                return CALL_FUNCTION;
+            }
+        }
+        switch (token) {
+            case "+":
+                return ADD;
+            case "-":
+                return SUBTRACT;
+            case "*":
+                return MULTIPLY;
+            case "/":
+                return DIVIDE;
+            case "^":
+                return POWER;
+            case EquationParser.UNARY_MINUS_TOKEN:
+                return NEGATE;
+            case EquationParser.MOD_TOKEN:
+                return MOD;
+            case "t":
+                return PUSH_T;
+            default:
+                if (FunctionRegistry.isFunction(token)) {
+                    return CALL_FUNCTION;
+                }
+                return PUSH_CONSTANT;
+        }
+    }
+
+    /**
+     * @return the net change in the number of operands on the stack caused by
+     * executing the given opcode
+     */
+    private static int stackEffectOf(int opcode) {
+        switch (opcode) {
+            case PUSH_CONSTANT:
+            case PUSH_T:
+            case PUSH_PARAMETER:
+            case PUSH_COLUMN:
+                return 1;
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case POWER:
+            case MOD:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Evaluates this expression with the given t value being substituted for every
+     * occurrence of t. The result is identical to that of
+     * {@link EquationParser#evaluate(Queue, double)} on the postfix queue this
+     * expression was compiled from.
+     */
+    public double evaluate(double t) {
+        double[] stack = stacks.get();
+        if (stack == null) {
+            // A function called by this expression is evaluating it again
+            stack = new double[maxStackDepth];
+        } else {
+            stacks.set(null);
+        }
+        int top = -1;
+
+        for (int i = 0; i < opcodes.length; i++) {
+            switch (opcodes[i]) {
+                case PUSH_CONSTANT:
+                    stack[++top] = constants[i];
+                    break;
+                case PUSH_T:
+                    stack[++top] = t;
+                    break;
+                case PUSH_PARAMETER:
+                    stack[++top] = context.getParameterValue(parameterSlots[i]);
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] = stack[top] + stack[top + 1];
+                    break;
+                case SUBTRACT:
+                    top--;
+                    stack[top] = stack[top] - stack[top + 1];
+                    break;
+                case MULTIPLY:
+                    top--;
+                    stack[top] = stack[top] * stack[top + 1];
+                    break;
+                case DIVIDE:
+                    top--;
+                    stack[top] = stack[top] / stack[top + 1];
+                    break;
+                case POWER:
+                    top--;
+                    stack[top] = Math.pow(stack[top], stack[top + 1]);
+                    break;
+                case NEGATE:
+                    stack[top] = -1 * stack[top];
+                    break;
+                case MOD:
+                    top--;
+                    stack[top] = EquationParser.mod(stack[top], stack[top + 1]);
+                    break;
+                case CALL_FUNCTION:
+                    stack[top] = fastMath ? functions[i].applyFast(stack[top]) : functions[i].apply(stack[top]);
+                    break;
+            }
+        }
+
+        stacks.set(stack);
+        return stack[0];
+    }
+
+    /**
+     * Evaluates this expression at each of the first count values of tValues, and stores
+     * the results in the first count elements of results. The results are identical to
+     * those of {@link #evaluate(double)}, except that with fast math turned on, functions
+     * may use different approximations (see {@link MathFunction#applyFast(double[], double[], int)}).
+     * tValues and results may be the same array.
+     *
+     * @throws IllegalArgumentException if count is negative or greater than the length
+     * of either array
+     */
+    public void evaluate(double[] tValues, double[] results, int count) {
+        if (count < 0 || count > tValues.length || count > results.length) {
+            throw new IllegalArgumentException("Invalid number of t values");
+        }
+        if (!BLOCK_EVALUATION) {
+            for (int i = 0; i < count; i++) {
+                results[i] = evaluate(tValues[i]);
+            }
+            return;
+        }
+        double[][] blocks = blockSets.get();
+        if (blocks == null) {
+            // A function called by this expression is evaluating it again
+            blocks = createBlocks();
+        } else {
+            blockSets.set(null);
+        }
+        evaluateBlocks(tValues, null, results, count, blocks);
+        blockSets.set(blocks);
+    }
+
+    /**
+     * Evaluates this expression like {@link #evaluate(double[], double[], int)}, where
+     * column k is columns[k] at the same t values (see {@link #splitOnParameter(int, List)}).
+     * blocks is the working space returned by {@link #createBlocks()}, which can be
+     * reused by later evaluations so that evaluating allocates nothing.
+     *
+     * @throws IllegalArgumentException if count is negative or greater than the length
+     * of tValues, results or a column
+     */
+    void evaluate(double[] tValues, double[][] columns, double[] results, int count, double[][] blocks) {
+        if (count < 0 || count > tValues.length || count > results.length) {
+            throw new IllegalArgumentException("Invalid number of t values");
+        }
+        for (double[] column : columns) {
+            if (count > column.length) {
+                throw new IllegalArgumentException("Invalid number of t values");
+            }
+        }
+        evaluateBlocks(tValues, columns, results, count, blocks);
+    }
+
+    /**
+     * @return the blocks that {@link #evaluate(double[], double[][], double[], int, double[][])}
+     * works in: one for each operand on the stack, and one more for the results of functions
+     */
+    double[][] createBlocks() {
+        return new double[maxStackDepth + 1][BLOCK_SIZE];
+    }
+
+    private void evaluateBlocks(double[] tValues, double[][] columns, double[] results, int count,
+                                double[][] stack) {
+        // The block that functions write their results into, which then takes the
+        // place of their argument on the stack
+        double[] functionResults = stack[maxStackDepth];
+        for (int start = 0; start < count; start += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, count - start);
+            int top = -1;
+
+            for (int i = 0; i < opcodes.length; i++) {
+                switch (opcodes[i]) {
+                    case PUSH_CONSTANT:
+                        Arrays.fill(stack[++top], 0, length, constants[i]);
+                        break;
+                    case PUSH_T:
+                        System.arraycopy(tValues, start, stack[++top], 0, length);
+                        break;
+                    case PUSH_PARAMETER:
+                        Arrays.fill(stack[++top], 0, length, context.getParameterValue(parameterSlots[i]));
+                        break;
+                    case PUSH_COLUMN:
+                        System.arraycopy(columns[parameterSlots[i]], start, stack[++top], 0, length);
+                        break;
+                    case ADD:
+                        top--;
+                        add(stack[top], stack[top + 1], length);
+                        break;
+                    case SUBTRACT:
+                        top--;
+                        subtract(stack[top], stack[top + 1], length);
+                        break;
+                    case MULTIPLY:
+                        top--;
+                        multiply(stack[top], stack[top + 1], length);
+                        break;
+                    case DIVIDE:
+                        top--;
+                        divide(stack[top], stack[top + 1], length);
+                        break;
+                    case POWER:
+                        top--;
+                        for (int j = 0; j < length; j++) {
+                            stack[top][j] = Math.pow(stack[top][j], stack[top + 1][j]);
+                        }
+                        break;
+                    case NEGATE:
+                        negate(stack[top], length);
+                        break;
+                    case MOD:
+                        top--;
+                        for (int j = 0; j < length; j++) {
+                            stack[top][j] = EquationParser.mod(stack[top][j], stack[top + 1][j]);
+                        }
+                        break;
+                    case CALL_FUNCTION:
+                        if (fastMath) {
+                            functions[i].applyFast(stack[top], functionResults, length);
+                        } else {
+                            functions[i].apply(stack[top], functionResults, length);
+                        }
+                        double[] argument = stack[top];
+                        stack[top] = functionResults;
+                        functionResults = argument;
+                        break;
+                }
+            }
+
+            System.arraycopy(stack[0], 0, results, start, length);
+        }
+        // Functions leave their blocks in a different order, which is kept for next time
+        stack[maxStackDepth] = functionResults;
+    }
+
+    /* Operations on blocks of values, which store their result in the first block */
+
+    private static void add(double[] a, double[] b, int length) {
+        for (int j = 0; j < length; j++) {
+            a[j] = a[j] + b[j];
+        }
+    }
+
+    private static void subtract(double[] a, double[] b, int length) {
+        for (int j = 0; j < length; j++) {
+            a[j] = a[j] - b[j];
+        }
+    }
+
+    private static void multiply(double[] a, double[] b, int length) {
+        for (int j = 0; j < length; j++) {
+            a[j] = a[j] * b[j];
+        }
+    }
+
+    private static void divide(double[] a, double[] b, int length) {
+        for (int j = 0; j < length; j++) {
+            a[j] = a[j] / b[j];
+        }
+    }
+
+    private static void negate(double[] a, int length) {
+        for (int j = 0; j < length; j++) {
+            a[j] = -1 * a[j];
+        }
+    }
+
+    /**
+     * Evaluates this expression using interval arithmetic, with the given Interval
+     * being substituted for every occurrence of t. The returned Interval contains the
+     * value of this expression at every t in the given Interval.
+     *
+     * If the returned Interval is unbounded, then the expression may be undefined or
+     * discontinuous (e.g. have an asymptote) somewhere in the given range of t. Note
+     * that interval arithmetic is conservative, so an unbounded result does not
+     * guarantee that a discontinuity exists.
+     */
+    public Interval evaluate(Interval t) {
+        Interval[] stack = new Interval[maxStackDepth];
+        int top = -1;
+
+        for (int i = 0; i < opcodes.length; i++) {
+            switch (opcodes[i]) {
+                case PUSH_CONSTANT:
+                    stack[++top] = Interval.of(constants[i]);
+                    break;
+                case PUSH_PARAMETER:
+                    stack[++top] = Interval.of(context.getParameterValue(parameterSlots[i]));
+                    break;
+                case PUSH_T:
+                    stack[++top] = t;
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] = stack[top].add(stack[top + 1]);
+                    break;
+                case SUBTRACT:
+                    top--;
+                    stack[top] = stack[top].subtract(stack[top + 1]);
+                    break;
+                case MULTIPLY:
+                    top--;
+                    stack[top] = stack[top].multiply(stack[top + 1]);
+                    break;
+                case DIVIDE:
+                    top--;
+                    stack[top] = stack[top].divide(stack[top + 1]);
+                    break;
+                case POWER:
+                    top--;
+                    stack[top] = stack[top].pow(stack[top + 1]);
+                    break;
+                case NEGATE:
+                    stack[top] = stack[top].negate();
+                    break;
+                case MOD:
+                    top--;
+                    stack[top] = stack[top].mod(stack[top + 1]);
+                    break;
+                case CALL_FUNCTION:
+                    stack[top] = functions[i].apply(stack[top]);
+                    break;
+            }
+        }
+
+        return stack[0];
+    }
+
+    /**
+     * Evaluates this expression and its first and second derivatives with respect
+     * to t at the given t value. The value of the returned DualNumber is identical
+     * to {@link #evaluate(double)}.
+     */
+    public DualNumber evaluateDerivatives(double t) {
+        return evaluate(DualNumber.variable(t));
+    }
+
+    /**
+     * Evaluates this expression using forward-mode automatic differentiation, with
+     * the given DualNumber being substituted for every occurrence of t. If t is
+     * itself a function of some other variable, the derivatives of the result are
+     * taken with respect to that variable (by the chain rule).
+     */
+    public DualNumber evaluate(DualNumber t) {
+        DualNumber[] stack = new DualNumber[maxStackDepth];
+        int top = -1;
+
+        for (int i = 0; i < opcodes.length; i++) {
+            switch (opcodes[i]) {
+                case PUSH_CONSTANT:
+                    stack[++top] = DualNumber.constant(constants[i]);
+                    break;
+                case PUSH_PARAMETER:
+                    stack[++top] = DualNumber.constant(context.getParameterValue(parameterSlots[i]));
+                    break;
+                case PUSH_T:
+                    stack[++top] = t;
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] = stack[top].add(stack[top + 1]);
+                    break;
+                case SUBTRACT:
+                    top--;
+                    stack[top] = stack[top].subtract(stack[top + 1]);
+                    break;
+                case MULTIPLY:
+                    top--;
+                    stack[top] = stack[top].multiply(stack[top + 1]);
+                    break;
+                case DIVIDE:
+                    top--;
+                    stack[top] = stack[top].divide(stack[top + 1]);
+                    break;
+                case POWER:
+                    top--;
+                    stack[top] = stack[top].pow(stack[top + 1]);
+                    break;
+                case NEGATE:
+                    stack[top] = stack[top].negate();
+                    break;
+                case MOD:
+                    top--;
+                    stack[top] = stack[top].mod(stack[top + 1]);
+                    break;
+                case CALL_FUNCTION:
+                    stack[top] = functions[i].apply(stack[top]);
+                    break;
+            }
+        }
+
+        return stack[0];
+    }
+}
@@ -0,0 +1,68 @@
+package curve;
+
+/**
+ * A CurveSource gives the coordinates of a parametric curve (x(t), y(t)) for t between
+ * a lower and an upper bound. A {@link ParametricCurve} is one kind of CurveSource, whose
+ * coordinates come from equations typed in by the user, but the coordinates may come
+ * from anywhere: compiled expressions, samples read from a file, Fourier coefficients, or
+ * plain Java code (see {@link AbstractCurveSource}). Any CurveSource can be traced out
+ * by a ParametricCurve (see {@link ParametricCurve#ParametricCurve(CurveSource)}).
+ *
+ * A coordinate that is NaN denotes an undefined point. Derivatives are optional: a
+ * source that cannot compute them returns false from {@link #hasDerivatives()}.
+ */
+public interface CurveSource {
+    /**
+     * @return the lower bound of t
+     */
+    double getTLowerBound();
+
+    /**
+     * @return the upper bound of t, which is at least the lower bound
+     */
+    double getTUpperBound();
+
+    /**
+     * @return the x-coordinate of the curve at the given t value
+     */
+    double getX(double t);
+
+    /**
+     * @return the y-coordinate of the curve at the given t value
+     */
+    double getY(double t);
+
+    /**
+     * Sets xValues[i] and yValues[i] to the coordinates of the curve at tValues[i], for
+     * every i from 0 to count - 1. The results are the same as those of
+     * {@link #getX(double)} and {@link #getY(double)}, but sources can compute them
+     * much faster all at once. xValues and yValues must be different arrays from
+     * tValues.
+     *
+     * @throws IllegalArgumentException if count is negative or greater than the length
+     * of any of the arrays
+     */
+    void evaluate(double[] tValues, double[] xValues, double[] yValues, int count);
+
+    /**
+     * @return true if {@link #getXDerivatives(double)} and {@link #getYDerivatives(double)}
+     * are supported; false otherwise
+     */
+    boolean hasDerivatives();
+
+    /**
+     * @return the x-coordinate of the curve and its first and second derivatives with
+     * respect to t, at the given t value
+     *
+     * @throws UnsupportedOperationException if this source does not have derivatives
+     */
+    DualNumber getXDerivatives(double t);
+
+    /**
+     * @return the y-coordinate of the curve and its first and second derivatives with
+     * respect to t, at the given t value
+     *
+     * @throws UnsupportedOperationException if this source does not have derivatives
+     */
+    DualNumber getYDerivatives(double t);
+}
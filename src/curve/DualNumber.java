@@ -0,0 +1,162 @@
+package curve;
+
+/**
+ * A DualNumber holds the value of some function f of t together with its first and
+ * second derivatives with respect to t. Arithmetic on DualNumbers applies the rules
+ * of differentiation (the product rule, the chain rule, and so on) alongside the
+ * arithmetic on the values, so evaluating an expression with the DualNumber
+ * (t, 1, 0) in place of t yields the value of the expression and its derivatives in
+ * a single pass. This technique is known as forward-mode automatic differentiation.
+ *
+ * DualNumbers are immutable.
+ */
+public final class DualNumber {
+    private final double value;
+    private final double derivative;
+    private final double secondDerivative;
+
+    /**
+     * Creates a DualNumber with the given value, first derivative, and second
+     * derivative.
+     */
+    public DualNumber(double value, double derivative, double secondDerivative) {
+        this.value = value;
+        this.derivative = derivative;
+        this.secondDerivative = secondDerivative;
+    }
+
+    /**
+     * @return a DualNumber representing a constant, whose derivatives are 0
+     */
+    public static DualNumber constant(double value) {
+        return new DualNumber(value, 0, 0);
+    }
+
+    /**
+     * @return a DualNumber representing the variable t itself at the given value
+     * of t, whose first derivative is 1 and whose second derivative is 0
+     */
+    public static DualNumber variable(double t) {
+        return new DualNumber(t, 1, 0);
+    }
+
+    /**
+     * @return the value of the function
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return the first derivative of the function
+     */
+    public double getDerivative() {
+        return derivative;
+    }
+
+    /**
+     * @return the second derivative of the function
+     */
+    public double getSecondDerivative() {
+        return secondDerivative;
+    }
+
+    public DualNumber add(DualNumber other) {
+        return new DualNumber(value + other.value, derivative + other.derivative,
+                secondDerivative + other.secondDerivative);
+    }
+
+    public DualNumber subtract(DualNumber other) {
+        return new DualNumber(value - other.value, derivative - other.derivative,
+                secondDerivative - other.secondDerivative);
+    }
+
+    public DualNumber multiply(DualNumber other) {
+        return new DualNumber(value * other.value,
+                derivative * other.value + value * other.derivative,
+                secondDerivative * other.value + 2 * derivative * other.derivative
+                        + value * other.secondDerivative);
+    }
+
+    public DualNumber divide(DualNumber other) {
+        double quotient = value / other.value;
+        double quotientDerivative = (derivative - quotient * other.derivative) / other.value;
+        double quotientSecondDerivative = (secondDerivative - 2 * quotientDerivative * other.derivative
+                - quotient * other.secondDerivative) / other.value;
+        return new DualNumber(quotient, quotientDerivative, quotientSecondDerivative);
+    }
+
+    public DualNumber negate() {
+        return new DualNumber(-1 * value, -derivative, -secondDerivative);
+    }
+
+    public DualNumber pow(DualNumber exponent) {
+        double power = Math.pow(value, exponent.value);
+        if (exponent.derivative == 0 && exponent.secondDerivative == 0) {
+            // The exponent is constant, so the power rule applies.
+            double n = exponent.value;
+            if (n == 0) {
+                return constant(power);
+            }
+            if (n == 1) {
+                // n (n - 1) x^(n - 2) would be 0 * Infinity at x = 0
+                return chain(power, 1, 0);
+            }
+            return chain(power, n * Math.pow(value, n - 1), n * (n - 1) * Math.pow(value, n - 2));
+        }
+
+        // f^g = exp(g ln(f)), so (f^g)' = f^g (g ln(f))' and
+        // (f^g)'' = f^g ((g ln(f))'^2 + (g ln(f))'').
+        DualNumber log = new DualNumber(Math.log(value), derivative / value,
+                (secondDerivative * value - derivative * derivative) / (value * value));
+        DualNumber product = exponent.multiply(log);
+        return new DualNumber(power, power * product.derivative,
+                power * (product.derivative * product.derivative + product.secondDerivative));
+    }
+
+    /**
+     * Computes this mod divisor = this - divisor * floor(this / divisor). Away from the
+     * points where the result wraps around, floor(this / divisor) is constant, so the
+     * derivatives follow from the derivatives of this and the divisor.
+     */
+    public DualNumber mod(DualNumber divisor) {
+        double quotient = Math.floor(value / divisor.value);
+        return new DualNumber(EquationParser.mod(value, divisor.value),
+                derivative - quotient * divisor.derivative,
+                secondDerivative - quotient * divisor.secondDerivative);
+    }
+
+    public DualNumber sin() {
+        double sin = Math.sin(value);
+        return chain(sin, Math.cos(value), -sin);
+    }
+
+    public DualNumber cos() {
+        double cos = Math.cos(value);
+        return chain(cos, -Math.sin(value), -cos);
+    }
+
+    public DualNumber tan() {
+        double tan = Math.tan(value);
+        double secSquared = 1 + tan * tan;
+        return chain(tan, secSquared, 2 * tan * secSquared);
+    }
+
+    /**
+     * Applies the chain rule to compute the derivatives of g(f), where f is the
+     * function represented by this DualNumber.
+     *
+     * @param g the value of g(f)
+     * @param gPrime the value of g'(f)
+     * @param gDoublePrime the value of g''(f)
+     */
+    public DualNumber chain(double g, double gPrime, double gDoublePrime) {
+        return new DualNumber(g, gPrime * derivative,
+                gDoublePrime * derivative * derivative + gPrime * secondDerivative);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + value + ", " + derivative + ", " + secondDerivative + ")";
+    }
+}
@@ -18,6 +18,12 @@ public final class EquationParser {
      */
     public static final String UNARY_MINUS_TOKEN = "$";
 
+    /**
+     * The token used to represent the modulo operator. "a mod b" is equal to
+     * a - b * floor(a / b), and has the same precedence as * and /.
+     */
+    public static final String MOD_TOKEN = "mod";
+
     private EquationParser() {}
 
     // Initialize HashMaps
@@ -26,12 +32,14 @@ public final class EquationParser {
         operatorToPrecedence.put("-", 1);
         operatorToPrecedence.put("*", 2);
         operatorToPrecedence.put("/", 2);
+        operatorToPrecedence.put(MOD_TOKEN, 2);
         operatorToPrecedence.put("^", 3);
 
         operatorToAssociativity.put("+", false);
         operatorToAssociativity.put("-", false);
         operatorToAssociativity.put("*", false);
         operatorToAssociativity.put("/", false);
+        operatorToAssociativity.put(MOD_TOKEN, false);
         operatorToAssociativity.put("^", true);
     }
 
@@ -39,10 +47,11 @@ public final class EquationParser {
      * Evaluates the given expression, with the given t value being
      * substituted for every occurrence of t in the expression. The
      * expression must be valid and written in infix notation. The
-     * expression can include numbers and the following symbols: t,
-     * +, -, *, /, ^, (, ), sin, cos, tan. The plus (+) symbol cannot be
-     * used as a unary operator, but the minus (-) symbol can be unary.
-     * Any whitespace in the expression is ignored.
+     * expression can include numbers, the following symbols: t, +, -, *,
+     * /, ^, mod, (, ), and the names of the functions and constants in the
+     * {@link FunctionRegistry} (e.g. sin, sqrt, pi). The plus (+) symbol
+     * cannot be used as a unary operator, but the minus (-) symbol can be
+     * unary. Any whitespace in the expression is ignored.
      *
      * @throws IllegalArgumentException if the expression is invalid.
      */
@@ -55,12 +64,12 @@ public final class EquationParser {
      * with the given t value being substituted for every occurrence of t
      * in the queue. The tokens in the queue, if read from front to back,
      * must form a valid expression written in postfix notation. The
-     * tokens may be real numbers or the following symbols: t, +, -, *, /, ^,
-     * (, ), sin, cos, tan. Unary plus is NOT allowed (but unary minus is
-     * allowed).
+     * tokens may be real numbers, the following symbols: t, +, -, *, /, ^,
+     * mod, or the names of the functions and constants in the
+     * {@link FunctionRegistry}. Unary plus is NOT allowed (but unary minus
+     * is allowed).
      *
-     * This method does not change the input Queue, as a copy of the Queue is
-     * created at the beginning.
+     * This method does not change the input Queue.
      *
      * @return the result of evaluating the postfix expression contained in the Queue
      *
@@ -68,12 +77,9 @@ public final class EquationParser {
      * contained in the given Queue is invalid.
      */
     public static double evaluate(Queue<String> postfixQueue, double t) {
-        Queue<String> postfixQueueCopy = new LinkedList<String>(postfixQueue);
-
-        Stack<Double> operands = new Stack<Double>();
+        Deque<Double> operands = new ArrayDeque<Double>();
 
-        while (!postfixQueueCopy.isEmpty()) {
-            String currentToken = postfixQueueCopy.poll();
+        for (String currentToken : postfixQueue) {
             try {
                 switch (currentToken) {
                     case "+": {
@@ -106,26 +112,30 @@ public final class EquationParser {
                         operands.push(Math.pow(firstOperand, secondOperand));
                         break;
                     }
+                    case MOD_TOKEN: {
+                        Double secondOperand = operands.pop();
+                        Double firstOperand = operands.pop();
+                        operands.push(mod(firstOperand, secondOperand));
+                        break;
+                    }
                     case UNARY_MINUS_TOKEN:
                         operands.push(-1 * operands.pop());
                         break;
-                    case "sin":
-                        operands.push(Math.sin(operands.pop()));
-                        break;
-                    case "cos":
-                        operands.push(Math.cos(operands.pop()));
-                        break;
-                    case "tan":
-                        operands.push(Math.tan(operands.pop()));
-                        break;
                     case "t":
                         operands.push(t);
                         break;
                     default:
-                        operands.push(Double.parseDouble(currentToken));
+                        MathFunction function = FunctionRegistry.getFunction(currentToken);
+                        if (function != null) {
+                            operands.push(function.apply(operands.pop()));
+                        } else if (FunctionRegistry.isConstant(currentToken)) {
+                            operands.push(FunctionRegistry.getConstant(currentToken));
+                        } else {
+                            operands.push(Double.parseDouble(currentToken));
+                        }
                         break;
                 }
-            } catch (EmptyStackException | NumberFormatException e) {
+            } catch (NoSuchElementException | NumberFormatException e) {
                 throw new IllegalArgumentException("Given postfix expression is invalid");
             }
         }
@@ -137,12 +147,68 @@ public final class EquationParser {
         return operands.pop();
     }
 
+    /**
+     * @return a mod b, i.e. a - b * floor(a / b). Unlike the % operator, the
+     * result always has the same sign as b.
+     */
+    public static double mod(double a, double b) {
+        return a - b * Math.floor(a / b);
+    }
+
+    /**
+     * Compiles the given infix expression so that it can be evaluated repeatedly
+     * without being parsed again. The expression obeys the same rules as in
+     * {@link #evaluate(String, double)}.
+     *
+     * @throws IllegalArgumentException if the expression is invalid.
+     */
+    public static CompiledExpression compile(String expression) {
+        return compile(expression, null);
+    }
+
+    /**
+     * Compiles the given infix expression, which may also refer to the parameters
+     * and helper functions of the given context. The compiled expression reads the
+     * values of parameters from the context whenever it is evaluated, so it does
+     * not need to be compiled again when a parameter changes.
+     *
+     * @throws IllegalArgumentException if the expression is invalid.
+     */
+    public static CompiledExpression compile(String expression, ExpressionContext context) {
+        return compile(infixToPostfix(expression, context), context);
+    }
+
+    /**
+     * Compiles the expression represented by the given queue of postfix tokens
+     * so that it can be evaluated repeatedly. The queue obeys the same rules as
+     * in {@link #evaluate(Queue, double)}, and is not changed.
+     *
+     * @throws IllegalArgumentException if the postfix expression contained in
+     * the given Queue is invalid.
+     */
+    public static CompiledExpression compile(Queue<String> postfixQueue) {
+        return compile(postfixQueue, null);
+    }
+
+    /**
+     * Compiles the expression represented by the given queue of postfix tokens,
+     * which may also refer to the parameters and helper functions of the given
+     * context.
+     *
+     * @throws IllegalArgumentException if the postfix expression contained in
+     * the given Queue is invalid.
+     */
+    public static CompiledExpression compile(Queue<String> postfixQueue, ExpressionContext context) {
+        return new CompiledExpression(postfixQueue, context);
+    }
+
     /**
      * Converts the given infix expression to postfix notation. The given
      * expression must be valid and must be written in infix notation.
      * The expression may contain real numbers, whitespace around operators
-     * and trigonometric functions, and the following symbols: t, +, -, *, /,
-     * ^, (, ), sin, cos, tan. Any whitespace in the expression is ignored.
+     * and functions, the following symbols: t, +, -, *, /, ^, mod, (, ), and
+     * the names of the functions and constants in the {@link FunctionRegistry}.
+     * Any whitespace in the expression is ignored.
      *
      * @return a queue of the tokens in the given infix expression converted to
      * postfix notation
@@ -150,25 +216,38 @@ public final class EquationParser {
      * @throws IllegalArgumentException if expression is not valid
      */
     public static Queue<String> infixToPostfix(String expression) throws IllegalArgumentException {
+        return infixToPostfix(expression, null);
+    }
+
+    /**
+     * Converts the given infix expression to postfix notation, as in
+     * {@link #infixToPostfix(String)}. The expression may also contain the names
+     * of the parameters and helper functions of the given context, which may be
+     * null.
+     *
+     * @throws IllegalArgumentException if expression is not valid
+     */
+    public static Queue<String> infixToPostfix(String expression, ExpressionContext context)
+            throws IllegalArgumentException {
         Queue<String> output = new LinkedList<String>();
 
-        // Stores operators, brackets, and trigonometric functions
-        Stack<String> operatorBracketFunctionStack = new Stack<String>();
+        // Stores operators, brackets, and functions
+        Deque<String> operatorBracketFunctionStack = new ArrayDeque<String>();
 
-        List<String> tokens = tokenize(expression);
+        List<String> tokens = tokenize(expression, context);
 
         /* Implementation of the Shunting-Yard algorithm adapted from
          * https://en.wikipedia.org/wiki/Shunting-yard_algorithm
          */
         for (int i = 0; i < tokens.size(); i++) {
             String currentToken = tokens.get(i);
-            if (currentToken.matches("[+\\-*/]")) {
+            if (isLeftAssociativeOperator(currentToken)) {
                 if (!operatorBracketFunctionStack.isEmpty()) {
                     int precedence = operatorToPrecedence.get(currentToken);
                     String nextStackSymbol = operatorBracketFunctionStack.peek();
-                    while ((nextStackSymbol.matches("sin|cos|tan")
+                    while ((isFunction(nextStackSymbol, context)
                             || nextStackSymbol.equals(UNARY_MINUS_TOKEN))
-                            || (nextStackSymbol.matches("[+\\-*/^]")
+                            || (operatorToPrecedence.containsKey(nextStackSymbol)
                                 && (operatorToPrecedence.get(nextStackSymbol) > precedence
                                     || (operatorToPrecedence.get(nextStackSymbol) == precedence
                                         && !operatorToAssociativity.get(nextStackSymbol))))) {
@@ -183,7 +262,8 @@ public final class EquationParser {
                 }
 
                 operatorBracketFunctionStack.push(currentToken);
-            } else if (currentToken.matches("sin|cos|tan|\\(|\\^")
+            } else if (currentToken.equals("(") || currentToken.equals("^")
+                        || isFunction(currentToken, context)
                         || currentToken.equals(UNARY_MINUS_TOKEN)) {
                 operatorBracketFunctionStack.push(currentToken);
             } else if (currentToken.equals(")")) {
@@ -196,13 +276,13 @@ public final class EquationParser {
 
                 operatorBracketFunctionStack.pop();
             } else {
-                // At this point, currentToken is either a number or "t".
+                // At this point, currentToken is a number, a constant, a
+                // parameter, or "t".
                 output.add(currentToken);
             }
         }
 
-        int stackSize = operatorBracketFunctionStack.size();
-        for (int i = 0; i < stackSize; i++) {
+        while (!operatorBracketFunctionStack.isEmpty()) {
             output.add(operatorBracketFunctionStack.pop());
         }
 
@@ -214,217 +294,277 @@ public final class EquationParser {
      * from left to right. A unary minus symbol is represented in the
      * returned list as the symbol given by UNARY_MINUS_TOKEN. A "*" symbol
      * is inserted wherever there is implicit multiplication (e.g. "2t",
-     * "-4sin(6)"). For example, the expression "5 + 2tan(-t - 9)" would be
+     * "-4sin(6)", "2pi"). For example, the expression "5 + 2tan(-t - 9)" would be
      * tokenized as the list ["5", "+", "2", "*", "tan", "(", UNARY_MINUS_TOKEN,
      * "t", "-", "9", ")"]. Any whitespace in the expression is ignored, so
      * an expression like "3 7" is interpreted as "37".
      *
+     * A run of consecutive letters is split into names from left to right,
+     * each time taking the longest name that the rest of the run starts with.
+     * The names are "t", "mod", and the names of the functions and constants in
+     * the {@link FunctionRegistry}. For example, "ttan" is split into "t" and
+     * "tan", and "sinh" is a single name rather than "sin" followed by "h".
+     *
      * @return a list of the tokens in the given infix expression
      *
      * @throws IllegalArgumentException if the given expression is invalid.
      */
     public static List<String> tokenize(String expression) throws IllegalArgumentException {
-        List<String> tokens = new ArrayList<String>(expression.length());
+        return tokenize(expression, null);
+    }
 
-        // This stack stores left parentheses to check if all brackets are balanced.
-        Stack<Character> bracketStack = new Stack<Character>();
+    /**
+     * Produce a list of the tokens in the given infix expression, as in
+     * {@link #tokenize(String)}. The names of the parameters and helper
+     * functions of the given context, which may be null, are also recognized:
+     * parameters are treated like constants, and helpers like functions.
+     *
+     * @throws IllegalArgumentException if the given expression is invalid.
+     */
+    public static List<String> tokenize(String expression, ExpressionContext context)
+            throws IllegalArgumentException {
+        List<String> tokens = new ArrayList<String>(expression.length());
 
-        // functionName is used to store the name of a function as we read it
-        StringBuilder functionName = new StringBuilder();
+        // The number of left parentheses that have not been closed yet, to check if
+        // all brackets are balanced
+        int openBrackets = 0;
 
-        // operand is used to store "t" or the string representation of a number
-        // as we read it
+        // operand is used to store the string representation of a number as we
+        // read it
         StringBuilder operand = new StringBuilder();
 
         // true if the current operand has a decimal point
         boolean operandHasDecimalPoint = false;
 
         for (int i = 0; i < expression.length(); i++) {
-            String currentChar = expression.substring(i, i + 1);
-            if (!currentChar.equals(" ")) {
-                if (functionName.length() == 0) {
-                    if (currentChar.matches("\\d")) {
-                        if (!tokens.isEmpty() && tokens.get(tokens.size() - 1).equals(")")) {
-                            tokens.add("*");
-                            operand.setLength(0);
-                            operandHasDecimalPoint = false;
-                        } else if (operand.toString().equals("t")) {
-                            tokens.add("t");
-                            tokens.add("*");
-                            operand.setLength(0);
-                            operandHasDecimalPoint = false;
-                        }
-                        operand.append(currentChar);
-                    } else if (currentChar.matches("[+*/^]")) {
-                        if (operand.length() == 0) {
-                            if (tokens.isEmpty() || !tokens.get(tokens.size() - 1).equals(")")) {
-                                throw new IllegalArgumentException("Given expression is invalid.");
-                            }
-                        } else {
-                            if (operand.substring(operand.length() - 1).equals(".")) {
-                                throw new IllegalArgumentException("Given expression contains misplaced decimal point.");
-                            }
-                            tokens.add(operand.toString());
-                        }
-
-                        tokens.add(currentChar);
-                        operand.setLength(0);
-                        operandHasDecimalPoint = false;
-                    } else if (currentChar.equals("(")) {
-                        if (!tokens.isEmpty() && tokens.get(tokens.size() - 1).matches("[t)]")) {
-                            tokens.add("*");
-                        } else if (operand.length() != 0) {
-                            if (operand.substring(operand.length() - 1).equals(".")) {
-                                throw new IllegalArgumentException("Given expression contains misplaced decimal point.");
-                            }
-                            tokens.add(operand.toString());
-                            tokens.add("*");
-                        }
-                        tokens.add(currentChar);
-                        operand.setLength(0);
-                        operandHasDecimalPoint = false;
-                        bracketStack.push('(');
-                    } else if (currentChar.equals(")")) {
-                        try {
-                            bracketStack.pop();
-                        } catch (EmptyStackException e) {
-                            throw new IllegalArgumentException("Given expression has mismatched parentheses.");
+            char currentChar = expression.charAt(i);
+            if (currentChar != ' ') {
+                if (currentChar >= '0' && currentChar <= '9') {
+                    if (operand.length() == 0 && endsWithOperand(tokens, context)) {
+                        tokens.add("*");
+                    }
+                    operand.append(currentChar);
+                } else if (currentChar == '+' || currentChar == '*' || currentChar == '/' || currentChar == '^') {
+                    if (operand.length() == 0) {
+                        if (!endsWithOperand(tokens, context)) {
+                            throw new IllegalArgumentException("Given expression is invalid.");
                         }
+                    } else {
+                        addOperand(tokens, operand);
+                    }
 
-                        if (operand.length() != 0) {
-                            if (operand.substring(operand.length() - 1).equals(".")) {
-                                throw new IllegalArgumentException("Given expression contains misplaced decimal point.");
-                            }
-                            tokens.add(operand.toString());
-                        }
+                    tokens.add(operatorToken(currentChar));
+                    operand.setLength(0);
+                    operandHasDecimalPoint = false;
+                } else if (currentChar == '(') {
+                    if (operand.length() != 0) {
+                        addOperand(tokens, operand);
+                        tokens.add("*");
+                    } else if (endsWithOperand(tokens, context)) {
+                        tokens.add("*");
+                    }
+                    tokens.add("(");
+                    operand.setLength(0);
+                    operandHasDecimalPoint = false;
+                    openBrackets++;
+                } else if (currentChar == ')') {
+                    if (openBrackets == 0) {
+                        throw new IllegalArgumentException("Given expression has mismatched parentheses.");
+                    }
+                    openBrackets--;
 
-                        // Catch invalid expressions that contain "()".
-                        if (tokens.get(tokens.size() - 1).equals("(")) {
-                            throw new IllegalArgumentException("Given expression is invalid.");
-                        }
+                    if (operand.length() != 0) {
+                        addOperand(tokens, operand);
+                    }
 
-                        tokens.add(currentChar);
-                        operand.setLength(0);
-                        operandHasDecimalPoint = false;
-                    } else if (currentChar.equals("-")) {
-                        /* The algorithm to distinguish unary minus from binary minus is based on
-                         * the discussion at http://wcipeg.com/wiki/Shunting_yard_algorithm#Extensions
-                         */
-                        if (tokens.isEmpty() && operand.length() == 0) {
-                            // This means the "-" character is the first non-whitespace character
-                            // in the expression.
-                            tokens.add(UNARY_MINUS_TOKEN);
-                        } else {
-                            if (operand.length() != 0) {
-                                if (operand.substring(operand.length() - 1).equals(".")) {
-                                    throw new IllegalArgumentException("Given expression contains misplaced decimal point.");
-                                }
-                                tokens.add(operand.toString());
-                            }
+                    // Catch invalid expressions that contain "()".
+                    if (tokens.get(tokens.size() - 1).equals("(")) {
+                        throw new IllegalArgumentException("Given expression is invalid.");
+                    }
 
-                            String previousToken = tokens.get(tokens.size() - 1);
-                            if (previousToken.matches("[+\\-*/^(]|sin|cos|tan")) {
-                                tokens.add(UNARY_MINUS_TOKEN);
-                            } else {
-                                tokens.add("-");
-                            }
-                        }
-                        operand.setLength(0);
-                        operandHasDecimalPoint = false;
-                    } else if (currentChar.equals("t")) {
-                        if (!tokens.isEmpty() && tokens.get(tokens.size() - 1).matches("[t)]")) {
-                            tokens.add("*");
-                        } else if (operand.length() != 0) {
-                            if (operand.substring(operand.length() - 1).equals(".")) {
-                                throw new IllegalArgumentException("Given expression contains misplaced decimal point.");
-                            }
-                            tokens.add(operand.toString());
-                            tokens.add("*");
-                            operand.setLength(0);
-                            operandHasDecimalPoint = false;
+                    tokens.add(")");
+                    operand.setLength(0);
+                    operandHasDecimalPoint = false;
+                } else if (currentChar == '-') {
+                    /* The algorithm to distinguish unary minus from binary minus is based on
+                     * the discussion at http://wcipeg.com/wiki/Shunting_yard_algorithm#Extensions
+                     */
+                    if (tokens.isEmpty() && operand.length() == 0) {
+                        // This means the "-" character is the first non-whitespace character
+                        // in the expression.
+                        tokens.add(UNARY_MINUS_TOKEN);
+                    } else {
+                        if (operand.length() != 0) {
+                            addOperand(tokens, operand);
                         }
 
-                        if (i == expression.length() - 1) {
-                            operand.append("t");
-                        } else if (expression.substring(i + 1, i + 2).equals("a")) {
-                            // Here, the "t" is part of "tan".
-                            functionName.append("t");
+                        if (endsWithOperand(tokens, context)) {
+                            tokens.add("-");
                         } else {
-                            operand.append("t");
-                        }
-                    } else if (currentChar.equals(".")) {
-                        // Expressions like "2.5.6" or "2..." are invalid.
-                        if (operandHasDecimalPoint) {
-                            throw new IllegalArgumentException("Given expression contains misplaced decimal point.");
+                            tokens.add(UNARY_MINUS_TOKEN);
                         }
+                    }
+                    operand.setLength(0);
+                    operandHasDecimalPoint = false;
+                } else if (currentChar == '.') {
+                    // Expressions like "2.5.6" or "2..." are invalid.
+                    if (operandHasDecimalPoint) {
+                        throw new IllegalArgumentException("Given expression contains misplaced decimal point.");
+                    }
 
-                        operandHasDecimalPoint = true;
+                    operandHasDecimalPoint = true;
 
-                        // Expressions like "t.3" and "cos(5).40" are invalid.
-                        if (operand.toString().equals("t")
-                                || (!tokens.isEmpty() && tokens.get(tokens.size() - 1).equals(")"))) {
-                            throw new IllegalArgumentException("Given expression is invalid.");
+                    // Expressions like "t.3", "pi.3" and "cos(5).40" are invalid.
+                    if (operand.length() == 0 && endsWithOperand(tokens, context)) {
+                        throw new IllegalArgumentException("Given expression is invalid.");
+                    }
+
+                    operand.append('.');
+                } else if (Character.isLetter(currentChar)) {
+                    // Read the whole run of letters, then split it into names.
+                    int runEnd = i;
+                    while (runEnd < expression.length() && Character.isLetter(expression.charAt(runEnd))) {
+                        runEnd++;
+                    }
+                    String letters = expression.substring(i, runEnd);
+
+                    int nameStart = 0;
+                    while (nameStart < letters.length()) {
+                        String name = longestNameAt(letters, nameStart, context);
+                        if (name == null) {
+                            throw new IllegalArgumentException("Given expression contains invalid function.");
                         }
 
-                        operand.append(".");
-                    } else {
-                        // Any valid expression that makes it to this else block
-                        // has currentChar equal to one of the first letters of "sin",
-                        // or "cos". If the expression is invalid, it will be caught in
-                        // a few more iterations.
-                        if (!tokens.isEmpty() && tokens.get(tokens.size() - 1).equals(")")) {
-                            tokens.add("*");
-                        } else if (operand.length() != 0) {
-                            if (operand.substring(operand.length() - 1).equals(".")) {
-                                throw new IllegalArgumentException("Given expression contains misplaced decimal point.");
+                        if (name.equals(MOD_TOKEN)) {
+                            // mod is a binary operator, so it must follow an operand.
+                            if (operand.length() != 0) {
+                                addOperand(tokens, operand);
+                            } else if (!endsWithOperand(tokens, context)) {
+                                throw new IllegalArgumentException("Given expression is invalid.");
                             }
-                            tokens.add(operand.toString());
+                        } else if (operand.length() != 0) {
+                            addOperand(tokens, operand);
+                            tokens.add("*");
+                        } else if (endsWithOperand(tokens, context)) {
                             tokens.add("*");
-                            operand.setLength(0);
-                            operandHasDecimalPoint = false;
                         }
-                        functionName.append(currentChar);
+                        tokens.add(name);
+                        operand.setLength(0);
+                        operandHasDecimalPoint = false;
+
+                        nameStart += name.length();
                     }
+
+                    i = runEnd - 1;
                 } else {
-                    // If this code runs, and the given expression is valid, then we must be somewhere
-                    // inside the substrings "sin", "cos", or "tan". Thus, we simply let the program
-                    // loop through the expression, appending characters (one-length strings) to
-                    // functionName until its length is 3. If, at that point, the String represented
-                    // by functionName is not "sin" or "cos" or "tan", then the expression is invalid.
-                    functionName.append(currentChar);
-                    if (functionName.length() == 3) {
-                        String function = functionName.toString();
-                        if (function.matches("sin|cos|tan")) {
-                            tokens.add(function);
-                            functionName.setLength(0);
-                        } else {
-                            throw new IllegalArgumentException("Given expression contains invalid function.");
-                        }
-                    }
+                    throw new IllegalArgumentException("Given expression contains invalid character.");
                 }
             }
         }
 
         if (operand.length() != 0) {
-            if (operand.substring(operand.length() - 1).equals(".")) {
-                throw new IllegalArgumentException("Given expression contains misplaced decimal point.");
-            }
-            tokens.add(operand.toString());
+            addOperand(tokens, operand);
         }
 
         // Final error checking
         if (tokens.isEmpty()) {
             throw new IllegalArgumentException("Given expression is invalid.");
-        } else if (!bracketStack.isEmpty()) {
+        } else if (openBrackets != 0) {
             throw new IllegalArgumentException("Given expression contains mismatched parentheses.");
-        } else {
-            String lastToken = tokens.get(tokens.size() - 1);
-            if (lastToken.matches("[+\\-*/^]|sin|cos|tan")
-                    || lastToken.equals(UNARY_MINUS_TOKEN)) {
-                throw new IllegalArgumentException("Given expression is invalid.");
-            }
+        } else if (!endsWithOperand(tokens, context)) {
+            throw new IllegalArgumentException("Given expression is invalid.");
         }
 
         return tokens;
     }
+
+    /**
+     * @return the token for the given operator character, which is one of +, *, / and ^.
+     * The same String is returned every time, so a long expression does not hold a
+     * separate copy of each operator.
+     */
+    private static String operatorToken(char operator) {
+        switch (operator) {
+            case '+':
+                return "+";
+            case '*':
+                return "*";
+            case '/':
+                return "/";
+            default:
+                return "^";
+        }
+    }
+
+    /**
+     * @return true if the given token is one of the left-associative binary
+     * operators +, -, *, / and mod
+     */
+    private static boolean isLeftAssociativeOperator(String token) {
+        return token.equals("+") || token.equals("-") || token.equals("*") || token.equals("/")
+                || token.equals(MOD_TOKEN);
+    }
+
+    /**
+     * Adds the number stored in operand to the end of tokens.
+     *
+     * @throws IllegalArgumentException if the number ends with a decimal point
+     */
+    private static void addOperand(List<String> tokens, StringBuilder operand) {
+        if (operand.charAt(operand.length() - 1) == '.') {
+            throw new IllegalArgumentException("Given expression contains misplaced decimal point.");
+        }
+        tokens.add(operand.toString());
+    }
+
+    /**
+     * @return true if the last token in the given list completes an operand,
+     * i.e. it is a number, "t", a constant, a parameter, or ")"; false otherwise
+     * (including when the list is empty)
+     */
+    private static boolean endsWithOperand(List<String> tokens, ExpressionContext context) {
+        if (tokens.isEmpty()) {
+            return false;
+        }
+        String lastToken = tokens.get(tokens.size() - 1);
+        char firstChar = lastToken.charAt(0);
+        return lastToken.equals(")") || lastToken.equals("t")
+                || Character.isDigit(firstChar) || firstChar == '.'
+                || FunctionRegistry.isConstant(lastToken)
+                || (context != null && context.isParameter(lastToken));
+    }
+
+    /**
+     * @return true if the given token is the name of a function in the
+     * FunctionRegistry or of a helper function in the given context (which may
+     * be null); false otherwise
+     */
+    private static boolean isFunction(String token, ExpressionContext context) {
+        return FunctionRegistry.isFunction(token) || (context != null && context.isHelper(token));
+    }
+
+    /**
+     * @return the longest name (see {@link #tokenize(String)}) that starts at
+     * the given index of letters, or null if no name starts there. The names of
+     * the parameters and helpers of the given context (which may be null) are
+     * also considered.
+     */
+    private static String longestNameAt(String letters, int start, ExpressionContext context) {
+        // Only candidates up to the length of the longest name are tried, so a long run of
+        // letters is split in linear time
+        int maxLength = Math.max(MOD_TOKEN.length(), FunctionRegistry.getLongestNameLength());
+        if (context != null) {
+            maxLength = Math.max(maxLength, context.getLongestNameLength());
+        }
+        for (int end = Math.min(letters.length(), start + maxLength); end > start; end--) {
+            String candidate = letters.substring(start, end);
+            if (candidate.equals("t") || candidate.equals(MOD_TOKEN)
+                    || FunctionRegistry.isFunction(candidate)
+                    || FunctionRegistry.isConstant(candidate)
+                    || (context != null && (context.isParameter(candidate) || context.isHelper(candidate)))) {
+                return candidate;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,65 @@
+package curve;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An ExpressionCache holds the most recently used compiled expressions, so that an
+ * expression that is requested repeatedly (for example, by a server that renders the
+ * same curves over and over) is only parsed and compiled once. The cache holds at most
+ * a fixed number of expressions and discards the least recently used one when it is full.
+ *
+ * Only expressions without parameters or helpers are cached, because those are the only
+ * ones that are fully determined by their text. An ExpressionCache is thread-safe, and so
+ * are the CompiledExpressions that it returns.
+ */
+public class ExpressionCache {
+    private final Map<String, CompiledExpression> expressions;
+
+    /**
+     * Creates an empty cache that holds at most the given number of expressions.
+     */
+    public ExpressionCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        expressions = new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the compiled form of the given expression, compiling it if it is not
+     * in the cache
+     *
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    public CompiledExpression compile(String expression) {
+        synchronized (expressions) {
+            CompiledExpression compiled = expressions.get(expression);
+            if (compiled != null) {
+                return compiled;
+            }
+        }
+
+        // Compile outside the lock, so that a long expression does not hold up other
+        // lookups. Two threads may compile the same expression at once, which is harmless.
+        CompiledExpression compiled = EquationParser.compile(expression);
+        synchronized (expressions) {
+            expressions.put(expression, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * @return the number of expressions in the cache
+     */
+    public int size() {
+        synchronized (expressions) {
+            return expressions.size();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package curve;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An ExpressionContext holds named parameters (such as a, b, and k), user-defined
+ * helper functions of t (such as r in "r(t) = 1 + 0.5cos(5t)"), and Fourier series given
+ * by their coefficients (see {@link #defineSeries(String, double[], double[])}) that
+ * expressions can refer to. Expressions that use a context are parsed with
+ * {@link EquationParser#compile(String, ExpressionContext)}.
+ *
+ * Compiled expressions read the current values of parameters every time they are
+ * evaluated, so changing a parameter with {@link #setParameter(String, double)} takes
+ * effect immediately without parsing or compiling anything again. Likewise, redefining
+ * a helper only compiles the new body of that helper.
+ *
+ * Every change to a context increments its version (see {@link #getVersion()}), so
+ * that anything derived from the values of expressions can tell when it is out of date.
+ *
+ * Names of parameters, helpers and series must consist of letters only, and cannot be "t",
+ * "mod", or the name of a function or constant in the {@link FunctionRegistry}.
+ */
+public class ExpressionContext {
+    private final Map<String, Integer> parameterSlots = new LinkedHashMap<String, Integer>();
+
+    // parameterValues[parameterSlots.get(name)] is the value of the parameter with the given name
+    private double[] parameterValues = new double[4];
+
+    // parameterChanges[slot] is the number of times the parameter in the given slot has
+    // been set, each of which also incremented the version
+    private int[] parameterChanges = new int[4];
+
+    private final Map<String, HelperFunction> helpers = new LinkedHashMap<String, HelperFunction>();
+
+    private final Map<String, FourierSeries> series = new LinkedHashMap<String, FourierSeries>();
+
+    private volatile int version;
+
+    // The length of the longest name of a parameter, helper or series
+    private int longestNameLength;
+
+    /**
+     * Sets the value of the parameter with the given name, defining the parameter if
+     * it does not exist yet.
+     *
+     * @throws IllegalArgumentException if the name is not a valid name for a new
+     * parameter
+     */
+    public void setParameter(String name, double value) {
+        Integer slot = parameterSlots.get(name);
+        if (slot == null) {
+            checkNewName(name);
+            slot = parameterSlots.size();
+            if (slot == parameterValues.length) {
+                parameterValues = Arrays.copyOf(parameterValues, slot * 2);
+                parameterChanges = Arrays.copyOf(parameterChanges, slot * 2);
+            }
+            parameterSlots.put(name, slot);
+            longestNameLength = Math.max(longestNameLength, name.length());
+        }
+        parameterValues[slot] = value;
+        parameterChanges[slot]++;
+        version++;
+    }
+
+    /**
+     * @return the value of the parameter with the given name
+     *
+     * @throws IllegalArgumentException if there is no parameter with the given name
+     */
+    public double getParameter(String name) {
+        return parameterValues[getParameterSlot(name)];
+    }
+
+    /**
+     * @return true if there is a parameter with the given name; false otherwise
+     */
+    public boolean isParameter(String name) {
+        return parameterSlots.containsKey(name);
+    }
+
+    /**
+     * @return the names of all parameters, in the order they were defined
+     */
+    public Set<String> getParameterNames() {
+        return Collections.unmodifiableSet(parameterSlots.keySet());
+    }
+
+    /**
+     * Defines the helper function with the given name as the given expression of t,
+     * replacing any previous definition. The body may refer to parameters and to
+     * other helpers, but not (directly or indirectly) to the helper being defined.
+     *
+     * @throws IllegalArgumentException if the body is invalid, if the name is not a
+     * valid name for a new helper, or if the helper would refer to itself
+     */
+    public void defineHelper(String name, String body) {
+        HelperFunction helper = helpers.get(name);
+        if (helper == null) {
+            checkNewName(name);
+        }
+
+        // The helper cannot refer to itself while it is being defined for the first
+        // time, because its name is not yet known to this context.
+        CompiledExpression compiledBody = EquationParser.compile(body, this);
+        if (helper == null) {
+            helpers.put(name, new HelperFunction(name, this, compiledBody));
+            longestNameLength = Math.max(longestNameLength, name.length());
+        } else {
+            if (compiledBody.calls(helper)) {
+                throw new IllegalArgumentException("Helper " + name + " cannot refer to itself");
+            }
+            helper.setBody(compiledBody);
+        }
+        version++;
+    }
+
+    /**
+     * Defines the series with the given name as the Fourier series
+     *
+     * <pre>cosCoefficients[0] + cosCoefficients[1] cos(t) + sinCoefficients[1] sin(t) + cosCoefficients[2] cos(2t) + ...</pre>
+     *
+     * replacing any previous coefficients. The series can then be called like a helper,
+     * as in "x(t) = fx(t)", and is summed in time proportional to the number of terms
+     * with only one sine and cosine (see {@link FourierSeries}). The arrays may have
+     * different lengths, sinCoefficients[0] has no effect, and the arrays are copied.
+     *
+     * @throws IllegalArgumentException if a coefficient is not finite, or if the name
+     * is not a valid name for a new series
+     */
+    public void defineSeries(String name, double[] cosCoefficients, double[] sinCoefficients) {
+        FourierSeries existing = series.get(name);
+        if (existing == null) {
+            checkNewName(name);
+            series.put(name, new FourierSeries(name, cosCoefficients, sinCoefficients));
+            longestNameLength = Math.max(longestNameLength, name.length());
+        } else {
+            existing.setCoefficients(cosCoefficients, sinCoefficients);
+        }
+        version++;
+    }
+
+    /**
+     * @return true if there is a helper function or series with the given name; false
+     * otherwise
+     */
+    public boolean isHelper(String name) {
+        return helpers.containsKey(name) || series.containsKey(name);
+    }
+
+    /**
+     * @return the helper function or series with the given name, or null if there is none
+     */
+    public MathFunction getHelper(String name) {
+        MathFunction helper = helpers.get(name);
+        return helper != null ? helper : series.get(name);
+    }
+
+    /**
+     * @return the names of all helper functions, in the order they were defined
+     */
+    public Set<String> getHelperNames() {
+        return Collections.unmodifiableSet(helpers.keySet());
+    }
+
+    /**
+     * Applies a list of definitions separated by semicolons or line breaks. Each
+     * definition either sets a parameter, as in "a = 2" or "k = 3pi / a", or defines
+     * a helper, as in "r(t) = 1 + a cos(5t)". The right-hand side of a parameter
+     * definition may refer to parameters defined earlier, but not to t. Blank
+     * definitions are ignored.
+     *
+     * @throws IllegalArgumentException if any definition is invalid. Definitions
+     * before the invalid one remain applied.
+     */
+    public void define(String definitions) {
+        for (String definition : definitions.split("[;\\n]")) {
+            if (definition.trim().isEmpty()) {
+                continue;
+            }
+            int equalsIndex = definition.indexOf('=');
+            if (equalsIndex < 0) {
+                throw new IllegalArgumentException("Definition is missing \"=\": " + definition);
+            }
+            String name = definition.substring(0, equalsIndex).replace(" ", "");
+            String body = definition.substring(equalsIndex + 1);
+
+            if (name.endsWith("(t)")) {
+                defineHelper(name.substring(0, name.length() - 3), body);
+            } else {
+                CompiledExpression value = EquationParser.compile(body, this);
+                if (value.usesT()) {
+                    throw new IllegalArgumentException("Parameter " + name + " cannot depend on t");
+                }
+                setParameter(name, value.evaluate(0));
+            }
+        }
+    }
+
+    /**
+     * @return a number that changes whenever a parameter is set or a helper is
+     * defined in this context
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return a string that identifies the current parameter values, helper bodies and
+     * series coefficients of this context, in the same sense as {@link CompiledExpression#getCanonicalForm()}
+     */
+    public String getCanonicalForm() {
+        StringBuilder canonicalForm = new StringBuilder();
+        for (Map.Entry<String, Integer> parameter : parameterSlots.entrySet()) {
+            canonicalForm.append(parameter.getKey()).append('=')
+                    .append(parameterValues[parameter.getValue()]).append(';');
+        }
+        for (Map.Entry<String, HelperFunction> helper : helpers.entrySet()) {
+            canonicalForm.append(helper.getKey()).append("(t)=")
+                    .append(helper.getValue().getBody().getCanonicalForm()).append(';');
+        }
+        for (Map.Entry<String, FourierSeries> entry : series.entrySet()) {
+            canonicalForm.append(entry.getKey()).append("(t)=")
+                    .append(entry.getValue().getCanonicalForm()).append(';');
+        }
+        return canonicalForm.toString();
+    }
+
+    int getParameterSlot(String name) {
+        Integer slot = parameterSlots.get(name);
+        if (slot == null) {
+            throw new IllegalArgumentException("There is no parameter named " + name);
+        }
+        return slot;
+    }
+
+    /**
+     * @return the length of the longest name of a parameter, helper or series, or 0 if
+     * there are none
+     */
+    int getLongestNameLength() {
+        return longestNameLength;
+    }
+
+    double getParameterValue(int slot) {
+        return parameterValues[slot];
+    }
+
+    /**
+     * @return the number of times the parameter in the given slot has been set. The
+     * version minus this number only changes when something other than that parameter does.
+     */
+    int getParameterChanges(int slot) {
+        return parameterChanges[slot];
+    }
+
+    private void checkNewName(String name) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Name cannot be empty");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (!Character.isLetter(name.charAt(i))) {
+                throw new IllegalArgumentException("Name must consist of letters only: " + name);
+            }
+        }
+        if (name.equals("t") || name.equals(EquationParser.MOD_TOKEN)
+                || FunctionRegistry.isFunction(name) || FunctionRegistry.isConstant(name)
+                || isParameter(name) || isHelper(name)) {
+            throw new IllegalArgumentException("The name " + name + " is already in use");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package curve;
+
+/**
+ * An ExpressionCurveSource is a {@link CurveSource} whose x- and y-coordinates are given
+ * by two {@link CompiledExpression}s. Batch evaluation uses the block evaluation of the
+ * expressions, and derivatives are computed exactly with dual numbers.
+ */
+public final class ExpressionCurveSource extends AbstractCurveSource {
+    private final CompiledExpression xExpression;
+    private final CompiledExpression yExpression;
+
+    /**
+     * Creates a source for the curve whose x- and y-coordinates are given by xExpression
+     * and yExpression, for tLowerBound <= t <= tUpperBound.
+     *
+     * @throws IllegalArgumentException if tLowerBound > tUpperBound
+     */
+    public ExpressionCurveSource(CompiledExpression xExpression, CompiledExpression yExpression,
+                                 double tLowerBound, double tUpperBound) {
+        super(tLowerBound, tUpperBound);
+        this.xExpression = xExpression;
+        this.yExpression = yExpression;
+    }
+
+    /**
+     * @return the compiled equation for the x-coordinate of the curve
+     */
+    public CompiledExpression getXExpression() {
+        return xExpression;
+    }
+
+    /**
+     * @return the compiled equation for the y-coordinate of the curve
+     */
+    public CompiledExpression getYExpression() {
+        return yExpression;
+    }
+
+    @Override
+    public double getX(double t) {
+        return xExpression.evaluate(t);
+    }
+
+    @Override
+    public double getY(double t) {
+        return yExpression.evaluate(t);
+    }
+
+    @Override
+    public void evaluate(double[] tValues, double[] xValues, double[] yValues, int count) {
+        if (count < 0 || count > tValues.length || count > xValues.length || count > yValues.length) {
+            throw new IllegalArgumentException("Invalid number of t values");
+        }
+        xExpression.evaluate(tValues, xValues, count);
+        yExpression.evaluate(tValues, yValues, count);
+    }
+
+    @Override
+    public boolean hasDerivatives() {
+        return true;
+    }
+
+    @Override
+    public DualNumber getXDerivatives(double t) {
+        return xExpression.evaluateDerivatives(t);
+    }
+
+    @Override
+    public DualNumber getYDerivatives(double t) {
+        return yExpression.evaluateDerivatives(t);
+    }
+}
@@ -0,0 +1,189 @@
+package curve;
+
+/**
+ * This class contains fast approximations of some of the functions in
+ * {@link java.lang.Math}. The approximations trade accuracy for speed, and are
+ * meant for rendering, where an error far below the size of a pixel is invisible.
+ * The class cannot be instantiated.
+ *
+ * The functions of a single value look up a table of sines. The functions of an array
+ * of values instead evaluate a polynomial with no branches or table lookups, so that
+ * the JIT compiler can compute several values at once with SIMD instructions.
+ */
+public final class FastMath {
+    // The number of entries in the sine table per period. Must be a power of two.
+    private static final int TABLE_SIZE = 4096;
+
+    private static final double TABLE_SIZE_OVER_TWO_PI = TABLE_SIZE / (2 * Math.PI);
+
+    // Beyond this magnitude, the table index cannot be computed accurately, so the
+    // exact functions are used instead.
+    private static final double MAX_TABLE_ARGUMENT = 1e9;
+
+    // SIN_TABLE[i] = sin(2 * pi * i / TABLE_SIZE). The table has one extra entry so
+    // that interpolation never needs to wrap around.
+    private static final double[] SIN_TABLE = new double[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            SIN_TABLE[i] = Math.sin(2 * Math.PI * i / TABLE_SIZE);
+        }
+    }
+
+    // Beyond this magnitude, the polynomial approximations cannot reduce their argument
+    // accurately, so the exact functions are used instead.
+    private static final double MAX_POLYNOMIAL_ARGUMENT = 1e6;
+
+    private static final double ONE_OVER_PI = 1 / Math.PI;
+
+    /* The functions that useExactForLargeArguments() can compute */
+    private static final int SIN = 0;
+    private static final int COS = 1;
+    private static final int TAN = 2;
+
+    // pi split into three parts for reducing arguments. PI_A and PI_B have at most 32
+    // significant bits, so k * PI_A and k * PI_B are exact for |k| < 2^20.
+    private static final double PI_A = 3.1415926534682512;
+    private static final double PI_B = 1.2154201012607932e-10;
+    private static final double PI_C = 4.044532497591901e-21;
+
+    // Taylor series coefficients of sin(r) / r and cos(r) in powers of r^2, which are
+    // accurate to within 1e-13 for |r| <= pi / 2
+    private static final double S1 = -1.0 / 6;
+    private static final double S2 = 1.0 / 120;
+    private static final double S3 = -1.0 / 5040;
+    private static final double S4 = 1.0 / 362880;
+    private static final double S5 = -1.0 / 39916800;
+    private static final double S6 = 1.0 / 6227020800L;
+    private static final double S7 = -1.0 / 1307674368000L;
+    private static final double S8 = 1.0 / 355687428096000L;
+    private static final double C1 = -1.0 / 2;
+    private static final double C2 = 1.0 / 24;
+    private static final double C3 = -1.0 / 720;
+    private static final double C4 = 1.0 / 40320;
+    private static final double C5 = -1.0 / 3628800;
+    private static final double C6 = 1.0 / 479001600;
+    private static final double C7 = -1.0 / 87178291200L;
+    private static final double C8 = 1.0 / 20922789888000L;
+    private static final double C9 = -1.0 / 6402373705728000L;
+
+    private FastMath() {}
+
+    /**
+     * @return an approximation of sin(x), found by linear interpolation in a table of
+     * sines. The absolute error is less than 3e-7.
+     */
+    public static double sin(double x) {
+        if (!(Math.abs(x) < MAX_TABLE_ARGUMENT)) {
+            return Math.sin(x);
+        }
+        return lookUpSine(x * TABLE_SIZE_OVER_TWO_PI);
+    }
+
+    /**
+     * @return an approximation of cos(x), found by linear interpolation in a table of
+     * sines. The absolute error is less than 3e-7.
+     */
+    public static double cos(double x) {
+        if (!(Math.abs(x) < MAX_TABLE_ARGUMENT)) {
+            return Math.cos(x);
+        }
+        // cos(x) = sin(x + pi/2), and pi/2 is a quarter of the table.
+        return lookUpSine(x * TABLE_SIZE_OVER_TWO_PI + TABLE_SIZE / 4);
+    }
+
+    /**
+     * @return an approximation of tan(x), computed as sin(x) / cos(x) using the
+     * approximations above
+     */
+    public static double tan(double x) {
+        return sin(x) / cos(x);
+    }
+
+    /**
+     * @return sin(2 * pi * index / TABLE_SIZE), interpolated linearly between the
+     * neighbouring entries of the sine table
+     */
+    private static double lookUpSine(double index) {
+        double floor = Math.floor(index);
+        double fraction = index - floor;
+        int i = (int) ((long) floor & (TABLE_SIZE - 1));
+        return SIN_TABLE[i] + fraction * (SIN_TABLE[i + 1] - SIN_TABLE[i]);
+    }
+
+    /**
+     * Sets results[i] to an approximation of sin(x[i]) for every i < length. The
+     * absolute error is less than 1e-13. The arrays must be different.
+     */
+    public static void sin(double[] x, double[] results, int length) {
+        for (int i = 0; i < length; i++) {
+            double k = Math.rint(x[i] * ONE_OVER_PI);
+            double r = reduce(x[i], k);
+            results[i] = sign(k) * sinPolynomial(r);
+        }
+        useExactForLargeArguments(x, results, length, SIN);
+    }
+
+    /**
+     * Sets results[i] to an approximation of cos(x[i]) for every i < length. The
+     * absolute error is less than 1e-13. The arrays must be different.
+     */
+    public static void cos(double[] x, double[] results, int length) {
+        for (int i = 0; i < length; i++) {
+            double k = Math.rint(x[i] * ONE_OVER_PI);
+            double r = reduce(x[i], k);
+            results[i] = sign(k) * cosPolynomial(r);
+        }
+        useExactForLargeArguments(x, results, length, COS);
+    }
+
+    /**
+     * Sets results[i] to an approximation of tan(x[i]) for every i < length, computed as
+     * the quotient of the approximations of sin and cos. The arrays must be different.
+     */
+    public static void tan(double[] x, double[] results, int length) {
+        for (int i = 0; i < length; i++) {
+            // tan has period pi, so the sign of the reduction does not matter
+            double r = reduce(x[i], Math.rint(x[i] * ONE_OVER_PI));
+            results[i] = sinPolynomial(r) / cosPolynomial(r);
+        }
+        useExactForLargeArguments(x, results, length, TAN);
+    }
+
+    /**
+     * Replaces the results at arguments too large to be reduced accurately (or that are
+     * not finite) with the exact values of the given function.
+     */
+    private static void useExactForLargeArguments(double[] x, double[] results, int length, int function) {
+        for (int i = 0; i < length; i++) {
+            if (!(Math.abs(x[i]) < MAX_POLYNOMIAL_ARGUMENT)) {
+                results[i] = function == SIN ? Math.sin(x[i]) : function == COS ? Math.cos(x[i]) : Math.tan(x[i]);
+            }
+        }
+    }
+
+    /**
+     * @return x - k * pi, which is between -pi/2 and pi/2 if k is the integer closest
+     * to x / pi
+     */
+    private static double reduce(double x, double k) {
+        return ((x - k * PI_A) - k * PI_B) - k * PI_C;
+    }
+
+    /**
+     * @return (-1)^k for an integer k
+     */
+    private static double sign(double k) {
+        return 1 - 2 * (k - 2 * Math.floor(k * 0.5));
+    }
+
+    private static double sinPolynomial(double r) {
+        double s = r * r;
+        return r + r * s * (S1 + s * (S2 + s * (S3 + s * (S4 + s * (S5 + s * (S6 + s * (S7 + s * S8)))))));
+    }
+
+    private static double cosPolynomial(double r) {
+        double s = r * r;
+        return 1 + s * (C1 + s * (C2 + s * (C3 + s * (C4 + s * (C5 + s * (C6 + s * (C7 + s * (C8 + s * C9))))))));
+    }
+}
@@ -0,0 +1,162 @@
+package curve;
+
+import java.util.Arrays;
+
+/**
+ * A FloatSampleBuffer is a growable list of (t, x, y) samples of a parametric curve,
+ * like a {@link SampleBuffer}, except that the samples are stored as floats. It takes
+ * half the memory of a SampleBuffer, which makes it suitable for very large sample sets
+ * that are only going to be drawn: a float is accurate to within one part in 2^24, which
+ * is far less than a pixel for any point that fits on the screen. The samples are still
+ * evaluated in double precision, and are only rounded when they are stored.
+ *
+ * A sample whose x- or y-coordinate is NaN denotes an undefined point.
+ */
+public class FloatSampleBuffer implements SampleTable {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // The number of samples that are evaluated at once by sample()
+    private static final int BLOCK_SIZE = 1024;
+
+    private float[] tValues;
+    private float[] xValues;
+    private float[] yValues;
+    private int size;
+
+    /**
+     * Creates an empty FloatSampleBuffer.
+     */
+    public FloatSampleBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty FloatSampleBuffer with room for the given number of samples.
+     */
+    public FloatSampleBuffer(int initialCapacity) {
+        initialCapacity = Math.max(initialCapacity, 1);
+        tValues = new float[initialCapacity];
+        xValues = new float[initialCapacity];
+        yValues = new float[initialCapacity];
+    }
+
+    /**
+     * @return a FloatSampleBuffer holding the curve (x(t), y(t)) sampled at numSamples
+     * evenly spaced t values from tLowerBound to tUpperBound inclusive. The samples are
+     * evaluated in blocks, so no double array as long as the whole curve is allocated.
+     *
+     * @throws IllegalArgumentException if numSamples is not positive, or if
+     * tLowerBound > tUpperBound
+     */
+    public static FloatSampleBuffer sample(CompiledExpression xExpression, CompiledExpression yExpression,
+                                           double tLowerBound, double tUpperBound, int numSamples) {
+        return sample(new ExpressionCurveSource(xExpression, yExpression, tLowerBound, tUpperBound), numSamples);
+    }
+
+    /**
+     * @return a FloatSampleBuffer holding the given curve sampled as above, over its
+     * whole range of t
+     *
+     * @throws IllegalArgumentException if numSamples is not positive
+     */
+    public static FloatSampleBuffer sample(CurveSource source, int numSamples) {
+        if (numSamples < 1) {
+            throw new IllegalArgumentException("Number of samples must be at least 1");
+        }
+
+        double tLowerBound = source.getTLowerBound();
+        double tUpperBound = source.getTUpperBound();
+        double tIncrement = numSamples == 1 ? 0 : (tUpperBound - tLowerBound) / (numSamples - 1);
+        int blockSize = Math.min(numSamples, BLOCK_SIZE);
+        double[] tBlock = new double[blockSize];
+        double[] xBlock = new double[blockSize];
+        double[] yBlock = new double[blockSize];
+
+        FloatSampleBuffer samples = new FloatSampleBuffer(numSamples);
+        for (int start = 0; start < numSamples; start += blockSize) {
+            int count = Math.min(blockSize, numSamples - start);
+            for (int i = 0; i < count; i++) {
+                tBlock[i] = tLowerBound + (start + i) * tIncrement;
+            }
+            source.evaluate(tBlock, xBlock, yBlock, count);
+            for (int i = 0; i < count; i++) {
+                samples.add(tBlock[i], xBlock[i], yBlock[i]);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Appends the sample (t, x, y) to the end of this buffer, rounded to the nearest
+     * floats.
+     */
+    public void add(double t, double x, double y) {
+        if (size == tValues.length) {
+            int newCapacity = size * 2;
+            tValues = Arrays.copyOf(tValues, newCapacity);
+            xValues = Arrays.copyOf(xValues, newCapacity);
+            yValues = Arrays.copyOf(yValues, newCapacity);
+        }
+        tValues[size] = (float) t;
+        xValues[size] = (float) x;
+        yValues[size] = (float) y;
+        size++;
+    }
+
+    /**
+     * Appends an undefined point at the given t value, unless the last sample in
+     * this buffer is already undefined.
+     */
+    public void addBreak(double t) {
+        if (size > 0 && isUndefined(size - 1)) {
+            return;
+        }
+        add(t, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * @return the number of samples in this buffer
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double getT(int index) {
+        checkIndex(index);
+        return tValues[index];
+    }
+
+    @Override
+    public double getX(int index) {
+        checkIndex(index);
+        return xValues[index];
+    }
+
+    @Override
+    public double getY(int index) {
+        checkIndex(index);
+        return yValues[index];
+    }
+
+    /**
+     * @return true if the sample at the given index is an undefined point
+     */
+    public boolean isUndefined(int index) {
+        return Double.isNaN(getX(index)) || Double.isNaN(getY(index));
+    }
+
+    /**
+     * Removes all samples from this buffer.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package curve;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A FourierSeries is a function of the form
+ *
+ * <pre>f(x) = a[0] + a[1] cos(x) + b[1] sin(x) + a[2] cos(2x) + b[2] sin(2x) + ... + a[n] cos(nx) + b[n] sin(nx)</pre>
+ *
+ * given by its arrays of cosine coefficients a and sine coefficients b, that belongs to
+ * an {@link ExpressionContext} (see {@link ExpressionContext#defineSeries(String, double[], double[])}).
+ * Epicycle and Fourier drawings with thousands of terms can then be written as, for
+ * example, x(t) = fx(t), without parsing a giant sum.
+ *
+ * The series is summed with Clenshaw's recurrence, which takes one sine and one cosine
+ * however many terms there are, instead of one per term. When it is applied to many
+ * values at once, the recurrence is run over a block of values at a time in simple
+ * loops that the JIT compiler turns into SIMD instructions.
+ */
+final class FourierSeries extends MathFunction {
+    // The number of values that apply(double[], double[], int) works on at a time
+    private static final int BLOCK_SIZE = 256;
+
+    private volatile Coefficients coefficients;
+
+    /**
+     * The coefficients of a series, along with bounds that are derived from them.
+     */
+    private static final class Coefficients {
+        // cos[k] and sin[k] are the coefficients of cos(kx) and sin(kx). The arrays have
+        // the same length, and sin[0] is 0.
+        final double[] cos;
+        final double[] sin;
+
+        // The coefficients of the first and second derivatives of the series. The
+        // derivative of a cos(kx) + b sin(kx) is kb cos(kx) - ka sin(kx), and the second
+        // derivative is -k^2 times the term itself.
+        final double[] firstCos;
+        final double[] firstSin;
+        final double[] secondCos;
+        final double[] secondSin;
+
+        // The largest absolute value of the series, and the largest absolute value of its
+        // derivative
+        final double bound;
+        final double derivativeBound;
+
+        // A bound on the rounding error of Clenshaw's recurrence, which grows with the
+        // square of the number of terms in the worst case
+        final double roundingError;
+
+        final String canonicalForm;
+
+        Coefficients(double[] cosCoefficients, double[] sinCoefficients) {
+            int length = Math.max(Math.max(cosCoefficients.length, sinCoefficients.length), 1);
+            cos = Arrays.copyOf(cosCoefficients, length);
+            sin = Arrays.copyOf(sinCoefficients, length);
+            sin[0] = 0;
+
+            firstCos = new double[length];
+            firstSin = new double[length];
+            secondCos = new double[length];
+            secondSin = new double[length];
+            for (int k = 1; k < length; k++) {
+                firstCos[k] = k * sin[k];
+                firstSin[k] = -k * cos[k];
+                secondCos[k] = -(double) k * k * cos[k];
+                secondSin[k] = -(double) k * k * sin[k];
+            }
+
+            double bound = 0;
+            double derivativeBound = 0;
+            for (int k = 0; k < length; k++) {
+                if (!Double.isFinite(cos[k]) || !Double.isFinite(sin[k])) {
+                    throw new IllegalArgumentException("Coefficients must be finite");
+                }
+                bound += Math.abs(cos[k]) + Math.abs(sin[k]);
+                derivativeBound += k * (Math.abs(cos[k]) + Math.abs(sin[k]));
+            }
+            this.bound = bound;
+            this.derivativeBound = derivativeBound;
+            roundingError = (double) length * length * Math.ulp(1.0) * bound;
+            canonicalForm = "series " + sha256(cos, sin);
+        }
+    }
+
+    /**
+     * Creates a FourierSeries with the given name and coefficients (see
+     * {@link #setCoefficients(double[], double[])}).
+     *
+     * @throws IllegalArgumentException if the name is not made of letters, or if a
+     * coefficient is not finite
+     */
+    FourierSeries(String name, double[] cosCoefficients, double[] sinCoefficients) {
+        super(name);
+        setCoefficients(cosCoefficients, sinCoefficients);
+    }
+
+    /**
+     * Replaces the coefficients of this series. cosCoefficients[k] and sinCoefficients[k]
+     * are the coefficients of cos(kx) and sin(kx); the arrays may have different lengths,
+     * and sinCoefficients[0] has no effect. The arrays are copied.
+     *
+     * @throws IllegalArgumentException if a coefficient is not finite
+     */
+    void setCoefficients(double[] cosCoefficients, double[] sinCoefficients) {
+        coefficients = new Coefficients(cosCoefficients, sinCoefficients);
+    }
+
+    /**
+     * @return a string that identifies the coefficients of this series, in the same
+     * sense as {@link CompiledExpression#getCanonicalForm()}
+     */
+    String getCanonicalForm() {
+        return coefficients.canonicalForm;
+    }
+
+    @Override
+    public double apply(double x) {
+        return sum(coefficients.cos, coefficients.sin, Math.cos(x), Math.sin(x));
+    }
+
+    @Override
+    public double applyFast(double x) {
+        return sum(coefficients.cos, coefficients.sin, FastMath.cos(x), FastMath.sin(x));
+    }
+
+    @Override
+    public void apply(double[] x, double[] results, int length) {
+        apply(x, results, length, false);
+    }
+
+    @Override
+    public void applyFast(double[] x, double[] results, int length) {
+        apply(x, results, length, true);
+    }
+
+    @Override
+    public Interval apply(Interval x) {
+        Coefficients c = coefficients;
+        Interval range = new Interval(-c.bound, c.bound);
+        if (!x.isBounded()) {
+            return range;
+        }
+        // The series changes by at most derivativeBound per unit of x, so it stays within
+        // that rate of its value at the midpoint
+        double midpoint = 0.5 * (x.getLower() + x.getUpper());
+        double change = c.derivativeBound * 0.5 * x.width() + c.roundingError;
+        double value = sum(c.cos, c.sin, Math.cos(midpoint), Math.sin(midpoint));
+        return Interval.hull(Math.max(value - change, -c.bound), Math.min(value + change, c.bound));
+    }
+
+    @Override
+    public DualNumber apply(DualNumber x) {
+        Coefficients c = coefficients;
+        double cosX = Math.cos(x.getValue());
+        double sinX = Math.sin(x.getValue());
+        return x.chain(sum(c.cos, c.sin, cosX, sinX), sum(c.firstCos, c.firstSin, cosX, sinX),
+                sum(c.secondCos, c.secondSin, cosX, sinX));
+    }
+
+    /**
+     * @return the series with the given coefficients at the x value with the given
+     * cosine and sine, summed with Clenshaw's recurrence
+     */
+    private static double sum(double[] cos, double[] sin, double cosX, double sinX) {
+        double twoCosX = 2 * cosX;
+        // u and v run the recurrence for the cosine and sine terms. u1 and v1 are the
+        // latest values, and u2 and v2 the ones before.
+        double u1 = 0;
+        double u2 = 0;
+        double v1 = 0;
+        double v2 = 0;
+        for (int k = cos.length - 1; k >= 1; k--) {
+            double u = cos[k] + twoCosX * u1 - u2;
+            u2 = u1;
+            u1 = u;
+            double v = sin[k] + twoCosX * v1 - v2;
+            v2 = v1;
+            v1 = v;
+        }
+        return cos[0] + u1 * cosX - u2 + v1 * sinX;
+    }
+
+    private void apply(double[] x, double[] results, int length, boolean fastMath) {
+        Coefficients c = coefficients;
+        double[] cos = c.cos;
+        double[] sin = c.sin;
+        int blockSize = Math.min(length, BLOCK_SIZE);
+        double[] cosX = new double[blockSize];
+        double[] sinX = new double[blockSize];
+        double[] u1 = new double[blockSize];
+        double[] u2 = new double[blockSize];
+        double[] v1 = new double[blockSize];
+        double[] v2 = new double[blockSize];
+        double[] block = new double[blockSize];
+
+        for (int start = 0; start < length; start += blockSize) {
+            int count = Math.min(blockSize, length - start);
+            System.arraycopy(x, start, block, 0, count);
+            if (fastMath) {
+                FastMath.cos(block, cosX, count);
+                FastMath.sin(block, sinX, count);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    cosX[i] = Math.cos(block[i]);
+                    sinX[i] = Math.sin(block[i]);
+                }
+            }
+            Arrays.fill(u1, 0, count, 0);
+            Arrays.fill(u2, 0, count, 0);
+            Arrays.fill(v1, 0, count, 0);
+            Arrays.fill(v2, 0, count, 0);
+
+            // The same recurrence as in sum(), run for every value in the block at once
+            for (int k = cos.length - 1; k >= 1; k--) {
+                double cosCoefficient = cos[k];
+                double sinCoefficient = sin[k];
+                for (int i = 0; i < count; i++) {
+                    double twoCosX = 2 * cosX[i];
+                    double u = cosCoefficient + twoCosX * u1[i] - u2[i];
+                    u2[i] = u1[i];
+                    u1[i] = u;
+                    double v = sinCoefficient + twoCosX * v1[i] - v2[i];
+                    v2[i] = v1[i];
+                    v1[i] = v;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                results[start + i] = cos[0] + u1[i] * cosX[i] - u2[i] + v1[i] * sinX[i];
+            }
+        }
+    }
+
+    /**
+     * @return the SHA-256 hash of the given coefficients, as lower-case hexadecimal digits
+     */
+    private static String sha256(double[] cos, double[] sin) {
+        ByteBuffer bytes = ByteBuffer.allocate(2 * Double.BYTES * cos.length);
+        for (int k = 0; k < cos.length; k++) {
+            bytes.putDouble(cos[k]).putDouble(sin[k]);
+        }
+        return CacheKey.sha256(bytes.array());
+    }
+}
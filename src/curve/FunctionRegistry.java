@@ -0,0 +1,509 @@
+package curve;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The FunctionRegistry holds every named function and named constant that can appear
+ * in an expression. The built-in functions are sin, cos, tan, exp, ln (natural
+ * logarithm), log (base-10 logarithm), sqrt, abs, arcsin, arccos, arctan, sinh, cosh,
+ * tanh, and floor, and the built-in constants are e and pi. Further functions can be
+ * added with {@link #register(MathFunction)} and removed again with
+ * {@link #unregister(String)}. The class cannot be instantiated.
+ */
+public final class FunctionRegistry {
+    private static final Map<String, MathFunction> functions =
+            Collections.synchronizedMap(new LinkedHashMap<String, MathFunction>());
+    private static final Map<String, Double> constants =
+            Collections.synchronizedMap(new LinkedHashMap<String, Double>());
+
+    private static final double LN_10 = Math.log(10);
+
+    // The length of the longest name of a function or constant
+    private static volatile int longestNameLength;
+
+    // The names of the built-in functions, which cannot be unregistered
+    private static final Set<String> builtInNames;
+
+    private FunctionRegistry() {}
+
+    // Register the built-in functions and constants
+    static {
+        constants.put("e", Math.E);
+        constants.put("pi", Math.PI);
+        longestNameLength = "pi".length();
+
+        register(new MathFunction("sin") {
+            @Override
+            public double apply(double x) {
+                return Math.sin(x);
+            }
+
+            @Override
+            public double applyFast(double x) {
+                return FastMath.sin(x);
+            }
+
+            @Override
+            public void applyFast(double[] x, double[] results, int length) {
+                FastMath.sin(x, results, length);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                return x.sin();
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                return x.sin();
+            }
+        });
+        register(new MathFunction("cos") {
+            @Override
+            public double apply(double x) {
+                return Math.cos(x);
+            }
+
+            @Override
+            public double applyFast(double x) {
+                return FastMath.cos(x);
+            }
+
+            @Override
+            public void applyFast(double[] x, double[] results, int length) {
+                FastMath.cos(x, results, length);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                return x.cos();
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                return x.cos();
+            }
+        });
+        register(new MathFunction("tan") {
+            @Override
+            public double apply(double x) {
+                return Math.tan(x);
+            }
+
+            @Override
+            public double applyFast(double x) {
+                return FastMath.tan(x);
+            }
+
+            @Override
+            public void applyFast(double[] x, double[] results, int length) {
+                FastMath.tan(x, results, length);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                return x.tan();
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                return x.tan();
+            }
+        });
+        register(new MathFunction("exp") {
+            @Override
+            public double apply(double x) {
+                return Math.exp(x);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                if (!x.isBounded()) {
+                    // exp of [-inf, a] is bounded, but x may still jump
+                    return Interval.ENTIRE;
+                }
+                return Interval.hull(Math.exp(x.getLower()), Math.exp(x.getUpper()));
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                double exp = Math.exp(x.getValue());
+                return x.chain(exp, exp, exp);
+            }
+        });
+        register(new MathFunction("ln") {
+            @Override
+            public double apply(double x) {
+                return Math.log(x);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                if (x.getLower() <= 0) {
+                    return Interval.ENTIRE;
+                }
+                return Interval.hull(Math.log(x.getLower()), Math.log(x.getUpper()));
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                double value = x.getValue();
+                return x.chain(Math.log(value), 1 / value, -1 / (value * value));
+            }
+        });
+        register(new MathFunction("log") {
+            @Override
+            public double apply(double x) {
+                return Math.log10(x);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                if (x.getLower() <= 0) {
+                    return Interval.ENTIRE;
+                }
+                return Interval.hull(Math.log10(x.getLower()), Math.log10(x.getUpper()));
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                double value = x.getValue();
+                return x.chain(Math.log10(value), 1 / (value * LN_10), -1 / (value * value * LN_10));
+            }
+        });
+        register(new MathFunction("sqrt") {
+            @Override
+            public double apply(double x) {
+                return Math.sqrt(x);
+            }
+
+            @Override
+            public void apply(double[] x, double[] results, int length) {
+                for (int i = 0; i < length; i++) {
+                    results[i] = Math.sqrt(x[i]);
+                }
+            }
+
+            @Override
+            public void applyFast(double[] x, double[] results, int length) {
+                apply(x, results, length);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                if (x.getLower() < 0) {
+                    return Interval.ENTIRE;
+                }
+                return Interval.hull(Math.sqrt(x.getLower()), Math.sqrt(x.getUpper()));
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                double sqrt = Math.sqrt(x.getValue());
+                return x.chain(sqrt, 0.5 / sqrt, -0.25 / (sqrt * sqrt * sqrt));
+            }
+        });
+        register(new MathFunction("abs") {
+            @Override
+            public double apply(double x) {
+                return Math.abs(x);
+            }
+
+            @Override
+            public void apply(double[] x, double[] results, int length) {
+                for (int i = 0; i < length; i++) {
+                    results[i] = Math.abs(x[i]);
+                }
+            }
+
+            @Override
+            public void applyFast(double[] x, double[] results, int length) {
+                apply(x, results, length);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                double lowerAbs = Math.abs(x.getLower());
+                double upperAbs = Math.abs(x.getUpper());
+                if (x.contains(0)) {
+                    return Interval.hull(0, Math.max(lowerAbs, upperAbs));
+                }
+                return Interval.hull(lowerAbs, upperAbs);
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                return x.chain(Math.abs(x.getValue()), Math.signum(x.getValue()), 0);
+            }
+        });
+        register(new MathFunction("arcsin") {
+            @Override
+            public double apply(double x) {
+                return Math.asin(x);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                if (x.getLower() < -1 || x.getUpper() > 1) {
+                    return Interval.ENTIRE;
+                }
+                return Interval.hull(Math.asin(x.getLower()), Math.asin(x.getUpper()));
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                double value = x.getValue();
+                double oneMinusSquare = 1 - value * value;
+                return x.chain(Math.asin(value), 1 / Math.sqrt(oneMinusSquare),
+                        value / Math.pow(oneMinusSquare, 1.5));
+            }
+        });
+        register(new MathFunction("arccos") {
+            @Override
+            public double apply(double x) {
+                return Math.acos(x);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                if (x.getLower() < -1 || x.getUpper() > 1) {
+                    return Interval.ENTIRE;
+                }
+                return Interval.hull(Math.acos(x.getLower()), Math.acos(x.getUpper()));
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                double value = x.getValue();
+                double oneMinusSquare = 1 - value * value;
+                return x.chain(Math.acos(value), -1 / Math.sqrt(oneMinusSquare),
+                        -value / Math.pow(oneMinusSquare, 1.5));
+            }
+        });
+        register(new MathFunction("arctan") {
+            @Override
+            public double apply(double x) {
+                return Math.atan(x);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                if (!x.isBounded()) {
+                    // x may jump across an asymptote, so arctan of it may jump too
+                    return Interval.ENTIRE;
+                }
+                return Interval.hull(Math.atan(x.getLower()), Math.atan(x.getUpper()));
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                double value = x.getValue();
+                double onePlusSquare = 1 + value * value;
+                return x.chain(Math.atan(value), 1 / onePlusSquare,
+                        -2 * value / (onePlusSquare * onePlusSquare));
+            }
+        });
+        register(new MathFunction("sinh") {
+            @Override
+            public double apply(double x) {
+                return Math.sinh(x);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                return Interval.hull(Math.sinh(x.getLower()), Math.sinh(x.getUpper()));
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                double sinh = Math.sinh(x.getValue());
+                return x.chain(sinh, Math.cosh(x.getValue()), sinh);
+            }
+        });
+        register(new MathFunction("cosh") {
+            @Override
+            public double apply(double x) {
+                return Math.cosh(x);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                double lowerCosh = Math.cosh(x.getLower());
+                double upperCosh = Math.cosh(x.getUpper());
+                if (x.contains(0)) {
+                    return Interval.hull(1, Math.max(lowerCosh, upperCosh));
+                }
+                return Interval.hull(lowerCosh, upperCosh);
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                double cosh = Math.cosh(x.getValue());
+                return x.chain(cosh, Math.sinh(x.getValue()), cosh);
+            }
+        });
+        register(new MathFunction("tanh") {
+            @Override
+            public double apply(double x) {
+                return Math.tanh(x);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                if (!x.isBounded()) {
+                    // x may jump across an asymptote, so tanh of it may jump too
+                    return Interval.ENTIRE;
+                }
+                return Interval.hull(Math.tanh(x.getLower()), Math.tanh(x.getUpper()));
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                double tanh = Math.tanh(x.getValue());
+                double sechSquared = 1 - tanh * tanh;
+                return x.chain(tanh, sechSquared, -2 * tanh * sechSquared);
+            }
+        });
+        register(new MathFunction("floor") {
+            @Override
+            public double apply(double x) {
+                return Math.floor(x);
+            }
+
+            @Override
+            public void apply(double[] x, double[] results, int length) {
+                for (int i = 0; i < length; i++) {
+                    results[i] = Math.floor(x[i]);
+                }
+            }
+
+            @Override
+            public void applyFast(double[] x, double[] results, int length) {
+                apply(x, results, length);
+            }
+
+            @Override
+            public Interval apply(Interval x) {
+                // floor jumps at every integer, so it is only continuous over x if
+                // x contains no integer other than possibly its lower bound.
+                double lowerFloor = Math.floor(x.getLower());
+                if (lowerFloor != Math.floor(x.getUpper())) {
+                    return Interval.ENTIRE;
+                }
+                return Interval.of(lowerFloor);
+            }
+
+            @Override
+            public DualNumber apply(DualNumber x) {
+                return DualNumber.constant(Math.floor(x.getValue()));
+            }
+        });
+        builtInNames = getFunctionNames();
+    }
+
+    /**
+     * Adds the given function to the registry, so that it can be used in expressions
+     * that are parsed from now on.
+     *
+     * @throws IllegalArgumentException if the name of the function is "t", "mod", the
+     * name of a constant, or the name of a function that is already registered
+     */
+    public static void register(MathFunction function) {
+        String name = function.getName();
+        synchronized (functions) {
+            if (name.equals("t") || name.equals(EquationParser.MOD_TOKEN)
+                    || constants.containsKey(name) || functions.containsKey(name)) {
+                throw new IllegalArgumentException("The name " + name + " is already in use");
+            }
+            functions.put(name, function);
+            longestNameLength = Math.max(longestNameLength, name.length());
+        }
+    }
+
+    /**
+     * Removes the function with the given name that was added with
+     * {@link #register(MathFunction)}, so that expressions that are parsed from now on
+     * cannot use it. Expressions that have already been parsed still call it.
+     *
+     * @throws IllegalArgumentException if there is no such function, or if it is built in
+     */
+    public static void unregister(String name) {
+        synchronized (functions) {
+            if (!functions.containsKey(name) || builtInNames.contains(name)) {
+                throw new IllegalArgumentException("There is no registered function named " + name);
+            }
+            functions.remove(name);
+            int longest = 0;
+            for (String functionName : functions.keySet()) {
+                longest = Math.max(longest, functionName.length());
+            }
+            for (String constantName : getConstantNames()) {
+                longest = Math.max(longest, constantName.length());
+            }
+            longestNameLength = longest;
+        }
+    }
+
+    /**
+     * @return true if there is a function with the given name; false otherwise
+     */
+    public static boolean isFunction(String name) {
+        return functions.containsKey(name);
+    }
+
+    /**
+     * @return the function with the given name, or null if there is no such function
+     */
+    public static MathFunction getFunction(String name) {
+        return functions.get(name);
+    }
+
+    /**
+     * @return true if there is a constant with the given name; false otherwise
+     */
+    public static boolean isConstant(String name) {
+        return constants.containsKey(name);
+    }
+
+    /**
+     * @return the value of the constant with the given name
+     *
+     * @throws IllegalArgumentException if there is no constant with the given name
+     */
+    public static double getConstant(String name) {
+        Double value = constants.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("There is no constant named " + name);
+        }
+        return value;
+    }
+
+    /**
+     * @return the length of the longest name of a registered function or constant
+     */
+    public static int getLongestNameLength() {
+        return longestNameLength;
+    }
+
+    /**
+     * @return the names of all registered functions
+     */
+    public static Set<String> getFunctionNames() {
+        synchronized (functions) {
+            return Collections.unmodifiableSet(new LinkedHashSet<String>(functions.keySet()));
+        }
+    }
+
+    /**
+     * @return the names of all constants
+     */
+    public static Set<String> getConstantNames() {
+        synchronized (constants) {
+            return Collections.unmodifiableSet(new LinkedHashSet<String>(constants.keySet()));
+        }
+    }
+}
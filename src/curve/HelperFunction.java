@@ -0,0 +1,114 @@
+package curve;
+
+/**
+ * A HelperFunction is a user-defined function of t, such as r in "r(t) = 1 + 0.5cos(5t)",
+ * that belongs to an {@link ExpressionContext}. Its body is compiled once, and can be
+ * replaced without recompiling the expressions that call it.
+ *
+ * The most recent result on each thread is memoized, so an expression like "r(t)cos(t)"
+ * followed by "r(t)sin(t)" at the same t value evaluates the body of r only once. The
+ * memo is discarded whenever a parameter or helper in the context changes.
+ */
+final class HelperFunction extends MathFunction {
+    private final ExpressionContext context;
+
+    private volatile CompiledExpression body;
+    private volatile CompiledExpression fastBody;
+
+    // The most recent results of apply(double) and applyFast(double) on each thread.
+    // A Memo is updated in place, so evaluating does not allocate anything.
+    private final ThreadLocal<Memo> memos = createMemos();
+    private final ThreadLocal<Memo> fastMemos = createMemos();
+
+    /**
+     * Represents the result of evaluating the body at an argument, which remains valid
+     * for as long as the version of the context is unchanged.
+     */
+    private static final class Memo {
+        // The version of the context is never negative, so a new Memo matches nothing
+        int contextVersion = -1;
+        double argument;
+        double value;
+
+        boolean matches(int contextVersion, double argument) {
+            return this.contextVersion == contextVersion && Double.compare(this.argument, argument) == 0;
+        }
+
+        void set(int contextVersion, double argument, double value) {
+            this.contextVersion = contextVersion;
+            this.argument = argument;
+            this.value = value;
+        }
+    }
+
+    HelperFunction(String name, ExpressionContext context, CompiledExpression body) {
+        super(name);
+        this.context = context;
+        setBody(body);
+    }
+
+    /**
+     * Replaces the body of this function.
+     */
+    void setBody(CompiledExpression body) {
+        this.body = body;
+        this.fastBody = body.withFastMath(true);
+    }
+
+    private static ThreadLocal<Memo> createMemos() {
+        return new ThreadLocal<Memo>() {
+            @Override
+            protected Memo initialValue() {
+                return new Memo();
+            }
+        };
+    }
+
+    CompiledExpression getBody() {
+        return body;
+    }
+
+    @Override
+    public double apply(double x) {
+        int version = context.getVersion();
+        Memo lastResult = memos.get();
+        if (lastResult.matches(version, x)) {
+            return lastResult.value;
+        }
+        double value = body.evaluate(x);
+        lastResult.set(version, x, value);
+        return value;
+    }
+
+    @Override
+    public double applyFast(double x) {
+        int version = context.getVersion();
+        Memo lastResult = fastMemos.get();
+        if (lastResult.matches(version, x)) {
+            return lastResult.value;
+        }
+        double value = fastBody.evaluate(x);
+        lastResult.set(version, x, value);
+        return value;
+    }
+
+    @Override
+    public void apply(double[] x, double[] results, int length) {
+        body.evaluate(x, results, length);
+    }
+
+    @Override
+    public void applyFast(double[] x, double[] results, int length) {
+        fastBody.evaluate(x, results, length);
+    }
+
+    @Override
+    public Interval apply(Interval x) {
+        return body.evaluate(x);
+    }
+
+    @Override
+    public DualNumber apply(DualNumber x) {
+        return body.evaluate(x);
+    }
+}
@@ -0,0 +1,295 @@
+package curve;
+
+/**
+ * An Interval is a closed range [lower, upper] of real numbers. Intervals are used to
+ * bound the value of an expression over a whole range of t values at once: if t lies
+ * in some Interval, then the result of evaluating an expression with that Interval is
+ * guaranteed to contain the value of the expression at t.
+ *
+ * An Interval whose lower or upper bound is infinite is called unbounded. Operations
+ * that may produce an undefined or discontinuous result (e.g. dividing by an interval
+ * that contains 0, or taking the tangent over an interval that contains an asymptote)
+ * return {@link #ENTIRE}, so an unbounded result signals that the expression might not
+ * be continuous over the given range of t. To keep that signal, a bounded function of
+ * an unbounded Interval (e.g. the sine) is ENTIRE as well: the argument may jump, and
+ * the function of it along with it.
+ *
+ * Every operation rounds its bounds outward by one ulp so that the results stay
+ * conservative despite floating-point rounding. Intervals are immutable.
+ */
+public final class Interval {
+    /**
+     * The interval containing every real number. This is the result of any operation
+     * whose result is undefined or unbounded somewhere on its inputs.
+     */
+    public static final Interval ENTIRE = new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final double HALF_PI = Math.PI / 2;
+
+    private final double lower;
+    private final double upper;
+
+    /**
+     * Creates the Interval [lower, upper].
+     *
+     * @throws IllegalArgumentException if lower > upper or if either bound is NaN
+     */
+    public Interval(double lower, double upper) {
+        if (Double.isNaN(lower) || Double.isNaN(upper) || lower > upper) {
+            throw new IllegalArgumentException("Interval bounds are invalid");
+        }
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * @return the degenerate Interval [value, value], or ENTIRE if value is NaN
+     */
+    public static Interval of(double value) {
+        if (Double.isNaN(value)) {
+            return ENTIRE;
+        }
+        return new Interval(value, value);
+    }
+
+    /**
+     * @return the Interval [min(a, b), max(a, b)] widened outward by one ulp, or
+     * ENTIRE if a or b is NaN. If f is a monotonic function, then
+     * hull(f(lower), f(upper)) contains f(x) for every x in [lower, upper].
+     */
+    public static Interval hull(double a, double b) {
+        if (Double.isNaN(a) || Double.isNaN(b)) {
+            return ENTIRE;
+        }
+        return new Interval(Math.nextDown(Math.min(a, b)), Math.nextUp(Math.max(a, b)));
+    }
+
+    /**
+     * @return the smallest Interval containing a, b, c, and d, widened outward by one
+     * ulp, or ENTIRE if any of them is NaN
+     */
+    private static Interval hull(double a, double b, double c, double d) {
+        if (Double.isNaN(a) || Double.isNaN(b) || Double.isNaN(c) || Double.isNaN(d)) {
+            return ENTIRE;
+        }
+        double min = Math.min(Math.min(a, b), Math.min(c, d));
+        double max = Math.max(Math.max(a, b), Math.max(c, d));
+        return new Interval(Math.nextDown(min), Math.nextUp(max));
+    }
+
+    /**
+     * @return the lower bound of this Interval
+     */
+    public double getLower() {
+        return lower;
+    }
+
+    /**
+     * @return the upper bound of this Interval
+     */
+    public double getUpper() {
+        return upper;
+    }
+
+    /**
+     * @return upper - lower
+     */
+    public double width() {
+        return upper - lower;
+    }
+
+    /**
+     * @return true if both bounds of this Interval are finite; false otherwise
+     */
+    public boolean isBounded() {
+        return !Double.isInfinite(lower) && !Double.isInfinite(upper);
+    }
+
+    /**
+     * @return true if lower <= value <= upper; false otherwise
+     */
+    public boolean contains(double value) {
+        return lower <= value && value <= upper;
+    }
+
+    /**
+     * @return true if the given integer multiple of period, offset by phase, lies
+     * in this Interval for some integer multiple
+     */
+    private boolean containsPeriodicPoint(double phase, double period) {
+        double k = Math.ceil((lower - phase) / period);
+        return phase + k * period <= upper;
+    }
+
+    public Interval add(Interval other) {
+        return hull(lower + other.lower, upper + other.upper);
+    }
+
+    public Interval subtract(Interval other) {
+        return hull(lower - other.upper, upper - other.lower);
+    }
+
+    public Interval multiply(Interval other) {
+        return hull(lower * other.lower, lower * other.upper,
+                upper * other.lower, upper * other.upper);
+    }
+
+    /**
+     * @return an Interval containing x / y for every x in this Interval and every y in
+     * the given Interval, or ENTIRE if the given Interval contains 0 or either Interval
+     * is unbounded
+     */
+    public Interval divide(Interval other) {
+        if (other.contains(0) || !isBounded() || !other.isBounded()) {
+            return ENTIRE;
+        }
+        return hull(lower / other.lower, lower / other.upper,
+                upper / other.lower, upper / other.upper);
+    }
+
+    public Interval negate() {
+        return new Interval(-upper, -lower);
+    }
+
+    /**
+     * @return an Interval containing x^y for every x in this Interval and every y in
+     * the given exponent Interval. The result is ENTIRE if the power is undefined (e.g.
+     * a negative base with a non-integer exponent) or unbounded (e.g. 0 raised to a
+     * negative power) anywhere on the inputs, or if either input is unbounded.
+     */
+    public Interval pow(Interval exponent) {
+        if (!isBounded() || !exponent.isBounded()) {
+            return ENTIRE;
+        }
+        if (exponent.lower == exponent.upper && exponent.lower == Math.rint(exponent.lower)
+                && !Double.isInfinite(exponent.lower)) {
+            double n = exponent.lower;
+            if (n == 0) {
+                return of(1);
+            }
+
+            double lowerPower = Math.pow(lower, n);
+            double upperPower = Math.pow(upper, n);
+            if (!contains(0)) {
+                // x^n is monotonic on each side of 0.
+                return hull(lowerPower, upperPower);
+            } else if (n < 0) {
+                return ENTIRE;
+            } else if (n % 2 == 0) {
+                return hull(0, Math.max(lowerPower, upperPower));
+            } else {
+                return hull(lowerPower, upperPower);
+            }
+        }
+
+        if (lower > 0 || (lower == 0 && exponent.lower > 0)) {
+            // For a non-negative base, x^y is monotonic in both x and y, so its extrema
+            // lie at the corners.
+            return hull(Math.pow(lower, exponent.lower), Math.pow(lower, exponent.upper),
+                    Math.pow(upper, exponent.lower), Math.pow(upper, exponent.upper));
+        }
+
+        return ENTIRE;
+    }
+
+    /**
+     * @return an Interval containing x mod y = x - y * floor(x / y) for every x in this
+     * Interval and every y in the given divisor Interval. The result is ENTIRE if
+     * the divisor is not a single nonzero number, or if x mod y wraps around
+     * (and thus jumps) somewhere in this Interval.
+     */
+    public Interval mod(Interval divisor) {
+        if (divisor.lower != divisor.upper || divisor.lower == 0 || !isBounded() || !divisor.isBounded()) {
+            return ENTIRE;
+        }
+        double y = divisor.lower;
+        double lowerQuotient = Math.floor(lower / y);
+        if (lowerQuotient != Math.floor(upper / y)) {
+            return ENTIRE;
+        }
+        return hull(lower - y * lowerQuotient, upper - y * lowerQuotient);
+    }
+
+    /**
+     * @return an Interval containing sin(x) for every x in this Interval, or ENTIRE if
+     * this Interval is unbounded
+     */
+    public Interval sin() {
+        if (!isBounded()) {
+            return ENTIRE;
+        }
+        if (width() >= TWO_PI) {
+            return new Interval(-1, 1);
+        }
+        double min = Math.min(Math.sin(lower), Math.sin(upper));
+        double max = Math.max(Math.sin(lower), Math.sin(upper));
+        if (containsPeriodicPoint(HALF_PI, TWO_PI)) {
+            max = 1;
+        }
+        if (containsPeriodicPoint(-HALF_PI, TWO_PI)) {
+            min = -1;
+        }
+        return clampToUnit(min, max);
+    }
+
+    /**
+     * @return an Interval containing cos(x) for every x in this Interval, or ENTIRE if
+     * this Interval is unbounded
+     */
+    public Interval cos() {
+        if (!isBounded()) {
+            return ENTIRE;
+        }
+        if (width() >= TWO_PI) {
+            return new Interval(-1, 1);
+        }
+        double min = Math.min(Math.cos(lower), Math.cos(upper));
+        double max = Math.max(Math.cos(lower), Math.cos(upper));
+        if (containsPeriodicPoint(0, TWO_PI)) {
+            max = 1;
+        }
+        if (containsPeriodicPoint(Math.PI, TWO_PI)) {
+            min = -1;
+        }
+        return clampToUnit(min, max);
+    }
+
+    /**
+     * @return an Interval containing tan(x) for every x in this Interval, or ENTIRE if
+     * this Interval contains an asymptote of the tangent function.
+     */
+    public Interval tan() {
+        if (!isBounded() || width() >= Math.PI || containsPeriodicPoint(HALF_PI, Math.PI)) {
+            return ENTIRE;
+        }
+        // tan is increasing between consecutive asymptotes.
+        return hull(Math.tan(lower), Math.tan(upper));
+    }
+
+    private static Interval clampToUnit(double min, double max) {
+        return new Interval(Math.max(-1, Math.nextDown(min)), Math.min(1, Math.nextUp(max)));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Interval)) {
+            return false;
+        }
+        Interval other = (Interval) o;
+        return Double.compare(lower, other.lower) == 0 && Double.compare(upper, other.upper) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(lower) + Double.hashCode(upper);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + lower + ", " + upper + "]";
+    }
+}
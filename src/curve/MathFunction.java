@@ -0,0 +1,99 @@
+package curve;
+
+/**
+ * A MathFunction is a named function of one real variable that can appear in an
+ * expression, such as sin or sqrt. Besides its ordinary value, every MathFunction
+ * knows how to bound itself over an {@link Interval} and how to differentiate itself
+ * through a {@link DualNumber}, so that every evaluation mode of a
+ * {@link CompiledExpression} supports it.
+ *
+ * A MathFunction may also provide a faster approximation of its value, which is used
+ * in place of the exact value when a CompiledExpression is evaluated with fast math
+ * turned on (see {@link CompiledExpression#withFastMath(boolean)}).
+ *
+ * Functions are applied to many values at once when a CompiledExpression is evaluated
+ * at many t values (see {@link CompiledExpression#evaluate(double[], double[], int)}).
+ * A function can override {@link #apply(double[], double[], int)} with a simple loop
+ * that the JIT compiler can turn into SIMD instructions.
+ *
+ * MathFunctions are looked up by name in the {@link FunctionRegistry}.
+ */
+public abstract class MathFunction {
+    private final String name;
+
+    /**
+     * Creates a MathFunction with the given name. The name must consist of letters
+     * only.
+     *
+     * @throws IllegalArgumentException if the name is empty or contains a character
+     * that is not a letter
+     */
+    protected MathFunction(String name) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Function name cannot be empty");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (!Character.isLetter(name.charAt(i))) {
+                throw new IllegalArgumentException("Function name must consist of letters only");
+            }
+        }
+        this.name = name;
+    }
+
+    /**
+     * @return the name that this function is referred to by in expressions
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * @return the value of this function at x
+     */
+    public abstract double apply(double x);
+
+    /**
+     * @return an approximation of the value of this function at x that is faster to
+     * compute than {@link #apply(double)}. By default, this is the exact value.
+     */
+    public double applyFast(double x) {
+        return apply(x);
+    }
+
+    /**
+     * Sets results[i] to the value of this function at x[i] for every i < length. The
+     * arrays must be different. By default, this calls {@link #apply(double)} on each
+     * value.
+     */
+    public void apply(double[] x, double[] results, int length) {
+        for (int i = 0; i < length; i++) {
+            results[i] = apply(x[i]);
+        }
+    }
+
+    /**
+     * Sets results[i] to an approximation of the value of this function at x[i] for
+     * every i < length, as {@link #applyFast(double)} does for a single value (although
+     * the approximation may differ). The arrays must be different. By default, this
+     * calls {@link #applyFast(double)} on each value.
+     */
+    public void applyFast(double[] x, double[] results, int length) {
+        for (int i = 0; i < length; i++) {
+            results[i] = applyFast(x[i]);
+        }
+    }
+
+    /**
+     * @return an Interval containing the value of this function at every point of x.
+     * If this function is undefined or discontinuous anywhere in x, the result must be
+     * unbounded (e.g. {@link Interval#ENTIRE}). So must the result for an unbounded x,
+     * even if the function itself is bounded, since x may be discontinuous.
+     */
+    public abstract Interval apply(Interval x);
+
+    /**
+     * @return the value of this function at x together with its first and second
+     * derivatives, computed by the chain rule
+     */
+    public abstract DualNumber apply(DualNumber x);
+}
@@ -1,40 +1,95 @@
 package curve;
 
+import java.util.LinkedList;
 import java.util.Queue;
 
 /**
  * This class represents a parametric curve. This class tells the DrawingPanel where to
  * render the curve at a certain time. The main significant method in this class is {@link #update()}.
+ *
+ * The coordinates of the curve usually come from equations, but a ParametricCurve can trace
+ * out any {@link CurveSource}. A ParametricCurve is itself a CurveSource.
  */
-public class ParametricCurve {
-	// Note: setting APPROX_NUM_POINTS to anything more than 1000 makes the curve get traced
-	// out remarkably slowly.
+public class ParametricCurve implements CurveSource {
+	// Note: the GUI advances the curve by as many ticks per frame as its playback speed
+	// requires, so a larger APPROX_NUM_POINTS gives a denser curve rather than a slower one.
 	/**
-	 * The (approximate) number of points of the parametric curve that this program
-	 * will plot (give or take a few points due to imprecision in floating-point
-	 * arithmetic) each time the curve is traced out in one direction.
+	 * The number of points of the parametric curve that this program will plot each
+	 * time the curve is traced out in one direction. The values of t that are plotted
+	 * divide the range of t into this many steps of equal width.
 	 */
 	public static final short APPROX_NUM_POINTS = 1000;
 
-	/* Current x- and y-coordinates of the curve */
+	// The number of arc-length table segments per plotted point when the curve is
+	// traced at constant speed.
+	private static final int ARC_LENGTH_SEGMENTS_PER_POINT = 16;
+
+	// The maximum number of times that sampleAdaptively() halves a segment of t.
+	private static final int ADAPTIVE_MAX_DEPTH = 16;
+
+	/* Current x-, y- and z-coordinates of the curve. zCoord is 0 for a curve in the plane. */
 	private double xCoord;
 	private double yCoord;
+	private double zCoord;
 	
-	/** t is the "time" variable in parametric equations. */
-	private double t;
+	/* t is the "time" variable in parametric equations. Its current value is
+	 * tLowerBound + gridIndex * tIncrement (or exactly tUpperBound if gridIndex is
+	 * APPROX_NUM_POINTS). Computing t from an integer index, rather than adding
+	 * tIncrement on every tick, means that t takes exactly the same values on every
+	 * pass in either direction.
+	 */
+	private int gridIndex;
+
+	/* The value of t at which the current coordinates were evaluated. This equals t
+	 * unless the curve is being traced at constant speed, in which case t advances
+	 * evenly from tLowerBound to tUpperBound as a measure of progress along the
+	 * curve, and evaluatedT is the value of t at which the curve has covered that
+	 * fraction of its arc length.
+	 */
+	private double evaluatedT;
+
+	// The table used to trace the curve at constant speed, or null if the curve
+	// is traced at a constant rate of t.
+	private ArcLengthTable arcLengthTable;
+
+	// The parameters and helper functions that the equations may refer to
+	private final ExpressionContext context;
+
+	// The version of the context when arcLengthTable was built
+	private int arcLengthTableVersion;
 
-	private Queue<String> xPostfixQueue;
-	private Queue<String> yPostfixQueue;
+	// The number of clock ticks since the curve was created, as if it had been traced
+	// out from the start (seeking sets this to the tick that was sought)
+	private long tick;
+
+	// The cache that tickTable was looked up in, or null if the curve does not use a cache
+	private RenderCache renderCache;
+
+	// The coordinates of the curve at every value of t on the grid, or null if the
+	// coordinates must be evaluated on every tick
+	private TickTable tickTable;
+
+	// The version of the context when tickTable was looked up
+	private int tickTableVersion;
+
+	/* Compiled equations for the x- and y-coordinates, or null if the curve was created
+	 * from a CurveSource */
+	private CompiledExpression xExpression;
+	private CompiledExpression yExpression;
+
+	// The compiled equation for the z-coordinate, or null if the curve is in the plane
+	private CompiledExpression zExpression;
+
+	// The source of the coordinates of the curve. For a curve created from equations,
+	// this is an ExpressionCurveSource that evaluates xExpression and yExpression.
+	private CurveSource source;
 
 	/* Lower and upper bounds of t */
 	private final double tLowerBound;
 	private final double tUpperBound;
 
-	// The amount by which the t field is incremented every time the Timer ticks.
+	// The amount by which t changes every time the Timer ticks.
 	private final double tIncrement;
-
-	// Used to compare the floating-point value of t to tLowerBound and tUpperBound.
-	private final double epsilon;
 	
 	// Indicates whether the value of t is increasing
 	private boolean tIncreasing;
@@ -63,82 +118,502 @@ public class ParametricCurve {
 	 * tLowerBound > tUpperBound
 	 */
 	public ParametricCurve(String xExpression, String yExpression, double tLowerBound, double tUpperBound) {
-		if (tLowerBound > tUpperBound) {
-			throw new IllegalArgumentException("tLowerBound cannot be greater than tUpperBound");
-		}
-		this.tLowerBound = tLowerBound;
-		this.tUpperBound = tUpperBound;
-		t = tLowerBound;
+		this(xExpression, yExpression, tLowerBound, tUpperBound, new ExpressionContext());
+	}
+
+	/**
+	 * Creates a ParametricCurve as above, except that xExpression and yExpression may also
+	 * refer to the parameters and helper functions of the given context. Parameters can be
+	 * changed later (through the context, or through {@link #setParameter(String, double)})
+	 * without parsing the equations again.
+	 *
+	 * @throws IllegalArgumentException if xExpression or yExpression is invalid, or if
+	 * tLowerBound > tUpperBound
+	 */
+	public ParametricCurve(String xExpression, String yExpression, double tLowerBound, double tUpperBound,
+						   ExpressionContext context) {
+		this(EquationParser.compile(xExpression, context), EquationParser.compile(yExpression, context), null,
+				tLowerBound, tUpperBound, context);
+	}
+
+	/**
+	 * Creates a ParametricCurve in space, whose x-, y- and z-coordinates at time t are given
+	 * by xExpression, yExpression and zExpression. The curve is drawn through a
+	 * {@link Projection}. Otherwise, it is the same as a curve in the plane: as a
+	 * CurveSource, it gives the x- and y-coordinates of the curve (i.e. the curve viewed
+	 * from above), and derivatives, speed and curvature are those of the curve viewed
+	 * from above. When it is traced at constant speed, the arc length is measured in space.
+	 *
+	 * @throws IllegalArgumentException if an expression is invalid, or if
+	 * tLowerBound > tUpperBound
+	 */
+	public ParametricCurve(String xExpression, String yExpression, String zExpression,
+						   double tLowerBound, double tUpperBound, ExpressionContext context) {
+		this(EquationParser.compile(xExpression, context), EquationParser.compile(yExpression, context),
+				EquationParser.compile(zExpression, context), tLowerBound, tUpperBound, context);
+	}
+
+	private ParametricCurve(CompiledExpression xExpression, CompiledExpression yExpression,
+							CompiledExpression zExpression, double tLowerBound, double tUpperBound,
+							ExpressionContext context) {
+		this(new ExpressionCurveSource(xExpression, yExpression, tLowerBound, tUpperBound), context);
+		this.xExpression = xExpression;
+		this.yExpression = yExpression;
+		this.zExpression = zExpression;
+	}
+
+	/**
+	 * Creates a ParametricCurve that traces out the given source over its whole range of
+	 * t, which lets coordinates computed by any means be drawn without being written as
+	 * equations. Features that need equations are not available for such a curve: fast
+	 * math has no effect, the curve is not cached (see {@link #useCache(RenderCache)}),
+	 * and it cannot be sampled adaptively. The context of the curve is empty.
+	 */
+	public ParametricCurve(CurveSource source) {
+		this(source, new ExpressionContext());
+	}
+
+	private ParametricCurve(CurveSource source, ExpressionContext context) {
+		this.tLowerBound = source.getTLowerBound();
+		this.tUpperBound = source.getTUpperBound();
+		gridIndex = 0;
+		evaluatedT = tLowerBound;
 		tIncreasing = true;
 		willChangeDirection = false;
 		changingDirection = false;
 		tIncrement = (tUpperBound - tLowerBound) / APPROX_NUM_POINTS;
-		epsilon = tIncrement / 2;
 
-		xPostfixQueue = EquationParser.infixToPostfix(xExpression);
-		yPostfixQueue = EquationParser.infixToPostfix(yExpression);
+		this.context = context;
+		this.source = source;
 	}
-	
+
+	/**
+	 * @return a ParametricCurve whose x- and y-coordinates are the Fourier series with
+	 * the given coefficients (see {@link ExpressionContext#defineSeries(String, double[], double[])}),
+	 * traced over one period, from t = 0 to t = 2pi. The series are named x and y in the
+	 * context of the curve, so they can be changed later through {@link #getContext()}.
+	 *
+	 * @throws IllegalArgumentException if a coefficient is not finite
+	 */
+	public static ParametricCurve fromFourierSeries(double[] xCosCoefficients, double[] xSinCoefficients,
+													 double[] yCosCoefficients, double[] ySinCoefficients) {
+		ExpressionContext context = new ExpressionContext();
+		context.defineSeries("x", xCosCoefficients, xSinCoefficients);
+		context.defineSeries("y", yCosCoefficients, ySinCoefficients);
+		return new ParametricCurve("x(t)", "y(t)", 0, 2 * Math.PI, context);
+	}
+
+	/**
+	 * @return a ParametricCurve that traces out the polar curve r = rExpression, where t
+	 * is the angle in radians and obeys the given bounds. rExpression may refer to the
+	 * parameters and helper functions of the given context.
+	 *
+	 * The conversion to Cartesian coordinates is compiled into the equations of the
+	 * curve, which are x(t) = r(t) cos(t) and y(t) = r(t) sin(t), so a polar curve is
+	 * evaluated (and batch evaluated) exactly as fast as the equivalent parametric curve.
+	 *
+	 * @throws IllegalArgumentException if rExpression is invalid, or if
+	 * tLowerBound > tUpperBound
+	 */
+	public static ParametricCurve fromPolar(String rExpression, double tLowerBound, double tUpperBound,
+											ExpressionContext context) {
+		Queue<String> rPostfix = EquationParser.infixToPostfix(rExpression, context);
+		return new ParametricCurve(compilePolarCoordinate(rPostfix, "cos", context),
+				compilePolarCoordinate(rPostfix, "sin", context), null, tLowerBound, tUpperBound, context);
+	}
+
+	/**
+	 * @return the compiled equation r(t) * trigFunction(t), where r(t) is given by the
+	 * queue of postfix tokens rPostfix (which is not changed)
+	 */
+	private static CompiledExpression compilePolarCoordinate(Queue<String> rPostfix, String trigFunction,
+															 ExpressionContext context) {
+		Queue<String> postfix = new LinkedList<String>(rPostfix);
+		postfix.add("t");
+		postfix.add(trigFunction);
+		postfix.add("*");
+		return EquationParser.compile(postfix, context);
+	}
+
 	/**
 	 * Updates the state of the curve. This method is called on every clock tick.
 	 */
 	public void update() {
-		// Change the values of t, tIncreasing, and changingDirection according to
-		// the current values of tIncreasing and willChangeDirection.
-		// If t is sufficiently close to an upper or lower bound (such that t would
-		// equal or exceed the bound on the next clock tick), then the value
-		// of t is set to the value of that boundary.
-
-		// The block of if statements below works with the updateWillChangeDirection()
-		// method to guarantee that t stays in the range tLowerBound <= t <= tUpperBound.
+		// Move t one step along the grid in its current direction. When t reaches an
+		// upper or lower bound, it changes direction.
 		if (tIncreasing) {
-			if (willChangeDirection) {
-				tIncreasing = false;
-				t = tUpperBound;
-				changingDirection = true;
-			} else {
-				t += tIncrement;
-				changingDirection = false;
-			}
+			gridIndex++;
+			changingDirection = gridIndex == APPROX_NUM_POINTS;
+			tIncreasing = !changingDirection;
+		} else {
+			gridIndex--;
+			changingDirection = gridIndex == 0;
+			tIncreasing = changingDirection;
+		}
+
+		updateWillChangeDirection();
+		tick++;
+
+		if (tickTable != null && tickTableVersion != context.getVersion()) {
+			// A parameter or helper has changed, so the table no longer matches the curve.
+			// Looking up a new table on every change would be slower than evaluating, so
+			// the curve is evaluated from now on.
+			tickTable = null;
+		}
+		setCoordinates();
+	}
+
+	/**
+	 * Sets the current coordinates of the curve to those at the current value of t,
+	 * looking them up in the tick table if there is one.
+	 */
+	private void setCoordinates() {
+		if (tickTable != null) {
+			SampleBuffer grid = tickTable.getGrid();
+			evaluatedT = grid.getT(gridIndex);
+			xCoord = grid.getX(gridIndex);
+			yCoord = grid.getY(gridIndex);
+			zCoord = tickTable.getZ(gridIndex);
+		} else {
+			evaluate(tAt(gridIndex));
+		}
+	}
+
+	/**
+	 * @return the value of t at the given index of the grid
+	 */
+	private double tAt(int gridIndex) {
+		return gridIndex == APPROX_NUM_POINTS ? tUpperBound : tLowerBound + gridIndex * tIncrement;
+	}
+
+	/**
+	 * Sets the current coordinates of the curve to those at the given value of t
+	 * (which is mapped through the arc-length table when tracing at constant speed).
+	 */
+	private void evaluate(double t) {
+		evaluatedT = toEvaluatedT(t);
+		xCoord = source.getX(evaluatedT);
+		yCoord = source.getY(evaluatedT);
+		zCoord = zExpression == null ? 0 : zExpression.evaluate(evaluatedT);
+	}
+
+	/**
+	 * @return the value of t at which the curve is evaluated when t has the given value.
+	 * This is t itself unless the curve is traced at constant speed.
+	 */
+	private double toEvaluatedT(double t) {
+		if (arcLengthTable != null && arcLengthTableVersion != context.getVersion()) {
+			// A parameter or helper has changed, so the shape of the curve has too.
+			buildArcLengthTable();
+		}
+
+		if (arcLengthTable == null) {
+			return t;
+		} else if (tUpperBound == tLowerBound) {
+			return tLowerBound;
 		} else {
-			if (willChangeDirection) {
-				tIncreasing = true;
-				t = tLowerBound;
-				changingDirection = true;
-			} else {
-				t -= tIncrement;
-				changingDirection = false;
+			return arcLengthTable.getTAtFraction((t - tLowerBound) / (tUpperBound - tLowerBound));
+		}
+	}
+
+	/**
+	 * Makes the curve look up its coordinates at every value of t that it steps through
+	 * in the given cache, instead of evaluating its equations. If the cache does not have
+	 * them yet, they are evaluated now and stored in the cache, so that the same curve is
+	 * not evaluated again when it is drawn later (even after a restart, if the cache
+	 * stores entries on disk).
+	 *
+	 * The coordinates are looked up again whenever fast math or constant speed is turned
+	 * on or off. Once a parameter or helper of the context changes, the curve is
+	 * evaluated on every tick instead.
+	 *
+	 * A curve created from a CurveSource is never cached, since there is no way to tell
+	 * whether two sources give the same coordinates.
+	 */
+	public void useCache(RenderCache cache) {
+		renderCache = cache;
+		lookUpTickTable();
+	}
+
+	private void lookUpTickTable() {
+		tickTable = null;
+		if (renderCache == null || xExpression == null) {
+			return;
+		}
+		tickTableVersion = context.getVersion();
+		CacheKey key = getTickTableKey();
+		byte[] bytes = renderCache.get(key);
+		TickTable table = bytes == null ? null : TickTable.fromBytes(bytes, zExpression != null);
+		if (table == null || table.getGrid().size() != APPROX_NUM_POINTS + 1) {
+			table = computeTickTable();
+			renderCache.put(key, table.toBytes());
+		}
+		tickTable = table;
+	}
+
+	/**
+	 * @return the key that the tick table of this curve is cached under, which covers
+	 * everything the coordinates at the ticks depend on
+	 */
+	private CacheKey getTickTableKey() {
+		if (zExpression == null) {
+			return new CacheKey("tick-grid", xExpression.getCanonicalForm(), yExpression.getCanonicalForm(),
+					context.getCanonicalForm(), tLowerBound, tUpperBound, APPROX_NUM_POINTS,
+					isFastMath(), isConstantSpeed(), ARC_LENGTH_SEGMENTS_PER_POINT);
+		}
+		return new CacheKey("tick-grid-3d", xExpression.getCanonicalForm(), yExpression.getCanonicalForm(),
+				zExpression.getCanonicalForm(), context.getCanonicalForm(), tLowerBound, tUpperBound,
+				APPROX_NUM_POINTS, isFastMath(), isConstantSpeed(), ARC_LENGTH_SEGMENTS_PER_POINT);
+	}
+
+	/**
+	 * @return a string that identifies the points this curve traces out: two curves with
+	 * the same canonical form have the same coordinates at every tick, even if their
+	 * equations were written differently (see {@link CompiledExpression#getCanonicalForm()}).
+	 * Returns null for a curve created from a CurveSource.
+	 */
+	public String getCanonicalForm() {
+		return xExpression == null ? null : getTickTableKey().getHash();
+	}
+
+	/**
+	 * @return the table of coordinates at every value of t on the grid, which is looked
+	 * up or computed now if the curve does not have an up-to-date table
+	 */
+	private TickTable getTickTable() {
+		if (tickTable == null || tickTableVersion != context.getVersion()) {
+			lookUpTickTable();
+			if (tickTable == null) {
+				tickTableVersion = context.getVersion();
+				tickTable = computeTickTable();
 			}
 		}
+		return tickTable;
+	}
 
+	/**
+	 * @return the coordinates of this curve at every value of t on the grid
+	 */
+	private TickTable computeTickTable() {
+		double[] tValues = new double[APPROX_NUM_POINTS + 1];
+		for (int i = 0; i <= APPROX_NUM_POINTS; i++) {
+			tValues[i] = toEvaluatedT(tAt(i));
+		}
+		double[] xValues = new double[tValues.length];
+		double[] yValues = new double[tValues.length];
+		source.evaluate(tValues, xValues, yValues, tValues.length);
+		double[] zValues = null;
+		if (zExpression != null) {
+			zValues = new double[tValues.length];
+			zExpression.evaluate(tValues, zValues, tValues.length);
+		}
+
+		SampleBuffer grid = new SampleBuffer(tValues.length);
+		for (int i = 0; i < tValues.length; i++) {
+			grid.add(tValues[i], xValues[i], yValues[i]);
+		}
+		return new TickTable(grid, zValues);
+	}
+
+	/**
+	 * @return the number of clock ticks in one full cycle of the curve (one pass with t
+	 * increasing, followed by one pass with t decreasing)
+	 */
+	public int getTicksPerCycle() {
+		return 2 * APPROX_NUM_POINTS;
+	}
+
+	/**
+	 * @return the samples of the curve at every clock tick of the pass in the given
+	 * direction, where sample i is at tick i of the pass (see {@link #getTickIndex()}).
+	 * The z-coordinates of a curve in the plane are 0.
+	 */
+	public SampleTable3D getTickSamples(boolean tIncreasing) {
+		return getTickTable().getPass(tIncreasing);
+	}
+
+	/**
+	 * @return the number of clock ticks since the curve was created, counting the ticks
+	 * skipped over by seeking
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return the number of clock ticks since t last changed direction, or since t
+	 * started at tLowerBound
+	 */
+	public int getTickIndex() {
+		return tIncreasing ? gridIndex : APPROX_NUM_POINTS - gridIndex;
+	}
+
+	/**
+	 * Puts the curve in the state it would be in after the given number of clock ticks
+	 * since it was created, including the direction of t. This takes constant time.
+	 *
+	 * @throws IllegalArgumentException if tick < 0
+	 */
+	public void seek(long tick) {
+		if (tick < 0) {
+			throw new IllegalArgumentException("Tick cannot be negative");
+		}
+		int tickOfCycle = (int) (tick % getTicksPerCycle());
+
+		this.tick = tick;
+		tIncreasing = tickOfCycle < APPROX_NUM_POINTS;
+		gridIndex = tIncreasing ? tickOfCycle : 2 * APPROX_NUM_POINTS - tickOfCycle;
+		// The curve only changes direction at the start of a pass, and not at the very start
+		changingDirection = getTickIndex() == 0 && tick > 0;
 		updateWillChangeDirection();
+		setCoordinates();
+	}
 
-		xCoord = EquationParser.evaluate(xPostfixQueue, t);
-		yCoord = EquationParser.evaluate(yPostfixQueue, t);
+	/**
+	 * Seeks to the tick that is the given fraction of the way through the current cycle
+	 * of the curve, where 0 is the start of the pass with t increasing.
+	 *
+	 * @throws IllegalArgumentException if fraction is not between 0 and 1 inclusive
+	 */
+	public void seekToFraction(double fraction) {
+		if (!(fraction >= 0 && fraction <= 1)) {
+			throw new IllegalArgumentException("Fraction must be between 0 and 1");
+		}
+		int ticksPerCycle = getTicksPerCycle();
+		long tickOfCycle = Math.min(Math.round(fraction * ticksPerCycle), ticksPerCycle - 1);
+		seek(tick - tick % ticksPerCycle + tickOfCycle);
 	}
-	
+
+	/**
+	 * Seeks to the tick of the current cycle at which t is closest to the given value,
+	 * in the pass with t moving in the given direction. When the curve is traced at
+	 * constant speed, t measures progress along the curve (see {@link #getCurrentT()}
+	 * for the value of t at which the curve is evaluated).
+	 *
+	 * @throws IllegalArgumentException if t is not between the bounds of t
+	 */
+	public void seekToT(double t, boolean tIncreasing) {
+		if (!(t >= tLowerBound && t <= tUpperBound)) {
+			throw new IllegalArgumentException("t must be between tLowerBound and tUpperBound");
+		}
+		long index = tIncrement == 0 ? 0 : Math.round((t - tLowerBound) / tIncrement);
+		int closestGridIndex = (int) Math.max(0, Math.min(index, APPROX_NUM_POINTS));
+
+		// The increasing pass covers grid indices 0 to APPROX_NUM_POINTS - 1, and the
+		// decreasing pass covers APPROX_NUM_POINTS down to 1
+		int tickOfCycle;
+		if (tIncreasing) {
+			tickOfCycle = Math.min(closestGridIndex, APPROX_NUM_POINTS - 1);
+		} else {
+			tickOfCycle = 2 * APPROX_NUM_POINTS - Math.max(closestGridIndex, 1);
+		}
+		seek(tick - tick % getTicksPerCycle() + tickOfCycle);
+	}
+
 	/**
 	 * Checks whether t will encounter an upper or lower bound on the next
 	 * clock tick. This method changes the value of willChangeDirection
 	 * accordingly.
 	 */
 	private void updateWillChangeDirection() {
-		if (!changingDirection) {
-			if (tIncreasing && t + tIncrement >= tUpperBound - epsilon) {
-				willChangeDirection = true;
-			} else if (!tIncreasing && t - tIncrement <= tLowerBound + epsilon) {
-				willChangeDirection = true;
-			}
+		if (tIncreasing) {
+			willChangeDirection = gridIndex == APPROX_NUM_POINTS - 1;
 		} else {
-			willChangeDirection = false;
+			willChangeDirection = gridIndex == 1;
 		}
 	}
 	
 	/**
-	 * @return the current value of the t variable
+	 * Sets whether the curve is traced out at constant speed. When tracing at constant
+	 * speed, the curve covers an equal arc length on every clock tick instead of
+	 * advancing t by an equal amount. The arc-length table needed for this is built
+	 * the first time that constant speed is turned on.
+	 */
+	public void setConstantSpeed(boolean constantSpeed) {
+		if (constantSpeed == isConstantSpeed()) {
+			return;
+		}
+		if (!constantSpeed) {
+			arcLengthTable = null;
+		} else {
+			buildArcLengthTable();
+		}
+		lookUpTickTable();
+	}
+
+	private void buildArcLengthTable() {
+		arcLengthTableVersion = context.getVersion();
+		arcLengthTable = new ArcLengthTable(source, zExpression, APPROX_NUM_POINTS * ARC_LENGTH_SEGMENTS_PER_POINT);
+	}
+
+	/**
+	 * @return the context holding the parameters and helper functions that the
+	 * equations of this curve may refer to (which is empty if the curve was created
+	 * from a CurveSource)
+	 */
+	public ExpressionContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Sets the value of the parameter with the given name. The change takes effect on
+	 * the next clock tick without the equations being parsed again.
+	 *
+	 * @throws IllegalArgumentException if the name is not a valid parameter name
+	 */
+	public void setParameter(String name, double value) {
+		context.setParameter(name, value);
+	}
+
+	/**
+	 * Sets whether the coordinates of the curve are computed with the fast
+	 * approximations of functions such as sin and cos (see {@link FastMath}). The
+	 * approximations are far more accurate than one pixel, so they are suitable for
+	 * rendering, but not for precise calculations. This has no effect on a curve that
+	 * was created from a CurveSource.
+	 */
+	public void setFastMath(boolean fastMath) {
+		if (xExpression == null || fastMath == isFastMath()) {
+			return;
+		}
+		xExpression = xExpression.withFastMath(fastMath);
+		yExpression = yExpression.withFastMath(fastMath);
+		if (zExpression != null) {
+			zExpression = zExpression.withFastMath(fastMath);
+		}
+		source = new ExpressionCurveSource(xExpression, yExpression, tLowerBound, tUpperBound);
+		lookUpTickTable();
+	}
+
+	/**
+	 * @return true if the coordinates of the curve are computed with fast
+	 * approximations of functions; false otherwise
+	 */
+	public boolean isFastMath() {
+		return xExpression != null && xExpression.isFastMath();
+	}
+
+	/**
+	 * @return true if the curve is traced out at constant speed; false if t
+	 * advances by a constant amount on every clock tick
+	 */
+	public boolean isConstantSpeed() {
+		return arcLengthTable != null;
+	}
+
+	/**
+	 * @return the amount by which t changes on every clock tick
+	 */
+	public double getTIncrement() {
+		return tIncrement;
+	}
+
+	/**
+	 * @return the current value of the t variable, i.e. the value of t at which the
+	 * current coordinates of the curve were evaluated
 	 */
 	public double getCurrentT() {
-		return t;
+		return evaluatedT;
 	}
 	
 	/**
@@ -154,10 +629,149 @@ public class ParametricCurve {
 	public double getCurrentYCoord() {
 		return yCoord;
 	}
+
+	/**
+	 * @return the current z-coordinate of the curve, which is 0 for a curve in the plane
+	 */
+	public double getCurrentZCoord() {
+		return zCoord;
+	}
+
+	/**
+	 * @return true if the curve has a z-coordinate, i.e. it is a curve in space that is
+	 * drawn through a {@link Projection}; false if it is a curve in the plane
+	 */
+	public boolean is3D() {
+		return zExpression != null;
+	}
 	
+	/**
+	 * @return the compiled equation for the x-coordinate of the curve, or null if the
+	 * curve was created from a CurveSource
+	 */
+	public CompiledExpression getXExpression() {
+		return xExpression;
+	}
+
+	/**
+	 * @return the compiled equation for the y-coordinate of the curve, or null if the
+	 * curve was created from a CurveSource
+	 */
+	public CompiledExpression getYExpression() {
+		return yExpression;
+	}
+
+	/**
+	 * @return the compiled equation for the z-coordinate of the curve, or null if the
+	 * curve is in the plane
+	 */
+	public CompiledExpression getZExpression() {
+		return zExpression;
+	}
+
+	/**
+	 * @return the x-coordinate of the curve at the given t value. Unlike the current
+	 * coordinates, this does not depend on whether the curve is traced at constant speed.
+	 */
+	@Override
+	public double getX(double t) {
+		return source.getX(t);
+	}
+
+	/**
+	 * @return the y-coordinate of the curve at the given t value. Unlike the current
+	 * coordinates, this does not depend on whether the curve is traced at constant speed.
+	 */
+	@Override
+	public double getY(double t) {
+		return source.getY(t);
+	}
+
+	@Override
+	public void evaluate(double[] tValues, double[] xValues, double[] yValues, int count) {
+		source.evaluate(tValues, xValues, yValues, count);
+	}
+
+	/**
+	 * @return true if the derivatives of the curve can be computed, which is always the
+	 * case for a curve created from equations; false otherwise
+	 */
+	@Override
+	public boolean hasDerivatives() {
+		return source.hasDerivatives();
+	}
+
+	/**
+	 * @return the x-coordinate of the curve and its first and second derivatives
+	 * with respect to t, at the given t value
+	 *
+	 * @throws UnsupportedOperationException if the curve does not have derivatives
+	 */
+	@Override
+	public DualNumber getXDerivatives(double t) {
+		return source.getXDerivatives(t);
+	}
+
+	/**
+	 * @return the y-coordinate of the curve and its first and second derivatives
+	 * with respect to t, at the given t value
+	 *
+	 * @throws UnsupportedOperationException if the curve does not have derivatives
+	 */
+	@Override
+	public DualNumber getYDerivatives(double t) {
+		return source.getYDerivatives(t);
+	}
+
+	/**
+	 * @return the speed sqrt((dx/dt)^2 + (dy/dt)^2) at which the curve is traced out
+	 * at the given t value
+	 *
+	 * @throws UnsupportedOperationException if the curve does not have derivatives
+	 */
+	public double getSpeed(double t) {
+		return Math.hypot(getXDerivatives(t).getDerivative(), getYDerivatives(t).getDerivative());
+	}
+
+	/**
+	 * @return the signed curvature (x'y'' - y'x'') / (x'^2 + y'^2)^(3/2) of the curve at
+	 * the given t value, where primes denote derivatives with respect to t. The
+	 * curvature is positive where the curve turns counterclockwise. The result is NaN
+	 * if the curve is stationary at t.
+	 *
+	 * @throws UnsupportedOperationException if the curve does not have derivatives
+	 */
+	public double getCurvature(double t) {
+		DualNumber x = getXDerivatives(t);
+		DualNumber y = getYDerivatives(t);
+		double speedSquared = x.getDerivative() * x.getDerivative() + y.getDerivative() * y.getDerivative();
+		return (x.getDerivative() * y.getSecondDerivative() - y.getDerivative() * x.getSecondDerivative())
+				/ Math.pow(speedSquared, 1.5);
+	}
+
+	/**
+	 * Samples this curve over its whole range of t using an {@link AdaptiveSampler}.
+	 * Discontinuities such as asymptotes are detected with interval arithmetic and
+	 * recorded as undefined points, and flat stretches of the curve are sampled
+	 * sparsely.
+	 *
+	 * @param tolerance the amount by which x and y may vary between neighbouring
+	 * samples on flat stretches of the curve
+	 * @throws UnsupportedOperationException if the curve was created from a CurveSource,
+	 * which cannot be evaluated with interval arithmetic
+	 */
+	public SampleBuffer sampleAdaptively(double tolerance) {
+		if (xExpression == null) {
+			throw new UnsupportedOperationException("Only curves made from equations can be sampled adaptively");
+		}
+		return new AdaptiveSampler(xExpression, yExpression, tolerance, ADAPTIVE_MAX_DEPTH)
+				.sample(tLowerBound, tUpperBound);
+	}
+
 	/**
 	 * @return the lower bound of the t variable
 	 */
+	@Override
 	public double getTLowerBound() {
 		return tLowerBound;
 	}
@@ -165,6 +779,7 @@ public class ParametricCurve {
 	/**
 	 * @return the upper bound of the t variable
 	 */
+	@Override
 	public double getTUpperBound() {
 		return tUpperBound;
 	}
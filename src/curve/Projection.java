@@ -0,0 +1,208 @@
+package curve;
+
+/**
+ * A Projection maps points in space onto the plane of the screen, so that a curve with
+ * an x-, y- and z-coordinate can be drawn. The view is first rotated by the yaw angle
+ * about the z-axis, then tilted by the pitch angle about the horizontal axis of the
+ * screen. With both angles 0, the curve is viewed from above: x points right, y points
+ * up, and z points towards the viewer, so a curve that lies in the plane z = 0 is drawn
+ * exactly as it is in two dimensions.
+ *
+ * An orthographic projection then drops the depth of each point. A perspective
+ * projection scales each point by d / (d - depth), where d is the distance from the
+ * camera to the origin, so that nearer points are drawn farther from the centre. Points
+ * at or behind the camera are undefined (NaN).
+ *
+ * Projections are immutable. Projecting many points at once (see
+ * {@link #project(double[], double[], double[], double[], double[], int)}) applies the
+ * same matrix to arrays of coordinates in simple loops that the JIT compiler turns into
+ * SIMD instructions, which is cheap enough to redo for every frame while the view is
+ * being rotated.
+ */
+public final class Projection {
+    /**
+     * The distance from the camera to the origin in a perspective projection, unless
+     * another distance is given.
+     */
+    public static final double DEFAULT_CAMERA_DISTANCE = 20;
+
+    private final double yaw;
+    private final double pitch;
+    private final boolean perspective;
+    private final double cameraDistance;
+
+    // The rows of the rotation matrix, which give the horizontal and vertical screen
+    // coordinates and the depth of a point
+    private final double m00, m01, m02;
+    private final double m10, m11, m12;
+    private final double m20, m21, m22;
+
+    /**
+     * Creates an orthographic projection with the given angles in radians.
+     */
+    public Projection(double yaw, double pitch) {
+        this(yaw, pitch, false, DEFAULT_CAMERA_DISTANCE);
+    }
+
+    /**
+     * Creates a projection with the given angles in radians, which is a perspective
+     * projection from the given distance if perspective is true, or an orthographic
+     * projection otherwise.
+     *
+     * @throws IllegalArgumentException if an angle is not finite, or if cameraDistance
+     * is not positive and finite
+     */
+    public Projection(double yaw, double pitch, boolean perspective, double cameraDistance) {
+        if (!Double.isFinite(yaw) || !Double.isFinite(pitch)) {
+            throw new IllegalArgumentException("Angles must be finite");
+        }
+        if (!(cameraDistance > 0) || Double.isInfinite(cameraDistance)) {
+            throw new IllegalArgumentException("Camera distance must be positive and finite");
+        }
+        this.yaw = yaw;
+        this.pitch = pitch;
+        this.perspective = perspective;
+        this.cameraDistance = cameraDistance;
+
+        // The product of the pitch rotation (about the x-axis) and the yaw rotation
+        // (about the z-axis)
+        double cosYaw = Math.cos(yaw);
+        double sinYaw = Math.sin(yaw);
+        double cosPitch = Math.cos(pitch);
+        double sinPitch = Math.sin(pitch);
+        m00 = cosYaw;
+        m01 = -sinYaw;
+        m02 = 0;
+        m10 = cosPitch * sinYaw;
+        m11 = cosPitch * cosYaw;
+        m12 = -sinPitch;
+        m20 = sinPitch * sinYaw;
+        m21 = sinPitch * cosYaw;
+        m22 = cosPitch;
+    }
+
+    /**
+     * @return a projection like this one, with the given amounts in radians added to
+     * its yaw and pitch
+     */
+    public Projection rotate(double yawChange, double pitchChange) {
+        return new Projection(yaw + yawChange, pitch + pitchChange, perspective, cameraDistance);
+    }
+
+    /**
+     * @return a projection like this one, which is a perspective projection if
+     * perspective is true, or an orthographic projection otherwise
+     */
+    public Projection withPerspective(boolean perspective) {
+        return new Projection(yaw, pitch, perspective, cameraDistance);
+    }
+
+    public double getYaw() {
+        return yaw;
+    }
+
+    public double getPitch() {
+        return pitch;
+    }
+
+    public boolean isPerspective() {
+        return perspective;
+    }
+
+    public double getCameraDistance() {
+        return cameraDistance;
+    }
+
+    /**
+     * @return the horizontal coordinate on the screen of the point (x, y, z), in the
+     * same units as the point
+     */
+    public double projectX(double x, double y, double z) {
+        return scale(x, y, z) * (m00 * x + m01 * y + m02 * z);
+    }
+
+    /**
+     * @return the vertical coordinate on the screen of the point (x, y, z), in the
+     * same units as the point
+     */
+    public double projectY(double x, double y, double z) {
+        return scale(x, y, z) * (m10 * x + m11 * y + m12 * z);
+    }
+
+    /**
+     * @return the factor by which the point (x, y, z) is scaled, which is 1 for an
+     * orthographic projection
+     */
+    private double scale(double x, double y, double z) {
+        if (!perspective) {
+            return 1;
+        }
+        double distance = cameraDistance - (m20 * x + m21 * y + m22 * z);
+        return distance > 0 ? cameraDistance / distance : Double.NaN;
+    }
+
+    /**
+     * Projects the first count points (xValues[i], yValues[i], zValues[i]), and stores
+     * their horizontal and vertical screen coordinates in screenXValues and
+     * screenYValues. The results are the same as those of
+     * {@link #projectX(double, double, double)} and {@link #projectY(double, double, double)}.
+     * The screen coordinate arrays must be different arrays from the others.
+     *
+     * @throws IllegalArgumentException if count is negative or greater than the length
+     * of any of the arrays
+     */
+    public void project(double[] xValues, double[] yValues, double[] zValues,
+                        double[] screenXValues, double[] screenYValues, int count) {
+        if (count < 0 || count > xValues.length || count > yValues.length || count > zValues.length
+                || count > screenXValues.length || count > screenYValues.length) {
+            throw new IllegalArgumentException("Invalid number of points");
+        }
+        // The matrix is copied into locals so that the loops only read the arrays
+        double m00 = this.m00, m01 = this.m01, m02 = this.m02;
+        double m10 = this.m10, m11 = this.m11, m12 = this.m12;
+        if (!perspective) {
+            for (int i = 0; i < count; i++) {
+                double x = xValues[i];
+                double y = yValues[i];
+                double z = zValues[i];
+                screenXValues[i] = m00 * x + m01 * y + m02 * z;
+                screenYValues[i] = m10 * x + m11 * y + m12 * z;
+            }
+            return;
+        }
+
+        double m20 = this.m20, m21 = this.m21, m22 = this.m22;
+        double cameraDistance = this.cameraDistance;
+        for (int i = 0; i < count; i++) {
+            double x = xValues[i];
+            double y = yValues[i];
+            double z = zValues[i];
+            double distance = cameraDistance - (m20 * x + m21 * y + m22 * z);
+            double scale = distance > 0 ? cameraDistance / distance : Double.NaN;
+            screenXValues[i] = scale * (m00 * x + m01 * y + m02 * z);
+            screenYValues[i] = scale * (m10 * x + m11 * y + m12 * z);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Projection)) {
+            return false;
+        }
+        Projection other = (Projection) o;
+        return Double.compare(yaw, other.yaw) == 0 && Double.compare(pitch, other.pitch) == 0
+                && perspective == other.perspective && Double.compare(cameraDistance, other.cameraDistance) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Double.hashCode(yaw);
+        result = 31 * result + Double.hashCode(pitch);
+        result = 31 * result + Boolean.hashCode(perspective);
+        result = 31 * result + Double.hashCode(cameraDistance);
+        return result;
+    }
+}
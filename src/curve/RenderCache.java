@@ -0,0 +1,333 @@
+package curve;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A RenderCache stores the results of rendering curves (such as encoded images and
+ * arrays of samples) as byte arrays, keyed by {@link CacheKey}s that describe everything
+ * the results were computed from. Since rendering is deterministic, a result found in
+ * the cache can be used instead of evaluating the curve again.
+ *
+ * The cache has two levels. The first is held in memory, is limited to a given number
+ * of bytes, and discards the least recently used entries when it is full. The second
+ * (which is optional) is a directory with one file per entry, named by the hash of its
+ * key, so that entries survive restarts of the program. Entries found on disk are moved
+ * into memory. Files in the directory can be deleted at any time.
+ *
+ * The directory is limited to a given number of bytes as well. Reading an entry from
+ * disk marks its file as recently used by updating its modification time. When a write
+ * takes the directory over its limit, the files that were used least recently are
+ * deleted until the directory is down to three quarters of the limit, so that the
+ * directory only has to be listed once in a while.
+ *
+ * The cache is best-effort: failing to read or write a file is treated as a cache miss.
+ * A RenderCache is thread-safe. The byte arrays it stores and returns are shared, so
+ * they must not be modified.
+ */
+public class RenderCache {
+    private static final long DEFAULT_MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The default limit on the size of the directory of a RenderCache, in bytes.
+     */
+    public static final long DEFAULT_MAX_DISK_BYTES = 512L * 1024 * 1024;
+
+    // Identifies the files written by a RenderCache
+    private static final int FILE_MAGIC = 0x50434331;
+
+    private static RenderCache defaultCache;
+
+    private final long maxMemoryBytes;
+    private final File directory;
+    private final long maxDiskBytes;
+
+    private final Map<CacheKey, byte[]> memory = new LinkedHashMap<CacheKey, byte[]>(16, 0.75f, true);
+    private long memoryBytes;
+
+    // Guards diskBytes
+    private final Object disk = new Object();
+
+    // The total size of the files in the directory as far as this cache knows, or -1 if
+    // the directory has not been listed yet. Other caches may share the directory, so
+    // this is corrected whenever the directory is listed.
+    private long diskBytes = -1;
+
+    /**
+     * Creates a RenderCache that is held in memory only, and is limited to the given
+     * number of bytes.
+     */
+    public RenderCache(long maxMemoryBytes) {
+        this(maxMemoryBytes, null);
+    }
+
+    /**
+     * Creates a RenderCache that is limited to the given number of bytes in memory and
+     * stores every entry in the given directory, which is created if necessary and is
+     * limited to {@link #DEFAULT_MAX_DISK_BYTES}. If the directory is null, the cache is
+     * held in memory only.
+     *
+     * @throws IllegalArgumentException if the directory does not exist and cannot be
+     * created
+     */
+    public RenderCache(long maxMemoryBytes, File directory) {
+        this(maxMemoryBytes, directory, DEFAULT_MAX_DISK_BYTES);
+    }
+
+    /**
+     * Creates a RenderCache as above, whose directory is limited to the given number of
+     * bytes.
+     *
+     * @throws IllegalArgumentException if a limit is negative, or if the directory does
+     * not exist and cannot be created
+     */
+    public RenderCache(long maxMemoryBytes, File directory, long maxDiskBytes) {
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException("Memory limit cannot be negative");
+        }
+        if (maxDiskBytes < 0) {
+            throw new IllegalArgumentException("Disk limit cannot be negative");
+        }
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Could not create directory " + directory);
+        }
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * @return the cache shared by the whole program, which keeps up to 64 MB in memory
+     * and stores entries in the directory .parametric-curve-grapher/cache in the user's
+     * home directory (or in memory only, if that directory cannot be created)
+     */
+    public static synchronized RenderCache getDefault() {
+        if (defaultCache == null) {
+            File directory = new File(System.getProperty("user.home"), ".parametric-curve-grapher/cache");
+            try {
+                defaultCache = new RenderCache(DEFAULT_MAX_MEMORY_BYTES, directory);
+            } catch (IllegalArgumentException e) {
+                defaultCache = new RenderCache(DEFAULT_MAX_MEMORY_BYTES);
+            }
+        }
+        return defaultCache;
+    }
+
+    /**
+     * @return the value stored with the given key, or null if there is none
+     */
+    public byte[] get(CacheKey key) {
+        synchronized (memory) {
+            byte[] value = memory.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        byte[] value = readFile(key);
+        if (value != null) {
+            putInMemory(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Stores the given value with the given key, replacing any value that was stored
+     * with it before.
+     */
+    public void put(CacheKey key, byte[] value) {
+        putInMemory(key, value);
+        writeFile(key, value);
+    }
+
+    /**
+     * Removes every entry from memory. Entries on disk are kept.
+     */
+    public void clearMemory() {
+        synchronized (memory) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+    }
+
+    /**
+     * @return the total size of the values held in memory, in bytes
+     */
+    public long getMemoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    private void putInMemory(CacheKey key, byte[] value) {
+        synchronized (memory) {
+            byte[] oldValue = memory.remove(key);
+            if (oldValue != null) {
+                memoryBytes -= oldValue.length;
+            }
+            if (value.length > maxMemoryBytes) {
+                return;
+            }
+
+            memory.put(key, value);
+            memoryBytes += value.length;
+            Iterator<byte[]> leastRecentlyUsed = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes) {
+                memoryBytes -= leastRecentlyUsed.next().length;
+                leastRecentlyUsed.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the value stored in the file for the given key, or null if there is no
+     * such file or it cannot be read
+     */
+    private byte[] readFile(CacheKey key) {
+        if (directory == null) {
+            return null;
+        }
+        File file = new File(directory, key.getHash());
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+            if (input.readInt() != FILE_MAGIC) {
+                return null;
+            }
+
+            // The file starts with the canonical form of its key, so that a file is never
+            // mistaken for the entry of a different key with the same hash.
+            byte[] canonicalForm = new byte[input.readInt()];
+            input.readFully(canonicalForm);
+            if (!Arrays.equals(canonicalForm, key.getCanonicalForm().getBytes(StandardCharsets.UTF_8))) {
+                return null;
+            }
+
+            byte[] value = new byte[input.readInt()];
+            input.readFully(value);
+            // Keep the file from being pruned for a while (see prune())
+            file.setLastModified(System.currentTimeMillis());
+            return value;
+        } catch (IOException | RuntimeException e) {
+            // A missing, truncated, or corrupted file is a cache miss
+            return null;
+        }
+    }
+
+    private void writeFile(CacheKey key, byte[] value) {
+        if (directory == null) {
+            return;
+        }
+        byte[] canonicalForm = key.getCanonicalForm().getBytes(StandardCharsets.UTF_8);
+        long fileBytes = 12L + canonicalForm.length + value.length;
+        if (fileBytes > maxDiskBytes) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(12 + canonicalForm.length + value.length);
+        DataOutputStream output = new DataOutputStream(bytes);
+        File temporaryFile = null;
+        try {
+            output.writeInt(FILE_MAGIC);
+            output.writeInt(canonicalForm.length);
+            output.write(canonicalForm);
+            output.writeInt(value.length);
+            output.write(value);
+
+            // Write to a temporary file first, so that other readers never see a
+            // partially written entry.
+            temporaryFile = File.createTempFile(key.getHash(), ".tmp", directory);
+            Files.write(temporaryFile.toPath(), bytes.toByteArray());
+            File file = new File(directory, key.getHash());
+            long replacedBytes = file.length();
+            Files.move(temporaryFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            addDiskBytes(fileBytes - replacedBytes);
+        } catch (IOException e) {
+            // The entry is still in memory, so it is only lost after a restart
+            if (temporaryFile != null) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Records that the files in the directory have grown by the given number of bytes,
+     * and prunes the directory if it is now over its limit.
+     */
+    private void addDiskBytes(long addedBytes) {
+        synchronized (disk) {
+            if (diskBytes < 0) {
+                diskBytes = sizeOf(listFiles());
+            } else {
+                diskBytes += addedBytes;
+            }
+            if (diskBytes > maxDiskBytes) {
+                prune();
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used files in the directory until they take up at most
+     * three quarters of the limit, and records how big the remaining files are.
+     */
+    private void prune() {
+        File[] files = listFiles();
+        final long[] lastModified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(lastModified[a], lastModified[b]);
+            }
+        });
+
+        long bytes = sizeOf(files);
+        long targetBytes = maxDiskBytes / 4 * 3;
+        for (int i = 0; i < order.length && bytes > targetBytes; i++) {
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                bytes -= length;
+            }
+        }
+        diskBytes = bytes;
+    }
+
+    /**
+     * @return the files in the directory, or an empty array if it cannot be listed
+     */
+    private File[] listFiles() {
+        File[] files = directory.listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * @return the total size of the given files, in bytes
+     */
+    private static long sizeOf(File[] files) {
+        long bytes = 0;
+        for (File file : files) {
+            bytes += file.length();
+        }
+        return bytes;
+    }
+}
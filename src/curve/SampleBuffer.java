@@ -0,0 +1,107 @@
+package curve;
+
+import java.util.Arrays;
+
+/**
+ * A SampleBuffer is a growable list of (t, x, y) samples of a parametric curve,
+ * stored in primitive arrays. A sample whose x- or y-coordinate is NaN denotes an
+ * undefined point, which also breaks the curve into separate pieces.
+ */
+public class SampleBuffer implements SampleTable {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] tValues;
+    private double[] xValues;
+    private double[] yValues;
+    private int size;
+
+    /**
+     * Creates an empty SampleBuffer.
+     */
+    public SampleBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty SampleBuffer with room for the given number of samples.
+     */
+    public SampleBuffer(int initialCapacity) {
+        initialCapacity = Math.max(initialCapacity, 1);
+        tValues = new double[initialCapacity];
+        xValues = new double[initialCapacity];
+        yValues = new double[initialCapacity];
+    }
+
+    /**
+     * Appends the sample (t, x, y) to the end of this buffer.
+     */
+    public void add(double t, double x, double y) {
+        if (size == tValues.length) {
+            int newCapacity = size * 2;
+            tValues = Arrays.copyOf(tValues, newCapacity);
+            xValues = Arrays.copyOf(xValues, newCapacity);
+            yValues = Arrays.copyOf(yValues, newCapacity);
+        }
+        tValues[size] = t;
+        xValues[size] = x;
+        yValues[size] = y;
+        size++;
+    }
+
+    /**
+     * Appends an undefined point at the given t value, unless the last sample in
+     * this buffer is already undefined.
+     */
+    public void addBreak(double t) {
+        if (size > 0 && isUndefined(size - 1)) {
+            return;
+        }
+        add(t, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * @return the number of samples in this buffer
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double getT(int index) {
+        checkIndex(index);
+        return tValues[index];
+    }
+
+    @Override
+    public double getX(int index) {
+        checkIndex(index);
+        return xValues[index];
+    }
+
+    @Override
+    public double getY(int index) {
+        checkIndex(index);
+        return yValues[index];
+    }
+
+    /**
+     * @return true if the sample at the given index is an undefined point
+     */
+    public boolean isUndefined(int index) {
+        return Double.isNaN(getX(index)) || Double.isNaN(getY(index));
+    }
+
+    /**
+     * Removes all samples from this buffer.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
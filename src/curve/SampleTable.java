@@ -0,0 +1,28 @@
+package curve;
+
+/**
+ * A SampleTable is a read-only list of (t, x, y) samples of a parametric curve. A sample
+ * whose x- or y-coordinate is NaN denotes an undefined point. Implementations may hold
+ * their samples in memory (see {@link SampleBuffer}) or load them on demand.
+ */
+public interface SampleTable {
+    /**
+     * @return the number of samples in this table
+     */
+    int size();
+
+    /**
+     * @throws IndexOutOfBoundsException if the index is not in the range 0 to size() - 1
+     */
+    double getT(int index);
+
+    /**
+     * @throws IndexOutOfBoundsException if the index is not in the range 0 to size() - 1
+     */
+    double getX(int index);
+
+    /**
+     * @throws IndexOutOfBoundsException if the index is not in the range 0 to size() - 1
+     */
+    double getY(int index);
+}
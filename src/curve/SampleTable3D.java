@@ -0,0 +1,12 @@
+package curve;
+
+/**
+ * A SampleTable3D is a {@link SampleTable} of a curve in space, whose samples also have a
+ * z-coordinate. A sample whose x-, y- or z-coordinate is NaN denotes an undefined point.
+ */
+public interface SampleTable3D extends SampleTable {
+    /**
+     * @throws IndexOutOfBoundsException if the index is not in the range 0 to size() - 1
+     */
+    double getZ(int index);
+}
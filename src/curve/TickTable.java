@@ -0,0 +1,156 @@
+package curve;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A TickTable holds the coordinates of a ParametricCurve at every value of t on its grid
+ * (see {@link ParametricCurve#APPROX_NUM_POINTS}), so that they can be looked up instead
+ * of evaluated. Since the curve steps through exactly the same values of t on every pass
+ * in either direction, the table covers every tick of every cycle, and is valid for as
+ * long as the curve's equations, bounds, and context do not change. The table of a curve
+ * in space also holds its z-coordinates.
+ */
+final class TickTable {
+    // Sample i is at the i-th value of t on the grid, from tLowerBound to tUpperBound
+    private final SampleBuffer grid;
+
+    // The z-coordinate of every sample of the grid, or null if the curve is in the plane
+    private final double[] zValues;
+
+    TickTable(SampleBuffer grid) {
+        this(grid, null);
+    }
+
+    /**
+     * Creates a table of a curve in space, where zValues[i] is the z-coordinate of
+     * sample i of the grid.
+     */
+    TickTable(SampleBuffer grid, double[] zValues) {
+        this.grid = grid;
+        this.zValues = zValues;
+    }
+
+    /**
+     * @return the samples at every value of t on the grid, in increasing order of t
+     */
+    SampleBuffer getGrid() {
+        return grid;
+    }
+
+    /**
+     * @return the z-coordinate of sample i of the grid, which is 0 if the table is of a
+     * curve in the plane
+     */
+    double getZ(int index) {
+        return zValues == null ? 0 : zValues[index];
+    }
+
+    /**
+     * @return the samples of the pass in the given direction, where sample i is at tick i
+     * of the pass. Ticks are numbered from the last change of direction: tick 0 of the
+     * increasing pass is at tLowerBound, and tick 0 of the decreasing pass is at
+     * tUpperBound. Each pass has one fewer sample than the grid, since its last value of
+     * t is the first value of the next pass. The z-coordinates of a curve in the plane
+     * are 0.
+     */
+    SampleTable3D getPass(final boolean tIncreasing) {
+        final int size = grid.size() - 1;
+        return new SampleTable3D() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public double getT(int index) {
+                return grid.getT(toGridIndex(index));
+            }
+
+            @Override
+            public double getX(int index) {
+                return grid.getX(toGridIndex(index));
+            }
+
+            @Override
+            public double getY(int index) {
+                return grid.getY(toGridIndex(index));
+            }
+
+            @Override
+            public double getZ(int index) {
+                return TickTable.this.getZ(toGridIndex(index));
+            }
+
+            private int toGridIndex(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                return tIncreasing ? index : size - index;
+            }
+        };
+    }
+
+    /**
+     * @return the table written as bytes, which can be read back with
+     * {@link #fromBytes(byte[], boolean)}
+     */
+    byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + getSampleSize() * grid.size());
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeInt(grid.size());
+            for (int i = 0; i < grid.size(); i++) {
+                output.writeDouble(grid.getT(i));
+                output.writeDouble(grid.getX(i));
+                output.writeDouble(grid.getY(i));
+                if (zValues != null) {
+                    output.writeDouble(zValues[i]);
+                }
+            }
+        } catch (IOException e) {
+            // A ByteArrayOutputStream never throws IOException
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the table written by {@link #toBytes()}, or null if the given bytes are
+     * not a valid table. hasZ must be true if the table is of a curve in space.
+     */
+    static TickTable fromBytes(byte[] bytes, boolean hasZ) {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        int sampleSize = hasZ ? 32 : 24;
+        try {
+            int size = input.readInt();
+            if (size < 2 || size > bytes.length / sampleSize) {
+                return null;
+            }
+            SampleBuffer grid = new SampleBuffer(size);
+            double[] zValues = hasZ ? new double[size] : null;
+            for (int i = 0; i < size; i++) {
+                grid.add(input.readDouble(), input.readDouble(), input.readDouble());
+                if (hasZ) {
+                    zValues[i] = input.readDouble();
+                }
+            }
+            if (input.read() != -1) {
+                return null;
+            }
+            return new TickTable(grid, zValues);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the number of bytes that one sample is written as
+     */
+    private int getSampleSize() {
+        return zValues == null ? 24 : 32;
+    }
+}
@@ -0,0 +1,426 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import curve.CacheKey;
+import curve.CompiledExpression;
+import curve.ExpressionCache;
+import curve.FloatSampleBuffer;
+import curve.RenderCache;
+import ui.CurveImageRenderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A RenderServer is an HTTP server on the loopback interface that renders curves on
+ * request. A request looks like
+ *
+ * <pre>GET /render?x=2cos(t)&amp;y=sin(3t)&amp;tmin=0&amp;tmax=6.283&amp;samples=1000&amp;width=512&amp;height=512&amp;format=png</pre>
+ *
+ * where x and y are URL-encoded (in particular, "+" must be sent as "%2B"). Only x, y,
+ * tmin and tmax are required. The format is either "png", which returns the curve drawn
+ * as the DrawingPanel would draw it, or "samples", which returns the number of samples as
+ * a 4-byte integer followed by t, x(t) and y(t) of every sample as 8-byte doubles, all
+ * big-endian. With precision=single, samples are stored as floats while they are rendered,
+ * which halves the memory that a large request takes up, and the "samples" format sends
+ * them as 4-byte floats. Invalid requests get a 400 response with a plain-text message.
+ *
+ * Compiled expressions are kept in an {@link ExpressionCache}, and responses are kept in
+ * a {@link RenderCache} keyed by the canonical forms of the expressions and the other
+ * parameters, so a request for a curve that was rendered recently is answered without
+ * evaluating anything. Identical requests that arrive while the first of them is still
+ * being rendered share its result instead of rendering it again. The number of renders that run at once is limited to the number
+ * of processors, which bounds memory use no matter how many requests are waiting.
+ *
+ * Requests are handled on virtual threads when the JVM supports them (Java 21 and later),
+ * and on a bounded thread pool otherwise.
+ */
+public class RenderServer {
+	public static final String PATH = "/render";
+
+	private static final int DEFAULT_NUM_SAMPLES = 1000;
+	private static final int DEFAULT_IMAGE_SIZE = 512;
+	private static final int MAX_NUM_SAMPLES = 100000;
+	private static final int MAX_IMAGE_SIZE = 4096;
+
+	private static final int EXPRESSION_CACHE_CAPACITY = 256;
+	private static final long RESPONSE_CACHE_BYTES = 64L * 1024 * 1024;
+
+	// When virtual threads are unavailable, requests are handled by a pool with this many
+	// threads per processor and a queue of this many requests per processor. Requests
+	// beyond that are handled on the thread that accepts connections, which slows down
+	// accepting new ones.
+	private static final int POOL_THREADS_PER_PROCESSOR = 4;
+	private static final int POOL_QUEUE_PER_PROCESSOR = 64;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final ExpressionCache expressionCache = new ExpressionCache(EXPRESSION_CACHE_CAPACITY);
+	private final RenderCache responseCache;
+
+	// The requests that are being rendered, mapped to their eventual responses
+	private final Map<RenderRequest, CompletableFuture<byte[]>> inProgress =
+			new ConcurrentHashMap<RenderRequest, CompletableFuture<byte[]>>();
+
+	private final Semaphore renderPermits = new Semaphore(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The parameters of a render request. Two requests with equal parameters have the
+	 * same response.
+	 */
+	private static final class RenderRequest {
+		final String xExpression;
+		final String yExpression;
+		final double tLowerBound;
+		final double tUpperBound;
+		final int numSamples;
+		final int width;
+		final int height;
+		final boolean png;
+		final boolean singlePrecision;
+
+		RenderRequest(Map<String, String> parameters) {
+			xExpression = getRequired(parameters, "x");
+			yExpression = getRequired(parameters, "y");
+			tLowerBound = parseDouble(getRequired(parameters, "tmin"), "tmin");
+			tUpperBound = parseDouble(getRequired(parameters, "tmax"), "tmax");
+			numSamples = parseInt(parameters, "samples", DEFAULT_NUM_SAMPLES, MAX_NUM_SAMPLES);
+			width = parseInt(parameters, "width", DEFAULT_IMAGE_SIZE, MAX_IMAGE_SIZE);
+			height = parseInt(parameters, "height", DEFAULT_IMAGE_SIZE, MAX_IMAGE_SIZE);
+
+			String format = parameters.get("format");
+			if (format == null || format.equals("png")) {
+				png = true;
+			} else if (format.equals("samples")) {
+				png = false;
+			} else {
+				throw new IllegalArgumentException("format must be png or samples");
+			}
+			String precision = parameters.get("precision");
+			if (precision == null || precision.equals("double")) {
+				singlePrecision = false;
+			} else if (precision.equals("single")) {
+				singlePrecision = true;
+			} else {
+				throw new IllegalArgumentException("precision must be double or single");
+			}
+			if (tLowerBound > tUpperBound) {
+				throw new IllegalArgumentException("tmin cannot be greater than tmax");
+			}
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof RenderRequest)) {
+				return false;
+			}
+			RenderRequest other = (RenderRequest) o;
+			return xExpression.equals(other.xExpression) && yExpression.equals(other.yExpression)
+					&& Double.compare(tLowerBound, other.tLowerBound) == 0
+					&& Double.compare(tUpperBound, other.tUpperBound) == 0
+					&& numSamples == other.numSamples && width == other.width && height == other.height
+					&& png == other.png && singlePrecision == other.singlePrecision;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(xExpression, yExpression, tLowerBound, tUpperBound, numSamples, width, height, png,
+					singlePrecision);
+		}
+
+		private static String getRequired(Map<String, String> parameters, String name) {
+			String value = parameters.get(name);
+			if (value == null) {
+				throw new IllegalArgumentException("Missing parameter " + name);
+			}
+			return value;
+		}
+
+		private static double parseDouble(String value, String name) {
+			try {
+				double result = Double.parseDouble(value);
+				if (Double.isFinite(result)) {
+					return result;
+				}
+			} catch (NumberFormatException e) {
+				// Reported below
+			}
+			throw new IllegalArgumentException(name + " must be a finite number");
+		}
+
+		private static int parseInt(Map<String, String> parameters, String name, int defaultValue, int max) {
+			String value = parameters.get(name);
+			if (value == null) {
+				return defaultValue;
+			}
+			try {
+				int result = Integer.parseInt(value);
+				if (result >= 1 && result <= max) {
+					return result;
+				}
+			} catch (NumberFormatException e) {
+				// Reported below
+			}
+			throw new IllegalArgumentException(name + " must be an integer from 1 to " + max);
+		}
+	}
+
+	/**
+	 * Creates a RenderServer that will listen on the given port of the loopback
+	 * interface, and keeps up to 64 MB of recent responses in memory. If the port is 0,
+	 * a free port is chosen (see {@link #getPort()}).
+	 *
+	 * @throws IOException if the port cannot be bound
+	 */
+	public RenderServer(int port) throws IOException {
+		this(port, new RenderCache(RESPONSE_CACHE_BYTES));
+	}
+
+	/**
+	 * Creates a RenderServer as above that keeps responses in the given cache.
+	 *
+	 * @throws IOException if the port cannot be bound
+	 */
+	public RenderServer(int port, RenderCache responseCache) throws IOException {
+		this.responseCache = responseCache;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		executor = createExecutor();
+		server.setExecutor(executor);
+		server.createContext(PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					handleRender(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Starts accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests, waiting at most the given number of seconds for requests
+	 * that are being handled to finish.
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the port that the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	private void handleRender(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("GET")) {
+			exchange.getResponseHeaders().set("Allow", "GET");
+			exchange.sendResponseHeaders(405, -1);
+			return;
+		}
+
+		RenderRequest request;
+		byte[] body;
+		try {
+			request = new RenderRequest(parseQuery(exchange.getRequestURI().getRawQuery()));
+			body = getResponse(request);
+		} catch (IllegalArgumentException e) {
+			sendError(exchange, 400, e.getMessage());
+			return;
+		}
+
+		exchange.getResponseHeaders().set("Content-Type", request.png ? "image/png" : "application/octet-stream");
+		exchange.sendResponseHeaders(200, body.length);
+		OutputStream responseBody = exchange.getResponseBody();
+		responseBody.write(body);
+		responseBody.close();
+	}
+
+	/**
+	 * @return the body of the response to the given request, taken from the response
+	 * cache if possible, and otherwise shared with any identical request that is being
+	 * rendered at the same time
+	 */
+	private byte[] getResponse(RenderRequest request) {
+		CompiledExpression xExpression = expressionCache.compile(request.xExpression);
+		CompiledExpression yExpression = expressionCache.compile(request.yExpression);
+		CacheKey key = new CacheKey(request.png ? "png" : "samples", xExpression.getCanonicalForm(),
+				yExpression.getCanonicalForm(), request.tLowerBound, request.tUpperBound, request.numSamples,
+				request.width, request.height, request.singlePrecision ? "single" : "double");
+		byte[] cachedResponse = responseCache.get(key);
+		if (cachedResponse != null) {
+			return cachedResponse;
+		}
+
+		CompletableFuture<byte[]> response = new CompletableFuture<byte[]>();
+		CompletableFuture<byte[]> existingResponse = inProgress.putIfAbsent(request, response);
+		if (existingResponse != null) {
+			return join(existingResponse);
+		}
+
+		try {
+			renderPermits.acquireUninterruptibly();
+			try {
+				byte[] body = render(request, xExpression, yExpression);
+				responseCache.put(key, body);
+				response.complete(body);
+			} finally {
+				renderPermits.release();
+			}
+		} catch (RuntimeException | Error e) {
+			// Identical requests that are waiting for this response fail the same way
+			response.completeExceptionally(e);
+		} finally {
+			inProgress.remove(request, response);
+		}
+		return join(response);
+	}
+
+	private static byte[] render(RenderRequest request, CompiledExpression xExpression,
+								 CompiledExpression yExpression) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try {
+			if (request.png) {
+				ImageIO.write(CurveImageRenderer.render(xExpression, yExpression, request.tLowerBound,
+						request.tUpperBound, request.numSamples, request.width, request.height,
+						request.singlePrecision), "png", output);
+			} else {
+				writeSamples(xExpression, yExpression, request, new DataOutputStream(output));
+			}
+		} catch (IOException e) {
+			// A ByteArrayOutputStream never throws IOException
+			throw new IllegalStateException(e);
+		}
+		return output.toByteArray();
+	}
+
+	private static void writeSamples(CompiledExpression xExpression, CompiledExpression yExpression,
+									 RenderRequest request, DataOutputStream output) throws IOException {
+		if (request.singlePrecision) {
+			FloatSampleBuffer samples = FloatSampleBuffer.sample(xExpression, yExpression, request.tLowerBound,
+					request.tUpperBound, request.numSamples);
+			output.writeInt(samples.size());
+			for (int i = 0; i < samples.size(); i++) {
+				output.writeFloat((float) samples.getT(i));
+				output.writeFloat((float) samples.getX(i));
+				output.writeFloat((float) samples.getY(i));
+			}
+			output.flush();
+			return;
+		}
+
+		double tIncrement = request.numSamples == 1
+				? 0 : (request.tUpperBound - request.tLowerBound) / (request.numSamples - 1);
+		double[] tValues = new double[request.numSamples];
+		for (int i = 0; i < request.numSamples; i++) {
+			tValues[i] = request.tLowerBound + i * tIncrement;
+		}
+		double[] xValues = new double[request.numSamples];
+		double[] yValues = new double[request.numSamples];
+		xExpression.evaluate(tValues, xValues, request.numSamples);
+		yExpression.evaluate(tValues, yValues, request.numSamples);
+
+		output.writeInt(request.numSamples);
+		for (int i = 0; i < request.numSamples; i++) {
+			output.writeDouble(tValues[i]);
+			output.writeDouble(xValues[i]);
+			output.writeDouble(yValues[i]);
+		}
+		output.flush();
+	}
+
+	/**
+	 * Waits for the given response, rethrowing the exception that it failed with, if any.
+	 */
+	private static byte[] join(CompletableFuture<byte[]> response) {
+		try {
+			return response.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		OutputStream responseBody = exchange.getResponseBody();
+		responseBody.write(body);
+		responseBody.close();
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> parameters = new HashMap<String, String>();
+		if (rawQuery == null) {
+			return parameters;
+		}
+		for (String pair : rawQuery.split("&")) {
+			if (pair.isEmpty()) {
+				continue;
+			}
+			int equalsIndex = pair.indexOf('=');
+			String name = equalsIndex < 0 ? pair : pair.substring(0, equalsIndex);
+			String value = equalsIndex < 0 ? "" : pair.substring(equalsIndex + 1);
+			parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+					URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return parameters;
+	}
+
+	/**
+	 * @return an executor that runs every request on its own virtual thread if the JVM
+	 * supports virtual threads, or a bounded thread pool otherwise
+	 */
+	private static ExecutorService createExecutor() {
+		try {
+			Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// Virtual threads are unavailable before Java 21
+		}
+
+		int processors = Runtime.getRuntime().availableProcessors();
+		int numThreads = processors * POOL_THREADS_PER_PROCESSOR;
+		return new ThreadPoolExecutor(numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(processors * POOL_QUEUE_PER_PROCESSOR),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+}
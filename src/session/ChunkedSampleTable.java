@@ -0,0 +1,131 @@
+package session;
+
+import curve.SampleTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A ChunkedSampleTable is the samples of one curve in a session file. A chunk of samples
+ * is read and decompressed the first time one of its samples is accessed, and only the
+ * most recently used chunks are kept in memory.
+ */
+final class ChunkedSampleTable implements SampleTable {
+    // The largest number of decompressed chunks kept in memory
+    private static final int MAX_LOADED_CHUNKS = 8;
+
+    private final FileChannel channel;
+    private final int size;
+    private final long[] chunkPositions;
+    private final int[] chunkLengths;
+    private final int[] chunkChecksums;
+
+    // Decompressed chunks, keyed by chunk number. Each chunk holds its t values, then its
+    // x-coordinates, then its y-coordinates.
+    private final Map<Integer, double[]> loadedChunks = new LinkedHashMap<Integer, double[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+            return size() > MAX_LOADED_CHUNKS;
+        }
+    };
+
+    // The most recently accessed chunk, which is checked before loadedChunks since
+    // samples are usually accessed in order
+    private int lastChunkNumber = -1;
+    private double[] lastChunk;
+
+    ChunkedSampleTable(FileChannel channel, int size, long[] chunkPositions, int[] chunkLengths,
+                       int[] chunkChecksums) {
+        this.channel = channel;
+        this.size = size;
+        this.chunkPositions = chunkPositions;
+        this.chunkLengths = chunkLengths;
+        this.chunkChecksums = chunkChecksums;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double getT(int index) {
+        return get(index, 0);
+    }
+
+    @Override
+    public double getX(int index) {
+        return get(index, 1);
+    }
+
+    @Override
+    public double getY(int index) {
+        return get(index, 2);
+    }
+
+    /**
+     * @return the value in the given column (0 for t, 1 for x, 2 for y) of the sample
+     * with the given index
+     */
+    private synchronized double get(int index, int column) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int chunkNumber = index / SessionWriter.SAMPLES_PER_CHUNK;
+        if (chunkNumber != lastChunkNumber) {
+            double[] chunk = loadedChunks.get(chunkNumber);
+            if (chunk == null) {
+                chunk = loadChunk(chunkNumber);
+                loadedChunks.put(chunkNumber, chunk);
+            }
+            lastChunkNumber = chunkNumber;
+            lastChunk = chunk;
+        }
+        int chunkSize = lastChunk.length / 3;
+        return lastChunk[column * chunkSize + index % SessionWriter.SAMPLES_PER_CHUNK];
+    }
+
+    /**
+     * Reads, checks, and decompresses the given chunk. This reverses the encoding done by
+     * {@link SessionWriter}.
+     */
+    private double[] loadChunk(int chunkNumber) {
+        int chunkSize = Math.min(SessionWriter.SAMPLES_PER_CHUNK, size - chunkNumber * SessionWriter.SAMPLES_PER_CHUNK);
+        long[] values = new long[3 * chunkSize];
+        try {
+            byte[] compressed = Session.readBytes(channel, chunkPositions[chunkNumber], chunkLengths[chunkNumber]);
+            if (SessionWriter.checksum(compressed) != chunkChecksums[chunkNumber]) {
+                throw new IOException("Chunk " + chunkNumber + " is corrupted");
+            }
+            byte[] planes = new byte[8 * values.length];
+            try (DataInputStream input = new DataInputStream(new InflaterInputStream(
+                    new ByteArrayInputStream(compressed)))) {
+                input.readFully(planes);
+            }
+            for (int plane = 0; plane < 8; plane++) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (values[i] << 8) | (planes[plane * values.length + i] & 0xff);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read samples from session file", e);
+        }
+
+        double[] chunk = new double[values.length];
+        for (int column = 0; column < 3; column++) {
+            long previousBits = 0;
+            for (int i = column * chunkSize; i < (column + 1) * chunkSize; i++) {
+                long bits = values[i] ^ previousBits;
+                chunk[i] = Double.longBitsToDouble(bits);
+                previousBits = bits;
+            }
+        }
+        return chunk;
+    }
+}
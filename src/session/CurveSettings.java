@@ -0,0 +1,155 @@
+package session;
+
+import curve.AnimatedCurve;
+import curve.ExpressionContext;
+import curve.ParametricCurve;
+
+/**
+ * CurveSettings are everything that the user enters to draw a curve: the equations for
+ * x(t) and y(t) (and z(t), for a curve in space), the bounds of t, the definitions of
+ * parameters and helper functions, and whether the curve is traced at constant speed
+ * and with fast math. A polar curve has an equation for r(t) in place of x(t), and no
+ * equation for y(t) or z(t) (see
+ * {@link ParametricCurve#fromPolar(String, double, double, ExpressionContext)}).
+ * CurveSettings are immutable.
+ */
+public final class CurveSettings {
+    private final String xExpression;
+    private final String yExpression;
+    private final double tLowerBound;
+    private final double tUpperBound;
+    private final String definitions;
+    private final boolean constantSpeed;
+    private final boolean fastMath;
+    private final boolean polar;
+
+    // The equation for z(t), or the empty string for a curve in the plane
+    private final String zExpression;
+
+    /**
+     * Creates CurveSettings with the given values. The definitions are in the format
+     * accepted by {@link ExpressionContext#define(String)}, and may be empty.
+     */
+    public CurveSettings(String xExpression, String yExpression, double tLowerBound, double tUpperBound,
+                         String definitions, boolean constantSpeed, boolean fastMath) {
+        this(xExpression, yExpression, tLowerBound, tUpperBound, definitions, constantSpeed, fastMath, false);
+    }
+
+    /**
+     * Creates CurveSettings as above. If polar is true, xExpression is the equation for
+     * r(t), and yExpression is ignored and should be empty.
+     */
+    public CurveSettings(String xExpression, String yExpression, double tLowerBound, double tUpperBound,
+                         String definitions, boolean constantSpeed, boolean fastMath, boolean polar) {
+        this(xExpression, yExpression, "", tLowerBound, tUpperBound, definitions, constantSpeed, fastMath, polar);
+    }
+
+    /**
+     * Creates CurveSettings as above, for a curve in space whose z-coordinate is given
+     * by zExpression. If zExpression is empty, the curve is in the plane. zExpression
+     * is ignored for a polar curve, and should be empty.
+     */
+    public CurveSettings(String xExpression, String yExpression, String zExpression, double tLowerBound,
+                         double tUpperBound, String definitions, boolean constantSpeed, boolean fastMath,
+                         boolean polar) {
+        this.xExpression = xExpression;
+        this.zExpression = zExpression;
+        this.yExpression = yExpression;
+        this.tLowerBound = tLowerBound;
+        this.tUpperBound = tUpperBound;
+        this.definitions = definitions;
+        this.constantSpeed = constantSpeed;
+        this.fastMath = fastMath;
+        this.polar = polar;
+    }
+
+    public String getXExpression() {
+        return xExpression;
+    }
+
+    public String getYExpression() {
+        return yExpression;
+    }
+
+    public String getZExpression() {
+        return zExpression;
+    }
+
+    public double getTLowerBound() {
+        return tLowerBound;
+    }
+
+    public double getTUpperBound() {
+        return tUpperBound;
+    }
+
+    public String getDefinitions() {
+        return definitions;
+    }
+
+    public boolean isConstantSpeed() {
+        return constantSpeed;
+    }
+
+    public boolean isFastMath() {
+        return fastMath;
+    }
+
+    public boolean isPolar() {
+        return polar;
+    }
+
+    /**
+     * @return a new ParametricCurve with these settings
+     *
+     * @throws IllegalArgumentException if the equations, bounds, or definitions are invalid
+     */
+    public ParametricCurve createCurve() {
+        ExpressionContext context = new ExpressionContext();
+        // The equations and definitions may refer to the animation time
+        context.setParameter(AnimatedCurve.TIME_PARAMETER, 0);
+        context.define(definitions);
+        ParametricCurve curve;
+        if (polar) {
+            curve = ParametricCurve.fromPolar(xExpression, tLowerBound, tUpperBound, context);
+        } else if (zExpression.isEmpty()) {
+            curve = new ParametricCurve(xExpression, yExpression, tLowerBound, tUpperBound, context);
+        } else {
+            curve = new ParametricCurve(xExpression, yExpression, zExpression, tLowerBound, tUpperBound, context);
+        }
+        curve.setConstantSpeed(constantSpeed);
+        curve.setFastMath(fastMath);
+        return curve;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CurveSettings)) {
+            return false;
+        }
+        CurveSettings other = (CurveSettings) o;
+        return xExpression.equals(other.xExpression) && yExpression.equals(other.yExpression)
+                && zExpression.equals(other.zExpression)
+                && Double.compare(tLowerBound, other.tLowerBound) == 0
+                && Double.compare(tUpperBound, other.tUpperBound) == 0
+                && definitions.equals(other.definitions)
+                && constantSpeed == other.constantSpeed && fastMath == other.fastMath && polar == other.polar;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = xExpression.hashCode();
+        result = 31 * result + yExpression.hashCode();
+        result = 31 * result + zExpression.hashCode();
+        result = 31 * result + Double.hashCode(tLowerBound);
+        result = 31 * result + Double.hashCode(tUpperBound);
+        result = 31 * result + definitions.hashCode();
+        result = 31 * result + Boolean.hashCode(constantSpeed);
+        result = 31 * result + Boolean.hashCode(fastMath);
+        result = 31 * result + Boolean.hashCode(polar);
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+package session;
+
+import curve.SampleTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Session is an open session file, as written by a {@link SessionWriter}. Opening a
+ * session only reads its index, so a session with many large curves opens immediately.
+ * The samples of a curve are read one chunk at a time, when they are first needed.
+ *
+ * The SampleTables of a session can no longer be read once the session is closed.
+ */
+public class Session implements Closeable {
+    private final FileChannel channel;
+    private final List<CurveSettings> curves;
+    private final List<SampleTable> samples;
+
+    private Session(FileChannel channel, List<CurveSettings> curves, List<SampleTable> samples) {
+        this.channel = channel;
+        this.curves = curves;
+        this.samples = samples;
+    }
+
+    /**
+     * Opens the given session file and reads its index.
+     *
+     * @throws IOException if the file cannot be read or is not a session file
+     */
+    public static Session open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < SessionWriter.HEADER_SIZE + SessionWriter.TRAILER_SIZE) {
+                throw new IOException("Not a session file: " + file);
+            }
+            DataInputStream header = read(channel, 0, SessionWriter.HEADER_SIZE);
+            if (header.readInt() != SessionWriter.MAGIC) {
+                throw new IOException("Not a session file: " + file);
+            }
+            if (header.readInt() != SessionWriter.VERSION) {
+                throw new IOException("Unsupported session file version: " + file);
+            }
+
+            long trailerPosition = size - SessionWriter.TRAILER_SIZE;
+            DataInputStream trailer = read(channel, trailerPosition, SessionWriter.TRAILER_SIZE);
+            long indexPosition = trailer.readLong();
+            if (trailer.readInt() != SessionWriter.MAGIC
+                    || indexPosition < SessionWriter.HEADER_SIZE || indexPosition > trailerPosition) {
+                throw new IOException("Session file is incomplete: " + file);
+            }
+
+            DataInputStream index = read(channel, indexPosition, (int) (trailerPosition - indexPosition));
+            int numCurves = index.readInt();
+            List<CurveSettings> curves = new ArrayList<CurveSettings>();
+            List<SampleTable> samples = new ArrayList<SampleTable>();
+            for (int i = 0; i < numCurves; i++) {
+                String xExpression = readString(index);
+                String yExpression = readString(index);
+                double tLowerBound = index.readDouble();
+                double tUpperBound = index.readDouble();
+                String definitions = readString(index);
+                int flags = index.readByte();
+                String zExpression = (flags & SessionWriter.Z_FLAG) != 0 ? readString(index) : "";
+                curves.add(new CurveSettings(xExpression, yExpression, zExpression, tLowerBound, tUpperBound,
+                        definitions, (flags & SessionWriter.CONSTANT_SPEED_FLAG) != 0,
+                        (flags & SessionWriter.FAST_MATH_FLAG) != 0, (flags & SessionWriter.POLAR_FLAG) != 0));
+
+                int numSamples = index.readInt();
+                if (numSamples < 0) {
+                    samples.add(null);
+                    continue;
+                }
+                int numChunks = (numSamples + SessionWriter.SAMPLES_PER_CHUNK - 1) / SessionWriter.SAMPLES_PER_CHUNK;
+                if (numChunks > index.available() / SessionWriter.CHUNK_INDEX_ENTRY_SIZE) {
+                    throw new EOFException();
+                }
+                long[] chunkPositions = new long[numChunks];
+                int[] chunkLengths = new int[numChunks];
+                int[] chunkChecksums = new int[numChunks];
+                for (int chunk = 0; chunk < numChunks; chunk++) {
+                    chunkPositions[chunk] = index.readLong();
+                    chunkLengths[chunk] = index.readInt();
+                    chunkChecksums[chunk] = index.readInt();
+                    if (chunkPositions[chunk] < SessionWriter.HEADER_SIZE || chunkLengths[chunk] < 0
+                            || chunkPositions[chunk] + chunkLengths[chunk] > indexPosition) {
+                        throw new IOException("Session file is corrupted: " + file);
+                    }
+                }
+                samples.add(new ChunkedSampleTable(channel, numSamples, chunkPositions, chunkLengths,
+                        chunkChecksums));
+            }
+            return new Session(channel, curves, samples);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (e instanceof EOFException || e instanceof RuntimeException) {
+                throw new IOException("Session file is corrupted: " + file, e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of curves in this session
+     */
+    public int getNumCurves() {
+        return curves.size();
+    }
+
+    /**
+     * @return the settings of the curve with the given index
+     */
+    public CurveSettings getSettings(int index) {
+        return curves.get(index);
+    }
+
+    /**
+     * @return the samples of the curve with the given index, which are read from the
+     * file as they are accessed, or null if the curve was saved without samples. Reading
+     * a sample throws {@link java.io.UncheckedIOException} if the file cannot be read.
+     */
+    public SampleTable getSamples(int index) {
+        return samples.get(index);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return a stream of length bytes read from the given position of the channel
+     */
+    static DataInputStream read(FileChannel channel, long position, int length) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(readBytes(channel, position, length)));
+    }
+
+    /**
+     * @return length bytes read from the given position of the channel
+     */
+    static byte[] readBytes(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.array();
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > input.available()) {
+            throw new EOFException();
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
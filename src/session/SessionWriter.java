@@ -0,0 +1,233 @@
+package session;
+
+import curve.SampleTable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A SessionWriter writes the settings of a list of curves, and optionally their samples,
+ * to a session file that can be opened with {@link Session#open(File)}.
+ *
+ * A session file starts with a header, followed by the compressed chunks of samples of
+ * every curve, followed by an index and a trailer. The index holds the settings of every
+ * curve and the position of each of its chunks, and the trailer holds the position of
+ * the index. A chunk holds up to {@link #SAMPLES_PER_CHUNK} samples; within a chunk, the
+ * t values, x-coordinates and y-coordinates are stored in separate columns, each value
+ * is replaced by the XOR of its bits with those of the previous value in its column, and
+ * the bytes of the values are stored in planes (all of the most significant bytes first),
+ * which makes smooth curves compress well. The index holds a CRC-32 of every chunk, so a
+ * damaged chunk is detected when it is read. All numbers are big-endian.
+ */
+public class SessionWriter implements Closeable {
+    /**
+     * The largest number of samples in one chunk.
+     */
+    public static final int SAMPLES_PER_CHUNK = 4096;
+
+    static final int MAGIC = 0x50434753;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int TRAILER_SIZE = 12;
+
+    static final int CONSTANT_SPEED_FLAG = 1;
+    static final int FAST_MATH_FLAG = 2;
+    static final int POLAR_FLAG = 4;
+
+    // Set for a curve in space, whose equation for z(t) follows the flags
+    static final int Z_FLAG = 8;
+
+    // The size of the index entry of one chunk: its position, length and checksum
+    static final int CHUNK_INDEX_ENTRY_SIZE = 16;
+
+    private final DataOutputStream output;
+
+    // The position in the file that the next chunk is written at
+    private long position;
+
+    private final List<CurveSettings> curves = new ArrayList<CurveSettings>();
+
+    // The number of samples of each curve, or -1 for a curve without samples
+    private final List<Integer> numSamples = new ArrayList<Integer>();
+
+    // The positions, lengths and checksums of the chunks of each curve
+    private final List<long[]> chunkPositions = new ArrayList<long[]>();
+    private final List<int[]> chunkLengths = new ArrayList<int[]>();
+    private final List<int[]> chunkChecksums = new ArrayList<int[]>();
+
+    private boolean closed;
+
+    /**
+     * Creates a SessionWriter that writes to the given file, replacing its contents.
+     *
+     * @throws IOException if the file cannot be opened for writing
+     */
+    public SessionWriter(File file) throws IOException {
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        position = HEADER_SIZE;
+    }
+
+    /**
+     * Adds a curve without samples to the session.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void addCurve(CurveSettings settings) throws IOException {
+        addCurve(settings, null);
+    }
+
+    /**
+     * Adds a curve to the session, along with the given samples (which may be null).
+     * The samples are compressed and written right away.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void addCurve(CurveSettings settings, SampleTable samples) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Session has already been written");
+        }
+        curves.add(settings);
+        if (samples == null) {
+            numSamples.add(-1);
+            chunkPositions.add(new long[0]);
+            chunkLengths.add(new int[0]);
+            chunkChecksums.add(new int[0]);
+            return;
+        }
+
+        int numChunks = (samples.size() + SAMPLES_PER_CHUNK - 1) / SAMPLES_PER_CHUNK;
+        long[] positions = new long[numChunks];
+        int[] lengths = new int[numChunks];
+        int[] checksums = new int[numChunks];
+        for (int chunk = 0; chunk < numChunks; chunk++) {
+            byte[] compressed = compressChunk(samples, chunk * SAMPLES_PER_CHUNK,
+                    Math.min(samples.size(), (chunk + 1) * SAMPLES_PER_CHUNK));
+            output.write(compressed);
+            positions[chunk] = position;
+            lengths[chunk] = compressed.length;
+            checksums[chunk] = checksum(compressed);
+            position += compressed.length;
+        }
+        numSamples.add(samples.size());
+        chunkPositions.add(positions);
+        chunkLengths.add(lengths);
+        chunkChecksums.add(checksums);
+    }
+
+    /**
+     * Writes the index and trailer and closes the file. Curves cannot be added afterwards.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long indexPosition = position;
+            output.writeInt(curves.size());
+            for (int i = 0; i < curves.size(); i++) {
+                CurveSettings settings = curves.get(i);
+                writeString(settings.getXExpression());
+                writeString(settings.getYExpression());
+                output.writeDouble(settings.getTLowerBound());
+                output.writeDouble(settings.getTUpperBound());
+                writeString(settings.getDefinitions());
+                output.writeByte((settings.isConstantSpeed() ? CONSTANT_SPEED_FLAG : 0)
+                        | (settings.isFastMath() ? FAST_MATH_FLAG : 0)
+                        | (settings.isPolar() ? POLAR_FLAG : 0)
+                        | (settings.getZExpression().isEmpty() ? 0 : Z_FLAG));
+                if (!settings.getZExpression().isEmpty()) {
+                    writeString(settings.getZExpression());
+                }
+
+                output.writeInt(numSamples.get(i));
+                long[] positions = chunkPositions.get(i);
+                int[] lengths = chunkLengths.get(i);
+                int[] checksums = chunkChecksums.get(i);
+                for (int chunk = 0; chunk < positions.length; chunk++) {
+                    output.writeLong(positions[chunk]);
+                    output.writeInt(lengths[chunk]);
+                    output.writeInt(checksums[chunk]);
+                }
+            }
+            output.writeLong(indexPosition);
+            output.writeInt(MAGIC);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * @return the CRC-32 of the given bytes
+     */
+    static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private void writeString(String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * @return the samples from index start (inclusive) to end (exclusive), compressed
+     */
+    private static byte[] compressChunk(SampleTable samples, int start, int end) throws IOException {
+        int chunkSize = end - start;
+        long[] values = new long[3 * chunkSize];
+        long previousT = 0;
+        long previousX = 0;
+        long previousY = 0;
+        for (int i = 0; i < chunkSize; i++) {
+            long t = Double.doubleToRawLongBits(samples.getT(start + i));
+            long x = Double.doubleToRawLongBits(samples.getX(start + i));
+            long y = Double.doubleToRawLongBits(samples.getY(start + i));
+            values[i] = t ^ previousT;
+            values[chunkSize + i] = x ^ previousX;
+            values[2 * chunkSize + i] = y ^ previousY;
+            previousT = t;
+            previousX = x;
+            previousY = y;
+        }
+
+        // Store the most significant byte of every value first, then the next byte of
+        // every value, and so on. Neighbouring values share their leading bits, so this
+        // puts long runs of zeros next to each other.
+        byte[] planes = new byte[8 * values.length];
+        for (int i = 0; i < values.length; i++) {
+            for (int plane = 0; plane < 8; plane++) {
+                planes[plane * values.length + i] = (byte) (values[i] >>> (56 - 8 * plane));
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            DeflaterOutputStream chunkOutput = new DeflaterOutputStream(bytes, deflater);
+            chunkOutput.write(planes);
+            chunkOutput.close();
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+}
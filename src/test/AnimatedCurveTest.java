@@ -0,0 +1,132 @@
+import curve.AnimatedCurve;
+import curve.AnimatedExpression;
+import curve.CompiledExpression;
+import curve.EquationParser;
+import curve.ExpressionContext;
+import curve.ParametricCurve;
+import curve.SampleTable3D;
+import org.junit.jupiter.api.*;
+import session.CurveSettings;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnimatedCurveTest {
+    private CountingSin countingSin;
+
+    @BeforeEach
+    public void registerCountingSin() {
+        countingSin = CountingSin.register();
+    }
+
+    @AfterEach
+    public void unregisterCountingSin() {
+        CountingSin.unregister();
+    }
+
+    private static double[] evenlySpaced(double lower, double upper, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = lower + i * (upper - lower) / (count - 1);
+        }
+        return values;
+    }
+
+    private static void assertMatchesWholeExpression(CompiledExpression expression, ExpressionContext context,
+                                                     double[] tValues) {
+        AnimatedExpression animated = new AnimatedExpression(expression, "s", tValues);
+        double[] expected = new double[tValues.length];
+        double[] actual = new double[tValues.length];
+        for (double s : new double[]{0, 0.25, -3, 100}) {
+            context.setParameter("s", s);
+            expression.evaluate(tValues, expected, tValues.length);
+            animated.evaluate(actual);
+            assertArrayEquals(expected, actual, "s = " + s);
+        }
+    }
+
+    @Test
+    public void matchesWholeExpression() {
+        ExpressionContext context = new ExpressionContext();
+        context.define("s = 0; a = 2");
+        CompiledExpression expression = EquationParser.compile("cos(t + s)(1 + t^2) + s sin(3t) - a t", context);
+        double[] tValues = evenlySpaced(-3, 3, 1000);
+        assertMatchesWholeExpression(expression, context, tValues);
+        assertMatchesWholeExpression(expression.withFastMath(true), context, tValues);
+
+        // 1 + t^2, sin(3t) and a t are kept between frames
+        assertEquals(3, new AnimatedExpression(expression, "s", tValues).getNumCachedParts());
+        // So is the whole expression if it does not use s
+        CompiledExpression still = EquationParser.compile("cos(t) + a", context);
+        assertEquals(1, new AnimatedExpression(still, "s", tValues).getNumCachedParts());
+        assertMatchesWholeExpression(still, context, tValues);
+    }
+
+    @Test
+    public void helpersThatUseTimeAreNotKept() {
+        ExpressionContext context = new ExpressionContext();
+        context.define("s = 0; r(t) = 1 + s cos(5t); q(t) = 2 sin(t)");
+        CompiledExpression expression = EquationParser.compile("r(t) t^2 + q(t) s", context);
+        double[] tValues = evenlySpaced(0, 7, 300);
+        assertMatchesWholeExpression(expression, context, tValues);
+        // t^2 and q(t)
+        assertEquals(2, new AnimatedExpression(expression, "s", tValues).getNumCachedParts());
+    }
+
+    @Test
+    public void partsAreEvaluatedAgainOnlyWhenSomethingElseChanges() {
+        ExpressionContext context = new ExpressionContext();
+        context.define("s = 0; a = 1");
+        CompiledExpression expression = EquationParser.compile("countingsin(a t) + s", context);
+        double[] tValues = evenlySpaced(0, 1, 500);
+        AnimatedExpression animated = new AnimatedExpression(expression, "s", tValues);
+        double[] results = new double[tValues.length];
+
+        countingSin.count = 0;
+        animated.evaluate(results);
+        assertEquals(tValues.length, countingSin.count);
+        for (int frame = 1; frame <= 10; frame++) {
+            context.setParameter("s", frame);
+            animated.evaluate(results);
+        }
+        assertEquals(tValues.length, countingSin.count);
+        assertEquals(Math.sin(tValues[250]) + 10, results[250], 1e-12);
+
+        context.setParameter("a", 2);
+        animated.evaluate(results);
+        assertEquals(2 * tValues.length, countingSin.count);
+        assertEquals(Math.sin(2 * tValues[250]) + 10, results[250], 1e-12);
+    }
+
+    @Test
+    public void framesOfCurve() {
+        ParametricCurve curve = new CurveSettings("cos(t + s)", "sin(2t)", "t s", 0, 2 * Math.PI, "", false,
+                false, false).createCurve();
+        assertTrue(AnimatedCurve.isAnimated(curve));
+        AnimatedCurve animated = new AnimatedCurve(curve, 1001);
+
+        SampleTable3D frame = animated.sample(0.5);
+        assertEquals(1001, frame.size());
+        assertEquals(0, frame.getT(0));
+        assertEquals(2 * Math.PI, frame.getT(1000));
+        for (int i = 0; i < frame.size(); i += 50) {
+            double t = frame.getT(i);
+            assertEquals(Math.cos(t + 0.5), frame.getX(i), 1e-15);
+            assertEquals(Math.sin(2 * t), frame.getY(i), 1e-15);
+            assertEquals(t * 0.5, frame.getZ(i), 1e-15);
+        }
+        // The same buffers are reused for every frame
+        assertSame(frame, animated.sample(2));
+        assertEquals(Math.cos(frame.getT(10) + 2), frame.getX(10), 1e-15);
+    }
+
+    @Test
+    public void curvesThatDoNotUseTime() {
+        ParametricCurve still = new CurveSettings("cos(t)", "sin(t)", 0, 1, "", false, false).createCurve();
+        assertFalse(AnimatedCurve.isAnimated(still));
+        assertFalse(AnimatedCurve.isAnimated(new ParametricCurve("cos(t)", "sin(t)", 0, 1)));
+        assertThrows(IllegalArgumentException.class, () -> new AnimatedCurve(new ParametricCurve("t", "t", 0, 1), 10));
+        assertThrows(IllegalArgumentException.class, () -> new AnimatedCurve(still, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AnimatedExpression(EquationParser.compile("t"), "s", new double[1]));
+    }
+}
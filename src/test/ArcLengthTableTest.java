@@ -0,0 +1,64 @@
+import curve.ArcLengthTable;
+import curve.EquationParser;
+import curve.ParametricCurve;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArcLengthTableTest {
+    private ArcLengthTable circleTable;
+    private ArcLengthTable cubicTable;
+
+    @BeforeEach
+    public void initializeTables() {
+        circleTable = new ArcLengthTable(EquationParser.compile("3cos(t)"),
+                EquationParser.compile("3sin(t)"), 0, 2 * Math.PI, 10000);
+        cubicTable = new ArcLengthTable(EquationParser.compile("t^3"),
+                EquationParser.compile("0"), 0, 2, 1000);
+    }
+
+    @Test
+    public void totalLength() {
+        assertEquals(6 * Math.PI, circleTable.getTotalLength(), 1e-5);
+        assertEquals(8, cubicTable.getTotalLength(), 1e-9);
+    }
+
+    @Test
+    public void lookUpT() {
+        assertEquals(0, circleTable.getT(-1));
+        assertEquals(2 * Math.PI, circleTable.getT(100));
+        assertEquals(1, circleTable.getT(3), 1e-6);
+        assertEquals(Math.PI, circleTable.getTAtFraction(0.5), 1e-6);
+
+        // The cubic covers length t^3 by time t.
+        assertEquals(Math.cbrt(2), cubicTable.getT(2), 1e-3);
+        assertEquals(1.5, cubicTable.getT(3.375), 1e-3);
+    }
+
+    @Test
+    public void constantLengthCurveFallsBackToLinearT() {
+        ArcLengthTable pointTable = new ArcLengthTable(EquationParser.compile("1"),
+                EquationParser.compile("2"), 0, 4, 100);
+        assertEquals(0, pointTable.getTotalLength());
+        assertEquals(1, pointTable.getTAtFraction(0.25));
+    }
+
+    @Test
+    public void constantSpeedTracing() {
+        ParametricCurve curve = new ParametricCurve("t^3", "0", 0, 2);
+        curve.setConstantSpeed(true);
+        assertTrue(curve.isConstantSpeed());
+
+        curve.update();
+        double previousX = curve.getCurrentXCoord();
+        curve.update();
+        double firstStep = curve.getCurrentXCoord() - previousX;
+        for (int i = 0; i < 500; i++) {
+            previousX = curve.getCurrentXCoord();
+            curve.update();
+            assertEquals(firstStep, curve.getCurrentXCoord() - previousX, 1e-4);
+        }
+
+        curve.setConstantSpeed(false);
+        assertFalse(curve.isConstantSpeed());
+    }
+}
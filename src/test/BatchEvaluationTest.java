@@ -0,0 +1,112 @@
+import curve.CompiledExpression;
+import curve.EquationParser;
+import curve.ExpressionContext;
+import curve.FastMath;
+import org.junit.jupiter.api.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchEvaluationTest {
+    private static double[] tValues(int count) {
+        double[] tValues = new double[count];
+        for (int i = 0; i < count; i++) {
+            tValues[i] = -20 + 40.0 * i / count;
+        }
+        return tValues;
+    }
+
+    @Test
+    public void matchesEvaluationAtEachValue() {
+        ExpressionContext context = new ExpressionContext();
+        context.define("a = 2; r(t) = 1 + a cos(5t)");
+        String[] expressions = {"t", "3", "-t^2 + 2t - 1 / (t - 1)", "a r(t) sin(t)", "t mod 3",
+                "sqrt(t) + abs(t) * floor(t)", "tan(t) / exp(t / 10)", "ln(t) - log(t) + arctan(t)"};
+        double[] tValues = tValues(1000);
+        for (String expression : expressions) {
+            CompiledExpression compiled = EquationParser.compile(expression, context);
+            double[] results = new double[tValues.length];
+            compiled.evaluate(tValues, results, tValues.length);
+            for (int i = 0; i < tValues.length; i++) {
+                assertEquals(compiled.evaluate(tValues[i]), results[i], expression + " at " + tValues[i]);
+            }
+        }
+    }
+
+    @Test
+    public void helpersDoNotAllocateBlocks() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        Assumptions.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        ExpressionContext context = new ExpressionContext();
+        context.define("r(t) = 1 + 0.5cos(3t); s(t) = r(t)^2 - t / (1 + r(t))");
+        CompiledExpression compiled = EquationParser.compile("s(t)cos(t) + r(2t)sin(t)", context);
+        double[] tValues = tValues(100_000);
+        double[] results = new double[tValues.length];
+        compiled.evaluate(tValues, results, tValues.length);
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        compiled.evaluate(tValues, results, tValues.length);
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+        // The helpers are called once per block of 256 values, 391 times each
+        assertTrue(allocated < 16 * 1024, allocated + " bytes allocated");
+    }
+
+    @Test
+    public void resultsCanReplaceTValues() {
+        CompiledExpression compiled = EquationParser.compile("2t + 1");
+        double[] values = tValues(700);
+        double[] expected = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            expected[i] = compiled.evaluate(values[i]);
+        }
+        // Only the first count values are evaluated
+        compiled.evaluate(values, values, 600);
+        for (int i = 0; i < 600; i++) {
+            assertEquals(expected[i], values[i]);
+        }
+        assertEquals(tValues(700)[600], values[600]);
+
+        assertThrows(IllegalArgumentException.class, () -> compiled.evaluate(values, new double[10], 11));
+        assertThrows(IllegalArgumentException.class, () -> compiled.evaluate(values, values, -1));
+    }
+
+    @Test
+    public void fastMathIsAccurate() {
+        CompiledExpression sinAndCos = EquationParser.compile("sin(t) + 2cos(3t)").withFastMath(true);
+        CompiledExpression tan = EquationParser.compile("tan(t / 2)").withFastMath(true);
+        double[] tValues = tValues(5000);
+        double[] sinAndCosResults = new double[tValues.length];
+        double[] tanResults = new double[tValues.length];
+        sinAndCos.evaluate(tValues, sinAndCosResults, tValues.length);
+        tan.evaluate(tValues, tanResults, tValues.length);
+        for (int i = 0; i < tValues.length; i++) {
+            double t = tValues[i];
+            assertEquals(Math.sin(t) + 2 * Math.cos(3 * t), sinAndCosResults[i], 1e-12);
+            // The error of tan grows near its poles
+            double expectedTan = Math.tan(t / 2);
+            assertEquals(expectedTan, tanResults[i], 1e-12 * Math.max(1, expectedTan * expectedTan));
+        }
+    }
+
+    @Test
+    public void polynomialSinAndCos() {
+        double[] x = {0, 1e-300, -0.5, Math.PI / 2, Math.PI, -3 * Math.PI, 12345.678, 999999, 1e7, 1e300,
+                Double.NaN, Double.POSITIVE_INFINITY, -Double.MIN_VALUE};
+        double[] sin = new double[x.length];
+        double[] cos = new double[x.length];
+        FastMath.sin(x, sin, x.length);
+        FastMath.cos(x, cos, x.length);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(Math.sin(x[i]), sin[i], 1e-13, "sin " + x[i]);
+            assertEquals(Math.cos(x[i]), cos[i], 1e-13, "cos " + x[i]);
+        }
+        assertTrue(Double.isNaN(sin[10]) && Double.isNaN(sin[11]));
+    }
+}
@@ -0,0 +1,53 @@
+import curve.DualNumber;
+import curve.FunctionRegistry;
+import curve.Interval;
+import curve.MathFunction;
+
+/**
+ * Behaves like sin, but counts how many times it is evaluated. A test registers one with
+ * {@link #register()} before it runs and unregisters it with {@link #unregister()}
+ * afterwards, so that no other test can parse "countingsin".
+ */
+final class CountingSin extends MathFunction {
+    static final String NAME = "countingsin";
+
+    int count;
+
+    private CountingSin() {
+        super(NAME);
+    }
+
+    /**
+     * @return a new CountingSin, which has been registered under the name "countingsin"
+     */
+    static CountingSin register() {
+        CountingSin countingSin = new CountingSin();
+        FunctionRegistry.register(countingSin);
+        return countingSin;
+    }
+
+    /**
+     * Unregisters the CountingSin that was last registered, if there is one.
+     */
+    static void unregister() {
+        if (FunctionRegistry.isFunction(NAME)) {
+            FunctionRegistry.unregister(NAME);
+        }
+    }
+
+    @Override
+    public double apply(double x) {
+        count++;
+        return Math.sin(x);
+    }
+
+    @Override
+    public Interval apply(Interval x) {
+        return x.sin();
+    }
+
+    @Override
+    public DualNumber apply(DualNumber x) {
+        return x.sin();
+    }
+}
@@ -0,0 +1,156 @@
+import curve.ExpressionContext;
+import curve.ParametricCurve;
+import curve.Projection;
+import curve.RenderCache;
+import curve.SampleTable3D;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import ui.CurveTrace;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Curve3DTest {
+    @TempDir
+    File tempDir;
+
+    private static ParametricCurve createHelix() {
+        return new ParametricCurve("2cos(t)", "2sin(t)", "t / 4", 0, 12, new ExpressionContext());
+    }
+
+    @Test
+    public void projection() {
+        Projection top = new Projection(0, 0);
+        assertEquals(1.5, top.projectX(1.5, -2, 7));
+        assertEquals(-2, top.projectY(1.5, -2, 7));
+
+        // Turning a quarter of the way round the z-axis takes the x-axis to the y-axis,
+        // and tilting by -pi/2 makes the z-axis point up the screen
+        Projection turned = new Projection(Math.PI / 2, 0);
+        assertEquals(0, turned.projectX(1, 0, 0), 1e-15);
+        assertEquals(1, turned.projectY(1, 0, 0), 1e-15);
+        Projection side = new Projection(0, -Math.PI / 2);
+        assertEquals(0, side.projectX(0, 0, 1), 1e-15);
+        assertEquals(1, side.projectY(0, 0, 1), 1e-15);
+
+        // With perspective, nearer points are drawn farther out, and points behind the
+        // camera are undefined
+        Projection perspective = top.withPerspective(true);
+        assertEquals(2, perspective.projectX(1, 0, 10), 1e-15);
+        assertEquals(0.5, perspective.projectY(0, 1, -20), 1e-15);
+        assertTrue(Double.isNaN(perspective.projectX(1, 1, 25)));
+
+        Random random = new Random(3);
+        int count = 1001;
+        double[] x = new double[count];
+        double[] y = new double[count];
+        double[] z = new double[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = random.nextGaussian() * 10;
+            y[i] = random.nextGaussian() * 10;
+            z[i] = random.nextGaussian() * 10;
+        }
+        double[] screenX = new double[count];
+        double[] screenY = new double[count];
+        for (Projection projection : new Projection[] {new Projection(0.3, -1.1),
+                new Projection(2, 0.5, true, 15)}) {
+            projection.project(x, y, z, screenX, screenY, count);
+            for (int i = 0; i < count; i++) {
+                assertEquals(projection.projectX(x[i], y[i], z[i]), screenX[i]);
+                assertEquals(projection.projectY(x[i], y[i], z[i]), screenY[i]);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> top.project(x, y, z, screenX, new double[1], count));
+        assertThrows(IllegalArgumentException.class, () -> new Projection(0, 0, true, 0));
+    }
+
+    @Test
+    public void curveInSpace() {
+        ParametricCurve helix = createHelix();
+        assertTrue(helix.is3D());
+        assertFalse(new ParametricCurve("t", "t", 0, 1).is3D());
+        for (int i = 0; i < ParametricCurve.APPROX_NUM_POINTS + 10; i++) {
+            helix.update();
+            double t = helix.getCurrentT();
+            assertEquals(2 * Math.cos(t), helix.getCurrentXCoord(), 1e-15);
+            assertEquals(t / 4, helix.getCurrentZCoord(), 1e-15);
+        }
+
+        SampleTable3D ticks = helix.getTickSamples(false);
+        assertEquals(3, ticks.getZ(0));
+        assertEquals(ticks.getT(7) / 4, ticks.getZ(7), 1e-15);
+
+        // The cached table holds the z-coordinates too
+        ParametricCurve cached = createHelix();
+        cached.useCache(new RenderCache(1 << 20, tempDir));
+        ParametricCurve reopened = createHelix();
+        reopened.useCache(new RenderCache(1 << 20, tempDir));
+        for (int i = 0; i < 10; i++) {
+            reopened.update();
+        }
+        assertEquals(reopened.getCurrentT() / 4, reopened.getCurrentZCoord(), 1e-15);
+    }
+
+    @Test
+    public void constantSpeedInSpace() {
+        // Viewed from above, x = t is traced at constant speed, but the curve climbs
+        // faster and faster, so it covers its first half of arc length well before t = 0.5
+        ParametricCurve curve = new ParametricCurve("t", "0", "3t^2", 0, 1, new ExpressionContext());
+        curve.setConstantSpeed(true);
+        curve.seekToFraction(0.25);
+        assertTrue(curve.getCurrentT() > 0.5, "t = " + curve.getCurrentT());
+
+        ParametricCurve flat = new ParametricCurve("t", "0", 0, 1);
+        flat.setConstantSpeed(true);
+        flat.seekToFraction(0.25);
+        assertEquals(0.5, flat.getCurrentT(), 1e-9);
+    }
+
+    @Test
+    public void rotatingReprojectsTracedPoints() {
+        Projection first = new Projection(-0.5, -1);
+        Projection second = first.rotate(1.2, 0.4).withPerspective(true);
+
+        ParametricCurve helix = createHelix();
+        CurveTrace rotated = TestImages.createTrace();
+        rotated.setProjection(first);
+        rotated.advance(helix, 1500);
+        int[] firstPixels = TestImages.paint(rotated);
+        rotated.setProjection(second);
+
+        ParametricCurve otherHelix = createHelix();
+        CurveTrace expected = TestImages.createTrace();
+        expected.setProjection(second);
+        expected.advance(otherHelix, 1500);
+        assertArrayEquals(TestImages.paint(expected), TestImages.paint(rotated));
+        assertFalse(Arrays.equals(firstPixels, TestImages.paint(rotated)));
+
+        // Rotating back draws exactly the same picture, and points traced after
+        // rotating are projected the same way as the rest
+        rotated.setProjection(first);
+        assertArrayEquals(firstPixels, TestImages.paint(rotated));
+        rotated.setProjection(second);
+        rotated.advance(helix, 300);
+        expected.advance(otherHelix, 300);
+        assertArrayEquals(TestImages.paint(expected), TestImages.paint(rotated));
+
+        // Seeking rebuilds the points of a curve in space too
+        CurveTrace sought = TestImages.createTrace();
+        sought.setProjection(second);
+        sought.seek(helix);
+        assertArrayEquals(TestImages.paint(expected), TestImages.paint(sought));
+    }
+
+    @Test
+    public void viewedFromAboveLikeCurveInPlane() {
+        CurveTrace space = TestImages.createTrace();
+        space.setProjection(new Projection(0, 0));
+        space.advance(createHelix(), 700);
+        CurveTrace plane = TestImages.createTrace();
+        plane.advance(new ParametricCurve("2cos(t)", "2sin(t)", 0, 12), 700);
+        assertArrayEquals(TestImages.paint(plane), TestImages.paint(space));
+    }
+}
@@ -0,0 +1,109 @@
+import curve.AbstractCurveSource;
+import curve.CurveSource;
+import curve.EquationParser;
+import curve.ParametricCurve;
+import curve.RenderCache;
+import org.junit.jupiter.api.*;
+import ui.CurveImageRenderer;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CurveSourceTest {
+    // An ellipse written in Java instead of as equations
+    private static CurveSource createEllipse() {
+        return new AbstractCurveSource(0, 2 * Math.PI) {
+            @Override
+            public double getX(double t) {
+                return 2 * Math.cos(t);
+            }
+
+            @Override
+            public double getY(double t) {
+                return Math.sin(t);
+            }
+        };
+    }
+
+    @Test
+    public void traceSource() {
+        ParametricCurve curve = new ParametricCurve(createEllipse());
+        ParametricCurve equations = new ParametricCurve("2cos(t)", "sin(t)", 0, 2 * Math.PI);
+        assertEquals(equations.getTIncrement(), curve.getTIncrement());
+        for (int i = 0; i < 3 * ParametricCurve.APPROX_NUM_POINTS; i++) {
+            curve.update();
+            equations.update();
+            assertEquals(equations.getCurrentT(), curve.getCurrentT());
+            assertEquals(equations.getCurrentXCoord(), curve.getCurrentXCoord(), 1e-15);
+            assertEquals(equations.getCurrentYCoord(), curve.getCurrentYCoord(), 1e-15);
+        }
+
+        curve.seekToFraction(0.5);
+        equations.seekToFraction(0.5);
+        assertEquals(equations.getCurrentXCoord(), curve.getCurrentXCoord(), 1e-15);
+        assertEquals(equations.getTickSamples(false).size(), curve.getTickSamples(false).size());
+
+        curve.setConstantSpeed(true);
+        equations.setConstantSpeed(true);
+        curve.seekToFraction(0.25);
+        equations.seekToFraction(0.25);
+        assertEquals(equations.getCurrentT(), curve.getCurrentT(), 1e-12);
+    }
+
+    @Test
+    public void sourceWithoutEquations() {
+        ParametricCurve curve = new ParametricCurve(createEllipse());
+        assertNull(curve.getXExpression());
+        assertFalse(curve.hasDerivatives());
+        assertThrows(UnsupportedOperationException.class, () -> curve.getSpeed(1));
+        assertThrows(UnsupportedOperationException.class, () -> curve.sampleAdaptively(0.01));
+
+        curve.setFastMath(true);
+        assertFalse(curve.isFastMath());
+
+        // Sources cannot be told apart, so they are never cached
+        RenderCache cache = new RenderCache(1 << 20);
+        curve.useCache(cache);
+        assertEquals(ParametricCurve.APPROX_NUM_POINTS, curve.getTickSamples(true).size());
+        assertEquals(0, cache.getMemoryBytes());
+    }
+
+    @Test
+    public void curveIsSource() {
+        ParametricCurve equations = new ParametricCurve("t^2", "1 / t", -1, 1);
+        assertTrue(equations.hasDerivatives());
+        assertEquals(-2, equations.getXDerivatives(-1).getDerivative());
+
+        double[] tValues = {-1, -0.5, 0, 0.25, 1};
+        double[] xValues = new double[tValues.length];
+        double[] yValues = new double[tValues.length];
+        equations.evaluate(tValues, xValues, yValues, tValues.length);
+        for (int i = 0; i < tValues.length; i++) {
+            assertEquals(equations.getX(tValues[i]), xValues[i]);
+            assertEquals(equations.getY(tValues[i]), yValues[i]);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> equations.evaluate(tValues, xValues, new double[2], tValues.length));
+
+        // A curve traced from another curve follows its equations
+        ParametricCurve copy = new ParametricCurve(equations);
+        for (int i = 0; i < ParametricCurve.APPROX_NUM_POINTS; i++) {
+            copy.update();
+            equations.update();
+            assertEquals(equations.getCurrentXCoord(), copy.getCurrentXCoord());
+            assertEquals(equations.getCurrentYCoord(), copy.getCurrentYCoord());
+        }
+    }
+
+    @Test
+    public void renderSource() {
+        BufferedImage expected = CurveImageRenderer.render(EquationParser.compile("2cos(t)"),
+                EquationParser.compile("sin(t)"), 0, 2 * Math.PI, 5000, 300, 200);
+        assertArrayEquals(TestImages.pixels(expected), TestImages.pixels(CurveImageRenderer.render(createEllipse(), 5000, 300, 200, false)));
+        assertArrayEquals(TestImages.pixels(CurveImageRenderer.render(EquationParser.compile("2cos(t)"),
+                        EquationParser.compile("sin(t)"), 0, 2 * Math.PI, 5000, 300, 200, true)),
+                TestImages.pixels(CurveImageRenderer.render(createEllipse(), 5000, 300, 200, true)));
+        assertThrows(IllegalArgumentException.class, () -> CurveImageRenderer.render(createEllipse(), 0, 300, 200, false));
+    }
+}
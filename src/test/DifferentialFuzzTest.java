@@ -0,0 +1,429 @@
+import curve.AnimatedExpression;
+import curve.CompiledExpression;
+import curve.EquationParser;
+import curve.ExpressionContext;
+import curve.Interval;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Generates random expressions in the syntax that EquationParser.tokenize accepts, and
+ * checks that every way of evaluating them agrees with EquationParser.evaluate. A failing
+ * expression is shrunk to a smallest one that still fails in the same way before it is
+ * reported. The seed and number of expressions can be changed with -Dfuzz.seed and
+ * -Dfuzz.iterations for a longer run.
+ */
+public class DifferentialFuzzTest {
+    private static final long SEED = Long.getLong("fuzz.seed", 48);
+    private static final int ITERATIONS = Integer.getInteger("fuzz.iterations", 1000);
+
+    // More than one block of batch evaluation, and not a multiple of the block size
+    private static final int NUM_T_VALUES = 300;
+
+    // How far the exact backends may be from EquationParser.evaluate
+    private static final long MAX_ULPS = 0;
+
+    // An expression that takes longer than this to check counts as a failure
+    private static final long SLOW_NANOS = 2_000_000_000L;
+
+    // The value of the parameter s, which expressions may refer to
+    private static final double S = 0.75;
+
+    private static final String[] FUNCTIONS = {"sin", "cos", "tan", "exp", "ln", "log", "sqrt", "abs",
+            "arcsin", "arccos", "arctan", "sinh", "cosh", "tanh", "floor"};
+    private static final String[] LEAVES = {"t", "t", "t", "s", "0", "1", "2", "3", "0.5", "10", "1000", "0.001",
+            "pi", "e"};
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "^", "mod"};
+    private static final double[] SPECIAL_T_VALUES = {0, -0.0, 1, -1, 0.5, Math.PI / 2, 1e-300, -1e-300, 1e300,
+            -1e300, Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY};
+
+    /**
+     * An expression tree: a leaf, a unary minus, a function call or a binary operation.
+     */
+    private static final class Node {
+        final String token;
+        final Node left;
+        final Node right;
+
+        Node(String token, Node left, Node right) {
+            this.token = token;
+            this.left = left;
+            this.right = right;
+        }
+
+        static Node leaf(String token) {
+            return new Node(token, null, null);
+        }
+
+        boolean isLeaf() {
+            return left == null;
+        }
+
+        boolean isUnaryMinus() {
+            return token.equals("-") && right == null && left != null;
+        }
+
+        boolean isFunction() {
+            return !isLeaf() && right == null && !isUnaryMinus();
+        }
+
+        int size() {
+            return 1 + (left == null ? 0 : left.size()) + (right == null ? 0 : right.size());
+        }
+
+        /**
+         * @return the size of this tree plus the number of its leaves other than t and 1,
+         * which every shrink step reduces
+         */
+        int weight() {
+            int weight = isLeaf() && !token.equals("t") && !token.equals("1") ? 2 : 1;
+            return weight + (left == null ? 0 : left.weight()) + (right == null ? 0 : right.weight());
+        }
+
+        /**
+         * @return true if this tree has a node with the given token
+         */
+        boolean contains(String token) {
+            return this.token.equals(token) || (left != null && left.contains(token))
+                    || (right != null && right.contains(token));
+        }
+
+        List<Node> children() {
+            List<Node> children = new ArrayList<Node>();
+            if (left != null) {
+                children.add(left);
+            }
+            if (right != null) {
+                children.add(right);
+            }
+            return children;
+        }
+    }
+
+    private static int precedence(String operator) {
+        switch (operator) {
+            case "+":
+            case "-":
+                return 1;
+            case "^":
+                return 3;
+            default:
+                return 2;
+        }
+    }
+
+    private static Node generate(Random random, int depth) {
+        int choice = depth == 0 ? 0 : random.nextInt(10);
+        if (choice < 3) {
+            return Node.leaf(LEAVES[random.nextInt(LEAVES.length)]);
+        } else if (choice < 4) {
+            return new Node("-", generate(random, depth - 1), null);
+        } else if (choice < 6) {
+            return new Node(FUNCTIONS[random.nextInt(FUNCTIONS.length)], generate(random, depth - 1), null);
+        } else {
+            return new Node(OPERATORS[random.nextInt(OPERATORS.length)], generate(random, depth - 1),
+                    generate(random, depth - 1));
+        }
+    }
+
+    /**
+     * @return the given tree written as an infix expression that parses back into it.
+     * Parentheses are left out where precedence allows, products are sometimes written
+     * as implicit multiplication, and spaces are sprinkled in, all decided by random.
+     */
+    private static String print(Node node, Random random) {
+        if (node.isLeaf()) {
+            return node.token;
+        }
+        if (node.isUnaryMinus()) {
+            String operand = print(node.left, random);
+            return "-" + (node.left.isLeaf() || node.left.isFunction() ? operand : "(" + operand + ")");
+        }
+        if (node.isFunction()) {
+            return node.token + "(" + print(node.left, random) + ")";
+        }
+
+        int precedence = precedence(node.token);
+        String left = print(node.left, random);
+        String right = print(node.right, random);
+        // ^ is right-associative, and binds a unary minus or function call on its left
+        // into its base, so "-t^2" is -(t^2) and "sin(t)^2" is sin(t^2)
+        boolean leftNeedsBrackets = node.token.equals("^")
+                ? !node.left.isLeaf()
+                : !node.left.isLeaf() && !node.left.isFunction() && !node.left.isUnaryMinus()
+                        && precedence(node.left.token) < precedence;
+        boolean rightNeedsBrackets = !node.right.isLeaf() && !node.right.isFunction() && !node.right.isUnaryMinus()
+                && (precedence(node.right.token) < precedence
+                    || (precedence(node.right.token) == precedence && !node.token.equals("^")));
+        if (leftNeedsBrackets || random.nextInt(8) == 0) {
+            left = "(" + left + ")";
+        }
+        if (rightNeedsBrackets || random.nextInt(8) == 0) {
+            right = "(" + right + ")";
+        }
+
+        String space = random.nextBoolean() ? " " : "";
+        if (node.token.equals("*") && !right.startsWith("-") && random.nextBoolean()) {
+            // Implicit multiplication, unless it would run two numbers together
+            boolean digits = Character.isDigit(left.charAt(left.length() - 1)) && Character.isDigit(right.charAt(0));
+            if (!digits) {
+                return left + " " + right;
+            }
+        }
+        if (node.token.equals("mod")) {
+            space = " ";
+        }
+        return left + space + node.token + space + right;
+    }
+
+    private static long ulpDistance(double expected, double actual) {
+        if (Double.isNaN(expected) || Double.isNaN(actual)) {
+            return Double.isNaN(expected) && Double.isNaN(actual) ? 0 : Long.MAX_VALUE;
+        }
+        if (expected == actual) {
+            return 0;
+        }
+        if (Double.isInfinite(expected) || Double.isInfinite(actual)) {
+            return Long.MAX_VALUE;
+        }
+        // Map doubles onto a line of integers that is ordered like the doubles
+        long a = Double.doubleToLongBits(expected);
+        long b = Double.doubleToLongBits(actual);
+        a = a < 0 ? Long.MIN_VALUE - a : a;
+        b = b < 0 ? Long.MIN_VALUE - b : b;
+        return Math.abs(a - b);
+    }
+
+    private static String mismatch(String backend, double t, double expected, double actual) {
+        if (ulpDistance(expected, actual) <= MAX_ULPS) {
+            return null;
+        }
+        return backend + " at t = " + t + ": expected " + expected + " but was " + actual;
+    }
+
+    /**
+     * @return a description of the first way in which the backends disagree on the given
+     * expression at the given t values, or null if they all agree
+     */
+    private static String check(String expression, double[] tValues) {
+        ExpressionContext context = new ExpressionContext();
+        context.setParameter("s", S);
+        Queue<String> postfix;
+        CompiledExpression compiled;
+        try {
+            postfix = EquationParser.infixToPostfix(expression, context);
+            compiled = EquationParser.compile(postfix, context);
+        } catch (IllegalArgumentException e) {
+            return "does not parse: " + e.getMessage();
+        }
+        // EquationParser.evaluate does not know about parameters
+        Queue<String> reference = new LinkedList<String>();
+        for (String token : postfix) {
+            reference.add(token.equals("s") ? Double.toString(S) : token);
+        }
+
+        double[] expected = new double[tValues.length];
+        for (int i = 0; i < tValues.length; i++) {
+            expected[i] = EquationParser.evaluate(reference, tValues[i]);
+        }
+
+        double[] batch = new double[tValues.length];
+        compiled.evaluate(tValues, batch, tValues.length);
+        AnimatedExpression animated = new AnimatedExpression(compiled, "s", tValues);
+        double[] animatedFirst = new double[tValues.length];
+        double[] animatedAgain = new double[tValues.length];
+        animated.evaluate(animatedFirst);
+        context.setParameter("s", S);
+        animated.evaluate(animatedAgain);
+
+        for (int i = 0; i < tValues.length; i++) {
+            double t = tValues[i];
+            String failure = mismatch("compiled", t, expected[i], compiled.evaluate(t));
+            if (failure == null) {
+                failure = mismatch("batch", t, expected[i], batch[i]);
+            }
+            if (failure == null) {
+                failure = mismatch("animated", t, expected[i], animatedFirst[i]);
+            }
+            if (failure == null) {
+                failure = mismatch("animated with kept parts", t, expected[i], animatedAgain[i]);
+            }
+            if (failure == null) {
+                failure = mismatch("dual number", t, expected[i], compiled.evaluateDerivatives(t).getValue());
+            }
+            if (failure == null && Double.isFinite(expected[i])) {
+                Interval interval = compiled.evaluate(Interval.of(t));
+                if (interval.isBounded() && !interval.contains(expected[i])) {
+                    failure = "interval at t = " + t + ": [" + interval.getLower() + ", " + interval.getUpper()
+                            + "] does not contain " + expected[i];
+                }
+            }
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the failure of the given tree at the given t values, including crashes and
+     * slow checks, or null if there is none
+     */
+    private static String failureOf(Node tree, double[] tValues, Random printing) {
+        String expression = print(tree, printing);
+        long start = System.nanoTime();
+        String failure;
+        try {
+            failure = check(expression, tValues);
+        } catch (RuntimeException | StackOverflowError e) {
+            failure = "crash: " + e;
+        }
+        if (failure == null && System.nanoTime() - start > SLOW_NANOS) {
+            failure = "slow";
+        }
+        return failure;
+    }
+
+    /**
+     * @return the trees that are one step smaller (in weight) than the given one: each
+     * node replaced by one of its children, or by t or 1
+     */
+    private static List<Node> shrinkSteps(Node tree) {
+        List<Node> steps = new ArrayList<Node>();
+        if (tree.isLeaf()) {
+            if (!tree.token.equals("t") && !tree.token.equals("1")) {
+                steps.add(Node.leaf("1"));
+                steps.add(Node.leaf("t"));
+            }
+            return steps;
+        }
+        steps.addAll(tree.children());
+        steps.add(Node.leaf("t"));
+        steps.add(Node.leaf("1"));
+        for (Node left : shrinkSteps(tree.left)) {
+            steps.add(new Node(tree.token, left, tree.right));
+        }
+        if (tree.right != null) {
+            for (Node right : shrinkSteps(tree.right)) {
+                steps.add(new Node(tree.token, tree.left, right));
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * @return a smallest tree, reached by taking shrink steps, that fails at the given
+     * t values in the same way as the given one
+     */
+    private static Node shrink(Node tree, double[] tValues, long printingSeed) {
+        return shrink(tree, step -> failureOf(step, tValues, new Random(printingSeed)));
+    }
+
+    /**
+     * @return a smallest tree, reached by taking shrink steps, that fails in the same
+     * way as the given one (i.e. with a failure that starts with the same word), where
+     * failures gives the failure of a tree, or null if it does not fail
+     */
+    private static Node shrink(Node tree, Function<Node, String> failures) {
+        String kind = failures.apply(tree).split(" ")[0];
+        boolean shrunk = true;
+        while (shrunk) {
+            shrunk = false;
+            for (Node step : shrinkSteps(tree)) {
+                String failure = failures.apply(step);
+                if (step.weight() < tree.weight() && failure != null && failure.startsWith(kind)) {
+                    tree = step;
+                    shrunk = true;
+                    break;
+                }
+            }
+        }
+        return tree;
+    }
+
+    private static double[] randomTValues(Random random) {
+        double[] tValues = new double[NUM_T_VALUES];
+        for (int i = 0; i < tValues.length; i++) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    tValues[i] = SPECIAL_T_VALUES[random.nextInt(SPECIAL_T_VALUES.length)];
+                    break;
+                case 1:
+                    tValues[i] = -20 + 40 * random.nextDouble();
+                    break;
+                default:
+                    // Any magnitude
+                    tValues[i] = (random.nextBoolean() ? 1 : -1) * Math.pow(10, -300 + 600 * random.nextDouble());
+                    break;
+            }
+        }
+        return tValues;
+    }
+
+    @Test
+    public void backendsAgreeWithEquationParser() {
+        Random random = new Random(SEED);
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            Node tree = generate(random, 1 + random.nextInt(6));
+            double[] tValues = randomTValues(random);
+            long printingSeed = random.nextLong();
+            String failure = failureOf(tree, tValues, new Random(printingSeed));
+            if (failure != null) {
+                Node smallest = shrink(tree, tValues, printingSeed);
+                fail("Seed " + SEED + ", iteration " + iteration + ": " + print(smallest, new Random(printingSeed))
+                        + " (shrunk from " + print(tree, new Random(printingSeed)) + "): "
+                        + failureOf(smallest, tValues, new Random(printingSeed)));
+            }
+        }
+    }
+
+    @Test
+    public void printedExpressionsKeepTheirStructure() {
+        Random random = new Random(SEED);
+        // t - (t - t) and 2^(3^t) need brackets and implicit multiplication must not
+        // join numbers; the parser must read back the same tree every time
+        Node difference = new Node("-", Node.leaf("t"), new Node("-", Node.leaf("t"), Node.leaf("1")));
+        Node tower = new Node("^", Node.leaf("2"), new Node("^", Node.leaf("3"), Node.leaf("t")));
+        Node product = new Node("*", Node.leaf("2"), Node.leaf("3"));
+        Node squaredSine = new Node("^", new Node("sin", Node.leaf("t"), null), Node.leaf("2"));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(1.0, EquationParser.evaluate(print(difference, random), 5));
+            assertEquals(Math.pow(2, 9), EquationParser.evaluate(print(tower, random), 2));
+            assertEquals(6.0, EquationParser.evaluate(print(product, random), 0));
+            assertEquals(Math.pow(Math.sin(2), 2), EquationParser.evaluate(print(squaredSine, random), 2));
+        }
+    }
+
+    @Test
+    public void shrinkingFindsSmallestFailure() {
+        // Pretend that every expression containing a division fails, and that every
+        // other expression containing a product fails in a different way. The first
+        // shrink step, 2 * e, fails only in the other way, so it must not be taken.
+        Function<Node, String> failures = tree -> tree.contains("/") ? "division by 3"
+                : tree.contains("*") ? "product" : null;
+        Node tree = new Node("+", new Node("*", Node.leaf("2"), Node.leaf("e")),
+                new Node("sin", new Node("/", Node.leaf("t"), Node.leaf("3")), null));
+        assertTrue(shrinkSteps(tree).stream().allMatch(step -> step.weight() < tree.weight()));
+
+        Node smallest = shrink(tree, failures);
+        assertEquals(3, smallest.size());
+        assertEquals("/", smallest.token);
+        assertEquals("division by 3", failures.apply(smallest));
+        // Every leaf is shrunk to t or 1 as well
+        assertEquals("t", smallest.left.token);
+        assertEquals("1", smallest.right.token);
+
+        Node product = shrink(new Node("-", new Node("*", Node.leaf("t"), Node.leaf("pi")), null), failures);
+        assertEquals(3, product.size());
+        assertEquals("*", product.token);
+    }
+}
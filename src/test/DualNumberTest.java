@@ -0,0 +1,76 @@
+import curve.CompiledExpression;
+import curve.DualNumber;
+import curve.EquationParser;
+import curve.ParametricCurve;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DualNumberTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void derivativesOfPolynomials() {
+        CompiledExpression expression = EquationParser.compile("3t^3 - 2t + 7");
+        double t = 1.7;
+        DualNumber result = expression.evaluateDerivatives(t);
+
+        assertEquals(expression.evaluate(t), result.getValue());
+        assertEquals(9 * t * t - 2, result.getDerivative(), DELTA);
+        assertEquals(18 * t, result.getSecondDerivative(), DELTA);
+    }
+
+    @Test
+    public void derivativesOfTrigonometricFunctions() {
+        double t = 0.6;
+
+        DualNumber sine = EquationParser.compile("sin(2t)").evaluateDerivatives(t);
+        assertEquals(2 * Math.cos(2 * t), sine.getDerivative(), DELTA);
+        assertEquals(-4 * Math.sin(2 * t), sine.getSecondDerivative(), DELTA);
+
+        DualNumber cosine = EquationParser.compile("-cos(t)").evaluateDerivatives(t);
+        assertEquals(Math.sin(t), cosine.getDerivative(), DELTA);
+        assertEquals(Math.cos(t), cosine.getSecondDerivative(), DELTA);
+
+        double sec = 1 / Math.cos(t);
+        DualNumber tangent = EquationParser.compile("tan(t)").evaluateDerivatives(t);
+        assertEquals(sec * sec, tangent.getDerivative(), DELTA);
+        assertEquals(2 * Math.tan(t) * sec * sec, tangent.getSecondDerivative(), DELTA);
+    }
+
+    @Test
+    public void derivativesOfQuotientsAndPowers() {
+        double t = 1.3;
+
+        DualNumber quotient = EquationParser.compile("1 / t").evaluateDerivatives(t);
+        assertEquals(-1 / (t * t), quotient.getDerivative(), DELTA);
+        assertEquals(2 / (t * t * t), quotient.getSecondDerivative(), DELTA);
+
+        // (t^t)' = t^t (ln(t) + 1) and (t^t)'' = t^t ((ln(t) + 1)^2 + 1/t)
+        DualNumber power = EquationParser.compile("t^t").evaluateDerivatives(t);
+        double tToTheT = Math.pow(t, t);
+        assertEquals(tToTheT * (Math.log(t) + 1), power.getDerivative(), DELTA);
+        assertEquals(tToTheT * (Math.pow(Math.log(t) + 1, 2) + 1 / t), power.getSecondDerivative(), DELTA);
+
+        DualNumber exponential = EquationParser.compile("2^(3t)").evaluateDerivatives(t);
+        assertEquals(3 * Math.log(2) * Math.pow(2, 3 * t), exponential.getDerivative(), DELTA);
+
+        // The power rule gives 0 * 0^-1 for the second derivative of t^1 at 0
+        DualNumber identity = EquationParser.compile("t^1").evaluateDerivatives(0);
+        assertEquals(0, identity.getValue());
+        assertEquals(1, identity.getDerivative());
+        assertEquals(0, identity.getSecondDerivative());
+        DualNumber square = EquationParser.compile("(2t)^2").evaluateDerivatives(0);
+        assertEquals(0, square.getDerivative());
+        assertEquals(8, square.getSecondDerivative());
+    }
+
+    @Test
+    public void curvatureOfCircle() {
+        ParametricCurve circle = new ParametricCurve("2cos(t)", "2sin(t)", 0, 6.28);
+        assertEquals(0.5, circle.getCurvature(1.2), DELTA);
+        assertEquals(2, circle.getSpeed(1.2), DELTA);
+
+        ParametricCurve clockwiseCircle = new ParametricCurve("2cos(t)", "-2sin(t)", 0, 6.28);
+        assertEquals(-0.5, clockwiseCircle.getCurvature(1.2), DELTA);
+    }
+}
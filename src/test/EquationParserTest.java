@@ -62,7 +62,7 @@ public class EquationParserTest {
         invalidExpression19 = "2..5";
         invalidExpression20 = "3 + 2.";
         invalidExpression21 = "3^-*.4";
-        invalidExpression22 = "arctan(1)";
+        invalidExpression22 = "arctam(1)";
         invalidExpression23 = "3 + 4 --";
         invalidExpression24 = "3 + 4 ^ ";
         invalidExpression25 = "3 + 5cos(3 - (6t^2)"; // mismatched parentheses
@@ -439,6 +439,55 @@ public class EquationParserTest {
         assertEquals(Arrays.asList(expectedTokens21), EquationParser.tokenize(validExpression21));
     }
 
+    @Test
+    public void tokenizeFunctionsConstantsAndMod() {
+        String validExpression1 = "2pi + e^t";
+        String validExpression2 = "sinh(t)arctan(t)";  // sinh is one name, not sin followed by h
+        String validExpression3 = "texp(t)";   // interpreted as t * exp(t)
+        String validExpression4 = "t mod 2pi";
+        String validExpression5 = "ln(t)mod-3";
+        String validExpression6 = "pit";   // interpreted as pi * t
+
+        String[] expectedTokens1 = {"2", "*", "pi", "+", "e", "^", "t"};
+        String[] expectedTokens2 = {"sinh", "(", "t", ")", "*", "arctan", "(", "t", ")"};
+        String[] expectedTokens3 = {"t", "*", "exp", "(", "t", ")"};
+        String[] expectedTokens4 = {"t", EquationParser.MOD_TOKEN, "2", "*", "pi"};
+        String[] expectedTokens5 = {"ln", "(", "t", ")", EquationParser.MOD_TOKEN,
+                EquationParser.UNARY_MINUS_TOKEN, "3"};
+        String[] expectedTokens6 = {"pi", "*", "t"};
+
+        assertEquals(Arrays.asList(expectedTokens1), EquationParser.tokenize(validExpression1));
+        assertEquals(Arrays.asList(expectedTokens2), EquationParser.tokenize(validExpression2));
+        assertEquals(Arrays.asList(expectedTokens3), EquationParser.tokenize(validExpression3));
+        assertEquals(Arrays.asList(expectedTokens4), EquationParser.tokenize(validExpression4));
+        assertEquals(Arrays.asList(expectedTokens5), EquationParser.tokenize(validExpression5));
+        assertEquals(Arrays.asList(expectedTokens6), EquationParser.tokenize(validExpression6));
+
+        assertThrows(IllegalArgumentException.class, () -> EquationParser.tokenize("mod 3"));
+        assertThrows(IllegalArgumentException.class, () -> EquationParser.tokenize("3 mod"));
+        assertThrows(IllegalArgumentException.class, () -> EquationParser.tokenize("pi.5"));
+        assertThrows(IllegalArgumentException.class, () -> EquationParser.tokenize("sec(t)"));
+        assertThrows(IllegalArgumentException.class, () -> EquationParser.tokenize("3 # 4"));
+    }
+
+    @Test
+    public void evaluateFunctionsConstantsAndMod() {
+        double t = 0.37;
+
+        assertEquals(2 * Math.PI + Math.pow(Math.E, t), EquationParser.evaluate("2pi + e^t", t));
+        assertEquals(Math.sqrt(Math.abs(-t)) * Math.log(t) - Math.log10(t),
+                EquationParser.evaluate("sqrt(abs(-t))ln(t) - log(t)", t));
+        assertEquals(Math.asin(t) + Math.acos(t) * Math.atan(t),
+                EquationParser.evaluate("arcsin(t) + arccos(t)arctan(t)", t));
+        assertEquals(Math.sinh(t) - Math.cosh(t) / Math.tanh(t),
+                EquationParser.evaluate("sinh(t) - cosh(t) / tanh(t)", t));
+        assertEquals(Math.floor(10 * t), EquationParser.evaluate("floor(10t)", t));
+        assertEquals(Math.exp(-t * t), EquationParser.evaluate("exp(-t^2)", t));
+        assertEquals(1, EquationParser.evaluate("7 mod 3", t));
+        assertEquals(2, EquationParser.evaluate("-7 mod 3", t));
+        assertEquals(3, EquationParser.evaluate("2 * 7.5 mod 4", t));  // interpreted as (2 * 7.5) mod 4
+    }
+
     @Test
     public void tokenizeInvalidExpressions() {
         assertThrows(IllegalArgumentException.class, () -> EquationParser.tokenize(invalidExpression1));
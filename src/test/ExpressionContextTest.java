@@ -0,0 +1,98 @@
+import curve.CompiledExpression;
+import curve.EquationParser;
+import curve.ExpressionContext;
+import curve.Interval;
+import curve.ParametricCurve;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+public class ExpressionContextTest {
+    private ExpressionContext context;
+
+    @BeforeEach
+    public void initializeContext() {
+        context = new ExpressionContext();
+        context.setParameter("a", 2);
+        context.setParameter("k", 5);
+        context.defineHelper("r", "1 + 0.5cos(k t)");
+    }
+
+    @Test
+    public void tokenizeParametersAndHelpers() {
+        String[] expectedTokens1 = {"a", "*", "r", "(", "t", ")", "*", "cos", "(", "t", ")"};
+        String[] expectedTokens2 = {"2", "*", "a", "*", "k", "*", "t"};
+        String[] expectedTokens3 = {"t", "*", "a", "*", "n", "(", "t", ")"};
+
+        assertEquals(Arrays.asList(expectedTokens1), EquationParser.tokenize("ar(t)cos(t)", context));
+        assertEquals(Arrays.asList(expectedTokens2), EquationParser.tokenize("2akt", context));
+
+        // "tan" is still the tangent function, even when t, a, and n are all defined.
+        context.defineHelper("n", "t^2");
+        assertEquals(Arrays.asList("tan", "(", "t", ")"), EquationParser.tokenize("tan(t)", context));
+        assertEquals(Arrays.asList(expectedTokens3), EquationParser.tokenize("t a n(t)", context));
+
+        assertThrows(IllegalArgumentException.class, () -> EquationParser.tokenize("b + t", context));
+    }
+
+    @Test
+    public void parametersChangeWithoutRecompiling() {
+        CompiledExpression expression = EquationParser.compile("a r(t) cos(t)", context);
+        double t = 0.8;
+        assertEquals(2 * (1 + 0.5 * Math.cos(5 * t)) * Math.cos(t), expression.evaluate(t));
+
+        context.setParameter("a", -3);
+        context.setParameter("k", 2);
+        assertEquals(-3 * (1 + 0.5 * Math.cos(2 * t)) * Math.cos(t), expression.evaluate(t));
+
+        context.defineHelper("r", "t^2");
+        assertEquals(-3 * t * t * Math.cos(t), expression.evaluate(t));
+    }
+
+    @Test
+    public void helpersSupportIntervalsAndDerivatives() {
+        CompiledExpression expression = EquationParser.compile("r(2t)", context);
+        double t = 0.3;
+        assertEquals(-0.5 * Math.sin(10 * t) * 10,
+                expression.evaluateDerivatives(t).getDerivative(), 1e-12);
+
+        Interval range = expression.evaluate(new Interval(0, 1));
+        assertTrue(range.contains(0.5) && range.contains(1.5));
+    }
+
+    @Test
+    public void define() {
+        context.define("b = 3pi / a; s(t) = b t\n  c = s(1) ;");
+        assertEquals(1.5 * Math.PI, context.getParameter("b"));
+        assertEquals(1.5 * Math.PI, context.getParameter("c"));
+        assertTrue(context.isHelper("s"));
+
+        assertThrows(IllegalArgumentException.class, () -> context.define("d = t"));
+        assertThrows(IllegalArgumentException.class, () -> context.define("d 4"));
+        assertThrows(IllegalArgumentException.class, () -> context.define("sin = 4"));
+        assertThrows(IllegalArgumentException.class, () -> context.define("t = 4"));
+        assertThrows(IllegalArgumentException.class, () -> context.define("a(t) = t"));
+        assertThrows(IllegalArgumentException.class, () -> context.define("r(t) = r(t) + 1"));
+        assertThrows(IllegalArgumentException.class, () -> context.define("s(t) = r(t); r(t) = s(t)"));
+    }
+
+    @Test
+    public void curveFollowsParameters() {
+        ParametricCurve curve = new ParametricCurve("a cos(t)", "a sin(t)", 0, 1, context);
+        curve.update();
+        double t = curve.getCurrentT();
+        assertEquals(2 * Math.cos(t), curve.getCurrentXCoord());
+
+        curve.setParameter("a", 4);
+        curve.update();
+        t = curve.getCurrentT();
+        assertEquals(4 * Math.cos(t), curve.getCurrentXCoord());
+
+        curve.setConstantSpeed(true);
+        curve.setParameter("a", 1);
+        curve.update();
+        t = curve.getCurrentT();
+        assertEquals(Math.sin(t), curve.getCurrentYCoord());
+    }
+}
@@ -0,0 +1,121 @@
+import curve.CompiledExpression;
+import curve.DualNumber;
+import curve.EquationParser;
+import curve.ExpressionContext;
+import curve.Interval;
+import curve.ParametricCurve;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FourierSeriesTest {
+    private static final int NUM_TERMS = 300;
+
+    private double[] cosCoefficients;
+    private double[] sinCoefficients;
+    private ExpressionContext context;
+    private CompiledExpression series;
+
+    @BeforeEach
+    public void defineSeries() {
+        Random random = new Random(42);
+        cosCoefficients = new double[NUM_TERMS];
+        sinCoefficients = new double[NUM_TERMS];
+        for (int k = 0; k < NUM_TERMS; k++) {
+            cosCoefficients[k] = random.nextGaussian() / (k + 1);
+            sinCoefficients[k] = random.nextGaussian() / (k + 1);
+        }
+        context = new ExpressionContext();
+        context.defineSeries("f", cosCoefficients, sinCoefficients);
+        series = EquationParser.compile("f(t)", context);
+    }
+
+    // The series summed term by term, with its first and second derivatives
+    private double[] directSum(double t) {
+        double[] sums = {cosCoefficients[0], 0, 0};
+        for (int k = 1; k < NUM_TERMS; k++) {
+            double cos = Math.cos(k * t);
+            double sin = Math.sin(k * t);
+            sums[0] += cosCoefficients[k] * cos + sinCoefficients[k] * sin;
+            sums[1] += k * (sinCoefficients[k] * cos - cosCoefficients[k] * sin);
+            sums[2] -= (double) k * k * (cosCoefficients[k] * cos + sinCoefficients[k] * sin);
+        }
+        return sums;
+    }
+
+    @Test
+    public void matchesDirectSum() {
+        double[] tValues = new double[1001];
+        for (int i = 0; i < tValues.length; i++) {
+            tValues[i] = -10 + i * 0.02;
+        }
+        // Clenshaw's recurrence is least accurate near multiples of pi
+        tValues[0] = 1e-9;
+        tValues[1] = Math.PI;
+        double[] results = new double[tValues.length];
+        double[] fastResults = new double[tValues.length];
+        series.evaluate(tValues, results, tValues.length);
+        series.withFastMath(true).evaluate(tValues, fastResults, tValues.length);
+
+        for (int i = 0; i < tValues.length; i++) {
+            double[] expected = directSum(tValues[i]);
+            assertEquals(expected[0], series.evaluate(tValues[i]), 1e-12, "t = " + tValues[i]);
+            assertEquals(expected[0], results[i], 1e-12, "t = " + tValues[i]);
+            assertEquals(expected[0], fastResults[i], 1e-9, "t = " + tValues[i]);
+
+            DualNumber derivatives = series.evaluateDerivatives(tValues[i]);
+            assertEquals(expected[0], derivatives.getValue(), 1e-12);
+            assertEquals(expected[1], derivatives.getDerivative(), 1e-9 * NUM_TERMS);
+            assertEquals(expected[2], derivatives.getSecondDerivative(), 1e-9 * NUM_TERMS * NUM_TERMS);
+        }
+    }
+
+    @Test
+    public void intervalContainsSeries() {
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            double lower = random.nextDouble() * 20 - 10;
+            double upper = lower + random.nextDouble() * Math.pow(10, -random.nextInt(6));
+            Interval bound = series.evaluate(new Interval(lower, upper));
+            for (int j = 0; j <= 20; j++) {
+                double t = lower + (upper - lower) * j / 20;
+                assertTrue(bound.contains(series.evaluate(t)), bound + " at t = " + t);
+            }
+        }
+        assertTrue(series.evaluate(Interval.ENTIRE).isBounded());
+    }
+
+    @Test
+    public void fourierCurve() {
+        // A circle of radius 2 around (1, 0), traced twice per period
+        ParametricCurve curve = ParametricCurve.fromFourierSeries(new double[] {1, 0, 2}, new double[0],
+                new double[0], new double[] {0, 0, 2});
+        for (int i = 0; i < ParametricCurve.APPROX_NUM_POINTS; i++) {
+            curve.update();
+            double t = curve.getCurrentT();
+            assertEquals(1 + 2 * Math.cos(2 * t), curve.getCurrentXCoord(), 1e-12);
+            assertEquals(2 * Math.sin(2 * t), curve.getCurrentYCoord(), 1e-12);
+        }
+
+        // Changing the coefficients changes the curve without compiling anything
+        String canonicalForm = curve.getContext().getCanonicalForm();
+        curve.getContext().defineSeries("x", new double[] {0, 3}, new double[0]);
+        assertNotEquals(canonicalForm, curve.getContext().getCanonicalForm());
+        curve.update();
+        assertEquals(3 * Math.cos(curve.getCurrentT()), curve.getCurrentXCoord(), 1e-12);
+    }
+
+    @Test
+    public void invalidSeries() {
+        assertThrows(IllegalArgumentException.class,
+                () -> context.defineSeries("g", new double[] {1, Double.NaN}, new double[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> context.defineSeries("sin", new double[] {1}, new double[0]));
+        context.setParameter("a", 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> context.defineSeries("a", new double[] {1}, new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> context.defineHelper("f", "t"));
+    }
+}
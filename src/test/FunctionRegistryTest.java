@@ -0,0 +1,122 @@
+import curve.CompiledExpression;
+import curve.DualNumber;
+import curve.EquationParser;
+import curve.FastMath;
+import curve.FunctionRegistry;
+import curve.Interval;
+import curve.MathFunction;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FunctionRegistryTest {
+    private static final String[] FUNCTION_NAMES = {"sin", "cos", "tan", "exp", "ln", "log", "sqrt",
+            "abs", "arcsin", "arccos", "arctan", "sinh", "cosh", "tanh", "floor"};
+
+    @Test
+    public void builtInFunctionsAndConstants() {
+        for (String name : FUNCTION_NAMES) {
+            assertTrue(FunctionRegistry.isFunction(name));
+        }
+        assertEquals(Math.E, FunctionRegistry.getConstant("e"));
+        assertEquals(Math.PI, FunctionRegistry.getConstant("pi"));
+        assertFalse(FunctionRegistry.isFunction("sec"));
+        assertThrows(IllegalArgumentException.class, () -> FunctionRegistry.getConstant("tau"));
+    }
+
+    @Test
+    public void compiledEvaluationMatchesPostfixEvaluation() {
+        for (String name : FUNCTION_NAMES) {
+            String expression = name + "(0.3t) mod 5 + pi";
+            CompiledExpression compiled = EquationParser.compile(expression);
+            for (double t = -2; t <= 2; t += 0.25) {
+                assertEquals(EquationParser.evaluate(expression, t), compiled.evaluate(t), expression);
+            }
+        }
+    }
+
+    @Test
+    public void intervalsAndDerivativesAgreeWithValues() {
+        for (String name : FUNCTION_NAMES) {
+            CompiledExpression compiled = EquationParser.compile(name + "(0.3t + 0.1)");
+            Interval range = compiled.evaluate(new Interval(0.5, 1.5));
+            for (double t = 0.5; t <= 1.5; t += 0.01) {
+                assertTrue(range.contains(compiled.evaluate(t)), name);
+            }
+
+            double t = 1.1;
+            double h = 1e-6;
+            double finiteDifference = (compiled.evaluate(t + h) - compiled.evaluate(t - h)) / (2 * h);
+            DualNumber derivatives = compiled.evaluateDerivatives(t);
+            assertEquals(compiled.evaluate(t), derivatives.getValue(), name);
+            assertEquals(finiteDifference, derivatives.getDerivative(), 1e-6, name);
+        }
+        assertFalse(EquationParser.compile("floor(t)").evaluate(new Interval(0.5, 1.5)).isBounded());
+        assertFalse(EquationParser.compile("t mod 1").evaluate(new Interval(0.5, 1.5)).isBounded());
+        assertFalse(EquationParser.compile("ln(t)").evaluate(new Interval(-1, 1)).isBounded());
+    }
+
+    @Test
+    public void fastMathIsAccurate() {
+        for (double x = -100; x <= 100; x += 0.0137) {
+            assertEquals(Math.sin(x), FastMath.sin(x), 3e-7);
+            assertEquals(Math.cos(x), FastMath.cos(x), 3e-7);
+        }
+
+        CompiledExpression exact = EquationParser.compile("5sin(3t)cos(t)");
+        CompiledExpression fast = exact.withFastMath(true);
+        assertTrue(fast.isFastMath());
+        assertFalse(exact.isFastMath());
+        for (double t = 0; t < 10; t += 0.1) {
+            assertEquals(exact.evaluate(t), fast.evaluate(t), 1e-5);
+        }
+    }
+
+    @Test
+    public void registerCustomFunction() {
+        assertThrows(IllegalArgumentException.class, () -> FunctionRegistry.register(new Square("sin")));
+        assertThrows(IllegalArgumentException.class, () -> FunctionRegistry.register(new Square("pi")));
+        assertThrows(IllegalArgumentException.class, () -> FunctionRegistry.register(new Square("sq2")));
+
+        int longestNameLength = FunctionRegistry.getLongestNameLength();
+        FunctionRegistry.register(new Square("sq"));
+        FunctionRegistry.register(new Square("squareofargument"));
+        CompiledExpression compiled;
+        try {
+            assertEquals(9, EquationParser.evaluate("sq(t)", 3));
+            assertEquals(6, EquationParser.compile("sq(t)").evaluateDerivatives(3).getDerivative());
+            compiled = EquationParser.compile("squareofargument(t)");
+        } finally {
+            FunctionRegistry.unregister("sq");
+            FunctionRegistry.unregister("squareofargument");
+        }
+
+        // Expressions that were parsed before still call the function
+        assertEquals(16, compiled.evaluate(4));
+        assertFalse(FunctionRegistry.isFunction("sq"));
+        assertEquals(longestNameLength, FunctionRegistry.getLongestNameLength());
+        assertThrows(IllegalArgumentException.class, () -> FunctionRegistry.unregister("sq"));
+        assertThrows(IllegalArgumentException.class, () -> FunctionRegistry.unregister("sin"));
+        assertTrue(FunctionRegistry.isFunction("sin"));
+    }
+
+    private static class Square extends MathFunction {
+        Square(String name) {
+            super(name);
+        }
+
+        @Override
+        public double apply(double x) {
+            return x * x;
+        }
+
+        @Override
+        public Interval apply(Interval x) {
+            return x.pow(Interval.of(2));
+        }
+
+        @Override
+        public DualNumber apply(DualNumber x) {
+            return x.multiply(x);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import curve.AdaptiveSampler;
+import curve.CompiledExpression;
+import curve.EquationParser;
+import curve.Interval;
+import curve.SampleBuffer;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntervalTest {
+    private Interval positive;
+    private Interval negative;
+    private Interval straddlingZero;
+
+    @BeforeEach
+    public void initializeIntervals() {
+        positive = new Interval(2, 3);
+        negative = new Interval(-5, -1);
+        straddlingZero = new Interval(-2, 4);
+    }
+
+    @Test
+    public void arithmeticContainsExactResults() {
+        assertTrue(positive.add(negative).contains(2 - 5));
+        assertTrue(positive.add(negative).contains(3 - 1));
+        assertTrue(positive.subtract(negative).contains(2 + 1));
+        assertTrue(positive.subtract(negative).contains(3 + 5));
+        assertTrue(positive.multiply(straddlingZero).contains(-6));
+        assertTrue(positive.multiply(straddlingZero).contains(12));
+        assertTrue(negative.divide(positive).contains(-5.0 / 2));
+        assertTrue(negative.divide(positive).contains(-1.0 / 3));
+        assertEquals(new Interval(1, 5), negative.negate());
+
+        Interval product = positive.multiply(straddlingZero);
+        assertTrue(product.getLower() <= -6 && product.getLower() > -6.0001);
+        assertTrue(product.getUpper() >= 12 && product.getUpper() < 12.0001);
+    }
+
+    @Test
+    public void divisionByIntervalContainingZeroIsUnbounded() {
+        assertFalse(positive.divide(straddlingZero).isBounded());
+        assertFalse(positive.divide(Interval.of(0)).isBounded());
+        assertTrue(positive.divide(negative).isBounded());
+    }
+
+    @Test
+    public void powers() {
+        Interval square = straddlingZero.pow(Interval.of(2));
+        assertTrue(square.contains(0) && square.contains(16));
+        assertTrue(square.getLower() > -0.0001);
+
+        Interval cube = negative.pow(Interval.of(3));
+        assertTrue(cube.contains(-125) && cube.contains(-1));
+
+        assertFalse(straddlingZero.pow(Interval.of(-1)).isBounded());
+        assertFalse(negative.pow(Interval.of(0.5)).isBounded());
+
+        Interval general = positive.pow(new Interval(0.5, 2));
+        assertTrue(general.contains(Math.sqrt(2)) && general.contains(9));
+    }
+
+    @Test
+    public void trigonometricFunctions() {
+        Interval sine = new Interval(0, Math.PI).sin();
+        assertEquals(1, sine.getUpper());
+        assertTrue(sine.contains(0));
+
+        Interval cosine = new Interval(0.1, 0.2).cos();
+        assertTrue(cosine.contains(Math.cos(0.1)) && cosine.contains(Math.cos(0.2)));
+        assertTrue(cosine.getUpper() < 1);
+
+        assertEquals(new Interval(-1, 1), new Interval(0, 7).sin());
+        assertFalse(new Interval(1.5, 1.6).tan().isBounded());
+        assertFalse(new Interval(-1.6, -1.5).tan().isBounded());
+        assertTrue(new Interval(-1.5, 1.5).tan().isBounded());
+    }
+
+    @Test
+    public void evaluateCompiledExpressionOverInterval() {
+        CompiledExpression expression = EquationParser.compile("3sin(t)^2 - 2t");
+        Interval range = expression.evaluate(new Interval(0, 1));
+        for (double t = 0; t <= 1; t += 0.01) {
+            assertTrue(range.contains(expression.evaluate(t)));
+        }
+
+        assertFalse(EquationParser.compile("tan(t)").evaluate(new Interval(1, 2)).isBounded());
+        assertFalse(EquationParser.compile("1 / (t - 3)").evaluate(new Interval(2, 4)).isBounded());
+        assertTrue(EquationParser.compile("1 / (t - 3)").evaluate(new Interval(4, 5)).isBounded());
+    }
+
+    @Test
+    public void adaptiveSamplerBreaksAtAsymptotes() {
+        CompiledExpression x = EquationParser.compile("t");
+        CompiledExpression y = EquationParser.compile("tan(t)");
+        SampleBuffer samples = new AdaptiveSampler(x, y, 0.01, 20).sample(0, 3);
+
+        boolean foundBreak = false;
+        for (int i = 0; i < samples.size(); i++) {
+            if (samples.isUndefined(i)) {
+                foundBreak = true;
+                assertTrue(Math.abs(samples.getT(i) - Math.PI / 2) < 0.001);
+            } else {
+                assertEquals(Math.tan(samples.getT(i)), samples.getY(i));
+            }
+        }
+        assertTrue(foundBreak);
+        assertEquals(3, samples.getT(samples.size() - 1));
+    }
+
+    @Test
+    public void adaptiveSamplerBreaksAtJumpsOfBoundedFunctions() {
+        CompiledExpression x = EquationParser.compile("t");
+        for (String equation : new String[]{"arctan(1/t)", "tanh(1/t)", "sin(tan(t + pi/2))", "cos(1/t)",
+                "1/(1+exp(1/t))"}) {
+            CompiledExpression y = EquationParser.compile(equation);
+            // t = 0 is not the end of an initial segment of this range
+            SampleBuffer samples = new AdaptiveSampler(x, y, 0.01, 20).sample(-0.73, 0.77);
+
+            int numBreaks = 0;
+            for (int i = 0; i < samples.size(); i++) {
+                if (samples.isUndefined(i)) {
+                    numBreaks++;
+                    assertTrue(Math.abs(samples.getT(i)) < 0.001, equation);
+                }
+            }
+            assertTrue(numBreaks > 0, equation);
+        }
+        // A bounded function of an unbounded Interval might jump, so is unbounded too
+        assertFalse(Interval.ENTIRE.sin().isBounded());
+        assertFalse(Interval.ENTIRE.cos().isBounded());
+        assertEquals(1, new Interval(0, 10).sin().getUpper());
+    }
+
+    @Test
+    public void adaptiveSamplerSkipsFlatSegments() {
+        CompiledExpression constant = EquationParser.compile("2");
+        SampleBuffer flat = new AdaptiveSampler(constant, constant, 0.01, 20).sample(0, 10);
+        SampleBuffer curved = new AdaptiveSampler(EquationParser.compile("cos(t)"),
+                EquationParser.compile("sin(t)"), 0.01, 20).sample(0, 10);
+
+        assertTrue(flat.size() < curved.size());
+        for (int i = 0; i < flat.size(); i++) {
+            assertFalse(flat.isUndefined(i));
+        }
+    }
+}
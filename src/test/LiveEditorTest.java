@@ -0,0 +1,131 @@
+import curve.ParametricCurve;
+import org.junit.jupiter.api.*;
+import session.CurveSettings;
+import ui.DrawingPanel;
+import ui.LiveEditor;
+
+import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LiveEditorTest {
+    private static final int DELAY_MILLIS = 50;
+
+    // The results delivered to the listener: a curve, "unchanged" or "invalid"
+    private final BlockingQueue<Object> results = new LinkedBlockingQueue<Object>();
+
+    private LiveEditor editor;
+
+    @BeforeEach
+    public void setUp() {
+        editor = new LiveEditor(DELAY_MILLIS, new LiveEditor.Listener() {
+            @Override
+            public void curveReady(ParametricCurve curve) {
+                assertTrue(SwingUtilities.isEventDispatchThread());
+                results.add(curve);
+            }
+
+            @Override
+            public void curveUnchanged() {
+                results.add("unchanged");
+            }
+
+            @Override
+            public void settingsInvalid() {
+                results.add("invalid");
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        onEventThread(() -> editor.shutdown());
+    }
+
+    private static void onEventThread(Runnable runnable) throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(runnable);
+    }
+
+    private static CurveSettings settings(String x, String definitions) {
+        return new CurveSettings(x, "sin(t)", 0, 2 * Math.PI, definitions, false, false);
+    }
+
+    private Object nextResult() throws InterruptedException {
+        Object result = results.poll(10, TimeUnit.SECONDS);
+        assertNotNull(result, "no result was delivered");
+        return result;
+    }
+
+    private void assertNoMoreResults() throws InterruptedException {
+        assertNull(results.poll(5 * DELAY_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void onlyTheLastOfQuickEditsIsDelivered() throws Exception {
+        onEventThread(() -> {
+            editor.edit(settings("c", ""));
+            editor.edit(settings("co", ""));
+            editor.edit(settings("cos(t)", "a = 2"));
+            editor.edit(settings("a cos(t)", "a = 2"));
+        });
+        ParametricCurve curve = (ParametricCurve) nextResult();
+        assertEquals(2 * Math.cos(1), curve.getXExpression().evaluate(1), 1e-15);
+        assertNoMoreResults();
+    }
+
+    @Test
+    public void editsThatDoNotChangeTheCurveAreNotSwappedIn() throws Exception {
+        ParametricCurve current = settings("2cos(t)", "").createCurve();
+        onEventThread(() -> {
+            editor.setCurrentCurve(current);
+            editor.edit(settings("  2 *cos( t )", ""));
+        });
+        assertEquals("unchanged", nextResult());
+
+        onEventThread(() -> editor.edit(settings("2cos(t) + 0.5", "")));
+        assertTrue(nextResult() instanceof ParametricCurve);
+        // The delivered curve is now the current one
+        onEventThread(() -> editor.edit(settings("2cos(t)+0.5", "")));
+        assertEquals("unchanged", nextResult());
+    }
+
+    @Test
+    public void invalidEditsAreReported() throws Exception {
+        onEventThread(() -> editor.edit(settings("cos(t", "")));
+        assertEquals("invalid", nextResult());
+        onEventThread(() -> editor.edit(null));
+        assertEquals("invalid", nextResult());
+        onEventThread(() -> editor.edit(settings("cos(t)", "")));
+        assertTrue(nextResult() instanceof ParametricCurve);
+    }
+
+    @Test
+    public void drawingACurveDropsPendingEdits() throws Exception {
+        onEventThread(() -> {
+            editor.edit(settings("3cos(t)", ""));
+            editor.setCurrentCurve(null);
+        });
+        assertNoMoreResults();
+        assertThrows(IllegalArgumentException.class, () -> new LiveEditor(-1, null));
+    }
+
+    @Test
+    public void replacingTheCurveKeepsItsProgress() throws Exception {
+        DrawingPanel drawingPanel = DrawingPanel.getInstance();
+        ParametricCurve edited = settings("2cos(t)", "").createCurve();
+        onEventThread(() -> {
+            drawingPanel.setCurve(settings("cos(t)", "").createCurve());
+            drawingPanel.seek(0.7);
+            drawingPanel.replaceCurve(edited);
+        });
+        assertEquals(0.7, drawingPanel.getProgress(), 1e-3);
+        // The edited curve carries on from the tick the old curve had reached
+        assertFalse(edited.isTIncreasing());
+        assertEquals(2 * Math.cos(edited.getCurrentT()), edited.getCurrentXCoord(), 1e-12);
+        onEventThread(() -> drawingPanel.setCurve(null));
+    }
+}
@@ -0,0 +1,107 @@
+import curve.ExpressionContext;
+import curve.ParametricCurve;
+import curve.RenderCache;
+import org.junit.jupiter.api.*;
+import ui.CurveTrace;
+import ui.PlaybackClock;
+import ui.PointRasterizer;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaintAllocationTest {
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 780;
+
+    // 60 frames per second
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        Assumptions.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationBean;
+    }
+
+    private static ParametricCurve createCurve() {
+        ExpressionContext context = new ExpressionContext();
+        context.define("a = 3; r(t) = 1 + 0.5cos(a t)");
+        ParametricCurve curve = new ParametricCurve("2r(t)cos(t)", "2r(t)sin(t) + t mod 0.5", -1, 7, context);
+        curve.setConstantSpeed(true);
+        return curve;
+    }
+
+    /**
+     * Paints a frame the way the DrawingPanel does before it draws the frame image: the
+     * frame image is cleared, and the points of the trace are painted into it. Drawing
+     * the frame image onto the panel is left out, since how much Java2D allocates to
+     * copy an image depends on the pipeline and on what the JIT compiler inlines.
+     */
+    private static void paintFrame(CurveTrace trace, PointRasterizer rasterizer, BufferedImage frameImage,
+                                   int[] framePixels) {
+        Arrays.fill(framePixels, Color.WHITE.getRGB());
+        rasterizer.clear();
+        trace.paint(rasterizer);
+        rasterizer.paint(frameImage);
+    }
+
+    /**
+     * Asserts that advancing the curve and painting its trace, the way the DrawingPanel
+     * does on every frame, allocates nothing once the curve has been traced for a while.
+     */
+    private static void assertFramesAllocateNothing(ParametricCurve curve) {
+        com.sun.management.ThreadMXBean bean = getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        CurveTrace trace = new CurveTrace(WIDTH, HEIGHT);
+        PlaybackClock clock = new PlaybackClock();
+        clock.setSpeed(6000, PlaybackClock.Unit.SAMPLES_PER_SECOND);
+        BufferedImage frameImage = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        int[] framePixels = ((DataBufferInt) frameImage.getRaster().getDataBuffer()).getData();
+        PointRasterizer rasterizer = new PointRasterizer(WIDTH, HEIGHT);
+
+        // Trace out a few cycles first, so that the trace has grown to its full size and
+        // the frame has been compiled
+        long now = 0;
+        int frame = 0;
+        while (curve.getTick() < 3L * curve.getTicksPerCycle() || frame < 300) {
+            now += FRAME_NANOS;
+            trace.advance(curve, clock.takeTicks(now, curve.getTIncrement()));
+            paintFrame(trace, rasterizer, frameImage, framePixels);
+            frame++;
+        }
+
+        // The JVM can allocate on behalf of code that it is recompiling, so a few windows
+        // of frames are measured, and one of them has to allocate nothing
+        long leastAllocatedBytes = Long.MAX_VALUE;
+        for (int window = 0; window < 10 && leastAllocatedBytes > 0; window++) {
+            long allocatedBytes = bean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 100; i++) {
+                now += FRAME_NANOS;
+                trace.advance(curve, clock.takeTicks(now, curve.getTIncrement()));
+                paintFrame(trace, rasterizer, frameImage, framePixels);
+            }
+            leastAllocatedBytes = Math.min(leastAllocatedBytes, bean.getThreadAllocatedBytes(threadId) - allocatedBytes);
+        }
+        assertEquals(0, leastAllocatedBytes);
+    }
+
+    @Test
+    public void evaluatedFramesAllocateNothing() {
+        assertFramesAllocateNothing(createCurve());
+    }
+
+    @Test
+    public void cachedFramesAllocateNothing() {
+        ParametricCurve curve = createCurve();
+        curve.useCache(new RenderCache(1 << 20));
+        assertFramesAllocateNothing(curve);
+    }
+}
@@ -0,0 +1,106 @@
+import curve.CompiledExpression;
+import curve.EquationParser;
+import org.junit.jupiter.api.*;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParserScalingTest {
+    // Parsing an expression 8 times as long may take at most this many times as long.
+    // Linear parsing takes about 8 times as long, and quadratic parsing 64 times.
+    private static final int MAX_SLOWDOWN = 24;
+
+    // Allowance for timer noise on short parses
+    private static final long NOISE_NANOS = 20_000_000L;
+
+    // A Fourier series with the given number of terms, as a program would write it
+    private static String fourierSeries(int numTerms) {
+        StringBuilder expression = new StringBuilder();
+        for (int k = 1; k <= numTerms; k++) {
+            if (k > 1) {
+                expression.append(" + ");
+            }
+            expression.append(String.format(Locale.ROOT, "%.9fcos(%dt) - %.9fsin(%dt)",
+                    1.0 / k, k, 0.5 / k, k));
+        }
+        return expression.toString();
+    }
+
+    private static String nested(int depth) {
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            expression.append("sin(1 + ");
+        }
+        expression.append('t');
+        for (int i = 0; i < depth; i++) {
+            expression.append(')');
+        }
+        return expression.toString();
+    }
+
+    // A single run of letters that splits into the names t, pi, t, pi, ...
+    private static String letters(int numNames) {
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < numNames; i++) {
+            expression.append(i % 2 == 0 ? "t" : "pi");
+        }
+        return expression.toString();
+    }
+
+    private static long bestParseNanos(String expression) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            EquationParser.compile(expression);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static void assertScalesLinearly(String small, String large) {
+        // Warm up, so that the small expression is not timed in the interpreter
+        EquationParser.compile(large);
+        long smallNanos = bestParseNanos(small);
+        long largeNanos = bestParseNanos(large);
+        assertTrue(largeNanos < MAX_SLOWDOWN * smallNanos + NOISE_NANOS,
+                "parsing " + large.length() + " characters took " + largeNanos / 1000 + " us, and "
+                + small.length() + " characters took " + smallNanos / 1000 + " us");
+    }
+
+    @Test
+    public void fourierSeriesScalesLinearly() {
+        String large = fourierSeries(2500);
+        assertTrue(large.length() > 100_000);
+        assertScalesLinearly(fourierSeries(2500 / 8), large);
+
+        double expected = 0;
+        for (int k = 1; k <= 2500; k++) {
+            expected += Double.parseDouble(String.format(Locale.ROOT, "%.9f", 1.0 / k));
+        }
+        assertEquals(expected, EquationParser.compile(large).evaluate(0), 1e-9);
+    }
+
+    @Test
+    public void deepNestingScalesLinearly() {
+        String large = nested(12500);
+        assertTrue(large.length() > 100_000);
+        assertScalesLinearly(nested(12500 / 8), large);
+
+        double expected = 0.3;
+        for (int i = 0; i < 12500; i++) {
+            expected = Math.sin(1 + expected);
+        }
+        assertEquals(expected, EquationParser.compile(large).evaluate(0.3), 1e-12);
+    }
+
+    @Test
+    public void longRunOfLettersScalesLinearly() {
+        String large = letters(80000);
+        assertTrue(large.length() > 100_000);
+        assertScalesLinearly(letters(80000 / 8), large);
+
+        CompiledExpression expression = EquationParser.compile(letters(6));
+        assertEquals(Math.pow(2 * Math.PI, 3), expression.evaluate(2), 1e-9);
+    }
+}
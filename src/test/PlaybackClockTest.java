@@ -0,0 +1,65 @@
+import curve.ParametricCurve;
+import org.junit.jupiter.api.*;
+import ui.CurveTrace;
+import ui.PlaybackClock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlaybackClockTest {
+    private static final long MILLIS = 1_000_000L;
+
+    @Test
+    public void samplesPerSecond() {
+        PlaybackClock clock = new PlaybackClock();
+        clock.setSpeed(1000, PlaybackClock.Unit.SAMPLES_PER_SECOND);
+        assertEquals(0, clock.takeTicks(0, 0.01));
+        assertEquals(16, clock.takeTicks(16 * MILLIS, 0.01));
+
+        // Fractions of a tick are carried over
+        clock.setSpeed(100, PlaybackClock.Unit.SAMPLES_PER_SECOND);
+        int ticks = 0;
+        for (int frame = 1; frame <= 100; frame++) {
+            ticks += clock.takeTicks(16 * MILLIS + frame * 5 * MILLIS, 0.01);
+        }
+        assertEquals(50, ticks);
+    }
+
+    @Test
+    public void tUnitsPerSecond() {
+        PlaybackClock clock = new PlaybackClock();
+        clock.setSpeed(2, PlaybackClock.Unit.T_UNITS_PER_SECOND);
+        clock.takeTicks(0, 0.001);
+        assertEquals(200, clock.takeTicks(100 * MILLIS, 0.001));
+        // The same speed in t takes fewer ticks on a coarser curve
+        assertEquals(20, clock.takeTicks(200 * MILLIS, 0.01));
+    }
+
+    @Test
+    public void longPausesAreNotCaughtUp() {
+        PlaybackClock clock = new PlaybackClock();
+        clock.setSpeed(1000, PlaybackClock.Unit.SAMPLES_PER_SECOND);
+        clock.takeTicks(0, 0.01);
+        assertEquals(250, clock.takeTicks(60_000 * MILLIS, 0.01));
+
+        clock.reset();
+        assertEquals(0, clock.takeTicks(70_000 * MILLIS, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> clock.setSpeed(-1, PlaybackClock.Unit.SAMPLES_PER_SECOND));
+    }
+
+    @Test
+    public void advanceByManyTicks() {
+        ParametricCurve stepped = new ParametricCurve("cos(t)", "sin(t)", 0, 6);
+        ParametricCurve batched = new ParametricCurve("cos(t)", "sin(t)", 0, 6);
+        CurveTrace steppedTrace = new CurveTrace(300, 300);
+        CurveTrace batchedTrace = new CurveTrace(300, 300);
+        for (int numTicks : new int[] {0, 1, 37, 1500, 5000, 12}) {
+            for (int i = 0; i < numTicks; i++) {
+                steppedTrace.advance(stepped);
+            }
+            batchedTrace.advance(batched, numTicks);
+            assertEquals(stepped.getTick(), batched.getTick());
+            assertEquals(stepped.getCurrentXCoord(), batched.getCurrentXCoord());
+            assertEquals(stepped.getCurrentYCoord(), batched.getCurrentYCoord());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.*;
+import ui.CurveTrace;
+import ui.PointRasterizer;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointRasterizerTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    /**
+     * @return a trace of a dense curve that crosses itself many times, changes direction
+     * (and so colour) twice, and goes off every edge of the image
+     */
+    private static CurveTrace denseTrace(int numPoints) {
+        CurveTrace trace = new CurveTrace(WIDTH, HEIGHT);
+        for (int i = 0; i < numPoints; i++) {
+            double t = 2 * Math.PI * i / numPoints;
+            boolean tIncreasing = i < numPoints / 2 || i >= numPoints * 3 / 4;
+            boolean changingDirection = i == numPoints / 2 || i == numPoints * 3 / 4;
+            trace.record(tIncreasing, changingDirection, 2 * Math.sin(7 * t), 1.5 * Math.cos(11 * t));
+        }
+        return trace;
+    }
+
+    private static BufferedImage blank(int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.dispose();
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertArrayEquals(TestImages.pixels(expected), TestImages.pixels(actual));
+    }
+
+    private static void assertMatchesGraphics(CurveTrace trace, int numThreads, int type) {
+        BufferedImage expected = blank(type);
+        Graphics2D g = expected.createGraphics();
+        trace.paint(g);
+        g.dispose();
+
+        PointRasterizer rasterizer = new PointRasterizer(WIDTH, HEIGHT);
+        rasterizer.setNumThreads(numThreads);
+        trace.paint(rasterizer);
+        BufferedImage actual = blank(type);
+        rasterizer.paint(actual);
+        assertSamePixels(expected, actual);
+
+        // Painting again gives the same image
+        actual = blank(type);
+        rasterizer.paint(actual);
+        assertSamePixels(expected, actual);
+    }
+
+    @Test
+    public void matchesGraphicsOnOneThread() {
+        assertMatchesGraphics(denseTrace(2000), 1, BufferedImage.TYPE_INT_RGB);
+        assertMatchesGraphics(denseTrace(2000), 4, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Test
+    public void matchesGraphicsOnManyThreads() {
+        CurveTrace trace = denseTrace(300_000);
+        assertMatchesGraphics(trace, 2, BufferedImage.TYPE_INT_RGB);
+        assertMatchesGraphics(trace, 5, BufferedImage.TYPE_INT_RGB);
+        assertMatchesGraphics(trace, 8, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Test
+    public void imagesCanBePaintedAtTheSameTime() throws InterruptedException {
+        CurveTrace trace = denseTrace(100_000);
+        Thread[] threads = new Thread[4];
+        Throwable[] failures = new Throwable[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    assertMatchesGraphics(trace, 3, BufferedImage.TYPE_INT_RGB);
+                } catch (Throwable e) {
+                    failures[index] = e;
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertNull(failures[i]);
+        }
+    }
+
+    @Test
+    public void pointsOutsideTheImageAreSkipped() {
+        CurveTrace trace = new CurveTrace(WIDTH, HEIGHT);
+        double[][] points = {{0, 0}, {1e12, 0}, {-1e12, -1e12}, {1.58, 1.18}, {-1.65, -1.25}, {Double.NaN, 0}};
+        for (double[] point : points) {
+            trace.record(true, false, point[0], point[1]);
+        }
+        assertMatchesGraphics(trace, 1, BufferedImage.TYPE_INT_RGB);
+
+        PointRasterizer rasterizer = new PointRasterizer(WIDTH, HEIGHT);
+        trace.paint(rasterizer);
+        // The undefined point is not added
+        assertEquals(points.length - 1, rasterizer.size());
+        rasterizer.clear();
+        assertEquals(0, rasterizer.size());
+    }
+
+    @Test
+    public void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new PointRasterizer(0, 10));
+        PointRasterizer rasterizer = new PointRasterizer(WIDTH, HEIGHT);
+        assertThrows(IllegalArgumentException.class, () -> rasterizer.setNumThreads(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> rasterizer.paint(new BufferedImage(WIDTH + 1, HEIGHT, BufferedImage.TYPE_INT_RGB)));
+        assertThrows(IllegalArgumentException.class,
+                () -> rasterizer.paint(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR)));
+    }
+}
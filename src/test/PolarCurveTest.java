@@ -0,0 +1,62 @@
+import curve.EquationParser;
+import curve.ExpressionContext;
+import curve.ParametricCurve;
+import org.junit.jupiter.api.*;
+import ui.CurveImageRenderer;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PolarCurveTest {
+    @Test
+    public void polarMatchesParametric() {
+        ExpressionContext context = new ExpressionContext();
+        context.define("k = 7; a = 0.5");
+        ParametricCurve polar = ParametricCurve.fromPolar("a + cos(k t)", 0, 2 * Math.PI, context);
+        ParametricCurve parametric = new ParametricCurve("(a + cos(k t)) cos(t)", "(a + cos(k t)) sin(t)",
+                0, 2 * Math.PI, context);
+        assertEquals(parametric.getXExpression().getCanonicalForm(), polar.getXExpression().getCanonicalForm());
+        assertEquals(parametric.getYExpression().getCanonicalForm(), polar.getYExpression().getCanonicalForm());
+
+        double[] tValues = new double[1000];
+        for (int i = 0; i < tValues.length; i++) {
+            tValues[i] = -5 + 0.01 * i;
+        }
+        double[] xValues = new double[tValues.length];
+        double[] yValues = new double[tValues.length];
+        polar.evaluate(tValues, xValues, yValues, tValues.length);
+        for (int i = 0; i < tValues.length; i++) {
+            double t = tValues[i];
+            double r = 0.5 + Math.cos(7 * t);
+            assertEquals(r * Math.cos(t), polar.getX(t), 1e-15);
+            assertEquals(r * Math.sin(t), polar.getY(t), 1e-15);
+            assertEquals(polar.getX(t), xValues[i]);
+            assertEquals(polar.getY(t), yValues[i]);
+
+            double rDerivative = -7 * Math.sin(7 * t);
+            assertEquals(rDerivative * Math.cos(t) - r * Math.sin(t), polar.getXDerivatives(t).getDerivative(), 1e-12);
+            assertEquals(rDerivative * Math.sin(t) + r * Math.cos(t), polar.getYDerivatives(t).getDerivative(), 1e-12);
+        }
+
+        // Parameters of the context still take effect without compiling again
+        context.setParameter("a", 2);
+        assertEquals((2 + Math.cos(7)) * Math.cos(1), polar.getX(1), 1e-15);
+    }
+
+    @Test
+    public void renderPolar() {
+        ParametricCurve polar = ParametricCurve.fromPolar("cos(4t)", 0, 2 * Math.PI, new ExpressionContext());
+        BufferedImage expected = CurveImageRenderer.render(EquationParser.compile("cos(4t) cos(t)"),
+                EquationParser.compile("cos(4t) sin(t)"), 0, 2 * Math.PI, 10000, 200, 200);
+        assertArrayEquals(TestImages.pixels(expected), TestImages.pixels(CurveImageRenderer.render(polar, 10000, 200, 200, false)));
+    }
+
+    @Test
+    public void invalidPolar() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ParametricCurve.fromPolar("cos(", 0, 1, new ExpressionContext()));
+        assertThrows(IllegalArgumentException.class,
+                () -> ParametricCurve.fromPolar("1", 1, 0, new ExpressionContext()));
+    }
+}
@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import ui.RegressionHarness;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegressionHarnessTest {
+    // The baseline that is checked in, relative to the root of the project
+    private static final File BASELINE = new File("regression/baseline.txt");
+
+    @TempDir
+    File tempDir;
+
+    private static RegressionHarness.Result result(String name, BufferedImage image, double relativeTime) {
+        return new RegressionHarness.Result(name, RegressionHarness.hash(image), RegressionHarness.fingerprint(image),
+                1000, relativeTime);
+    }
+
+    @Test
+    public void corpusMatchesBaseline() throws IOException {
+        RegressionHarness harness = new RegressionHarness();
+        harness.setRepetitions(1);
+        List<RegressionHarness.Result> results = harness.run(RegressionHarness.getCorpus());
+        assertEquals(RegressionHarness.getCorpus().size(), results.size());
+
+        // Timings are left to the command-line harness, where the machine is quiet
+        List<String> failures = RegressionHarness.compare(results, RegressionHarness.readBaseline(BASELINE),
+                RegressionHarness.DEFAULT_IMAGE_TOLERANCE, Double.POSITIVE_INFINITY);
+        assertEquals(Collections.emptyList(), failures);
+    }
+
+    @Test
+    public void imagesAreComparedWithTolerance() {
+        RegressionHarness.Case butterfly = RegressionHarness.getCorpus().get(0);
+        BufferedImage image = RegressionHarness.render(butterfly.getSettings());
+        assertEquals(RegressionHarness.hash(image), RegressionHarness.hash(RegressionHarness.render(butterfly.getSettings())));
+        List<RegressionHarness.Result> baseline = Arrays.asList(result("butterfly", image, 1));
+
+        // A few stray pixels change the hash but not the fingerprint
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(100, 100, 2, 2);
+        g.fillRect(600, 50, 2, 2);
+        List<RegressionHarness.Result> speckled = Arrays.asList(result("butterfly", image, 1));
+        assertNotEquals(baseline.get(0).getHash(), speckled.get(0).getHash());
+        assertEquals(Collections.emptyList(), RegressionHarness.compare(speckled, baseline, 0.02, 0.5));
+
+        // A curve that is drawn somewhere else does not match
+        g.fillRect(0, 0, 300, 300);
+        g.dispose();
+        List<String> failures = RegressionHarness.compare(Arrays.asList(result("butterfly", image, 1)), baseline,
+                0.02, 0.5);
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).startsWith("butterfly: image differs"), failures.get(0));
+
+        assertEquals(1, RegressionHarness.compare(Arrays.asList(result("moth", image, 1)), baseline, 0.02, 0.5).size());
+        assertEquals(2, RegressionHarness.fingerprintDistance("0f3a", "0d5a"));
+        assertThrows(IllegalArgumentException.class, () -> RegressionHarness.fingerprintDistance("00", "000"));
+    }
+
+    @Test
+    public void slowdownsBeyondThresholdFail() {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        List<RegressionHarness.Result> baseline = Arrays.asList(result("a", image, 0.2), result("b", image, 0.1));
+        List<RegressionHarness.Result> results = Arrays.asList(result("a", image, 0.29), result("b", image, 0.16));
+
+        List<String> failures = RegressionHarness.compare(results, baseline, 0.02, 0.5);
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).startsWith("b: took 1.60 times"), failures.get(0));
+        assertEquals(2, RegressionHarness.compare(results, baseline, 0.02, 0.4).size());
+    }
+
+    @Test
+    public void baselineRoundTrip() throws IOException {
+        BufferedImage image = RegressionHarness.render(RegressionHarness.getCorpus().get(1).getSettings());
+        List<RegressionHarness.Result> results = Arrays.asList(result("rose", image, 0.0625),
+                result("blank", new BufferedImage(1024, 780, BufferedImage.TYPE_INT_RGB), 1.5));
+        File file = new File(tempDir, "baseline.txt");
+        RegressionHarness.writeBaseline(results, file);
+
+        List<RegressionHarness.Result> read = RegressionHarness.readBaseline(file);
+        assertEquals(2, read.size());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(results.get(i).getName(), read.get(i).getName());
+            assertEquals(results.get(i).getHash(), read.get(i).getHash());
+            assertEquals(results.get(i).getFingerprint(), read.get(i).getFingerprint());
+            assertEquals(results.get(i).getNanos(), read.get(i).getNanos());
+            assertEquals(results.get(i).getRelativeTime(), read.get(i).getRelativeTime());
+        }
+        assertEquals(Collections.emptyList(), RegressionHarness.compare(results, read, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RegressionHarness.Case("two words", null));
+    }
+}
@@ -0,0 +1,157 @@
+import curve.CacheKey;
+import curve.ExpressionContext;
+import curve.ParametricCurve;
+import curve.RenderCache;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderCacheTest {
+    @TempDir
+    File tempDir;
+
+    private CountingSin countingSin;
+
+    @BeforeEach
+    public void registerCountingSin() {
+        countingSin = CountingSin.register();
+    }
+
+    @AfterEach
+    public void unregisterCountingSin() {
+        CountingSin.unregister();
+    }
+
+    @Test
+    public void keys() {
+        assertEquals(new CacheKey("png", "t", 0.0, 2, true), new CacheKey("png", "t", 0.0, 2L, true));
+        assertNotEquals(new CacheKey("a\nb"), new CacheKey("a", "b"));
+        assertEquals(64, new CacheKey("png").getHash().length());
+        assertEquals(new CacheKey("x").getHash(), new CacheKey("x").getHash());
+        assertNotEquals(new CacheKey("x").getHash(), new CacheKey("y").getHash());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                CacheKey.sha256("abc".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(CacheKey.sha256("x\n".getBytes(StandardCharsets.UTF_8)), new CacheKey("x").getHash());
+    }
+
+    @Test
+    public void memoryLevelEvictsLeastRecentlyUsed() {
+        RenderCache cache = new RenderCache(25);
+        CacheKey a = new CacheKey("a");
+        CacheKey b = new CacheKey("b");
+        CacheKey c = new CacheKey("c");
+        cache.put(a, new byte[10]);
+        cache.put(b, new byte[10]);
+        assertNotNull(cache.get(a));
+        cache.put(c, new byte[10]);
+
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertNotNull(cache.get(c));
+        assertEquals(20, cache.getMemoryBytes());
+
+        // Values larger than the whole memory level are not kept
+        cache.put(b, new byte[30]);
+        assertNull(cache.get(b));
+        assertEquals(20, cache.getMemoryBytes());
+    }
+
+    @Test
+    public void diskLevelSurvivesRestart() throws IOException {
+        CacheKey key = new CacheKey("samples", "t", 1.5);
+        byte[] value = { 1, 2, 3 };
+        new RenderCache(1000, tempDir).put(key, value);
+
+        RenderCache restartedCache = new RenderCache(1000, tempDir);
+        assertArrayEquals(value, restartedCache.get(key));
+        assertEquals(3, restartedCache.getMemoryBytes());
+
+        // A corrupted file is a cache miss
+        Files.write(new File(tempDir, key.getHash()).toPath(), new byte[] { 1, 2 });
+        assertNull(new RenderCache(1000, tempDir).get(key));
+    }
+
+    @Test
+    public void leastRecentlyUsedFilesArePruned() {
+        CacheKey[] keys = new CacheKey[4];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new CacheKey("samples", i);
+        }
+        byte[] value = new byte[1000];
+        // Room for three entries
+        RenderCache cache = new RenderCache(0, tempDir, 3500);
+        for (int i = 0; i < 3; i++) {
+            cache.put(keys[i], value);
+            assertTrue(new File(tempDir, keys[i].getHash()).setLastModified(1_000_000L * (i + 1)));
+        }
+
+        // Reading the oldest entry marks it as recently used
+        assertArrayEquals(value, cache.get(keys[0]));
+        // The fourth entry takes the directory over its limit, so the least recently used
+        // entries are removed until it is down to three quarters of the limit
+        cache.put(keys[3], value);
+        assertTrue(new File(tempDir, keys[0].getHash()).isFile());
+        assertFalse(new File(tempDir, keys[1].getHash()).exists());
+        assertFalse(new File(tempDir, keys[2].getHash()).exists());
+        assertTrue(new File(tempDir, keys[3].getHash()).isFile());
+        assertNull(new RenderCache(0, tempDir).get(keys[1]));
+        assertArrayEquals(value, new RenderCache(0, tempDir).get(keys[3]));
+
+        // An entry that would not fit at all is kept in memory only
+        RenderCache small = new RenderCache(1 << 20, tempDir, 500);
+        small.put(keys[1], value);
+        assertFalse(new File(tempDir, keys[1].getHash()).exists());
+        assertArrayEquals(value, small.get(keys[1]));
+        assertThrows(IllegalArgumentException.class, () -> new RenderCache(0, tempDir, -1));
+    }
+
+    @Test
+    public void cachedCurveMatchesEvaluatedCurve() {
+        ParametricCurve evaluated = new ParametricCurve("3cos(t)", "countingsin(2t) + t", 0, 2);
+        ParametricCurve cached = new ParametricCurve("3cos(t)", "countingsin(2t) + t", 0, 2);
+        cached.useCache(new RenderCache(1 << 20, tempDir));
+
+        // Step through more than two cycles, including every change of direction
+        for (int i = 0; i < 4500; i++) {
+            evaluated.update();
+            cached.update();
+            assertEquals(evaluated.isTIncreasing(), cached.isTIncreasing());
+            assertEquals(evaluated.isChangingDirection(), cached.isChangingDirection());
+            assertEquals(evaluated.getCurrentT(), cached.getCurrentT());
+            assertEquals(evaluated.getCurrentXCoord(), cached.getCurrentXCoord());
+            assertEquals(evaluated.getCurrentYCoord(), cached.getCurrentYCoord());
+        }
+    }
+
+    @Test
+    public void reopenedCurveIsNotEvaluated() {
+        new ParametricCurve("2cos(t)", "countingsin(t)", -1, 1).useCache(new RenderCache(1 << 20, tempDir));
+
+        // The same curve, written differently, after a restart
+        int count = countingSin.count;
+        ParametricCurve curve = new ParametricCurve("2.0 * cos(t)", "countingsin( t )", -1.0, 1);
+        curve.useCache(new RenderCache(1 << 20, tempDir));
+        for (int i = 0; i < 3000; i++) {
+            curve.update();
+        }
+        assertEquals(count, countingSin.count);
+
+        // After a parameter changes, the curve is evaluated again
+        ExpressionContext context = new ExpressionContext();
+        context.setParameter("a", 2);
+        ParametricCurve parameterized = new ParametricCurve("cos(t)", "a countingsin(t)", -1, 1, context);
+        parameterized.useCache(new RenderCache(1 << 20, tempDir));
+        parameterized.update();
+        count = countingSin.count;
+        parameterized.setParameter("a", 3);
+        parameterized.update();
+        assertEquals(count + 1, countingSin.count);
+        assertEquals(3 * Math.sin(parameterized.getCurrentT()), parameterized.getCurrentYCoord(), 1e-12);
+    }
+}
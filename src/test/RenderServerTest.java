@@ -0,0 +1,121 @@
+import org.junit.jupiter.api.*;
+import server.RenderServer;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderServerTest {
+    private RenderServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = new RenderServer(0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private URI uri(String query) {
+        return URI.create("http://localhost:" + server.getPort() + RenderServer.PATH + "?" + query);
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    private HttpResponse<byte[]> get(String query) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(query)).build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Test
+    public void renderPng() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = get("x=" + encode("2cos(t) + 1") + "&y=" + encode("sin(3t)")
+                + "&tmin=0&tmax=6.3&width=300&height=200");
+        assertEquals(200, response.statusCode());
+        assertEquals("image/png", response.headers().firstValue("Content-Type").orElse(null));
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(response.body()));
+        assertEquals(300, image.getWidth());
+        assertEquals(200, image.getHeight());
+    }
+
+    @Test
+    public void renderSamples() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = get("x=t&y=" + encode("t^2") + "&tmin=-1&tmax=1&samples=5&format=samples");
+        assertEquals(200, response.statusCode());
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(response.body()));
+        assertEquals(5, input.readInt());
+        double[] expectedT = { -1, -0.5, 0, 0.5, 1 };
+        for (double t : expectedT) {
+            assertEquals(t, input.readDouble());
+            assertEquals(t, input.readDouble());
+            assertEquals(t * t, input.readDouble());
+        }
+        assertEquals(-1, input.read());
+    }
+
+    @Test
+    public void renderSingleFloatSamples() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = get("x=t&y=" + encode("t^2")
+                + "&tmin=-1&tmax=1&samples=5&format=samples&precision=single");
+        assertEquals(200, response.statusCode());
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(response.body()));
+        assertEquals(5, input.readInt());
+        float[] expectedT = { -1, -0.5f, 0, 0.5f, 1 };
+        for (float t : expectedT) {
+            assertEquals(t, input.readFloat());
+            assertEquals(t, input.readFloat());
+            assertEquals(t * t, input.readFloat());
+        }
+        assertEquals(-1, input.read());
+    }
+
+    @Test
+    public void invalidRequests() throws IOException, InterruptedException {
+        assertEquals(400, get("x=t&y=" + encode("sin(") + "&tmin=0&tmax=1").statusCode());
+        assertEquals(400, get("x=t&y=t&tmin=0").statusCode());
+        assertEquals(400, get("x=t&y=t&tmin=1&tmax=0").statusCode());
+        assertEquals(400, get("x=t&y=t&tmin=0&tmax=1&width=0").statusCode());
+        assertEquals(400, get("x=t&y=t&tmin=0&tmax=1&format=jpeg").statusCode());
+        assertEquals(400, get("x=t&y=t&tmin=0&tmax=1&precision=half").statusCode());
+    }
+
+    @Test
+    public void concurrentIdenticalRequests() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri("x=" + encode("3cos(7t)") + "&y=" + encode("3sin(5t)")
+                + "&tmin=0&tmax=6.3&samples=20000")).build();
+        List<CompletableFuture<HttpResponse<byte[]>>> responses = new ArrayList<CompletableFuture<HttpResponse<byte[]>>>();
+        for (int i = 0; i < 20; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()));
+        }
+
+        byte[] firstBody = responses.get(0).join().body();
+        for (CompletableFuture<HttpResponse<byte[]>> response : responses) {
+            assertEquals(200, response.join().statusCode());
+            assertTrue(Arrays.equals(firstBody, response.join().body()));
+        }
+    }
+}
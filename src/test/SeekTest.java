@@ -0,0 +1,123 @@
+import curve.ParametricCurve;
+import org.junit.jupiter.api.*;
+import ui.CurveTrace;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeekTest {
+    // The curve is undefined for t < 0.5
+    private static ParametricCurve createCurve() {
+        return new ParametricCurve("2cos(t)", "sqrt(t - 0.5) sin(3t)", 0, 2);
+    }
+
+    private static void assertSameState(ParametricCurve expected, ParametricCurve actual, String message) {
+        assertEquals(expected.getTick(), actual.getTick(), message);
+        assertEquals(expected.getTickIndex(), actual.getTickIndex(), message);
+        assertEquals(expected.isTIncreasing(), actual.isTIncreasing(), message);
+        assertEquals(expected.isChangingDirection(), actual.isChangingDirection(), message);
+        assertEquals(expected.willChangeDirection(), actual.willChangeDirection(), message);
+        if (expected.getTick() == 0) {
+            // A new curve has not been evaluated yet
+            return;
+        }
+        assertEquals(expected.getCurrentT(), actual.getCurrentT(), message);
+        assertEquals(expected.getCurrentXCoord(), actual.getCurrentXCoord(), message);
+        assertEquals(expected.getCurrentYCoord(), actual.getCurrentYCoord(), message);
+    }
+
+    @Test
+    public void seekMatchesTracing() {
+        ParametricCurve traced = createCurve();
+        CurveTrace tracedTrace = TestImages.createTrace();
+        int ticksPerCycle = traced.getTicksPerCycle();
+        int numIncreasingTicks = traced.getTickSamples(true).size();
+        long[] ticks = {0, 1, 7, numIncreasingTicks - 1, numIncreasingTicks, numIncreasingTicks + 1,
+                ticksPerCycle - 1, ticksPerCycle, ticksPerCycle + 1, ticksPerCycle + numIncreasingTicks + 3,
+                2 * ticksPerCycle, 3 * ticksPerCycle + 500, 4 * ticksPerCycle + numIncreasingTicks + 17};
+
+        // The curve that was sought to the previous tick is advanced alongside the traced
+        // curve, so seeking also has to leave the trace ready to be advanced
+        ParametricCurve continued = null;
+        CurveTrace continuedTrace = null;
+        for (long tick : ticks) {
+            while (traced.getTick() < tick) {
+                tracedTrace.advance(traced);
+                if (continued != null) {
+                    continuedTrace.advance(continued);
+                }
+            }
+
+            ParametricCurve sought = createCurve();
+            sought.seek(tick);
+            CurveTrace soughtTrace = TestImages.createTrace();
+            soughtTrace.seek(sought);
+            assertSameState(traced, sought, "tick " + tick);
+            assertArrayEquals(TestImages.paint(tracedTrace), TestImages.paint(soughtTrace), "tick " + tick);
+            if (continued != null) {
+                assertSameState(traced, continued, "tick " + tick);
+                assertArrayEquals(TestImages.paint(tracedTrace), TestImages.paint(continuedTrace), "tick " + tick);
+            }
+            continued = sought;
+            continuedTrace = soughtTrace;
+        }
+    }
+
+    @Test
+    public void seekWithinCycle() {
+        ParametricCurve curve = createCurve();
+        int ticksPerCycle = curve.getTicksPerCycle();
+        curve.seek(3L * ticksPerCycle + 5);
+
+        curve.seekToFraction(0);
+        assertEquals(3L * ticksPerCycle, curve.getTick());
+        assertTrue(curve.isTIncreasing());
+        assertEquals(0, curve.getCurrentT());
+
+        curve.seekToFraction(1);
+        assertEquals(4L * ticksPerCycle - 1, curve.getTick());
+        assertFalse(curve.isTIncreasing());
+
+        curve.seekToT(0.25, true);
+        assertTrue(curve.isTIncreasing());
+        assertEquals(0.25, curve.getCurrentT(), 1e-9);
+
+        curve.seekToT(2, false);
+        assertFalse(curve.isTIncreasing());
+        assertTrue(curve.isChangingDirection());
+        assertEquals(2, curve.getCurrentT());
+        assertEquals(3L * ticksPerCycle, curve.getTick() - curve.getTickIndex() - curve.getTickSamples(true).size());
+
+        assertThrows(IllegalArgumentException.class, () -> curve.seek(-1));
+        assertThrows(IllegalArgumentException.class, () -> curve.seekToFraction(1.5));
+        assertThrows(IllegalArgumentException.class, () -> curve.seekToT(3, true));
+    }
+
+    @Test
+    public void everyPassStepsThroughTheSameTValues() {
+        // 0.1 and 0.7 are not exact in binary, so adding up increments would drift
+        ParametricCurve curve = new ParametricCurve("t", "t", 0.1, 0.7);
+        int numPoints = ParametricCurve.APPROX_NUM_POINTS;
+        double[] firstCycle = new double[2 * numPoints];
+        for (int cycle = 0; cycle < 3; cycle++) {
+            for (int i = 0; i < 2 * numPoints; i++) {
+                int tickOfCycle = (i + 1) % (2 * numPoints);
+                curve.update();
+                assertEquals(tickOfCycle < numPoints, curve.isTIncreasing());
+                assertEquals(tickOfCycle % numPoints == 0, curve.isChangingDirection());
+                if (cycle == 0) {
+                    firstCycle[tickOfCycle] = curve.getCurrentT();
+                } else {
+                    assertEquals(firstCycle[tickOfCycle], curve.getCurrentT());
+                }
+            }
+        }
+
+        assertEquals(0.1, firstCycle[0]);
+        assertEquals(0.7, firstCycle[numPoints]);
+        for (int i = 1; i < numPoints; i++) {
+            // The decreasing pass visits the same values as the increasing pass
+            assertEquals(firstCycle[i], firstCycle[2 * numPoints - i]);
+            assertEquals(0.1 + i * (0.6 / numPoints), firstCycle[i], 1e-15);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+import curve.ParametricCurve;
+import curve.SampleBuffer;
+import curve.SampleTable;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import session.CurveSettings;
+import session.Session;
+import session.SessionWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionTest {
+    @TempDir
+    File tempDir;
+
+    private static final CurveSettings FLOWER = new CurveSettings("a r(t) cos(t)", "a r(t) sin(t)", 0, 6.3,
+            "a = 2; r(t) = 1 + 0.5cos(5t)", true, false);
+    private static final CurveSettings LINE = new CurveSettings("t", "2t", -1, 1, "", false, true);
+    private static final CurveSettings ROSE = new CurveSettings("a cos(5t)", "", 0, 6.3, "a = 2", false, false, true);
+
+    private static SampleBuffer sample(int numSamples) {
+        SampleBuffer samples = new SampleBuffer();
+        for (int i = 0; i < numSamples; i++) {
+            double t = i * 0.001;
+            if (i % 1000 == 999) {
+                samples.addBreak(t);
+            } else {
+                samples.add(t, Math.cos(t), Math.sin(3 * t));
+            }
+        }
+        return samples;
+    }
+
+    private static void assertSamplesEqual(SampleTable expected, SampleTable actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getT(i), actual.getT(i));
+            assertEquals(expected.getX(i), actual.getX(i));
+            assertEquals(expected.getY(i), actual.getY(i));
+        }
+    }
+
+    @Test
+    public void saveAndOpen() throws IOException {
+        File file = new File(tempDir, "session.curves");
+        SampleBuffer samples = sample(10000);
+        try (SessionWriter writer = new SessionWriter(file)) {
+            writer.addCurve(FLOWER, samples);
+            writer.addCurve(LINE);
+            writer.addCurve(LINE, new SampleBuffer());
+        }
+
+        try (Session session = Session.open(file)) {
+            assertEquals(3, session.getNumCurves());
+            assertEquals(FLOWER, session.getSettings(0));
+            assertEquals(LINE, session.getSettings(1));
+            assertSamplesEqual(samples, session.getSamples(0));
+            assertNull(session.getSamples(1));
+            assertEquals(0, session.getSamples(2).size());
+
+            // Samples can be read in any order
+            assertEquals(samples.getX(9999), session.getSamples(0).getX(9999));
+            assertEquals(samples.getY(5), session.getSamples(0).getY(5));
+            assertThrows(IndexOutOfBoundsException.class, () -> session.getSamples(0).getT(10000));
+
+            ParametricCurve curve = session.getSettings(0).createCurve();
+            assertTrue(curve.isConstantSpeed());
+            assertEquals(2, curve.getContext().getParameter("a"));
+        }
+
+        // Smooth curves compress to much less than 24 bytes per sample
+        assertTrue(file.length() < 24 * 10000 * 3 / 5);
+    }
+
+    @Test
+    public void polarCurve() throws IOException {
+        File file = new File(tempDir, "session.curves");
+        try (SessionWriter writer = new SessionWriter(file)) {
+            writer.addCurve(ROSE);
+            writer.addCurve(LINE);
+        }
+
+        try (Session session = Session.open(file)) {
+            assertEquals(ROSE, session.getSettings(0));
+            assertFalse(session.getSettings(1).isPolar());
+
+            ParametricCurve curve = session.getSettings(0).createCurve();
+            curve.update();
+            double t = curve.getCurrentT();
+            assertEquals(2 * Math.cos(5 * t) * Math.cos(t), curve.getCurrentXCoord(), 1e-15);
+            assertEquals(2 * Math.cos(5 * t) * Math.sin(t), curve.getCurrentYCoord(), 1e-15);
+        }
+        assertNotEquals(ROSE, new CurveSettings("a cos(5t)", "", 0, 6.3, "a = 2", false, false, false));
+    }
+
+    @Test
+    public void curveInSpace() throws IOException {
+        File file = new File(tempDir, "session.curves");
+        CurveSettings helix = new CurveSettings("cos(t)", "sin(t)", "t / 4", 0, 12, "", true, false, false);
+        try (SessionWriter writer = new SessionWriter(file)) {
+            writer.addCurve(helix);
+            writer.addCurve(LINE);
+        }
+
+        try (Session session = Session.open(file)) {
+            assertEquals(helix, session.getSettings(0));
+            assertEquals(LINE, session.getSettings(1));
+            assertTrue(session.getSettings(0).createCurve().is3D());
+            assertFalse(session.getSettings(1).createCurve().is3D());
+        }
+    }
+
+    @Test
+    public void samplesAreReadOnDemand() throws IOException {
+        File file = new File(tempDir, "session.curves");
+        SampleBuffer samples = sample(3 * SessionWriter.SAMPLES_PER_CHUNK);
+        try (SessionWriter writer = new SessionWriter(file)) {
+            writer.addCurve(LINE, samples);
+        }
+
+        // Overwrite part of the second chunk. Opening the session and reading the other
+        // chunks still works, because the second chunk is never read.
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            long secondChunk = file.length() / 2;
+            randomAccessFile.seek(secondChunk);
+            randomAccessFile.write(new byte[64]);
+        }
+        try (Session session = Session.open(file)) {
+            SampleTable table = session.getSamples(0);
+            assertEquals(samples.getX(0), table.getX(0));
+            assertEquals(samples.getX(table.size() - 1), table.getX(table.size() - 1));
+            assertThrows(UncheckedIOException.class, () -> table.getX(SessionWriter.SAMPLES_PER_CHUNK + 1));
+        }
+    }
+
+    @Test
+    public void invalidFiles() throws IOException {
+        File file = new File(tempDir, "invalid.curves");
+        Files.write(file.toPath(), new byte[100]);
+        assertThrows(IOException.class, () -> Session.open(file));
+
+        // A session that was never closed has no index
+        File incomplete = new File(tempDir, "incomplete.curves");
+        SessionWriter writer = new SessionWriter(incomplete);
+        writer.addCurve(LINE, sample(100));
+        Files.write(incomplete.toPath(), Files.readAllBytes(incomplete.toPath()));
+        assertThrows(IOException.class, () -> Session.open(incomplete));
+        writer.close();
+    }
+}
@@ -0,0 +1,73 @@
+import curve.CompiledExpression;
+import curve.EquationParser;
+import curve.FloatSampleBuffer;
+import org.junit.jupiter.api.*;
+import ui.CurveImageRenderer;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SinglePrecisionTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Test
+    public void samplesAreRoundedDoubleSamples() {
+        CompiledExpression x = EquationParser.compile("3cos(7t) + 0.1t");
+        CompiledExpression y = EquationParser.compile("sqrt(t) sin(5t)");
+        int numSamples = 5000;
+        FloatSampleBuffer samples = FloatSampleBuffer.sample(x, y, -1, 30, numSamples);
+        assertEquals(numSamples, samples.size());
+
+        double tIncrement = 31.0 / (numSamples - 1);
+        for (int i = 0; i < numSamples; i++) {
+            double t = -1 + i * tIncrement;
+            assertEquals((float) t, (float) samples.getT(i));
+            assertEquals((float) x.evaluate(t), (float) samples.getX(i));
+            if (t < 0) {
+                assertTrue(samples.isUndefined(i));
+            } else {
+                assertEquals((float) y.evaluate(t), (float) samples.getY(i));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> FloatSampleBuffer.sample(x, y, 1, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> FloatSampleBuffer.sample(x, y, 0, 1, 0));
+    }
+
+    @Test
+    public void pixelErrorIsAtMostOnePixel() {
+        CompiledExpression x = EquationParser.compile("1.37 + 2.9cos(7t) + 0.001t");
+        CompiledExpression y = EquationParser.compile("2.2sin(11t) - 0.0123");
+        BufferedImage doubleImage = CurveImageRenderer.render(x, y, 0, 100, 200000, WIDTH, HEIGHT, false);
+        BufferedImage floatImage = CurveImageRenderer.render(x, y, 0, 100, 200000, WIDTH, HEIGHT, true);
+
+        // Every pixel that is drawn in one image is drawn with the same colour within one
+        // pixel of it in the other
+        assertWithinOnePixel(doubleImage, floatImage);
+        assertWithinOnePixel(floatImage, doubleImage);
+    }
+
+    private static void assertWithinOnePixel(BufferedImage expected, BufferedImage actual) {
+        int background = expected.getRGB(0, 0);
+        for (int py = 0; py < HEIGHT; py++) {
+            for (int px = 0; px < WIDTH; px++) {
+                int colour = actual.getRGB(px, py);
+                if (colour != background) {
+                    assertTrue(isDrawnNear(expected, px, py, colour), "pixel (" + px + ", " + py + ")");
+                }
+            }
+        }
+    }
+
+    private static boolean isDrawnNear(BufferedImage image, int px, int py, int colour) {
+        for (int y = Math.max(py - 1, 0); y <= Math.min(py + 1, HEIGHT - 1); y++) {
+            for (int x = Math.max(px - 1, 0); x <= Math.min(px + 1, WIDTH - 1); x++) {
+                if (image.getRGB(x, y) == colour) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+import ui.CurveTrace;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Helpers for the tests that compare the pixels of painted curves.
+ */
+final class TestImages {
+    // The size of the images that traces are painted into by paint(CurveTrace)
+    static final int WIDTH = 500;
+    static final int HEIGHT = 400;
+
+    private TestImages() {
+    }
+
+    /**
+     * @return an empty trace of a curve on a screen of the size WIDTH by HEIGHT
+     */
+    static CurveTrace createTrace() {
+        return new CurveTrace(WIDTH, HEIGHT);
+    }
+
+    /**
+     * @return the pixels of a WIDTH by HEIGHT image that the given trace is painted into
+     */
+    static int[] paint(CurveTrace trace) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        trace.paint(g);
+        g.dispose();
+        return pixels(image);
+    }
+
+    /**
+     * @return the ARGB colours of the pixels of the given image, row by row
+     */
+    static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}
@@ -0,0 +1,64 @@
+import curve.ParametricCurve;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import ui.TraceExporter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceExporterTest {
+    @TempDir
+    File tempDir;
+
+    private static TraceExporter createExporter(int numThreads) {
+        ParametricCurve curve = new ParametricCurve("2cos(t)", "sin(3t)", 0, 1);
+        TraceExporter exporter = new TraceExporter(curve, 200, 150);
+        exporter.setNumThreads(numThreads);
+        exporter.setTicksPerFrame(50);
+        return exporter;
+    }
+
+    @Test
+    public void exportGif() throws IOException {
+        File gif = new File(tempDir, "trace.gif");
+        createExporter(4).export(50, TraceExporter.Format.GIF, gif);
+
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream input = ImageIO.createImageInputStream(gif)) {
+            reader.setInput(input);
+            assertEquals(50, reader.getNumImages(true));
+            assertEquals(200, reader.getWidth(0));
+            assertEquals(150, reader.getHeight(0));
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    public void parallelExportMatchesSequentialExport() throws IOException {
+        // 50 frames of 50 ticks each covers more than one full cycle of the curve, so
+        // the frames include direction changes and overwritten points.
+        File sequentialDir = new File(tempDir, "sequential");
+        File parallelDir = new File(tempDir, "parallel");
+        createExporter(1).export(50, TraceExporter.Format.PNG_SEQUENCE, sequentialDir);
+        createExporter(4).export(50, TraceExporter.Format.PNG_SEQUENCE, parallelDir);
+
+        for (int i = 0; i < 50; i++) {
+            String name = String.format("frame%05d.png", i);
+            BufferedImage sequential = ImageIO.read(new File(sequentialDir, name));
+            BufferedImage parallel = ImageIO.read(new File(parallelDir, name));
+            for (int y = 0; y < 150; y++) {
+                for (int x = 0; x < 200; x++) {
+                    assertEquals(sequential.getRGB(x, y), parallel.getRGB(x, y), name);
+                }
+            }
+        }
+    }
+}
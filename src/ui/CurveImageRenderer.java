@@ -0,0 +1,123 @@
+package ui;
+
+import curve.CompiledExpression;
+import curve.CurveSource;
+import curve.ExpressionCurveSource;
+import curve.FloatSampleBuffer;
+import curve.SampleTable;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The CurveImageRenderer paints a whole curve into an image without a window, using the
+ * same CurveTrace as the DrawingPanel. The curve is drawn the way the DrawingPanel draws
+ * it at the end of the first pass in the increasing t direction, with the points of a
+ * dense curve painted on several threads at once. The class cannot be instantiated.
+ */
+public final class CurveImageRenderer {
+	private CurveImageRenderer() {}
+
+	/**
+	 * @return an image of the given size that shows the curve (x(t), y(t)) sampled at
+	 * numSamples evenly spaced t values from tLowerBound to tUpperBound inclusive
+	 *
+	 * @throws IllegalArgumentException if the image size or numSamples is not positive,
+	 * or if tLowerBound > tUpperBound
+	 */
+	public static BufferedImage render(CompiledExpression xExpression, CompiledExpression yExpression,
+									   double tLowerBound, double tUpperBound, int numSamples,
+									   int width, int height) {
+		return render(xExpression, yExpression, tLowerBound, tUpperBound, numSamples, width, height, false);
+	}
+
+	/**
+	 * @return an image as above. If singlePrecision is true, the samples are stored as
+	 * floats (see {@link FloatSampleBuffer}), which halves the memory that they take up.
+	 * Each point is then drawn at most one pixel away from where it is drawn otherwise.
+	 *
+	 * @throws IllegalArgumentException if the image size or numSamples is not positive,
+	 * or if tLowerBound > tUpperBound
+	 */
+	public static BufferedImage render(CompiledExpression xExpression, CompiledExpression yExpression,
+									   double tLowerBound, double tUpperBound, int numSamples,
+									   int width, int height, boolean singlePrecision) {
+		return render(new ExpressionCurveSource(xExpression, yExpression, tLowerBound, tUpperBound),
+				numSamples, width, height, singlePrecision);
+	}
+
+	/**
+	 * @return an image as above of the given curve, sampled over its whole range of t
+	 *
+	 * @throws IllegalArgumentException if the image size or numSamples is not positive
+	 */
+	public static BufferedImage render(CurveSource source, int numSamples, int width, int height,
+									   boolean singlePrecision) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Image size must be positive");
+		}
+		if (numSamples < 1) {
+			throw new IllegalArgumentException("Number of samples must be at least 1");
+		}
+		if (singlePrecision) {
+			return render(FloatSampleBuffer.sample(source, numSamples), width, height);
+		}
+
+		double tLowerBound = source.getTLowerBound();
+		double tUpperBound = source.getTUpperBound();
+		double tIncrement = numSamples == 1 ? 0 : (tUpperBound - tLowerBound) / (numSamples - 1);
+		double[] tValues = new double[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			tValues[i] = tLowerBound + i * tIncrement;
+		}
+		double[] xValues = new double[numSamples];
+		double[] yValues = new double[numSamples];
+		source.evaluate(tValues, xValues, yValues, numSamples);
+
+		CurveTrace trace = new CurveTrace(width, height);
+		for (int i = 0; i < numSamples; i++) {
+			trace.record(true, false, xValues[i], yValues[i]);
+		}
+		return paint(trace, width, height);
+	}
+
+	/**
+	 * @return an image of the given size that shows the given samples. The samples are
+	 * read once, in order, so a table that loads its samples on demand reads each part
+	 * of its samples only once.
+	 *
+	 * @throws IllegalArgumentException if the image size is not positive
+	 */
+	public static BufferedImage render(SampleTable samples, int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Image size must be positive");
+		}
+
+		CurveTrace trace = new CurveTrace(width, height);
+		for (int i = 0; i < samples.size(); i++) {
+			trace.record(true, false, samples.getX(i), samples.getY(i));
+		}
+		return paint(trace, width, height);
+	}
+
+	/**
+	 * @return an image of the given trace on the background colour. The points are
+	 * painted in bands of rows on the threads shared by every PointRasterizer (see
+	 * {@link PointRasterizer}).
+	 */
+	private static BufferedImage paint(CurveTrace trace, int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setColor(DrawingPanel.BACKGROUND_COLOUR);
+			g.fillRect(0, 0, width, height);
+		} finally {
+			g.dispose();
+		}
+
+		PointRasterizer rasterizer = new PointRasterizer(width, height);
+		trace.paint(rasterizer);
+		rasterizer.paint(image);
+		return image;
+	}
+}
@@ -0,0 +1,561 @@
+package ui;
+
+import curve.ParametricCurve;
+import curve.Projection;
+import curve.SampleTable3D;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * A CurveTrace holds the points of a parametric curve that has been traced out so far,
+ * along with the colours they were drawn with. On every clock tick, the curve is advanced
+ * by one step and the new point is recorded (see {@link #advance(ParametricCurve)}). The
+ * trace can then be painted onto any Graphics object, so the same animation can be shown
+ * by the DrawingPanel or rendered offscreen.
+ *
+ * The colour of the curve cycles through the CurveColours every time the curve changes
+ * direction. Once one full cycle of the curve has been traced out, newly traced points
+ * overwrite the points from the previous pass in the same direction.
+ *
+ * Points are stored in primitive arrays and painted from images of a point in each
+ * colour, so once a cycle has been traced out, neither advancing nor painting allocates
+ * anything.
+ *
+ * A curve in space is drawn through a {@link Projection}. The trace keeps the actual
+ * coordinates of every point, so when the projection changes (e.g. while the user rotates
+ * the view), all points are projected again in one batch without the curve being
+ * evaluated again.
+ */
+public class CurveTrace {
+	// The number of pixels per unit of x or y
+	private static final int PIXELS_PER_UNIT = 100;
+
+	// Width and height of the oval used to fill in each point on the curve
+	private static final int CURVE_WIDTH = 10;
+	private static final int CURVE_HEIGHT = 10;
+
+	// An image of a point in each CurveColour, indexed by ordinal. Drawing an image is
+	// several times faster than filling an oval, and unlike filling an oval, does not
+	// allocate anything.
+	private static final BufferedImage[] POINT_IMAGES = createPointImages();
+
+	// The size of the area that the curve is drawn in. The origin is in the centre.
+	private final int screenWidth;
+	private final int screenHeight;
+
+	// The colour that the curve is currently being drawn with
+	private CurveColour curveColour;
+
+	// All possible colours that the curve can be drawn with
+	private CurveColour[] colours = CurveColour.values();
+
+	// A list of the curve's points in the increasing direction. May
+	// contain undefined points.
+	private final PointList increasingList;
+
+	// A list of the curve's points in the decreasing direction. May
+	// contain undefined points.
+	private final PointList decreasingList;
+
+	/* The current index of the list that we are currently adding
+	 * ColouredPoints into. When a new parametric curve is just starting
+	 * to be drawn, currentIndex is initially set to -1 because
+	 * record() increments currentIndex if the curve is not changing
+	 * direction. Thus, right before the curve starts to be drawn,
+	 * currentIndex is incremented to 0 (its expected value).
+	 */
+	private int currentIndex;
+
+	// Indicates whether one full cycle of the curve has been traced out
+	// (i.e. whether the curve has been fully drawn in both the increasing
+	// and decreasing t directions)
+	private boolean oneCycleComplete;
+
+	// Indicates whether t was increasing when the last point was recorded
+	private boolean tIncreasing;
+
+	// The projection that points in space are drawn through, or null if the curve is
+	// in the plane
+	private Projection projection;
+
+	// The projected coordinates of a list of points, which are kept between projections
+	// so that projecting does not allocate anything
+	private double[] projectedXValues = new double[0];
+	private double[] projectedYValues = new double[0];
+
+	/**
+	 * A growable list of points, holding their actual coordinates, their screen
+	 * coordinates, whether they are defined on the screen, and the colours they are
+	 * drawn with.
+	 */
+	private static final class PointList {
+		double[] xCoords;
+		double[] yCoords;
+		double[] zCoords;
+		int[] xValues;
+		int[] yValues;
+		boolean[] defined;
+		CurveColour[] colours;
+		int size;
+
+		PointList(int initialCapacity) {
+			xCoords = new double[initialCapacity];
+			yCoords = new double[initialCapacity];
+			zCoords = new double[initialCapacity];
+			xValues = new int[initialCapacity];
+			yValues = new int[initialCapacity];
+			defined = new boolean[initialCapacity];
+			colours = new CurveColour[initialCapacity];
+		}
+
+		/**
+		 * Appends a point and returns its index. Its screen coordinates are set by
+		 * {@link CurveTrace#project(PointList, int)}.
+		 */
+		int add(double x, double y, double z, CurveColour colour) {
+			ensureCapacity(size + 1);
+			set(size, x, y, z, colour);
+			return size++;
+		}
+
+		/**
+		 * Inserts a point before all the other points.
+		 */
+		void addFirst(double x, double y, double z, CurveColour colour) {
+			ensureCapacity(size + 1);
+			System.arraycopy(xCoords, 0, xCoords, 1, size);
+			System.arraycopy(yCoords, 0, yCoords, 1, size);
+			System.arraycopy(zCoords, 0, zCoords, 1, size);
+			System.arraycopy(xValues, 0, xValues, 1, size);
+			System.arraycopy(yValues, 0, yValues, 1, size);
+			System.arraycopy(defined, 0, defined, 1, size);
+			System.arraycopy(colours, 0, colours, 1, size);
+			set(0, x, y, z, colour);
+			size++;
+		}
+
+		void set(int index, double x, double y, double z, CurveColour colour) {
+			xCoords[index] = x;
+			yCoords[index] = y;
+			zCoords[index] = z;
+			colours[index] = colour;
+		}
+
+		void addAll(PointList other) {
+			ensureCapacity(size + other.size);
+			System.arraycopy(other.xCoords, 0, xCoords, size, other.size);
+			System.arraycopy(other.yCoords, 0, yCoords, size, other.size);
+			System.arraycopy(other.zCoords, 0, zCoords, size, other.size);
+			System.arraycopy(other.xValues, 0, xValues, size, other.size);
+			System.arraycopy(other.yValues, 0, yValues, size, other.size);
+			System.arraycopy(other.defined, 0, defined, size, other.size);
+			System.arraycopy(other.colours, 0, colours, size, other.size);
+			size += other.size;
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity > colours.length) {
+				int newCapacity = Math.max(capacity, colours.length * 2);
+				xCoords = Arrays.copyOf(xCoords, newCapacity);
+				yCoords = Arrays.copyOf(yCoords, newCapacity);
+				zCoords = Arrays.copyOf(zCoords, newCapacity);
+				xValues = Arrays.copyOf(xValues, newCapacity);
+				yValues = Arrays.copyOf(yValues, newCapacity);
+				defined = Arrays.copyOf(defined, newCapacity);
+				colours = Arrays.copyOf(colours, newCapacity);
+			}
+		}
+	}
+
+	/**
+	 * Creates an empty CurveTrace that draws onto an area of the given size.
+	 */
+	public CurveTrace(int screenWidth, int screenHeight) {
+		this.screenWidth = screenWidth;
+		this.screenHeight = screenHeight;
+		increasingList = new PointList(ParametricCurve.APPROX_NUM_POINTS);
+		decreasingList = new PointList(ParametricCurve.APPROX_NUM_POINTS);
+		clear();
+	}
+
+	/**
+	 * @return a copy of this CurveTrace. Recording points into the copy does not
+	 * affect this CurveTrace, and vice versa.
+	 */
+	public CurveTrace copy() {
+		CurveTrace copy = new CurveTrace(screenWidth, screenHeight);
+		copy.projection = projection;
+		copy.curveColour = curveColour;
+		copy.increasingList.addAll(increasingList);
+		copy.decreasingList.addAll(decreasingList);
+		copy.currentIndex = currentIndex;
+		copy.oneCycleComplete = oneCycleComplete;
+		copy.tIncreasing = tIncreasing;
+		return copy;
+	}
+
+	/**
+	 * Sets the projection that the points of a curve in space are drawn through, or
+	 * null for a curve in the plane, whose z-coordinates are ignored. The points that
+	 * have been traced out so far are projected again.
+	 */
+	public void setProjection(Projection projection) {
+		this.projection = projection;
+		projectAll(increasingList);
+		projectAll(decreasingList);
+	}
+
+	/**
+	 * @return the projection that the points of a curve in space are drawn through, or
+	 * null if the curve is in the plane
+	 */
+	public Projection getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Removes all points from this trace. The colour that the curve is drawn with
+	 * is reset to the first colour in the CurveColour enum (i.e. CurveColours.values()[0]).
+	 * The projection is kept.
+	 */
+	public void clear() {
+		curveColour = colours[0];
+		increasingList.clear();
+		decreasingList.clear();
+
+		// currentIndex is set to -1 because just before the curve starts being
+		// drawn, record() will increment currentIndex by 1, making
+		// currentIndex equal 0 as expected.
+		currentIndex = -1;
+		oneCycleComplete = false;
+		tIncreasing = true;
+	}
+
+	/**
+	 * Advances the given curve by one clock tick and records its new point.
+	 */
+	public void advance(ParametricCurve curve) {
+		curve.update();
+		record(curve.isTIncreasing(), curve.isChangingDirection(),
+				curve.getCurrentXCoord(), curve.getCurrentYCoord(), curve.getCurrentZCoord());
+	}
+
+	/**
+	 * Advances the given curve by the given number of clock ticks and records the new
+	 * points, so that they can all be painted at once. If the curve would go round a
+	 * whole cycle or more, it seeks to the new tick instead (see {@link #seek(ParametricCurve)}).
+	 *
+	 * @throws IllegalArgumentException if numTicks < 0
+	 */
+	public void advance(ParametricCurve curve, int numTicks) {
+		if (numTicks < 0) {
+			throw new IllegalArgumentException("Number of ticks cannot be negative");
+		}
+		if (numTicks >= curve.getTicksPerCycle()) {
+			curve.seek(curve.getTick() + numTicks);
+			seek(curve);
+			return;
+		}
+		for (int i = 0; i < numTicks; i++) {
+			advance(curve);
+		}
+	}
+
+	/**
+	 * Records the point (x, y) of the curve (in actual coordinates; not screen
+	 * coordinates) after one clock tick, given the direction of t and whether
+	 * the curve is changing direction at that tick.
+	 */
+	public void record(boolean tIncreasing, boolean changingDirection, double x, double y) {
+		record(tIncreasing, changingDirection, x, y, 0);
+	}
+
+	/**
+	 * Records the point (x, y, z) of a curve in space as above.
+	 */
+	public void record(boolean tIncreasing, boolean changingDirection, double x, double y, double z) {
+		this.tIncreasing = tIncreasing;
+
+		if (changingDirection) {
+			if (curveColour == colours[colours.length - 1]) {
+				curveColour = colours[0];
+			} else {
+				// Set curveColour to the next colour in the colours array
+				curveColour = colours[curveColour.ordinal() + 1];
+			}
+			currentIndex = 0;
+		} else {
+			currentIndex++;
+		}
+
+		// Add the current point and its colour to the appropriate list (depending
+		// on whether t is currently increasing or decreasing). Note that if the
+		// current point cannot be drawn (e.g. at an asymptote, where a coordinate is
+		// NaN or infinite), it is added as an undefined point (see project()).
+		PointList list = tIncreasing ? increasingList : decreasingList;
+		int index;
+		if (oneCycleComplete) {
+			// If one full cycle has been completed, we can override the point
+			// in the appropriate list at currentIndex with our new point.
+			index = currentIndex;
+			list.set(index, x, y, z, curveColour);
+		} else if (changingDirection && tIncreasing) {
+			// The first pass starts one tick after t = tLowerBound, so the point at
+			// tLowerBound goes in front of it. Every index of increasingList then
+			// matches the index of the same point on later passes.
+			index = 0;
+			list.addFirst(x, y, z, curveColour);
+		} else {
+			index = list.add(x, y, z, curveColour);
+		}
+		project(list, index);
+
+		if (changingDirection && tIncreasing && !oneCycleComplete) {
+			oneCycleComplete = true;
+		}
+	}
+
+	/**
+	 * Replaces the points of this trace with those that would have been recorded by
+	 * advancing the given curve from its creation up to its current tick (see
+	 * {@link ParametricCurve#seek(long)}). The points are rebuilt from the coordinates
+	 * that the curve has stored for a cycle, so no ticks are replayed.
+	 */
+	public void seek(ParametricCurve curve) {
+		SampleTable3D increasingTicks = curve.getTickSamples(true);
+		SampleTable3D decreasingTicks = curve.getTickSamples(false);
+		int numIncreasingTicks = increasingTicks.size();
+		long ticksPerCycle = numIncreasingTicks + decreasingTicks.size();
+		long tick = curve.getTick();
+		long cycle = tick / ticksPerCycle;
+		int tickIndex = curve.getTickIndex();
+
+		clear();
+		if (tick == 0) {
+			return;
+		}
+		tIncreasing = curve.isTIncreasing();
+		// The colour changes every time the curve changes direction
+		long numDirectionChanges = 2 * cycle + (tIncreasing ? 0 : 1);
+		curveColour = colours[(int) (numDirectionChanges % colours.length)];
+		currentIndex = tickIndex;
+
+		if (cycle == 0) {
+			// The first pass starts at tick 1 (see record())
+			if (tIncreasing) {
+				addPoints(increasingList, increasingTicks, 1, tickIndex + 1, curveColour);
+				currentIndex = tickIndex - 1;
+			} else {
+				addPoints(increasingList, increasingTicks, 1, numIncreasingTicks, colours[0]);
+				addPoints(decreasingList, decreasingTicks, 0, tickIndex + 1, curveColour);
+			}
+			return;
+		}
+
+		// The points of the current pass up to the current tick, followed by the rest of
+		// the previous pass in the same direction, followed by the whole previous pass in
+		// the other direction
+		oneCycleComplete = true;
+		CurveColour previousColour = colours[(int) ((numDirectionChanges - 1) % colours.length)];
+		CurveColour secondPreviousColour = colours[(int) ((numDirectionChanges + colours.length - 2) % colours.length)];
+		PointList currentList = tIncreasing ? increasingList : decreasingList;
+		SampleTable3D currentTicks = tIncreasing ? increasingTicks : decreasingTicks;
+		addPoints(currentList, currentTicks, 0, tickIndex + 1, curveColour);
+		addPoints(currentList, currentTicks, tickIndex + 1, currentTicks.size(), secondPreviousColour);
+		if (tIncreasing) {
+			addPoints(decreasingList, decreasingTicks, 0, decreasingTicks.size(), previousColour);
+		} else {
+			addPoints(increasingList, increasingTicks, 0, numIncreasingTicks, previousColour);
+		}
+	}
+
+	/**
+	 * Adds the points of the given ticks from index start (inclusive) to end (exclusive)
+	 * to the given list, drawn with the given colour.
+	 */
+	private void addPoints(PointList list, SampleTable3D ticks, int start, int end, CurveColour colour) {
+		for (int i = start; i < end; i++) {
+			project(list, list.add(ticks.getX(i), ticks.getY(i), ticks.getZ(i), colour));
+		}
+	}
+
+	/**
+	 * Sets the screen coordinates of the point at the given index of the given list from
+	 * its actual coordinates.
+	 */
+	private void project(PointList list, int index) {
+		double x = list.xCoords[index];
+		double y = list.yCoords[index];
+		if (projection != null) {
+			double z = list.zCoords[index];
+			double projectedX = projection.projectX(x, y, z);
+			y = projection.projectY(x, y, z);
+			x = projectedX;
+		}
+		setScreenCoordinates(list, index, x, y);
+	}
+
+	/**
+	 * Sets the screen coordinates of every point of the given list, projecting them all
+	 * at once.
+	 */
+	private void projectAll(PointList list) {
+		int size = list.size;
+		if (projection == null) {
+			for (int i = 0; i < size; i++) {
+				setScreenCoordinates(list, i, list.xCoords[i], list.yCoords[i]);
+			}
+			return;
+		}
+		if (projectedXValues.length < size) {
+			projectedXValues = new double[list.xCoords.length];
+			projectedYValues = new double[list.xCoords.length];
+		}
+		projection.project(list.xCoords, list.yCoords, list.zCoords, projectedXValues, projectedYValues, size);
+		for (int i = 0; i < size; i++) {
+			setScreenCoordinates(list, i, projectedXValues[i], projectedYValues[i]);
+		}
+	}
+
+	/**
+	 * Sets the screen coordinates of the point at the given index of the given list to
+	 * those of the point (x, y) in the plane. If either coordinate is NaN or infinite,
+	 * the point is undefined and is not drawn.
+	 */
+	private void setScreenCoordinates(PointList list, int index, double x, double y) {
+		list.defined[index] = isDefined(x, y);
+		list.xValues[index] = toScreenX(x);
+		list.yValues[index] = toScreenY(y);
+	}
+
+	/**
+	 * @return true if the point (x, y) can be drawn, i.e. neither coordinate is NaN
+	 * or infinite
+	 */
+	private static boolean isDefined(double x, double y) {
+		return Double.isFinite(x) && Double.isFinite(y);
+	}
+
+	/**
+	 * @return the screen x-coordinate of the given actual x-coordinate
+	 */
+	private int toScreenX(double x) {
+		return (int) (x * PIXELS_PER_UNIT + screenWidth * 0.5);
+	}
+
+	/**
+	 * @return the screen y-coordinate of the given actual y-coordinate
+	 */
+	private int toScreenY(double y) {
+		return (int) (y * -PIXELS_PER_UNIT + screenHeight * 0.5);
+	}
+
+	/**
+	 * Paints the points of this trace that are currently visible.
+	 */
+	public void paint(Graphics g) {
+		/* At any given time, we want to draw the first currentIndex + 1 points of
+		 * either increasingList or decreasingList (depending on whether t is increasing or
+		 * decreasing). We also want to *exclude* the last currentIndex + 1 points of
+		 * the other list from being drawn. For example, suppose increasingList has 998
+		 * elements, decreasingList has 1000 elements, currentIndex is 400, and t is
+		 * increasing. We want to draw the first 400 points of increasingList (as they are
+		 * the most recently calculated points), and we want to exclude the last 400 points
+		 * of decreasingList from being drawn (because the first 400 points of increasingList
+		 * are drawn in place of the last 400 points of decreasingList).
+		 */
+		if (currentIndex < 0) {
+			return;
+		}
+		if (tIncreasing) {
+			paintPoints(g, increasingList, currentIndex + 1);
+			paintPoints(g, decreasingList, decreasingList.size - currentIndex);
+		} else {
+			paintPoints(g, decreasingList, currentIndex + 1);
+			paintPoints(g, increasingList, increasingList.size - currentIndex);
+		}
+	}
+
+	/**
+	 * Adds the points of this trace that are currently visible to the given rasterizer,
+	 * in the order that {@link #paint(Graphics)} paints them.
+	 */
+	public void paint(PointRasterizer rasterizer) {
+		if (currentIndex < 0) {
+			return;
+		}
+		if (tIncreasing) {
+			addPoints(rasterizer, increasingList, currentIndex + 1);
+			addPoints(rasterizer, decreasingList, decreasingList.size - currentIndex);
+		} else {
+			addPoints(rasterizer, decreasingList, currentIndex + 1);
+			addPoints(rasterizer, increasingList, increasingList.size - currentIndex);
+		}
+	}
+
+	/**
+	 * Adds the first count points of the given list to the given rasterizer.
+	 */
+	private static void addPoints(PointRasterizer rasterizer, PointList list, int count) {
+		for (int i = 0; i < count; i++) {
+			if (list.defined[i]) {
+				rasterizer.add(list.xValues[i], list.yValues[i], list.colours[i]);
+			}
+		}
+	}
+
+	/**
+	 * Paints the first count points of the given list.
+	 */
+	private static void paintPoints(Graphics g, PointList list, int count) {
+		for (int i = 0; i < count; i++) {
+			if (list.defined[i]) {
+				g.drawImage(POINT_IMAGES[list.colours[i].ordinal()], list.xValues[i], list.yValues[i], null);
+			}
+		}
+	}
+
+	/**
+	 * @return the image that a point in the given colour is painted with
+	 */
+	static BufferedImage getPointImage(CurveColour colour) {
+		return POINT_IMAGES[colour.ordinal()];
+	}
+
+	/**
+	 * @return an image of a point in each CurveColour, indexed by ordinal. Each image
+	 * has exactly the pixels that filling the point's oval would.
+	 */
+	private static BufferedImage[] createPointImages() {
+		CurveColour[] colours = CurveColour.values();
+		BufferedImage[] images = new BufferedImage[colours.length];
+		for (CurveColour colour : colours) {
+			BufferedImage image = new BufferedImage(CURVE_WIDTH, CURVE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = image.createGraphics();
+			g.setColor(toColor(colour));
+			g.fillOval(0, 0, CURVE_WIDTH, CURVE_HEIGHT);
+			g.dispose();
+			images[colour.ordinal()] = image;
+		}
+		return images;
+	}
+
+	/**
+	 * @return the Color that the given CurveColour is drawn with
+	 */
+	static Color toColor(CurveColour colour) {
+		if (colour == CurveColour.RED) {
+			return Color.RED;
+		} else if (colour == CurveColour.GREEN) {
+			return Color.GREEN;
+		} else {
+			return Color.BLUE;
+		}
+	}
+}
@@ -1,28 +1,47 @@
 package ui;
 
+import curve.AnimatedCurve;
+import curve.CurveSource;
 import curve.ParametricCurve;
+import curve.Projection;
+import curve.SampleTable3D;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-
-import java.util.ArrayList;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 import javax.swing.JPanel;
 
 /**
- * The DrawingPanel renders the parametric curve.
+ * The DrawingPanel renders the parametric curve. A curve in space can be rotated by
+ * dragging the mouse across the panel, which only projects the points that have been
+ * traced out again (see {@link CurveTrace#setProjection(Projection)}).
+ *
+ * A curve whose equations depend on the animation time s is drawn whole on every frame
+ * instead of being traced out, with s going up as fast as t would (see {@link AnimatedCurve}).
+ *
+ * Each frame is painted into an image by a {@link PointRasterizer}, which is then drawn
+ * on the panel in one go.
  */
 @SuppressWarnings("serial")
 public class DrawingPanel extends JPanel {
-	private static final int SCREEN_WIDTH = 1024;
-	private static final int SCREEN_HEIGHT = 780;
+	static final int SCREEN_WIDTH = 1024;
+	static final int SCREEN_HEIGHT = 780;
+
+	static final Color BACKGROUND_COLOUR = Color.WHITE;
 
-	private static final Color BACKGROUND_COLOUR = Color.WHITE;
+	// The number of radians that the view of a curve in space is rotated by when the
+	// mouse is dragged by one pixel
+	private static final double RADIANS_PER_PIXEL = 0.01;
 
-	// Width and height of the oval used to fill in each point on the curve
-	private static final int CURVE_WIDTH = 10;
-	private static final int CURVE_HEIGHT = 10;
+	// The view of a curve in space before the user rotates it: turned a little about
+	// the z-axis and tilted so that the z-axis points up the screen
+	static final Projection INITIAL_PROJECTION = new Projection(-Math.PI / 6, -Math.PI / 3);
 
 	// The singleton instance of the drawing panel
 	private static DrawingPanel instance;
@@ -30,68 +49,72 @@ public class DrawingPanel extends JPanel {
 	// The curve being drawn on the drawing panel
 	private ParametricCurve curve;
 
+	// The frames of the curve if its equations depend on the animation time, or null
+	private AnimatedCurve animatedCurve;
+
+	// The animation time of the current frame of animatedCurve
+	private double animationTime;
+
 	// The ActionListener that paints the drawing panel
 	private final ActionListener painter;
 
-	// The colour that the curve is currently being drawn with
-	private CurveColour curveColour;
+	// The points of the curve that have been traced out so far
+	private final CurveTrace trace;
 
-	// All possible colours that the curve can be drawn with
-	private CurveColour[] colours = CurveColour.values();
+	// Indicates whether the curve is held still instead of being advanced on every
+	// clock tick
+	private boolean paused;
 
-	// A list of the curve's points in the increasing direction. May
-	// contain null (to denote an undefined point).
-	private ArrayList<ColouredPoint> increasingList;
+	// Decides how many ticks the curve is advanced by on each frame
+	private final PlaybackClock clock = new PlaybackClock();
 
-	// A list of the curve's points in the decreasing direction. May
-	// contain null (to denote an undefined point).
-	private ArrayList<ColouredPoint> decreasingList;
+	// The view that curves in space are drawn with
+	private Projection projection = INITIAL_PROJECTION;
 
-	/* The current index of the list that we are currently adding
-	 * ColouredPoints into. When a new parametric curve is just starting
-	 * to be drawn, currentIndex is initially set to -1 because
-	 * paintComponent() increments currentIndex if the curve is not changing
-	 * direction. Thus, right before the curve starts to be drawn,
-	 * currentIndex is incremented to 0 (its expected value).
-	 */
-	private int currentIndex;
+	// The position of the mouse when it was last pressed or dragged
+	private Point lastMousePosition;
 
-	// Indicates whether one full cycle of the curve has been traced out
-	// (i.e. whether the curve has been fully drawn in both the increasing
-	// and decreasing t directions)
-	private boolean oneCycleComplete;
+	// The image that each frame is painted into before it is drawn on the panel
+	private final BufferedImage frameImage = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT,
+			BufferedImage.TYPE_INT_RGB);
 
-	/**
-	 * Represents a point drawn with a specific colour.
-	 */
-	private static class ColouredPoint {
-		Point point;
-		CurveColour colour;
+	// The pixels of frameImage, which are cleared directly so that painting a frame
+	// does not allocate anything
+	private final int[] framePixels = ((DataBufferInt) frameImage.getRaster().getDataBuffer()).getData();
 
-		ColouredPoint(Point point, CurveColour colour) {
-			this.point = point;
-			this.colour = colour;
-		}
-	}
+	// Paints the points of the trace into frameImage
+	private final PointRasterizer rasterizer = new PointRasterizer(SCREEN_WIDTH, SCREEN_HEIGHT);
 
 	private DrawingPanel() {
-		curveColour = CurveColour.RED;
 		this.setBackground(BACKGROUND_COLOUR);
 		painter = new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
 				repaint();
+				EquationPanel.getInstance().showProgress(getProgress());
 			}
 		};
 		this.setPreferredSize(new Dimension(SCREEN_WIDTH, SCREEN_HEIGHT));
 
-		increasingList = new ArrayList<ColouredPoint>(ParametricCurve.APPROX_NUM_POINTS);
-		decreasingList = new ArrayList<ColouredPoint>(ParametricCurve.APPROX_NUM_POINTS);
+		MouseAdapter rotator = new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e) {
+				lastMousePosition = e.getPoint();
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				if (lastMousePosition != null) {
+					rotate((e.getX() - lastMousePosition.x) * RADIANS_PER_PIXEL,
+							(e.getY() - lastMousePosition.y) * RADIANS_PER_PIXEL);
+				}
+				lastMousePosition = e.getPoint();
+			}
+		};
+		this.addMouseListener(rotator);
+		this.addMouseMotionListener(rotator);
 
-		// currentIndex is set to -1 because just before the curve starts being
-		// drawn, paintComponent() will increment currentIndex by 1, making
-		// currentIndex equal 0 as expected.
-		currentIndex = -1;
+		trace = new CurveTrace(SCREEN_WIDTH, SCREEN_HEIGHT);
 	}
 
 	/**
@@ -113,129 +136,172 @@ public class DrawingPanel extends JPanel {
 			return;
 		}
 
-		curve.update();
-
-		if (curve.isChangingDirection()) {
-			if (curveColour == colours[colours.length - 1]) {
-				curveColour = colours[0];
-			} else {
-				// Set curveColour to the next colour in the colours array
-				curveColour = colours[curveColour.ordinal() + 1];
-			}
-			currentIndex = 0;
-		} else {
-			currentIndex++;
+		if (animatedCurve != null) {
+			paintFrame();
+		} else if (!paused) {
+			trace.advance(curve, clock.takeTicks(System.nanoTime(), curve.getTIncrement()));
 		}
+		paintTrace(g);
+	}
 
-		// currentX and currentY are the actual screen coordinates that the points
-		// are drawn at.
-		int currentX = (int) (curve.getCurrentXCoord() * 100 + SCREEN_WIDTH * 0.5);
-		int currentY = (int) (curve.getCurrentYCoord() * -100 + SCREEN_HEIGHT * 0.5);
-		Point currentPoint = new Point(currentX, currentY);
-		ColouredPoint listEntry;
-
-		// Add the current point and its colour to the appropriate list (depending
-		// on whether t is currently increasing or decreasing). Note that if the x
-		// or y coordinate (actual coordinates; not screen coordinates) of the
-		// current point is NaN, null is added to the appropriate list instead.
-		if (Double.isNaN(curve.getCurrentXCoord())
-				|| Double.isNaN(curve.getCurrentYCoord())) {
-			listEntry = null;
-		} else {
-			listEntry = new ColouredPoint(currentPoint, curveColour);
+	/**
+	 * Paints the points of the trace into the frame image on the background colour, and
+	 * draws the frame image.
+	 */
+	private void paintTrace(Graphics g) {
+		Arrays.fill(framePixels, BACKGROUND_COLOUR.getRGB());
+		rasterizer.clear();
+		trace.paint(rasterizer);
+		rasterizer.paint(frameImage);
+		g.drawImage(frameImage, 0, 0, null);
+	}
+
+	/**
+	 * Moves the animation time on by as much as t would have moved since the last
+	 * frame, and replaces the trace with the whole curve at that time.
+	 */
+	private void paintFrame() {
+		if (!paused) {
+			animationTime += clock.takeTicks(System.nanoTime(), curve.getTIncrement()) * curve.getTIncrement();
+		}
+		SampleTable3D frame = animatedCurve.sample(animationTime);
+		trace.clear();
+		for (int i = 0; i < frame.size(); i++) {
+			trace.record(true, false, frame.getX(i), frame.getY(i), frame.getZ(i));
 		}
+	}
 
-		if (oneCycleComplete) {
-			// If one full cycle has been completed, we can override the point
-			// in the appropriate list at currentIndex with our new listEntry.
-			if (curve.isTIncreasing()) {
-				increasingList.set(currentIndex, listEntry);
-			} else {
-				decreasingList.set(currentIndex, listEntry);
-			}
+	/**
+	 * @return the ActionListener that paints the DrawingPanel.
+	 */
+	public ActionListener getPainter() {
+		return this.painter;
+	}
+
+	/**
+	 * Sets the curve to be drawn on the DrawingPanel. A source that is not a
+	 * ParametricCurve is traced out by a new ParametricCurve (see
+	 * {@link ParametricCurve#ParametricCurve(CurveSource)}).
+	 */
+	public void setCurve(CurveSource source) {
+		animatedCurve = null;
+		animationTime = 0;
+		if (source == null) {
+			curve = null;
 		} else {
-			if (curve.isTIncreasing()) {
-				increasingList.add(listEntry);
-			} else {
-				decreasingList.add(listEntry);
+			curve = source instanceof ParametricCurve ? (ParametricCurve) source : new ParametricCurve(source);
+			trace.setProjection(curve.is3D() ? projection : null);
+			if (AnimatedCurve.isAnimated(curve)) {
+				animatedCurve = new AnimatedCurve(curve, ParametricCurve.APPROX_NUM_POINTS + 1);
 			}
 		}
+		clock.reset();
+	}
 
-		/* Below is the code for drawing points.
-		 *
-		 * At any given time, we want to draw the first currentIndex + 1 points of
-		 * either increasingList or decreasingList (depending on whether t is increasing or
-		 * decreasing). We also want to *exclude* the last currentIndex + 1 points of
-		 * the other list from being drawn. For example, suppose increasingList has 998
-		 * elements, decreasingList has 1000 elements, currentIndex is 400, and t is
-		 * increasing. We want to draw the first 400 points of increasingList (as they are
-		 * the most recently calculated points), and we want to exclude the last 400 points
-		 * of decreasingList from being drawn (because the first 400 points of increasingList
-		 * are drawn in place of the last 400 points of decreasingList).
-		 */
-		if (curve.isTIncreasing()) {
-			for (int i = 0; i <= currentIndex; i++) {
-				ColouredPoint colouredPoint = increasingList.get(i);
-				if (colouredPoint != null) {
-					this.setCurveColour(g, colouredPoint.colour);
-					g.fillOval(colouredPoint.point.x, colouredPoint.point.y, CURVE_WIDTH, CURVE_HEIGHT);
-				}
-			}
-			for (int i = 0; i <= decreasingList.size() - currentIndex - 1; i++) {
-				ColouredPoint colouredPoint = decreasingList.get(i);
-				if (colouredPoint != null) {
-					this.setCurveColour(g, colouredPoint.colour);
-					g.fillOval(colouredPoint.point.x, colouredPoint.point.y, CURVE_WIDTH, CURVE_HEIGHT);
-				}
-			}
-		} else {
-			for (int i = 0; i <= currentIndex; i++) {
-				ColouredPoint colouredPoint = decreasingList.get(i);
-				if (colouredPoint != null) {
-					this.setCurveColour(g, colouredPoint.colour);
-					g.fillOval(colouredPoint.point.x, colouredPoint.point.y, CURVE_WIDTH, CURVE_HEIGHT);
-				}
-			}
-			for (int i = 0; i <= increasingList.size() - currentIndex - 1; i++) {
-				ColouredPoint colouredPoint = increasingList.get(i);
-				if (colouredPoint != null) {
-					this.setCurveColour(g, colouredPoint.colour);
-					g.fillOval(colouredPoint.point.x, colouredPoint.point.y, CURVE_WIDTH, CURVE_HEIGHT);
-				}
-			}
+	/**
+	 * Replaces the curve being drawn with the given curve without restarting it: the new
+	 * curve is moved to the tick that the old curve had reached, and the points traced
+	 * out so far are redrawn from the new curve in the same colours (see
+	 * {@link CurveTrace#seek(ParametricCurve)}). An animated curve keeps the animation
+	 * time it had reached. Behaves like {@link #setCurve(CurveSource)} if there is no
+	 * curve yet.
+	 */
+	public void replaceCurve(ParametricCurve newCurve) {
+		if (curve == null || newCurve == null) {
+			setCurve(newCurve);
+			return;
+		}
+		newCurve.seek(curve.getTick());
+		curve = newCurve;
+		trace.setProjection(curve.is3D() ? projection : null);
+		animatedCurve = AnimatedCurve.isAnimated(curve)
+				? new AnimatedCurve(curve, ParametricCurve.APPROX_NUM_POINTS + 1) : null;
+		if (animatedCurve == null) {
+			trace.seek(curve);
+		}
+		repaint();
+	}
+
+	/**
+	 * @return the curve being drawn, or null if there is none
+	 */
+	ParametricCurve getCurve() {
+		return curve;
+	}
+
+	/**
+	 * Rotates the view of a curve in space by the given angles in radians (see
+	 * {@link Projection#rotate(double, double)}), and redraws the points that have been
+	 * traced out so far from their stored coordinates. Does nothing if the curve is not
+	 * in space.
+	 */
+	public void rotate(double yawChange, double pitchChange) {
+		if (curve == null || !curve.is3D()) {
+			return;
 		}
+		projection = projection.rotate(yawChange, pitchChange);
+		trace.setProjection(projection);
+		repaint();
+	}
 
-		if (curve.isChangingDirection() && curve.isTIncreasing() && !oneCycleComplete) {
-			oneCycleComplete = true;
+	/**
+	 * Sets whether curves in space are drawn with a perspective projection or an
+	 * orthographic projection.
+	 */
+	public void setPerspective(boolean perspective) {
+		projection = projection.withPerspective(perspective);
+		if (curve != null && curve.is3D()) {
+			trace.setProjection(projection);
+			repaint();
 		}
 	}
 
 	/**
-	 * Set the colour being used to draw the curve according to the given
-	 * CurveColour.
+	 * Sets whether the curve is held still instead of being advanced on every clock tick.
 	 */
-	private void setCurveColour(Graphics g, CurveColour colour) {
-		if (colour == CurveColour.RED) {
-			g.setColor(Color.RED);
-		} else if (colour == CurveColour.GREEN) {
-			g.setColor(Color.GREEN);
-		} else if (colour == CurveColour.BLUE) {
-			g.setColor(Color.BLUE);
+	public void setPaused(boolean paused) {
+		if (this.paused && !paused) {
+			clock.reset();
 		}
+		this.paused = paused;
 	}
 
 	/**
-	 * @return the ActionListener that paints the DrawingPanel.
+	 * Sets the speed at which the curve is traced out, in the given units. The speed
+	 * does not depend on how often the DrawingPanel is painted.
+	 *
+	 * @throws IllegalArgumentException if speed is negative or not finite
 	 */
-	public ActionListener getPainter() {
-		return this.painter;
+	public void setSpeed(double speed, PlaybackClock.Unit unit) {
+		clock.setSpeed(speed, unit);
 	}
 
 	/**
-	 * Sets the parametric curve to be drawn on the DrawingPanel.
+	 * Moves the curve to the given fraction of its current cycle, and redraws the points
+	 * that would have been traced out up to there. Does nothing if there is no curve, or
+	 * if the curve is animated.
+	 *
+	 * @throws IllegalArgumentException if fraction is not between 0 and 1 inclusive
 	 */
-	public void setCurve(ParametricCurve curve) {
-		this.curve = curve;
+	public void seek(double fraction) {
+		if (curve == null || animatedCurve != null) {
+			return;
+		}
+		curve.seekToFraction(fraction);
+		trace.seek(curve);
+		repaint();
+	}
+
+	/**
+	 * @return the fraction of its current cycle that the curve has been traced through,
+	 * or 0 if there is no curve
+	 */
+	public double getProgress() {
+		if (curve == null) {
+			return 0;
+		}
+		int ticksPerCycle = curve.getTicksPerCycle();
+		return (double) (curve.getTick() % ticksPerCycle) / ticksPerCycle;
 	}
 
 	/**
@@ -244,14 +310,6 @@ public class DrawingPanel extends JPanel {
 	 * colour in the CurveColour enum (i.e. CurveColours.values()[0]).
 	 */
 	public void clearPanel() {
-		curveColour = colours[0];
-		increasingList.clear();
-		decreasingList.clear();
-
-		// currentIndex is set to -1 because just before the curve starts being
-		// drawn, paintComponent() will increment currentIndex by 1, making
-		// currentIndex equal 0 as expected.
-		currentIndex = -1;
-		oneCycleComplete = false;
+		trace.clear();
 	}
 }
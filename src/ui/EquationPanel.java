@@ -1,17 +1,37 @@
 package ui;
 
 import curve.ParametricCurve;
+import curve.RenderCache;
+import session.CurveSettings;
+import session.Session;
+import session.SessionWriter;
 
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * The EquationPanel is the area where the user inputs the
- * parametric equations for x and y, and sets the lower and
- * upper bounds for the t variable.
+ * parametric equations for x and y (or the polar equation for r),
+ * optionally an equation for z to draw a curve in space, and sets
+ * the lower and upper bounds for the t variable.
+ *
+ * With live editing turned on, the curve is redrawn as the user types: the edited
+ * curve replaces the one being drawn without restarting it (see {@link LiveEditor}).
  */
 public class EquationPanel extends JPanel {
+    private static final String SESSION_FILE_EXTENSION = "curves";
+
+    // The number of steps of the progress slider over one cycle of the curve
+    private static final int PROGRESS_SLIDER_STEPS = 1000;
+
     // The singleton instance of the equation panel
     private static EquationPanel instance;
 
@@ -19,16 +39,44 @@ public class EquationPanel extends JPanel {
 
     private JLabel xEqualsLabel;
     private JLabel yEqualsLabel;
+    private JLabel zEqualsLabel;
     private JLabel tLowerBoundLabel;
     private JLabel tUpperBoundLabel;
+    private JLabel definitionsLabel;
     private JLabel errorLabel;
+    private JLabel progressLabel;
+    private JLabel speedLabel;
 
     private JTextField xTextField;
     private JTextField yTextField;
+    private JTextField zTextField;
     private JTextField tLowerBoundTextField;
     private JTextField tUpperBoundTextField;
+    private JTextField definitionsTextField;
+
+    private JCheckBox polarCheckBox;
+    private JCheckBox constantSpeedCheckBox;
+    private JCheckBox fastMathCheckBox;
+    private JCheckBox perspectiveCheckBox;
+    private JCheckBox liveEditCheckBox;
 
     private JButton drawCurveButton;
+    private JButton saveSessionButton;
+    private JButton openSessionButton;
+
+    private JFileChooser sessionFileChooser;
+
+    private JSlider progressSlider;
+
+    private JSpinner speedSpinner;
+    private JComboBox<String> speedUnitComboBox;
+
+    // Creates curves from the settings as they are edited
+    private LiveEditor liveEditor;
+
+    // Indicates whether the progress slider is being moved to show the progress of the
+    // curve, rather than by the user
+    private boolean showingProgress;
 
     private EquationPanel() {
         layout = new GroupLayout(this);
@@ -39,33 +87,137 @@ public class EquationPanel extends JPanel {
 
         xEqualsLabel = new JLabel("x(t) = ");
         yEqualsLabel = new JLabel("y(t) = ");
+        zEqualsLabel = new JLabel("z(t) = ");
         tLowerBoundLabel = new JLabel("t lower bound = ");
         tUpperBoundLabel = new JLabel("t upper bound = ");
+        definitionsLabel = new JLabel("Definitions: ");
         drawCurveButton = new JButton("Draw curve!");
         drawCurveButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                DrawingPanel drawingPanel = DrawingPanel.getInstance();
-                try {
-                    String xExpression = xTextField.getText();
-                    String yExpression = yTextField.getText();
-                    double tLowerBound = Double.parseDouble(tLowerBoundTextField.getText());
-                    double tUpperBound = Double.parseDouble(tUpperBoundTextField.getText());
-
-                    drawingPanel.setCurve(new ParametricCurve(xExpression, yExpression, tLowerBound, tUpperBound));
-                    errorLabel.setVisible(false);
-                    drawingPanel.clearPanel();
-                } catch (IllegalArgumentException ex) {
-                    errorLabel.setVisible(true);
-                    drawingPanel.setCurve(null);
+                drawCurve();
+            }
+        });
+        saveSessionButton = new JButton("Save session...");
+        saveSessionButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                saveSession();
+            }
+        });
+        openSessionButton = new JButton("Open session...");
+        openSessionButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                openSession();
+            }
+        });
+        progressLabel = new JLabel("Progress: ");
+        progressSlider = new JSlider(0, PROGRESS_SLIDER_STEPS, 0);
+        progressSlider.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                if (showingProgress) {
+                    return;
                 }
+                // Hold the curve still while the slider is being dragged
+                DrawingPanel drawingPanel = DrawingPanel.getInstance();
+                drawingPanel.setPaused(progressSlider.getValueIsAdjusting());
+                drawingPanel.seek((double) progressSlider.getValue() / PROGRESS_SLIDER_STEPS);
+            }
+        });
+        speedLabel = new JLabel("Speed: ");
+        speedSpinner = new JSpinner(new SpinnerNumberModel(PlaybackClock.DEFAULT_SAMPLES_PER_SECOND, 0, 1e9, 100));
+        speedUnitComboBox = new JComboBox<String>(new String[] {"points per second", "t per second"});
+        speedSpinner.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                setSpeed();
             }
         });
+        speedUnitComboBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setSpeed();
+            }
+        });
+        sessionFileChooser = new JFileChooser();
+        sessionFileChooser.setFileFilter(new FileNameExtensionFilter("Curve sessions", SESSION_FILE_EXTENSION));
 
         xTextField = new JTextField(10);
         yTextField = new JTextField(10);
+        zTextField = new JTextField(10);
+        zTextField.setToolTipText("Leave empty to draw a curve in the plane. Drag the curve to rotate it.");
         tLowerBoundTextField = new JTextField(10);
         tUpperBoundTextField = new JTextField(10);
+        definitionsTextField = new JTextField(10);
+        definitionsTextField.setToolTipText("Parameters and helper functions, e.g. a = 2; r(t) = 1 + a cos(5t)");
+        polarCheckBox = new JCheckBox("Polar coordinates (t is the angle)");
+        polarCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showCoordinateSystem();
+                settingsEdited();
+            }
+        });
+        constantSpeedCheckBox = new JCheckBox("Trace at constant speed");
+        fastMathCheckBox = new JCheckBox("Use fast approximate math");
+        liveEditCheckBox = new JCheckBox("Redraw the curve as I type");
+        ActionListener settingsListener = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                settingsEdited();
+            }
+        };
+        constantSpeedCheckBox.addActionListener(settingsListener);
+        fastMathCheckBox.addActionListener(settingsListener);
+        liveEditCheckBox.addActionListener(settingsListener);
+        DocumentListener documentListener = new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                settingsEdited();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                settingsEdited();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                settingsEdited();
+            }
+        };
+        for (JTextField textField : new JTextField[] {xTextField, yTextField, zTextField, tLowerBoundTextField,
+                tUpperBoundTextField, definitionsTextField}) {
+            textField.getDocument().addDocumentListener(documentListener);
+        }
+        liveEditor = new LiveEditor(LiveEditor.DEFAULT_DELAY_MILLIS, new LiveEditor.Listener() {
+            @Override
+            public void curveReady(ParametricCurve curve) {
+                errorLabel.setVisible(false);
+                DrawingPanel.getInstance().replaceCurve(curve);
+            }
+
+            @Override
+            public void curveUnchanged() {
+                errorLabel.setVisible(false);
+            }
+
+            @Override
+            public void settingsInvalid() {
+                // Keep drawing the last valid curve while the user is still typing
+                errorLabel.setVisible(true);
+            }
+        });
+        liveEditor.setCache(RenderCache.getDefault());
+        perspectiveCheckBox = new JCheckBox("Perspective view of curves in space");
+        perspectiveCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                DrawingPanel.getInstance().setPerspective(perspectiveCheckBox.isSelected());
+            }
+        });
         errorLabel = new JLabel("Check your inputs.");
         errorLabel.setVisible(false);
 
@@ -73,15 +225,32 @@ public class EquationPanel extends JPanel {
                 .addGroup(layout.createParallelGroup(GroupLayout.Alignment.TRAILING)
                         .addComponent(xEqualsLabel)
                         .addComponent(yEqualsLabel)
+                        .addComponent(zEqualsLabel)
                         .addComponent(tLowerBoundLabel)
                         .addComponent(tUpperBoundLabel)
-                        .addComponent(drawCurveButton))
+                        .addComponent(definitionsLabel)
+                        .addComponent(drawCurveButton)
+                        .addComponent(saveSessionButton)
+                        .addComponent(progressLabel)
+                        .addComponent(speedLabel))
                 .addGroup(layout.createParallelGroup(GroupLayout.Alignment.LEADING)
                         .addComponent(xTextField)
                         .addComponent(yTextField)
+                        .addComponent(zTextField)
                         .addComponent(tLowerBoundTextField)
                         .addComponent(tUpperBoundTextField)
-                        .addComponent(errorLabel))
+                        .addComponent(definitionsTextField)
+                        .addComponent(polarCheckBox)
+                        .addComponent(constantSpeedCheckBox)
+                        .addComponent(fastMathCheckBox)
+                        .addComponent(perspectiveCheckBox)
+                        .addComponent(liveEditCheckBox)
+                        .addComponent(errorLabel)
+                        .addComponent(openSessionButton)
+                        .addComponent(progressSlider)
+                        .addGroup(layout.createSequentialGroup()
+                                .addComponent(speedSpinner)
+                                .addComponent(speedUnitComboBox)))
         );
 
         layout.setVerticalGroup(layout.createSequentialGroup()
@@ -91,18 +260,190 @@ public class EquationPanel extends JPanel {
                 .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
                         .addComponent(yEqualsLabel)
                         .addComponent(yTextField))
+                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
+                        .addComponent(zEqualsLabel)
+                        .addComponent(zTextField))
                 .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
                         .addComponent(tLowerBoundLabel)
                         .addComponent(tLowerBoundTextField))
                 .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
                         .addComponent(tUpperBoundLabel)
                         .addComponent(tUpperBoundTextField))
+                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
+                        .addComponent(definitionsLabel)
+                        .addComponent(definitionsTextField))
+                .addComponent(polarCheckBox)
+                .addComponent(constantSpeedCheckBox)
+                .addComponent(fastMathCheckBox)
+                .addComponent(perspectiveCheckBox)
+                .addComponent(liveEditCheckBox)
                 .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
                         .addComponent(drawCurveButton)
                         .addComponent(errorLabel))
+                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
+                        .addComponent(saveSessionButton)
+                        .addComponent(openSessionButton))
+                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.CENTER)
+                        .addComponent(progressLabel)
+                        .addComponent(progressSlider))
+                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
+                        .addComponent(speedLabel)
+                        .addComponent(speedSpinner)
+                        .addComponent(speedUnitComboBox))
         );
     }
 
+    /**
+     * Draws the curve described by the text fields and check boxes, or shows the error
+     * label if they are invalid.
+     */
+    private void drawCurve() {
+        DrawingPanel drawingPanel = DrawingPanel.getInstance();
+        try {
+            ParametricCurve curve = getSettings().createCurve();
+            curve.useCache(RenderCache.getDefault());
+
+            drawingPanel.setCurve(curve);
+            liveEditor.setCurrentCurve(curve);
+            errorLabel.setVisible(false);
+            drawingPanel.clearPanel();
+        } catch (IllegalArgumentException ex) {
+            errorLabel.setVisible(true);
+            drawingPanel.setCurve(null);
+            liveEditor.setCurrentCurve(null);
+        }
+    }
+
+    /**
+     * Sends the settings in the text fields and check boxes to the live editor if live
+     * editing is turned on.
+     */
+    private void settingsEdited() {
+        if (!liveEditCheckBox.isSelected()) {
+            return;
+        }
+        CurveSettings settings;
+        try {
+            settings = getSettings();
+        } catch (IllegalArgumentException ex) {
+            settings = null;
+        }
+        liveEditor.edit(settings);
+    }
+
+    /**
+     * @return the settings in the text fields and check boxes
+     *
+     * @throws IllegalArgumentException if a bound is not a number
+     */
+    private CurveSettings getSettings() {
+        boolean polar = polarCheckBox.isSelected();
+        return new CurveSettings(xTextField.getText(), polar ? "" : yTextField.getText(),
+                polar ? "" : zTextField.getText().trim(),
+                Double.parseDouble(tLowerBoundTextField.getText()), Double.parseDouble(tUpperBoundTextField.getText()),
+                definitionsTextField.getText(), constantSpeedCheckBox.isSelected(), fastMathCheckBox.isSelected(),
+                polar);
+    }
+
+    /**
+     * Fills in the text fields and check boxes with the given settings.
+     */
+    private void setSettings(CurveSettings settings) {
+        xTextField.setText(settings.getXExpression());
+        yTextField.setText(settings.getYExpression());
+        zTextField.setText(settings.getZExpression());
+        tLowerBoundTextField.setText(Double.toString(settings.getTLowerBound()));
+        tUpperBoundTextField.setText(Double.toString(settings.getTUpperBound()));
+        definitionsTextField.setText(settings.getDefinitions());
+        constantSpeedCheckBox.setSelected(settings.isConstantSpeed());
+        fastMathCheckBox.setSelected(settings.isFastMath());
+        polarCheckBox.setSelected(settings.isPolar());
+        showCoordinateSystem();
+    }
+
+    /**
+     * Labels the first text field as r(t) and disables the y(t) and z(t) text fields if
+     * the polar check box is selected, or labels the text fields as x(t), y(t) and z(t)
+     * otherwise.
+     */
+    private void showCoordinateSystem() {
+        boolean polar = polarCheckBox.isSelected();
+        xEqualsLabel.setText(polar ? "r(t) = " : "x(t) = ");
+        yEqualsLabel.setEnabled(!polar);
+        yTextField.setEnabled(!polar);
+        zEqualsLabel.setEnabled(!polar);
+        zTextField.setEnabled(!polar);
+    }
+
+    /**
+     * Asks the user for a file, and saves the current settings to it as a session.
+     */
+    private void saveSession() {
+        CurveSettings settings;
+        try {
+            settings = getSettings();
+        } catch (IllegalArgumentException ex) {
+            errorLabel.setVisible(true);
+            return;
+        }
+        if (sessionFileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = sessionFileChooser.getSelectedFile();
+        if (!file.getName().contains(".")) {
+            file = new File(file.getPath() + "." + SESSION_FILE_EXTENSION);
+        }
+        try (SessionWriter writer = new SessionWriter(file)) {
+            writer.addCurve(settings);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not save session: " + ex.getMessage(),
+                    "Save session", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Asks the user for a session file, and draws the first curve in it.
+     */
+    private void openSession() {
+        if (sessionFileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        try (Session session = Session.open(sessionFileChooser.getSelectedFile())) {
+            if (session.getNumCurves() > 0) {
+                setSettings(session.getSettings(0));
+                drawCurve();
+            }
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not open session: " + ex.getMessage(),
+                    "Open session", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Sets the speed of the curve to the speed in the speed spinner, in the units chosen
+     * in the combo box.
+     */
+    private void setSpeed() {
+        PlaybackClock.Unit unit = speedUnitComboBox.getSelectedIndex() == 0
+                ? PlaybackClock.Unit.SAMPLES_PER_SECOND : PlaybackClock.Unit.T_UNITS_PER_SECOND;
+        DrawingPanel.getInstance().setSpeed(((Number) speedSpinner.getValue()).doubleValue(), unit);
+    }
+
+    /**
+     * Moves the progress slider to show the given fraction of a cycle, unless the user
+     * is dragging it.
+     */
+    void showProgress(double progress) {
+        if (progressSlider.getValueIsAdjusting()) {
+            return;
+        }
+        showingProgress = true;
+        progressSlider.setValue((int) Math.round(progress * PROGRESS_SLIDER_STEPS));
+        showingProgress = false;
+    }
+
     public static EquationPanel getInstance() {
         if (instance != null) {
             return instance;
@@ -7,6 +7,10 @@ import java.awt.*;
 public class Gui extends JFrame {
 	/* Constants */
 	private static final boolean IS_RESIZABLE = false;
+
+	// The time between frames. The speed of the curve does not depend on this (see
+	// PlaybackClock), so it only needs to be short enough for smooth animation.
+	private static final int FRAME_DELAY_MILLIS = 16;
 	
 	public Gui() {
 		Container pane = this.getContentPane();
@@ -25,6 +29,6 @@ public class Gui extends JFrame {
 		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		this.setVisible(true);
 
-		new Timer(1, DrawingPanel.getInstance().getPainter()).start();
+		new Timer(FRAME_DELAY_MILLIS, DrawingPanel.getInstance().getPainter()).start();
 	}
 }
@@ -0,0 +1,214 @@
+package ui;
+
+import curve.ParametricCurve;
+import curve.RenderCache;
+import session.CurveSettings;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * A LiveEditor turns the settings that the user is typing into curves while they type,
+ * so that the curve being drawn can be swapped for the edited one without restarting
+ * it (see {@link DrawingPanel#replaceCurve(ParametricCurve)}).
+ *
+ * Edits are debounced: a curve is only created once the settings have stopped changing
+ * for the delay. The equations are then parsed and the coordinates at every tick are
+ * computed on a background thread, so typing never waits for a curve. An edit that
+ * does not change the points of the curve (e.g. one that only adds spaces, or writes
+ * 2cos(t) as 2 * cos(t)) is recognized by the canonical form of the curve and not swapped in
+ * (see {@link ParametricCurve#getCanonicalForm()}). Only the result of the latest edit
+ * is ever delivered; a curve that was being created for an older edit is dropped.
+ *
+ * The methods of a LiveEditor must be called on the event dispatch thread, and its
+ * listener is notified there.
+ */
+public class LiveEditor {
+	/**
+	 * Notified on the event dispatch thread of the result of the latest edit.
+	 */
+	public interface Listener {
+		/**
+		 * Called with the curve of the latest edit, whose coordinates at every tick have
+		 * already been computed.
+		 */
+		void curveReady(ParametricCurve curve);
+
+		/**
+		 * Called if the latest edit describes the same points as the current curve.
+		 */
+		void curveUnchanged();
+
+		/**
+		 * Called if the settings of the latest edit are invalid.
+		 */
+		void settingsInvalid();
+	}
+
+	/**
+	 * The default time in milliseconds that the settings have to stay the same for
+	 * before a curve is created from them.
+	 */
+	public static final int DEFAULT_DELAY_MILLIS = 300;
+
+	private final Listener listener;
+
+	// Fires once the settings have stopped changing for the delay
+	private final Timer timer;
+
+	// Creates curves one at a time, in the order the edits were made
+	private final ExecutorService executor;
+
+	// Goes up on every edit that is sent to the executor and whenever the current curve
+	// is set, so that the results of older edits can be recognized and dropped
+	private final AtomicInteger generation = new AtomicInteger();
+
+	// The settings of the latest edit, or null if they are invalid
+	private CurveSettings pendingSettings;
+
+	// The canonical form of the curve being drawn, or null if there is none
+	private volatile String currentForm;
+
+	// The cache that created curves look up their coordinates in, or null
+	private volatile RenderCache cache;
+
+	/**
+	 * Creates a LiveEditor that waits for the settings to stay the same for the given
+	 * number of milliseconds before creating a curve from them.
+	 *
+	 * @throws IllegalArgumentException if delayMillis is negative
+	 */
+	public LiveEditor(int delayMillis, Listener listener) {
+		if (delayMillis < 0) {
+			throw new IllegalArgumentException("Delay cannot be negative");
+		}
+		this.listener = listener;
+		timer = new Timer(delayMillis, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				submit(pendingSettings);
+			}
+		});
+		timer.setRepeats(false);
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "live-editor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Sets the cache that curves created from edits look up their coordinates in (see
+	 * {@link ParametricCurve#useCache(RenderCache)}), or null to compute them every time.
+	 */
+	public void setCache(RenderCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Records that the user has edited the settings, and restarts the delay. Null
+	 * settings mean that the edited settings could not be read (e.g. a bound is not a
+	 * number).
+	 */
+	public void edit(CurveSettings settings) {
+		pendingSettings = settings;
+		timer.restart();
+	}
+
+	/**
+	 * Records that the given curve is now being drawn, e.g. because the user drew the
+	 * curve themselves. Edits that have not been delivered yet are dropped.
+	 */
+	public void setCurrentCurve(ParametricCurve curve) {
+		timer.stop();
+		generation.incrementAndGet();
+		currentForm = curve == null ? null : curve.getCanonicalForm();
+	}
+
+	/**
+	 * Drops any edits that have not been delivered yet, and stops the background thread.
+	 */
+	public void shutdown() {
+		timer.stop();
+		generation.incrementAndGet();
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Creates a curve from the given settings on the background thread, and notifies the
+	 * listener of the result unless a later edit has been made by then.
+	 */
+	private void submit(final CurveSettings settings) {
+		final int editGeneration = generation.incrementAndGet();
+		if (settings == null) {
+			listener.settingsInvalid();
+			return;
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (generation.get() != editGeneration) {
+					return;
+				}
+				final ParametricCurve curve;
+				try {
+					curve = settings.createCurve();
+				} catch (IllegalArgumentException e) {
+					deliver(editGeneration, null, null, false);
+					return;
+				}
+
+				final String form = curve.getCanonicalForm();
+				if (form.equals(currentForm)) {
+					deliver(editGeneration, null, null, true);
+					return;
+				}
+				RenderCache renderCache = cache;
+				if (renderCache != null) {
+					curve.useCache(renderCache);
+				}
+				// Compute the coordinates at every tick here rather than on the first frame
+				curve.getTickSamples(true);
+				if (generation.get() == editGeneration) {
+					deliver(editGeneration, curve, form, false);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Notifies the listener on the event dispatch thread of the result of an edit,
+	 * unless a later edit has been made by then: the given curve with the given canonical
+	 * form if it is not null, that the curve is unchanged if unchanged is true, or that
+	 * the settings are invalid otherwise.
+	 */
+	private void deliver(final int editGeneration, final ParametricCurve curve, final String form,
+			final boolean unchanged) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				if (generation.get() != editGeneration) {
+					return;
+				}
+				if (curve != null) {
+					currentForm = form;
+					listener.curveReady(curve);
+				} else if (unchanged) {
+					listener.curveUnchanged();
+				} else {
+					listener.settingsInvalid();
+				}
+			}
+		});
+	}
+}
@@ -1,9 +1,40 @@
 package ui;
 
+import curve.ParametricCurve;
+import curve.RenderCache;
+import server.RenderServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
 import javax.swing.SwingUtilities;
 
 public class Main {
+	private static final String USAGE = "Usage: Main --export <output> <x(t)> <y(t)> <t lower bound> <t upper bound> <frames>\n"
+			+ "       Main --serve [port]\n"
+			+ "       Main --regress <baseline file> [--update]\n"
+			+ "If the output ends in .gif, an animated GIF is written; otherwise, the output is a "
+			+ "directory that PNG frames are written to. --regress compares the rendered corpus of "
+			+ "curves with the baseline, or records a new baseline with --update.";
+
+	private static final int DEFAULT_PORT = 8080;
+
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("--export")) {
+			System.exit(export(args));
+		}
+		if (args.length > 0 && args[0].equals("--regress")) {
+			System.exit(regress(args));
+		}
+		if (args.length > 0 && args[0].equals("--serve")) {
+			int status = serve(args);
+			if (status != 0) {
+				System.exit(status);
+			}
+			return;
+		}
+
 		SwingUtilities.invokeLater(new Runnable() {
 			@Override
 			public void run() {
@@ -11,4 +42,102 @@ public class Main {
 			}
 		});
 	}
+
+	/**
+	 * Exports the animation described by the command-line arguments without opening a window.
+	 *
+	 * @return the exit status of the program
+	 */
+	private static int export(String[] args) {
+		if (args.length != 7) {
+			System.err.println(USAGE);
+			return 1;
+		}
+		System.setProperty("java.awt.headless", "true");
+
+		File output = new File(args[1]);
+		TraceExporter.Format format = args[1].toLowerCase().endsWith(".gif")
+				? TraceExporter.Format.GIF : TraceExporter.Format.PNG_SEQUENCE;
+		try {
+			ParametricCurve curve = new ParametricCurve(args[2], args[3],
+					Double.parseDouble(args[4]), Double.parseDouble(args[5]));
+			curve.useCache(RenderCache.getDefault());
+			new TraceExporter(curve).export(Integer.parseInt(args[6]), format, output);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			return 1;
+		} catch (IOException e) {
+			System.err.println("Could not export to " + output + ": " + e.getMessage());
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Starts a RenderServer on the port given by the command-line arguments. The server
+	 * keeps running after this method returns.
+	 *
+	 * @return the exit status of the program if the server could not be started; 0 otherwise
+	 */
+	private static int serve(String[] args) {
+		if (args.length > 2) {
+			System.err.println(USAGE);
+			return 1;
+		}
+		System.setProperty("java.awt.headless", "true");
+
+		try {
+			int port = args.length == 2 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+			RenderServer server = new RenderServer(port, RenderCache.getDefault());
+			server.start();
+			System.out.println("Serving curves at http://localhost:" + server.getPort() + RenderServer.PATH);
+		} catch (NumberFormatException e) {
+			System.err.println(USAGE);
+			return 1;
+		} catch (IOException e) {
+			System.err.println("Could not start server: " + e.getMessage());
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Renders the regression corpus without opening a window, and either compares it with
+	 * the baseline file given by the command-line arguments or replaces that baseline.
+	 *
+	 * @return the exit status of the program, which is 1 if the output or performance
+	 * of a curve has regressed
+	 */
+	private static int regress(String[] args) {
+		boolean update = args.length == 3 && args[2].equals("--update");
+		if (args.length != 2 && !update) {
+			System.err.println(USAGE);
+			return 1;
+		}
+		System.setProperty("java.awt.headless", "true");
+
+		File baselineFile = new File(args[1]);
+		List<RegressionHarness.Result> results = new RegressionHarness().run(RegressionHarness.getCorpus());
+		for (RegressionHarness.Result result : results) {
+			System.out.printf("%-16s %8.3f ms %8.3f%n", result.getName(), result.getNanos() / 1e6,
+					result.getRelativeTime());
+		}
+		try {
+			if (update) {
+				RegressionHarness.writeBaseline(results, baselineFile);
+				System.out.println("Wrote baseline to " + baselineFile);
+				return 0;
+			}
+			List<String> failures = RegressionHarness.compare(results, RegressionHarness.readBaseline(baselineFile),
+					RegressionHarness.DEFAULT_IMAGE_TOLERANCE, RegressionHarness.DEFAULT_SLOWDOWN_THRESHOLD);
+			for (String failure : failures) {
+				System.err.println(failure);
+			}
+			return failures.isEmpty() ? 0 : 1;
+		} catch (IOException e) {
+			System.err.println("Could not use baseline " + baselineFile + ": " + e.getMessage());
+			return 1;
+		}
+	}
 }
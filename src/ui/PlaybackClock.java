@@ -0,0 +1,105 @@
+package ui;
+
+/**
+ * A PlaybackClock decides how many clock ticks a curve should be advanced by on each
+ * frame, so that the curve is traced out at a set speed no matter how many points it
+ * has or how often frames are painted. The speed is measured either in samples (points)
+ * per second or in units of t per second.
+ *
+ * Fractions of a tick are carried over to the next frame, so a slow speed still
+ * advances the curve by the right number of ticks on average.
+ */
+public class PlaybackClock {
+	/**
+	 * The units that the speed of a PlaybackClock is measured in.
+	 */
+	public enum Unit {
+		SAMPLES_PER_SECOND,
+		T_UNITS_PER_SECOND
+	}
+
+	/**
+	 * The default speed, in samples per second.
+	 */
+	public static final double DEFAULT_SAMPLES_PER_SECOND = 500;
+
+	// The longest time between frames that the clock catches up on. If frames stop for
+	// longer (e.g. while the window is hidden), the curve resumes from where it stopped
+	// instead of jumping ahead.
+	private static final long MAX_FRAME_NANOS = 250_000_000L;
+
+	private double speed = DEFAULT_SAMPLES_PER_SECOND;
+	private Unit unit = Unit.SAMPLES_PER_SECOND;
+
+	// The time of the last frame, or -1 if there has not been a frame since the clock
+	// was started or reset
+	private long lastFrameNanos = -1;
+
+	// The fraction of a tick that was owed but not yet taken on the last frame
+	private double remainder;
+
+	/**
+	 * Sets the speed of the clock in the given units.
+	 *
+	 * @throws IllegalArgumentException if speed is negative or not finite
+	 */
+	public void setSpeed(double speed, Unit unit) {
+		if (!(speed >= 0) || Double.isInfinite(speed)) {
+			throw new IllegalArgumentException("Speed must be a non-negative number");
+		}
+		this.speed = speed;
+		this.unit = unit;
+	}
+
+	/**
+	 * @return the speed of the clock, in the units returned by {@link #getUnit()}
+	 */
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * @return the units that the speed of the clock is measured in
+	 */
+	public Unit getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Forgets the time of the last frame, so that the next frame advances the curve by
+	 * no ticks. This is called when the curve is replaced or resumed after a pause.
+	 */
+	public void reset() {
+		lastFrameNanos = -1;
+		remainder = 0;
+	}
+
+	/**
+	 * @return the number of ticks to advance a curve by on a frame painted at the given
+	 * time (as returned by {@link System#nanoTime()}), given the amount that t changes
+	 * by on each tick
+	 */
+	public int takeTicks(long nowNanos, double tIncrement) {
+		if (lastFrameNanos < 0) {
+			lastFrameNanos = nowNanos;
+			return 0;
+		}
+		long elapsedNanos = Math.min(Math.max(nowNanos - lastFrameNanos, 0), MAX_FRAME_NANOS);
+		lastFrameNanos = nowNanos;
+
+		double ticksPerSecond;
+		if (unit == Unit.SAMPLES_PER_SECOND) {
+			ticksPerSecond = speed;
+		} else {
+			ticksPerSecond = tIncrement > 0 ? speed / tIncrement : 0;
+		}
+		double ticks = remainder + ticksPerSecond * elapsedNanos / 1e9;
+		if (ticks >= Integer.MAX_VALUE) {
+			remainder = 0;
+			return Integer.MAX_VALUE;
+		}
+		int wholeTicks = (int) ticks;
+		remainder = ticks - wholeTicks;
+		return wholeTicks;
+	}
+}
@@ -0,0 +1,242 @@
+package ui;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A PointRasterizer paints the points of a curve straight into the pixels of an image,
+ * with exactly the pixels and colours that {@link CurveTrace#paint(java.awt.Graphics)}
+ * would paint (an unantialiased oval per point). Points are painted in the order they
+ * were added, so later points cover earlier ones.
+ *
+ * A large number of points is painted on several threads by splitting the image into
+ * bands of rows, one per thread. Each thread goes through all the points in order and
+ * only paints the rows of its own band, so every pixel is still painted by its points
+ * in order, and no memory is needed beyond the image itself. The threads are shared by
+ * every PointRasterizer, and there are no more of them than processors, so painting
+ * many images at once (e.g. in the rendering server) does not start more threads.
+ *
+ * Painting on one thread allocates nothing once the points have been added. Painting
+ * on several threads allocates a task per band.
+ */
+public class PointRasterizer {
+	// The fewest points that are worth painting on a thread of their own
+	private static final int MIN_POINTS_PER_THREAD = 20_000;
+
+	// The width and height of the image of a point
+	private static final int POINT_WIDTH;
+	private static final int POINT_HEIGHT;
+
+	// The columns of each row of the image of a point that are covered by the point,
+	// from spanStarts[row] inclusive to spanEnds[row] exclusive
+	private static final int[] SPAN_STARTS;
+	private static final int[] SPAN_ENDS;
+
+	// The ARGB colour of a point in each CurveColour, indexed by ordinal
+	private static final int[] COLOURS;
+
+	static {
+		BufferedImage image = CurveTrace.getPointImage(CurveColour.values()[0]);
+		POINT_WIDTH = image.getWidth();
+		POINT_HEIGHT = image.getHeight();
+		SPAN_STARTS = new int[POINT_HEIGHT];
+		SPAN_ENDS = new int[POINT_HEIGHT];
+		for (int row = 0; row < POINT_HEIGHT; row++) {
+			int start = 0;
+			while (start < POINT_WIDTH && (image.getRGB(start, row) >>> 24) != 0xFF) {
+				start++;
+			}
+			int end = start;
+			while (end < POINT_WIDTH && (image.getRGB(end, row) >>> 24) == 0xFF) {
+				end++;
+			}
+			SPAN_STARTS[row] = start;
+			SPAN_ENDS[row] = end;
+		}
+
+		CurveColour[] colours = CurveColour.values();
+		COLOURS = new int[colours.length];
+		for (CurveColour colour : colours) {
+			COLOURS[colour.ordinal()] = CurveTrace.getPointImage(colour).getRGB(POINT_WIDTH / 2, POINT_HEIGHT / 2);
+		}
+	}
+
+	// The threads that every PointRasterizer paints bands on, or null if they have not
+	// been started yet
+	private static ExecutorService executor;
+
+	private final int width;
+	private final int height;
+
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+
+	// The top-left corners and ARGB colours of the points that have been added
+	private int[] xValues = new int[1024];
+	private int[] yValues = new int[1024];
+	private int[] colours = new int[1024];
+	private int size;
+
+	/**
+	 * Creates a PointRasterizer that paints into images of the given size.
+	 *
+	 * @throws IllegalArgumentException if the size is not positive
+	 */
+	public PointRasterizer(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Image size must be positive");
+		}
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Sets the largest number of bands that the image is split into, each painted on a
+	 * thread of its own if one is free. Defaults to the number of available processors.
+	 *
+	 * @throws IllegalArgumentException if numThreads is less than 1
+	 */
+	public void setNumThreads(int numThreads) {
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1");
+		}
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Adds a point in the given colour whose image has its top-left corner at the given
+	 * pixel, which may be outside the image.
+	 */
+	public void add(int x, int y, CurveColour colour) {
+		if (size == xValues.length) {
+			int newCapacity = size * 2;
+			xValues = Arrays.copyOf(xValues, newCapacity);
+			yValues = Arrays.copyOf(yValues, newCapacity);
+			colours = Arrays.copyOf(colours, newCapacity);
+		}
+		xValues[size] = x;
+		yValues[size] = y;
+		colours[size] = COLOURS[colour.ordinal()];
+		size++;
+	}
+
+	/**
+	 * @return the number of points that have been added since this rasterizer was
+	 * created or last cleared
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all points.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Paints the points over the current pixels of the given image.
+	 *
+	 * @throws IllegalArgumentException if the image is not the size of this rasterizer,
+	 * or if it does not store its pixels as ints (i.e. if it is not of type
+	 * TYPE_INT_RGB or TYPE_INT_ARGB)
+	 */
+	public void paint(BufferedImage image) {
+		if (image.getWidth() != width || image.getHeight() != height) {
+			throw new IllegalArgumentException("Image must be " + width + " by " + height);
+		}
+		if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_INT_ARGB) {
+			throw new IllegalArgumentException("Image must store its pixels as ints");
+		}
+		final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		int numBands = Math.min(height, Math.min(numThreads, size / MIN_POINTS_PER_THREAD));
+		if (numBands <= 1) {
+			paintPoints(pixels, 0, height);
+			return;
+		}
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numBands);
+		for (int band = 0; band < numBands; band++) {
+			final int bandStart = height * band / numBands;
+			final int bandEnd = height * (band + 1) / numBands;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					paintPoints(pixels, bandStart, bandEnd);
+					return null;
+				}
+			});
+		}
+		invokeAll(tasks);
+	}
+
+	/**
+	 * Paints the rows of every point from bandStart inclusive to bandEnd exclusive into
+	 * the given pixels.
+	 */
+	private void paintPoints(int[] pixels, int bandStart, int bandEnd) {
+		for (int i = 0; i < size; i++) {
+			int x = xValues[i];
+			int y = yValues[i];
+			if (x >= width || y >= bandEnd || x <= -POINT_WIDTH || y <= bandStart - POINT_HEIGHT) {
+				continue;
+			}
+			int colour = colours[i];
+			int rowStart = Math.max(0, bandStart - y);
+			int rowEnd = Math.min(POINT_HEIGHT, bandEnd - y);
+			for (int row = rowStart; row < rowEnd; row++) {
+				int from = Math.max(0, x + SPAN_STARTS[row]);
+				int to = Math.min(width, x + SPAN_ENDS[row]);
+				int offset = (y + row) * width;
+				for (int p = offset + from; p < offset + to; p++) {
+					pixels[p] = colour;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the given tasks on the shared threads and waits for all of them.
+	 */
+	private static void invokeAll(List<Callable<Void>> tasks) {
+		try {
+			for (Future<Void> future : getExecutor().invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Painting was interrupted");
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Could not paint points", e.getCause());
+		}
+	}
+
+	/**
+	 * @return the threads that every PointRasterizer paints bands on, starting them if
+	 * they have not been started yet
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "point-rasterizer");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return executor;
+	}
+}
@@ -0,0 +1,407 @@
+package ui;
+
+import curve.CacheKey;
+import curve.ParametricCurve;
+import session.CurveSettings;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A RegressionHarness renders a fixed corpus of curves offscreen, the same way the
+ * DrawingPanel traces them out, and compares the images and timings with a stored
+ * baseline, so that a change to the parser, the curve or the drawing code that alters
+ * the output or slows it down is caught. It needs no display, so it runs headless.
+ *
+ * Each image is compared by its SHA-256 hash first. If the hash differs, the images are
+ * compared by their fingerprints, which record how much of each cell of a coarse grid is
+ * covered by the curve, so that a few pixels of difference (e.g. from another Java 2D
+ * implementation) are tolerated while a curve that moves or changes shape is not.
+ *
+ * Timings are stored relative to a fixed calibration workload that is timed in the same
+ * run, so that a baseline recorded on one machine can be used on another.
+ */
+public class RegressionHarness {
+	/**
+	 * The default fraction of fingerprint cells that may differ before an image counts
+	 * as changed.
+	 */
+	public static final double DEFAULT_IMAGE_TOLERANCE = 0.02;
+
+	/**
+	 * The default fraction by which a curve may be slower than its baseline before it
+	 * counts as a performance regression.
+	 */
+	public static final double DEFAULT_SLOWDOWN_THRESHOLD = 0.5;
+
+	// The size of the rendered images, which is the size of the DrawingPanel
+	private static final int WIDTH = DrawingPanel.SCREEN_WIDTH;
+	private static final int HEIGHT = DrawingPanel.SCREEN_HEIGHT;
+
+	// The number of cells across and down the grid of a fingerprint
+	private static final int GRID_COLUMNS = 32;
+	private static final int GRID_ROWS = 24;
+
+	// The number of covered pixels in a cell that makes one fingerprint level. A cell
+	// that the curve crosses once is covered by roughly 300 pixels.
+	private static final int PIXELS_PER_LEVEL = 25;
+
+	// The number of untimed runs of every curve before any curve is timed, which give the
+	// JIT compiler time to compile the code that all curves share
+	private static final int WARM_UP_RUNS = 10;
+
+	// The result of the calibration workload, which is kept so that the workload is not
+	// optimized away
+	private static volatile double calibrationSink;
+
+	// The number of timed runs of each curve, of which the fastest counts
+	private int repetitions = 15;
+
+	/**
+	 * A curve of the corpus, with the name that it is stored under in a baseline.
+	 */
+	public static final class Case {
+		private final String name;
+		private final CurveSettings settings;
+
+		/**
+		 * @throws IllegalArgumentException if the name is empty or contains whitespace
+		 */
+		public Case(String name, CurveSettings settings) {
+			if (name.isEmpty() || !name.equals(name.replaceAll("\\s", ""))) {
+				throw new IllegalArgumentException("Invalid name: " + name);
+			}
+			this.name = name;
+			this.settings = settings;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public CurveSettings getSettings() {
+			return settings;
+		}
+	}
+
+	/**
+	 * The image and timing of one curve, as measured by {@link #run(List)} or read from a
+	 * baseline.
+	 */
+	public static final class Result {
+		private final String name;
+		private final String hash;
+		private final String fingerprint;
+		private final long nanos;
+		private final double relativeTime;
+
+		public Result(String name, String hash, String fingerprint, long nanos, double relativeTime) {
+			this.name = name;
+			this.hash = hash;
+			this.fingerprint = fingerprint;
+			this.nanos = nanos;
+			this.relativeTime = relativeTime;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the SHA-256 hash of the image, as lower-case hexadecimal digits
+		 */
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * @return the fingerprint of the image (see {@link RegressionHarness#fingerprint(BufferedImage)})
+		 */
+		public String getFingerprint() {
+			return fingerprint;
+		}
+
+		/**
+		 * @return the time it took to create, trace out and paint the curve, in nanoseconds
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the time it took to create, trace out and paint the curve, divided by
+		 * the time the calibration workload took in the same run
+		 */
+		public double getRelativeTime() {
+			return relativeTime;
+		}
+	}
+
+	/**
+	 * @return the standard corpus: a butterfly, roses, Lissajous figures, a tangent
+	 * curve with asymptotes, a curve with helpers and parameters, and a helix
+	 */
+	public static List<Case> getCorpus() {
+		List<Case> corpus = new ArrayList<Case>();
+		corpus.add(new Case("butterfly", new CurveSettings("sin(t)(e^cos(t) - 2cos(4t) - sin(t/12)^5)",
+				"cos(t)(e^cos(t) - 2cos(4t) - sin(t/12)^5)", 0, 12 * Math.PI, "", false, false)));
+		corpus.add(new Case("rose", new CurveSettings("3cos(4t)cos(t)", "3cos(4t)sin(t)", 0, 2 * Math.PI, "",
+				false, false)));
+		corpus.add(new Case("polar-rose", new CurveSettings("3.5cos(5t)", "", 0, Math.PI, "", false, false, true)));
+		corpus.add(new Case("lissajous", new CurveSettings("4sin(3t + pi/2)", "3sin(4t)", 0, 2 * Math.PI, "",
+				false, false)));
+		corpus.add(new Case("tan-asymptotes", new CurveSettings("t", "tan(t)", -5, 5, "", false, false)));
+		corpus.add(new Case("helpers", new CurveSettings("r(t) cos(t)", "r(t) sin(t)", 0, 2 * Math.PI,
+				"a = 7; r(t) = 2 + cos(a t)", true, false)));
+		corpus.add(new Case("helix", new CurveSettings("2cos(t)", "2sin(t)", "t/4", 0, 6 * Math.PI, "", false,
+				false, false)));
+		return corpus;
+	}
+
+	/**
+	 * Sets the number of timed runs of each curve, of which the fastest counts. Defaults
+	 * to 15.
+	 *
+	 * @throws IllegalArgumentException if repetitions is less than 1
+	 */
+	public void setRepetitions(int repetitions) {
+		if (repetitions < 1) {
+			throw new IllegalArgumentException("Number of repetitions must be at least 1");
+		}
+		this.repetitions = repetitions;
+	}
+
+	/**
+	 * Renders each of the given curves a number of times to warm up, and then the set
+	 * number of times to time it.
+	 *
+	 * @return the results, in the same order as the cases
+	 * @throws IllegalArgumentException if the settings of a curve are invalid
+	 */
+	public List<Result> run(List<Case> cases) {
+		List<BufferedImage> images = new ArrayList<BufferedImage>(cases.size());
+		for (Case c : cases) {
+			images.add(render(c.getSettings()));
+		}
+		for (int i = 1; i < WARM_UP_RUNS; i++) {
+			for (Case c : cases) {
+				render(c.getSettings());
+			}
+		}
+
+		long calibrationNanos = Long.MAX_VALUE;
+		for (int i = 0; i < repetitions; i++) {
+			long start = System.nanoTime();
+			calibrationSink = calibrate();
+			calibrationNanos = Math.min(calibrationNanos, System.nanoTime() - start);
+		}
+
+		List<Result> results = new ArrayList<Result>(cases.size());
+		for (int k = 0; k < cases.size(); k++) {
+			Case c = cases.get(k);
+			BufferedImage image = images.get(k);
+			long nanos = Long.MAX_VALUE;
+			for (int i = 0; i < repetitions; i++) {
+				long start = System.nanoTime();
+				render(c.getSettings());
+				nanos = Math.min(nanos, System.nanoTime() - start);
+			}
+			results.add(new Result(c.getName(), hash(image), fingerprint(image), nanos,
+					(double) nanos / calibrationNanos));
+		}
+		return results;
+	}
+
+	/**
+	 * @return an image of a curve with the given settings after it has been traced out
+	 * through one full cycle, as the DrawingPanel would show it. Curves in space are
+	 * drawn from the DrawingPanel's initial view.
+	 *
+	 * @throws IllegalArgumentException if the settings are invalid
+	 */
+	public static BufferedImage render(CurveSettings settings) {
+		ParametricCurve curve = settings.createCurve();
+		CurveTrace trace = new CurveTrace(WIDTH, HEIGHT);
+		trace.setProjection(curve.is3D() ? DrawingPanel.INITIAL_PROJECTION : null);
+		trace.advance(curve, curve.getTicksPerCycle());
+
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setColor(DrawingPanel.BACKGROUND_COLOUR);
+			g.fillRect(0, 0, WIDTH, HEIGHT);
+		} finally {
+			g.dispose();
+		}
+		PointRasterizer rasterizer = new PointRasterizer(WIDTH, HEIGHT);
+		trace.paint(rasterizer);
+		rasterizer.paint(image);
+		return image;
+	}
+
+	/**
+	 * @return the SHA-256 hash of the pixels of the given image, as lower-case
+	 * hexadecimal digits
+	 */
+	public static String hash(BufferedImage image) {
+		int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+		ByteBuffer bytes = ByteBuffer.allocate(Integer.BYTES * (pixels.length + 2));
+		bytes.putInt(image.getWidth()).putInt(image.getHeight());
+		for (int pixel : pixels) {
+			bytes.putInt(pixel & 0xffffff);
+		}
+		return CacheKey.sha256(bytes.array());
+	}
+
+	/**
+	 * @return the fingerprint of the given image: one hexadecimal digit for each cell of
+	 * a grid laid over the image, row by row, that counts how many pixels of the cell
+	 * differ from the background, in steps of PIXELS_PER_LEVEL up to 15
+	 */
+	public static String fingerprint(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int background = DrawingPanel.BACKGROUND_COLOUR.getRGB() & 0xffffff;
+		int[] covered = new int[GRID_COLUMNS * GRID_ROWS];
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			image.getRGB(0, y, width, 1, row, 0, width);
+			int cellRow = y * GRID_ROWS / height;
+			for (int x = 0; x < width; x++) {
+				if ((row[x] & 0xffffff) != background) {
+					covered[cellRow * GRID_COLUMNS + x * GRID_COLUMNS / width]++;
+				}
+			}
+		}
+
+		StringBuilder fingerprint = new StringBuilder(covered.length);
+		for (int count : covered) {
+			int level = Math.min((count + PIXELS_PER_LEVEL - 1) / PIXELS_PER_LEVEL, 15);
+			fingerprint.append(Character.forDigit(level, 16));
+		}
+		return fingerprint.toString();
+	}
+
+	/**
+	 * @return the number of cells whose levels differ by more than one between the given
+	 * fingerprints
+	 *
+	 * @throws IllegalArgumentException if the fingerprints have different lengths
+	 */
+	public static int fingerprintDistance(String a, String b) {
+		if (a.length() != b.length()) {
+			throw new IllegalArgumentException("Fingerprints have different lengths");
+		}
+		int distance = 0;
+		for (int i = 0; i < a.length(); i++) {
+			if (Math.abs(Character.digit(a.charAt(i), 16) - Character.digit(b.charAt(i), 16)) > 1) {
+				distance++;
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Compares the given results with a baseline. A result fails if its curve is not in
+	 * the baseline, if its image differs from the baseline in more than the given fraction
+	 * of fingerprint cells, or if its relative time exceeds that of the baseline by more
+	 * than the given fraction. Curves in the baseline without a result are ignored.
+	 *
+	 * @return a message for each failure, or an empty list if there are none
+	 */
+	public static List<String> compare(List<Result> results, List<Result> baseline, double imageTolerance,
+									   double slowdownThreshold) {
+		Map<String, Result> expected = new LinkedHashMap<String, Result>();
+		for (Result result : baseline) {
+			expected.put(result.getName(), result);
+		}
+
+		List<String> failures = new ArrayList<String>();
+		for (Result result : results) {
+			Result base = expected.get(result.getName());
+			if (base == null) {
+				failures.add(result.getName() + ": not in the baseline");
+				continue;
+			}
+			if (!result.getHash().equals(base.getHash())) {
+				int distance = fingerprintDistance(result.getFingerprint(), base.getFingerprint());
+				if (distance > imageTolerance * result.getFingerprint().length()) {
+					failures.add(String.format("%s: image differs from the baseline in %d of %d cells",
+							result.getName(), distance, result.getFingerprint().length()));
+				}
+			}
+			double slowdown = result.getRelativeTime() / base.getRelativeTime();
+			if (slowdown > 1 + slowdownThreshold) {
+				failures.add(String.format("%s: took %.2f times as long as the baseline", result.getName(),
+						slowdown));
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * @return the results stored in the given baseline file (see {@link #writeBaseline(List, File)})
+	 *
+	 * @throws IOException if the file cannot be read or is not a baseline
+	 */
+	public static List<Result> readBaseline(File file) throws IOException {
+		List<Result> baseline = new ArrayList<Result>();
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split(" ");
+				if (fields.length != 5) {
+					throw new IOException("Invalid baseline line: " + line);
+				}
+				try {
+					baseline.add(new Result(fields[0], fields[1], fields[2], Long.parseLong(fields[3]),
+							Double.parseDouble(fields[4])));
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid baseline line: " + line);
+				}
+			}
+		}
+		return baseline;
+	}
+
+	/**
+	 * Writes the given results to a baseline file, one line per curve with its name,
+	 * image hash, fingerprint, time in nanoseconds and relative time separated by spaces.
+	 */
+	public static void writeBaseline(List<Result> results, File file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write("# name hash fingerprint nanoseconds relative-time");
+			writer.newLine();
+			for (Result result : results) {
+				writer.write(result.getName() + " " + result.getHash() + " " + result.getFingerprint() + " "
+						+ result.getNanos() + " " + result.getRelativeTime());
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * A fixed amount of arithmetic that the timings of curves are measured against.
+	 */
+	private static double calibrate() {
+		double sum = 0;
+		for (int i = 0; i < 2000000; i++) {
+			sum += Math.sqrt(i) * Math.sin(i * 0.001);
+		}
+		return sum;
+	}
+}
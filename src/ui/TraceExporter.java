@@ -0,0 +1,431 @@
+package ui;
+
+import curve.ParametricCurve;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * A TraceExporter renders the animation that the DrawingPanel would show for a curve
+ * into an animated GIF or a sequence of PNG images, without opening a window and
+ * without waiting for a Timer.
+ *
+ * Frame k of the export is exactly what the DrawingPanel would paint after (k + 1)
+ * ticks of its Timer (or after (k + 1) * ticksPerFrame ticks; see
+ * {@link #setTicksPerFrame(int)}), including direction changes, colour cycling and
+ * the overwriting of points from earlier passes.
+ *
+ * The curve itself is advanced on the calling thread, which is cheap. Frames are
+ * painted in chunks on a pool of worker threads: each chunk starts from a copy of the
+ * CurveTrace as it was at the start of the chunk and replays the recorded ticks of the
+ * chunk. At most a fixed number of chunks are in flight at a time, so memory use does
+ * not grow with the number of frames.
+ */
+public class TraceExporter {
+	/**
+	 * The formats that a TraceExporter can write.
+	 */
+	public enum Format {
+		// A single looping animated GIF file
+		GIF,
+		// A directory of PNG files named frame00000.png, frame00001.png, ...
+		PNG_SEQUENCE
+	}
+
+	// The number of frames painted by one task
+	private static final int FRAMES_PER_CHUNK = 8;
+
+	// The number of chunks that may be in flight per worker thread
+	private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+	// Every colour that can appear in a frame. The background is the first colour.
+	private static final IndexColorModel PALETTE = createPalette();
+
+	private final ParametricCurve curve;
+	private final int width;
+	private final int height;
+
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private int ticksPerFrame = 1;
+	private int frameDelayMillis = 20;
+
+	/**
+	 * The ticks of one chunk, as recorded while advancing the curve.
+	 */
+	private static class Chunk {
+		final int firstFrame;
+		final int numFrames;
+		final CurveTrace startTrace;
+		final boolean[] tIncreasing;
+		final boolean[] changingDirection;
+		final double[] x;
+		final double[] y;
+
+		Chunk(int firstFrame, int numFrames, int numTicks, CurveTrace startTrace) {
+			this.firstFrame = firstFrame;
+			this.numFrames = numFrames;
+			this.startTrace = startTrace;
+			tIncreasing = new boolean[numTicks];
+			changingDirection = new boolean[numTicks];
+			x = new double[numTicks];
+			y = new double[numTicks];
+		}
+	}
+
+	/**
+	 * Creates a TraceExporter for the given curve, with frames that are the same size
+	 * as the DrawingPanel. The curve is advanced from its current state.
+	 */
+	public TraceExporter(ParametricCurve curve) {
+		this(curve, DrawingPanel.SCREEN_WIDTH, DrawingPanel.SCREEN_HEIGHT);
+	}
+
+	/**
+	 * Creates a TraceExporter for the given curve, with frames of the given size. The
+	 * curve is advanced from its current state.
+	 */
+	public TraceExporter(ParametricCurve curve, int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Frame size must be positive");
+		}
+		this.curve = curve;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Sets the number of threads that paint frames. Defaults to the number of
+	 * available processors.
+	 */
+	public void setNumThreads(int numThreads) {
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1");
+		}
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Sets the number of Timer ticks between consecutive frames. Defaults to 1, which
+	 * exports every tick.
+	 */
+	public void setTicksPerFrame(int ticksPerFrame) {
+		if (ticksPerFrame < 1) {
+			throw new IllegalArgumentException("Ticks per frame must be at least 1");
+		}
+		this.ticksPerFrame = ticksPerFrame;
+	}
+
+	/**
+	 * Sets the delay between frames of an animated GIF in milliseconds. GIF delays are
+	 * stored in hundredths of a second, so the delay is rounded to the nearest 10 ms.
+	 * Defaults to 20 ms.
+	 */
+	public void setFrameDelayMillis(int frameDelayMillis) {
+		if (frameDelayMillis < 0) {
+			throw new IllegalArgumentException("Frame delay cannot be negative");
+		}
+		this.frameDelayMillis = frameDelayMillis;
+	}
+
+	/**
+	 * Advances the curve through numFrames frames and writes them to the given file
+	 * (for GIF) or directory (for PNG_SEQUENCE), which is created if necessary.
+	 *
+	 * @throws IOException if the frames cannot be written
+	 */
+	public void export(int numFrames, Format format, File output) throws IOException {
+		if (numFrames < 1) {
+			throw new IllegalArgumentException("Number of frames must be at least 1");
+		}
+
+		FrameSink sink;
+		if (format == Format.GIF) {
+			sink = new GifSink(output);
+		} else {
+			if (!output.isDirectory() && !output.mkdirs()) {
+				throw new IOException("Could not create directory " + output);
+			}
+			sink = new PngSequenceSink(output);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		boolean completed = false;
+		try {
+			Queue<Future<List<BufferedImage>>> inFlight = new ArrayDeque<Future<List<BufferedImage>>>();
+			int maxInFlight = numThreads * CHUNKS_IN_FLIGHT_PER_THREAD;
+			CurveTrace trace = new CurveTrace(width, height);
+
+			for (int firstFrame = 0; firstFrame < numFrames; firstFrame += FRAMES_PER_CHUNK) {
+				int chunkFrames = Math.min(FRAMES_PER_CHUNK, numFrames - firstFrame);
+				Chunk chunk = new Chunk(firstFrame, chunkFrames, chunkFrames * ticksPerFrame, trace.copy());
+				for (int i = 0; i < chunk.x.length; i++) {
+					curve.update();
+					chunk.tIncreasing[i] = curve.isTIncreasing();
+					chunk.changingDirection[i] = curve.isChangingDirection();
+					chunk.x[i] = curve.getCurrentXCoord();
+					chunk.y[i] = curve.getCurrentYCoord();
+					trace.record(chunk.tIncreasing[i], chunk.changingDirection[i], chunk.x[i], chunk.y[i]);
+				}
+
+				if (inFlight.size() == maxInFlight) {
+					sink.write(await(inFlight.remove()));
+				}
+				inFlight.add(executor.submit(createTask(chunk, sink)));
+			}
+			while (!inFlight.isEmpty()) {
+				sink.write(await(inFlight.remove()));
+			}
+			sink.close();
+			completed = true;
+		} finally {
+			executor.shutdownNow();
+			if (!completed) {
+				sink.abort();
+			}
+		}
+	}
+
+	/**
+	 * @return a task that paints the frames of the given chunk and either writes them
+	 * itself or returns them to be written by the given sink
+	 */
+	private Callable<List<BufferedImage>> createTask(final Chunk chunk, final FrameSink sink) {
+		return new Callable<List<BufferedImage>>() {
+			@Override
+			public List<BufferedImage> call() throws IOException {
+				List<BufferedImage> frames = new ArrayList<BufferedImage>(chunk.numFrames);
+				CurveTrace trace = chunk.startTrace;
+				int tick = 0;
+				for (int frame = 0; frame < chunk.numFrames; frame++) {
+					for (int i = 0; i < ticksPerFrame; i++, tick++) {
+						trace.record(chunk.tIncreasing[tick], chunk.changingDirection[tick],
+								chunk.x[tick], chunk.y[tick]);
+					}
+					BufferedImage image = paintFrame(trace);
+					if (!sink.writeInParallel(chunk.firstFrame + frame, image)) {
+						frames.add(image);
+					}
+				}
+				return frames;
+			}
+		};
+	}
+
+	/**
+	 * @return a new image of the given trace on the background colour
+	 */
+	private BufferedImage paintFrame(CurveTrace trace) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, PALETTE);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setColor(DrawingPanel.BACKGROUND_COLOUR);
+			g.fillRect(0, 0, width, height);
+			trace.paint(g);
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	/**
+	 * Waits for the given chunk to be painted, and returns its frames.
+	 */
+	private static List<BufferedImage> await(Future<List<BufferedImage>> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Export was interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException("Could not paint frames", e.getCause());
+		}
+	}
+
+	private static IndexColorModel createPalette() {
+		Color[] colours = new Color[CurveColour.values().length + 1];
+		colours[0] = DrawingPanel.BACKGROUND_COLOUR;
+		for (CurveColour colour : CurveColour.values()) {
+			colours[colour.ordinal() + 1] = CurveTrace.toColor(colour);
+		}
+
+		byte[] red = new byte[colours.length];
+		byte[] green = new byte[colours.length];
+		byte[] blue = new byte[colours.length];
+		for (int i = 0; i < colours.length; i++) {
+			red[i] = (byte) colours[i].getRed();
+			green[i] = (byte) colours[i].getGreen();
+			blue[i] = (byte) colours[i].getBlue();
+		}
+		return new IndexColorModel(8, colours.length, red, green, blue);
+	}
+
+	/**
+	 * A FrameSink receives the frames of an export in order.
+	 */
+	private abstract static class FrameSink {
+		/**
+		 * Writes the frame with the given index from a worker thread, if the sink
+		 * supports that.
+		 *
+		 * @return true if the frame was written; false if it must be passed to
+		 * {@link #write(List)} instead
+		 */
+		boolean writeInParallel(int index, BufferedImage frame) throws IOException {
+			return false;
+		}
+
+		/**
+		 * Writes the given frames, which follow the frames written so far.
+		 */
+		abstract void write(List<BufferedImage> frames) throws IOException;
+
+		/**
+		 * Finishes writing after the last frame.
+		 */
+		abstract void close() throws IOException;
+
+		/**
+		 * Releases any resources held by the sink after the export has failed.
+		 */
+		void abort() {
+		}
+	}
+
+	/**
+	 * Writes every frame to its own PNG file. PNG encoding is done by the worker threads.
+	 */
+	private static class PngSequenceSink extends FrameSink {
+		private final File directory;
+
+		PngSequenceSink(File directory) {
+			this.directory = directory;
+		}
+
+		@Override
+		boolean writeInParallel(int index, BufferedImage frame) throws IOException {
+			File file = new File(directory, String.format("frame%05d.png", index));
+			if (!ImageIO.write(frame, "png", file)) {
+				throw new IOException("No PNG writer is available");
+			}
+			return true;
+		}
+
+		@Override
+		void write(List<BufferedImage> frames) {
+		}
+
+		@Override
+		void close() {
+		}
+	}
+
+	/**
+	 * Writes the frames to a looping animated GIF. A GIF is a single stream, so frames
+	 * are encoded on the thread that calls export().
+	 */
+	private class GifSink extends FrameSink {
+		private final ImageOutputStream output;
+		private final ImageWriter writer;
+		private final IIOMetadata firstFrameMetadata;
+		private final IIOMetadata frameMetadata;
+		private boolean firstFrame = true;
+
+		GifSink(File file) throws IOException {
+			writer = ImageIO.getImageWritersByFormatName("gif").next();
+			ImageTypeSpecifier type = new ImageTypeSpecifier(PALETTE, PALETTE.createCompatibleSampleModel(1, 1));
+			firstFrameMetadata = createMetadata(type, true);
+			frameMetadata = createMetadata(type, false);
+
+			if (file.exists() && !file.delete()) {
+				throw new IOException("Could not overwrite " + file);
+			}
+			output = ImageIO.createImageOutputStream(file);
+			if (output == null) {
+				throw new IOException("Could not write to " + file);
+			}
+			writer.setOutput(output);
+			writer.prepareWriteSequence(null);
+		}
+
+		@Override
+		void write(List<BufferedImage> frames) throws IOException {
+			for (BufferedImage frame : frames) {
+				writer.writeToSequence(new IIOImage(frame, null, firstFrame ? firstFrameMetadata : frameMetadata), null);
+				firstFrame = false;
+			}
+		}
+
+		@Override
+		void close() throws IOException {
+			writer.endWriteSequence();
+			writer.dispose();
+			output.close();
+		}
+
+		@Override
+		void abort() {
+			writer.dispose();
+			try {
+				output.close();
+			} catch (IOException e) {
+				// The export has already failed, so there is nothing more to report
+			}
+		}
+
+		/**
+		 * @return the metadata of one frame, which sets the frame delay and, if loop
+		 * is true, makes the animation repeat forever
+		 */
+		private IIOMetadata createMetadata(ImageTypeSpecifier type, boolean loop) throws IOException {
+			IIOMetadata metadata = writer.getDefaultImageMetadata(type, null);
+			String formatName = metadata.getNativeMetadataFormatName();
+			IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(formatName);
+
+			IIOMetadataNode graphicControl = new IIOMetadataNode("GraphicControlExtension");
+			graphicControl.setAttribute("disposalMethod", "none");
+			graphicControl.setAttribute("userInputFlag", "FALSE");
+			graphicControl.setAttribute("transparentColorFlag", "FALSE");
+			graphicControl.setAttribute("delayTime", Integer.toString(Math.round(frameDelayMillis / 10f)));
+			graphicControl.setAttribute("transparentColorIndex", "0");
+			root.appendChild(graphicControl);
+
+			if (loop) {
+				IIOMetadataNode applicationExtensions = new IIOMetadataNode("ApplicationExtensions");
+				IIOMetadataNode netscape = new IIOMetadataNode("ApplicationExtension");
+				netscape.setAttribute("applicationID", "NETSCAPE");
+				netscape.setAttribute("authenticationCode", "2.0");
+				// Sub-block 1 holds the loop count, where 0 means forever
+				netscape.setUserObject(new byte[] { 1, 0, 0 });
+				applicationExtensions.appendChild(netscape);
+				root.appendChild(applicationExtensions);
+			}
+
+			metadata.setFromTree(formatName, root);
+			return metadata;
+		}
+	}
+}